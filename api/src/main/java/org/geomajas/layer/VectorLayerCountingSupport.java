@@ -0,0 +1,38 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.layer;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.annotation.UserImplemented;
+import org.opengis.filter.Filter;
+
+/**
+ * Allow vector layers to indicate that they can count the features which match a filter without reading them, for
+ * example by letting the database do it. When the number of features is requested for a layer which does not
+ * implement this, the features are read and counted.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+@UserImplemented
+public interface VectorLayerCountingSupport {
+
+	/**
+	 * Count the features in the layer which match the filter.
+	 *
+	 * @param filter filter to be applied
+	 * @return number of features which match the filter
+	 * @throws LayerException oops
+	 */
+	int getCount(Filter filter) throws LayerException;
+}
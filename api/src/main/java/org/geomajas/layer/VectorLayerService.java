@@ -15,10 +15,12 @@ import java.util.List;
 
 import org.geomajas.annotation.Api;
 import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.configuration.SortType;
 import org.geomajas.global.GeomajasConstant;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.feature.Attribute;
 import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
 import org.geomajas.layer.tile.InternalTile;
 import org.geomajas.layer.tile.TileMetadata;
 import org.opengis.filter.Filter;
@@ -117,6 +119,35 @@ public interface VectorLayerService extends LayerService, GeomajasConstant {
 	List<InternalFeature> getFeatures(String layerId, CoordinateReferenceSystem crs, Filter filter,
 			NamedStyleInfo style, int featureIncludes, int offset, int maxResultSize, boolean forcePaging)
 			throws GeomajasException;
+
+	/**
+	 * <p>
+	 * Retrieve the features from the model that this filter accepts, passing them to the handler one at a time
+	 * instead of returning them as a list. This allows processing large results using constant memory.
+	 * </p>
+	 * <p>
+	 * The features can be sorted on an attribute. The sorting is done by the layer when it implements
+	 * {@link VectorLayerSortingSupport}, otherwise all features are read and sorted in memory before they are passed
+	 * to the handler. Sorting in memory uses the attributes of the features, so these need to be included.
+	 * </p>
+	 *
+	 * @param layerId id of layer to get features from
+	 * @param crs which should be used for the geometries in the features
+	 * @param filter filter to be applied
+	 * @param style style to apply
+	 * @param featureIncludes indicate which data to include in the features
+	 * @param offset Skip the first 'offset' features in the result. This is meant for paging.
+	 * @param maxResultSize Limit the result to a maximum number of features. Can be used for paging.
+	 * @param sortAttributeName name of the attribute to sort on, null when the features should not be sorted
+	 * @param sortType sort order, ascending when null
+	 * @param handler handler which receives the features
+	 * @throws GeomajasException oops
+	 * @since 1.18.6
+	 */
+	void getFeatures(String layerId, CoordinateReferenceSystem crs, Filter filter, NamedStyleInfo style,
+			int featureIncludes, int offset, int maxResultSize, String sortAttributeName, SortType sortType,
+			InternalFeatureHandler handler) throws GeomajasException;
+
 	/**
 	 * Retrieve the bounds of the specified features.
 	 *
@@ -128,6 +159,21 @@ public interface VectorLayerService extends LayerService, GeomajasConstant {
 	 */
 	Envelope getBounds(String layerId, CoordinateReferenceSystem crs, Filter filter) throws GeomajasException;
 
+	/**
+	 * Count the features from the model that this filter accepts. Only the features which are visible for the current
+	 * user are counted.
+	 * <p/>
+	 * The counting is done by the layer when it implements {@link VectorLayerCountingSupport} and the visibility of
+	 * the features does not depend on a feature authorization, otherwise the features are read and counted.
+	 *
+	 * @param layerId id of layer to count features for
+	 * @param filter filter to be applied
+	 * @return number of features
+	 * @throws GeomajasException oops
+	 * @since 1.18.6
+	 */
+	int getCount(String layerId, Filter filter) throws GeomajasException;
+
 	/**
 	 * Return the list of possible attribute values.
 	 *
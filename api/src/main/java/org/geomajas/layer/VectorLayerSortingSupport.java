@@ -0,0 +1,48 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.layer;
+
+import java.util.Iterator;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.annotation.UserImplemented;
+import org.geomajas.configuration.SortType;
+import org.opengis.filter.Filter;
+
+/**
+ * Allow vector layers to indicate that they can sort the features on an attribute, for example by letting the
+ * database do it. When a sort order is requested for a layer which does not implement this, the features are sorted
+ * in memory.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+@UserImplemented
+public interface VectorLayerSortingSupport {
+
+	/**
+	 * Read features from the layer, sorted on an attribute. Apart from the sorting, this behaves as
+	 * {@link VectorLayer#getElements(Filter, int, int)}.
+	 *
+	 * @param filter filter to be applied
+	 * @param sortAttributeName name of the attribute to sort on
+	 * @param sortType sort order
+	 * @param offset number of features to skip, for paging
+	 * @param maxResultSize maximum number of features to return, 0 for no limit
+	 * @return iterator over the feature objects
+	 * @throws LayerException oops
+	 */
+	Iterator<?> getElements(Filter filter, String sortAttributeName, SortType sortType, int offset,
+			int maxResultSize) throws LayerException;
+}
@@ -0,0 +1,37 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.layer.feature;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.annotation.UserImplemented;
+import org.geomajas.global.GeomajasException;
+
+/**
+ * Receives the features one at a time while they are read from a vector layer. This allows processing (for example
+ * writing) large results without keeping all features in memory.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+@UserImplemented
+public interface InternalFeatureHandler {
+
+	/**
+	 * Handle a feature. The features are passed in the order in which they are read, after the security checks.
+	 *
+	 * @param feature feature
+	 * @throws GeomajasException processing failed, stops reading the features
+	 */
+	void handle(InternalFeature feature) throws GeomajasException;
+}
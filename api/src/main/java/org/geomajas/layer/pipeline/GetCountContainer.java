@@ -0,0 +1,44 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.layer.pipeline;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Container for result of getCount in {@link org.geomajas.layer.VectorLayerService}.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public class GetCountContainer {
+
+	private Integer count;
+
+	/**
+	 * Get the number of features.
+	 *
+	 * @return number of features, null when not counted yet
+	 */
+	public Integer getCount() {
+		return count;
+	}
+
+	/**
+	 * Set the number of features.
+	 *
+	 * @param count number of features
+	 */
+	public void setCount(Integer count) {
+		this.count = count;
+	}
+}
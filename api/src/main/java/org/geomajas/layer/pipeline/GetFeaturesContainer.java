@@ -15,6 +15,7 @@ import java.util.List;
 
 import org.geomajas.annotation.Api;
 import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
 
 import com.vividsolutions.jts.geom.Envelope;
 
@@ -29,6 +30,7 @@ public class GetFeaturesContainer {
 
 	private List<InternalFeature> features;
 	private Envelope bounds;
+	private InternalFeatureHandler featureHandler;
 
 	/**
 	 * Get the features.
@@ -65,4 +67,25 @@ public class GetFeaturesContainer {
 	public void setBounds(Envelope bounds) {
 		this.bounds = bounds;
 	}
+
+	/**
+	 * Get the handler which receives the features while they are read. When a handler is set, the features are
+	 * passed to the handler and not added to the list of features.
+	 *
+	 * @return feature handler, null when the features should be added to the list of features
+	 * @since 1.18.6
+	 */
+	public InternalFeatureHandler getFeatureHandler() {
+		return featureHandler;
+	}
+
+	/**
+	 * Set the handler which receives the features while they are read.
+	 *
+	 * @param featureHandler feature handler, null to add the features to the list of features
+	 * @since 1.18.6
+	 */
+	public void setFeatureHandler(InternalFeatureHandler featureHandler) {
+		this.featureHandler = featureHandler;
+	}
 }
@@ -36,6 +36,13 @@ public interface TileMetadata {
 	 */
 	String PARAM_VML_RENDERER = "VML";
 
+	/**
+	 * Render the tile as a binary vector tile (Mapbox Vector Tile format) for rendering on the client.
+	 *
+	 * @since 1.18.6
+	 */
+	String PARAM_MVT_RENDERER = "MVT";
+
 	/**
 	 * Get layer id.
 	 *
@@ -48,7 +48,15 @@ public class VectorTile implements Serializable {
 		STRING_CONTENT,
 
 		/** Rendering method that contains an URL to an image that contains the actual rendering of a tile. */
-		URL_CONTENT
+		URL_CONTENT,
+
+		/**
+		 * Rendering method that contains the features of a tile as a base64 encoded binary vector tile (Mapbox
+		 * Vector Tile format).
+		 *
+		 * @since 1.18.6
+		 */
+		BINARY_CONTENT
 	}
 
 	private List<TileCode> codes = new ArrayList<TileCode>();
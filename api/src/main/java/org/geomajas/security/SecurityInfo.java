@@ -28,6 +28,8 @@ public class SecurityInfo {
 
 	private List<SecurityService> securityServices;
 
+	private int authenticationCacheTime;
+
 	/**
 	 * Should all security services try to validate the authentication token and be allowed to add
 	 * {@link org.geomajas.security.Authorization} info or should the security manager stop after the first one?
@@ -67,4 +69,30 @@ public class SecurityInfo {
 	public void setSecurityServices(List<SecurityService> securityServices) {
 		this.securityServices = securityServices;
 	}
+
+	/**
+	 * Get the time in seconds for which the authentications for a token are cached. During this time, the security
+	 * services are not queried again for the token.
+	 *
+	 * @return cache time in seconds, 0 when the authentications are not cached
+	 * @since 1.18.6
+	 */
+	public int getAuthenticationCacheTime() {
+		return authenticationCacheTime;
+	}
+
+	/**
+	 * Set the time in seconds for which the authentications for a token are cached. Default is 0, which means the
+	 * security services are queried for each request.
+	 * <p/>
+	 * When caching is enabled, a token which is revoked (for example on logout) remains valid until the cache time
+	 * has passed. Security services which revoke tokens must therefore call
+	 * {@link SecurityManager#invalidateAuthentication(String)} for that token to remove the cached authentications.
+	 *
+	 * @param authenticationCacheTime cache time in seconds
+	 * @since 1.18.6
+	 */
+	public void setAuthenticationCacheTime(int authenticationCacheTime) {
+		this.authenticationCacheTime = authenticationCacheTime;
+	}
 }
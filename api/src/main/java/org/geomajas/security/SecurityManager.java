@@ -44,4 +44,13 @@ public interface SecurityManager {
 	 */
 	void restoreSecurityContext(SavedAuthorization authorizations);
 
+	/**
+	 * Remove the cached authentications for a token. This should be called when the token is no longer valid, for
+	 * example on logout or when the token has expired.
+	 *
+	 * @param authenticationToken authentication token
+	 * @since 1.18.6
+	 */
+	void invalidateAuthentication(String authenticationToken);
+
 }
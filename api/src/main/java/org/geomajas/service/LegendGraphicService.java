@@ -15,6 +15,7 @@ import java.util.List;
 
 import org.geomajas.annotation.Api;
 import org.geomajas.global.GeomajasException;
+import org.geomajas.service.legend.EncodedLegendGraphic;
 import org.geomajas.service.legend.LegendGraphicMetadata;
 
 /**
@@ -46,4 +47,32 @@ public interface LegendGraphicService {
 	 * @since 1.13.0
 	 */
 	RenderedImage getLegendGraphics(List<LegendGraphicMetadata> legendMetadata) throws GeomajasException;
+
+	/**
+	 * Get the graphical symbol based on the specified legend metadata, encoded in the requested image format.
+	 * <p/>
+	 * The encoded graphics are cached until the layer is invalidated. When a rule of a user style is requested, the
+	 * graphics for all rules of that style are rendered at once.
+	 *
+	 * @param legendMetadata the legend metadata
+	 * @param format image format ('png', 'jpg', 'gif')
+	 * @return encoded image
+	 * @throws GeomajasException thrown when invalid metadata are passed
+	 * @since 1.18.6
+	 */
+	EncodedLegendGraphic getEncodedLegendGraphic(LegendGraphicMetadata legendMetadata, String format)
+			throws GeomajasException;
+
+	/**
+	 * Get the graphical symbols based on the specified legend metadata, stacked vertically and encoded in the
+	 * requested image format. The encoded graphics are cached until the layer is invalidated.
+	 *
+	 * @param legendMetadata a list of legend metadata
+	 * @param format image format ('png', 'jpg', 'gif')
+	 * @return encoded image that contains all legend symbols stacked vertically
+	 * @throws GeomajasException thrown when invalid metadata are passed
+	 * @since 1.18.6
+	 */
+	EncodedLegendGraphic getEncodedLegendGraphics(List<LegendGraphicMetadata> legendMetadata, String format)
+			throws GeomajasException;
 }
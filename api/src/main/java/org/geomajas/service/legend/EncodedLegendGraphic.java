@@ -0,0 +1,72 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.service.legend;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Legend graphic which is encoded in an image format, ready to be sent to the client.
+ * <p/>
+ * Instances are shared (cached), the content should not be modified.
+ * 
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public class EncodedLegendGraphic {
+
+	private final String format;
+
+	private final byte[] content;
+
+	private final String eTag;
+
+	/**
+	 * Create an encoded legend graphic.
+	 *
+	 * @param format image format ('png', 'jpg', 'gif')
+	 * @param content encoded image
+	 * @param eTag entity tag, changes when the content changes
+	 */
+	public EncodedLegendGraphic(String format, byte[] content, String eTag) {
+		this.format = format;
+		this.content = content;
+		this.eTag = eTag;
+	}
+
+	/**
+	 * Get the image format.
+	 *
+	 * @return image format ('png', 'jpg', 'gif')
+	 */
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * Get the encoded image.
+	 *
+	 * @return encoded image, should not be modified
+	 */
+	public byte[] getContent() {
+		return content;
+	}
+
+	/**
+	 * Get the entity tag for the graphic. This is based on the content and can be used for conditional requests.
+	 *
+	 * @return entity tag, including the quotes
+	 */
+	public String getETag() {
+		return eTag;
+	}
+}
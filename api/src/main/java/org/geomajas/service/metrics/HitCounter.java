@@ -0,0 +1,52 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.service.metrics;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Metric which counts hits and misses, for example of a cache.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface HitCounter extends Metric {
+
+	/**
+	 * Record a hit or miss.
+	 *
+	 * @param hit true for a hit, false for a miss
+	 */
+	void record(boolean hit);
+
+	/**
+	 * Get the number of hits.
+	 *
+	 * @return hit count
+	 */
+	long getHits();
+
+	/**
+	 * Get the number of misses.
+	 *
+	 * @return miss count
+	 */
+	long getMisses();
+
+	/**
+	 * Get the fraction of the lookups which were hits.
+	 *
+	 * @return hit ratio between 0 and 1, 0 when nothing was recorded
+	 */
+	double getHitRatio();
+}
@@ -0,0 +1,71 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.service.metrics;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Metric which records the distribution of durations. Recording is thread-safe and does not allocate. The
+ * percentiles are approximations, the relative error is at most 12.5%.
+ * <p/>
+ * The count, total and mean cover all durations since the start or the last reset. The maximum and percentiles only
+ * cover the recent durations (the last minute by default), so they follow changes in the latency.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface LatencyTimer extends Metric {
+
+	/**
+	 * Record a duration.
+	 *
+	 * @param nanos duration in nanoseconds, negative values are ignored
+	 */
+	void record(long nanos);
+
+	/**
+	 * Get the number of recorded durations.
+	 *
+	 * @return count
+	 */
+	long getCount();
+
+	/**
+	 * Get the sum of the recorded durations.
+	 *
+	 * @return total duration in nanoseconds
+	 */
+	long getTotalNanos();
+
+	/**
+	 * Get the longest recently recorded duration.
+	 *
+	 * @return maximum duration in nanoseconds, 0 when nothing was recorded recently
+	 */
+	long getMaxNanos();
+
+	/**
+	 * Get the mean of the recorded durations.
+	 *
+	 * @return mean duration in nanoseconds, 0 when nothing was recorded
+	 */
+	double getMeanNanos();
+
+	/**
+	 * Get the (approximate) duration below which the given percentage of the recently recorded durations fall.
+	 *
+	 * @param percentile percentile, between 0 and 100
+	 * @return duration in nanoseconds, 0 when nothing was recorded recently
+	 */
+	long getPercentileNanos(double percentile);
+}
@@ -0,0 +1,48 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.service.metrics;
+
+import java.util.Map;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Metric in the {@link MetricsService}, identified by name and tags.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface Metric {
+
+	/**
+	 * Get the metric name.
+	 *
+	 * @return metric name
+	 */
+	String getName();
+
+	/**
+	 * Get the tags of the metric, in the order in which they were specified.
+	 *
+	 * @return tags, null values are replaced by the empty string
+	 */
+	Map<String, String> getTags();
+
+	/**
+	 * Get the unique id of the metric, which combines the name and tags as in
+	 * <code>pipeline.step{pipeline="vectorLayer.getVectorTile",layer="beans",step="GetTileFillStep"}</code>.
+	 *
+	 * @return metric id
+	 */
+	String getId();
+}
@@ -0,0 +1,117 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.service.metrics;
+
+import java.util.Collection;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Registry for the always-on metrics of the back-end, like the latency of the pipeline steps and the hit ratio of the
+ * caches. The metrics are exposed using JMX and can be pulled by a monitoring system.
+ * <p/>
+ * A metric is identified by its name and tags, which are given as key-value pairs. The same metric instance is
+ * returned for the same name and tags, so a caller can keep it to avoid the lookup.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface MetricsService {
+
+	/** Latency of a complete pipeline execution, tagged with "pipeline" and "layer". */
+	String PIPELINE = "pipeline";
+
+	/** Latency of a pipeline step, tagged with "pipeline", "layer" and "step". */
+	String PIPELINE_STEP = "pipeline.step";
+
+	/** Latency of a pipeline interceptor including its steps, tagged with "pipeline", "layer" and "interceptor". */
+	String PIPELINE_INTERCEPTOR = "pipeline.interceptor";
+
+	/** Hits and misses of a cache, tagged with "category", "layer" and "interceptor". */
+	String CACHE = "cache";
+
+	/** Latency until the response headers of an upstream HTTP request are received, tagged with "host". */
+	String HTTP = "http";
+
+	/** Successful (hit) and failed (miss) upstream HTTP requests, tagged with "host". */
+	String HTTP_SUCCESS = "http.success";
+
+	/** Tag for the pipeline name. */
+	String TAG_PIPELINE = "pipeline";
+
+	/** Tag for the layer id. */
+	String TAG_LAYER = "layer";
+
+	/** Tag for the step id. */
+	String TAG_STEP = "step";
+
+	/** Tag for the interceptor id. */
+	String TAG_INTERCEPTOR = "interceptor";
+
+	/** Tag for the cache category. */
+	String TAG_CATEGORY = "category";
+
+	/** Tag for the host (and port) of an upstream server. */
+	String TAG_HOST = "host";
+
+	/**
+	 * Are metrics being recorded? When disabled, callers should skip measuring.
+	 *
+	 * @return true when metrics should be recorded
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Enable or disable recording metrics. Metrics are enabled by default.
+	 *
+	 * @param enabled true when metrics should be recorded
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Get (or create) the latency timer with given name and tags.
+	 *
+	 * @param name metric name
+	 * @param tags tags as key-value pairs, null values are allowed
+	 * @return latency timer
+	 */
+	LatencyTimer getLatencyTimer(String name, String... tags);
+
+	/**
+	 * Get (or create) the hit counter with given name and tags.
+	 *
+	 * @param name metric name
+	 * @param tags tags as key-value pairs, null values are allowed
+	 * @return hit counter
+	 */
+	HitCounter getHitCounter(String name, String... tags);
+
+	/**
+	 * Get all latency timers.
+	 *
+	 * @return latency timers
+	 */
+	Collection<LatencyTimer> getLatencyTimers();
+
+	/**
+	 * Get all hit counters.
+	 *
+	 * @return hit counters
+	 */
+	Collection<HitCounter> getHitCounters();
+
+	/**
+	 * Reset all metrics. The metric instances remain valid.
+	 */
+	void reset();
+}
@@ -25,6 +25,11 @@ public interface PipelineCode {
 	String PIPELINE_GET_ATTRIBUTES = "vectorLayer.getAttributes";
 	/** Vector layer get bounds pipeline key. */
 	String PIPELINE_GET_BOUNDS = "vectorLayer.getBounds";
+	/**
+	 * Vector layer get count pipeline key.
+	 *
+	 * @since 1.18.6 */
+	String PIPELINE_GET_COUNT = "vectorLayer.getCount";
 	/** Vector layer get features pipeline key. */
 	String PIPELINE_GET_FEATURES = "vectorLayer.getFeatures";
 	/** Raster layer get tiles pipeline key. */
@@ -88,4 +93,14 @@ public interface PipelineCode {
 	 *
 	 * @since 1.10.0 */
 	String FORCE_PAGING_KEY = "forcePaging"; // Boolean (default false)
+	/**
+	 * Name of the attribute to sort the features on, {@link String}.
+	 *
+	 * @since 1.18.6 */
+	String SORT_ATTRIBUTE_NAME_KEY = "sortAttributeName";
+	/**
+	 * Sort order, {@link org.geomajas.configuration.SortType} (default ascending).
+	 *
+	 * @since 1.18.6 */
+	String SORT_TYPE_KEY = "sortType";
 }
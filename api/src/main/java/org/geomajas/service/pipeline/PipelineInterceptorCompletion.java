@@ -0,0 +1,40 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.service.pipeline;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Optional extension of a {@link PipelineInterceptor} which is notified when the intercepted steps are finished, also
+ * when they failed. This allows the interceptor to release resources which were acquired in
+ * {@link PipelineInterceptor#beforeSteps(PipelineContext, Object)}.
+ *
+ * @param <RESPONSE> type of response object for the pipeline
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface PipelineInterceptorCompletion<RESPONSE> {
+
+	/**
+	 * Called after the steps and {@link PipelineInterceptor#afterSteps(PipelineContext, Object)} (as far as they were
+	 * executed), when {@link PipelineInterceptor#beforeSteps(PipelineContext, Object)} succeeded. This should not
+	 * throw exceptions as it is also called while an exception is being propagated.
+	 *
+	 * @param context pipeline context
+	 * @param response pipeline response
+	 * @param success true when the steps completed normally, false when an exception was thrown
+	 */
+	void afterCompletion(PipelineContext context, RESPONSE response, boolean success);
+
+}
@@ -0,0 +1,159 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.List;
+
+import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerService;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.security.SecurityManager;
+import org.geomajas.service.ConfigurationService;
+import org.geomajas.service.DtoConverterService;
+import org.geomajas.service.FilterService;
+import org.geomajas.service.GeoService;
+import org.opengis.filter.Filter;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.support.ClassPathXmlApplicationContext;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Shared Spring context for the benchmarks, containing the test data layers.
+ * <p/>
+ * The context is created only once per (forked) benchmark JVM. The security context is thread specific, so each
+ * benchmark state needs to {@link #login()} from its setup method.
+ *
+ * @author agent
+ */
+public final class BenchmarkContext {
+
+	/** {@link org.geomajas.layer.bean.BeanLayer} with some twenty features. */
+	public static final String BEAN_LAYER = "lotsObeans";
+
+	/** {@link org.geomajas.layer.shapeinmem.ShapeInMemLayer} containing the 177 countries of natural earth. */
+	public static final String SHAPE_LAYER = "countries110m";
+
+	private static final String[] CONTEXT_LOCATIONS = {
+			"org/geomajas/spring/geomajasContext.xml",
+			"org/geomajas/testdata/beanContext.xml",
+			"org/geomajas/testdata/layerBeans.xml",
+			"org/geomajas/benchmark/benchmarkContext.xml"};
+
+	private static ApplicationContext applicationContext;
+
+	private BenchmarkContext() {
+		// utility class, hide constructor
+	}
+
+	/**
+	 * Get the shared application context, creating it when needed.
+	 *
+	 * @return application context
+	 */
+	public static synchronized ApplicationContext getApplicationContext() {
+		if (null == applicationContext) {
+			applicationContext = new ClassPathXmlApplicationContext(CONTEXT_LOCATIONS);
+		}
+		return applicationContext;
+	}
+
+	/**
+	 * Get a bean from the shared application context.
+	 *
+	 * @param type bean type
+	 * @param <T> bean type
+	 * @return bean
+	 */
+	public static <T> T getBean(Class<T> type) {
+		return getApplicationContext().getBean(type);
+	}
+
+	/**
+	 * Create a new instance of the given class, with autowiring applied. Used for pipeline steps which are not
+	 * available as beans.
+	 *
+	 * @param type class to instantiate
+	 * @param <T> class to instantiate
+	 * @return autowired instance
+	 */
+	public static <T> T createBean(Class<T> type) {
+		return getApplicationContext().getAutowireCapableBeanFactory().createBean(type);
+	}
+
+	/**
+	 * Create the security context for the current thread (allow all).
+	 */
+	public static void login() {
+		getBean(SecurityManager.class).createSecurityContext(null);
+	}
+
+	/**
+	 * Clear the security context for the current thread.
+	 */
+	public static void logout() {
+		getBean(SecurityManager.class).clearSecurityContext();
+	}
+
+	/**
+	 * Get a layer by id.
+	 *
+	 * @param layerId layer id
+	 * @return vector layer
+	 */
+	public static VectorLayer getLayer(String layerId) {
+		return getBean(ConfigurationService.class).getVectorLayer(layerId);
+	}
+
+	/**
+	 * Get the (first) named style of a layer.
+	 *
+	 * @param layerId layer id
+	 * @return style
+	 */
+	public static NamedStyleInfo getStyle(String layerId) {
+		return getLayer(layerId).getLayerInfo().getNamedStyleInfos().get(0);
+	}
+
+	/**
+	 * Get the maximum extent of a layer.
+	 *
+	 * @param layerId layer id
+	 * @return maximum extent in layer coordinates
+	 */
+	public static Envelope getMaxExtent(String layerId) {
+		return getBean(DtoConverterService.class).toInternal(getLayer(layerId).getLayerInfo().getMaxExtent());
+	}
+
+	/**
+	 * Get the styled features of a layer (in layer coordinates) which are inside the given bounds, including all
+	 * data (attributes, label, style...).
+	 *
+	 * @param layerId layer id
+	 * @param bounds bounds, null for all features
+	 * @return features
+	 * @throws GeomajasException oops
+	 */
+	public static List<InternalFeature> getFeatures(String layerId, Envelope bounds) throws GeomajasException {
+		VectorLayer layer = getLayer(layerId);
+		Filter filter = Filter.INCLUDE;
+		if (null != bounds) {
+			String epsg = Integer.toString(getBean(GeoService.class).getSridFromCrs(layer.getCrs()));
+			String geometryName = layer.getLayerInfo().getFeatureInfo().getGeometryType().getName();
+			filter = getBean(FilterService.class).createBboxFilter(epsg, bounds, geometryName);
+		}
+		return getBean(VectorLayerService.class).getFeatures(layerId, layer.getCrs(), filter, getStyle(layerId),
+				VectorLayerService.FEATURE_INCLUDE_ALL);
+	}
+}
@@ -0,0 +1,122 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.layer.tile.InternalTileImpl;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.tile.InternalTile;
+import org.geomajas.layer.tile.TileCode;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Vector tile test data for the rendering benchmarks. The tile is chosen to contain a given location and has a
+ * screen size of about 256 pixels. The features are the features of the layer which intersect the tile bounds, as
+ * selected by the tile pipeline. The layer and map coordinate system are the same.
+ *
+ * @author agent
+ */
+public class BenchmarkTile {
+
+	private static final int TILE_SIZE = 256;
+
+	private final Envelope maxExtent;
+
+	private final double scale;
+
+	private final TileCode code;
+
+	private final Coordinate panOrigin;
+
+	private final List<InternalFeature> features;
+
+	/**
+	 * Create tile data.
+	 *
+	 * @param layerId layer id
+	 * @param level tile level
+	 * @param location location which needs to be in the tile (layer coordinates)
+	 * @throws GeomajasException oops
+	 */
+	public BenchmarkTile(String layerId, int level, Coordinate location) throws GeomajasException {
+		maxExtent = BenchmarkContext.getMaxExtent(layerId);
+		int tilesPerSide = 1 << level;
+		scale = TILE_SIZE * tilesPerSide / maxExtent.getWidth();
+		int x = (int) ((location.x - maxExtent.getMinX()) * tilesPerSide / maxExtent.getWidth());
+		int y = (int) ((location.y - maxExtent.getMinY()) * tilesPerSide / maxExtent.getHeight());
+		code = new TileCode(level, x, y);
+		panOrigin = location;
+		features = BenchmarkContext.getFeatures(layerId, createTile().getBounds());
+	}
+
+	/**
+	 * Create a new tile, without features.
+	 *
+	 * @return tile
+	 */
+	public InternalTile createTile() {
+		return new InternalTileImpl(code, maxExtent, scale);
+	}
+
+	/**
+	 * Create a new tile containing (a copy of the list of) the given features.
+	 *
+	 * @param tileFeatures features to put in the tile
+	 * @return tile
+	 */
+	public InternalTile createTile(List<InternalFeature> tileFeatures) {
+		InternalTile tile = createTile();
+		tile.setFeatures(new ArrayList<InternalFeature>(tileFeatures));
+		return tile;
+	}
+
+	/**
+	 * Maximum extent of the tile grid.
+	 *
+	 * @return maximum extent
+	 */
+	public Envelope getMaxExtent() {
+		return maxExtent;
+	}
+
+	/**
+	 * Client side scale for the tile.
+	 *
+	 * @return scale
+	 */
+	public double getScale() {
+		return scale;
+	}
+
+	/**
+	 * Pan origin, the location which was used to choose the tile.
+	 *
+	 * @return pan origin
+	 */
+	public Coordinate getPanOrigin() {
+		return panOrigin;
+	}
+
+	/**
+	 * Features which intersect the tile.
+	 *
+	 * @return features
+	 */
+	public List<InternalFeature> getFeatures() {
+		return features;
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.command.dto.GetVectorTileRequest;
+import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.service.pipeline.PipelineContextImpl;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerService;
+import org.geomajas.layer.tile.TileCode;
+import org.geomajas.layer.tile.TileMetadata;
+import org.geomajas.plugin.caching.service.CacheContext;
+import org.geomajas.plugin.caching.service.CacheKeyService;
+import org.geomajas.service.FilterService;
+import org.geomajas.service.GeoService;
+import org.geomajas.service.pipeline.PipelineCode;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Benchmark for {@link CacheKeyService#getCacheKey(CacheContext)}, using the cache contexts as built by the caching
+ * interceptors for the "getFeatures" and "getTile" pipelines.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class CacheKeyServiceBenchmark {
+
+	// same keys as GetFeaturesEachCachingInterceptor
+	private static final String[] FEATURES_KEYS = {PipelineCode.LAYER_ID_KEY, PipelineCode.CRS_KEY,
+			PipelineCode.FILTER_KEY, PipelineCode.STYLE_KEY, PipelineCode.OFFSET_KEY, PipelineCode.MAX_RESULT_SIZE_KEY,
+			PipelineCode.FEATURE_INCLUDES_KEY};
+
+	// same keys as GetTileCachingInterceptor
+	private static final String[] TILE_KEYS = {PipelineCode.LAYER_ID_KEY, PipelineCode.TILE_METADATA_KEY};
+
+	private CacheKeyService cacheKeyService;
+
+	private CacheContext featuresCacheContext;
+
+	private CacheContext tileCacheContext;
+
+	@Setup(Level.Trial)
+	public void setUp() throws GeomajasException {
+		BenchmarkContext.login();
+		cacheKeyService = BenchmarkContext.getBean(CacheKeyService.class);
+		String layerId = BenchmarkContext.SHAPE_LAYER;
+		VectorLayer layer = BenchmarkContext.getLayer(layerId);
+		NamedStyleInfo style = BenchmarkContext.getStyle(layerId);
+		String epsg = Integer.toString(BenchmarkContext.getBean(GeoService.class).getSridFromCrs(layer.getCrs()));
+
+		PipelineContext context = new PipelineContextImpl();
+		context.put(PipelineCode.LAYER_ID_KEY, layerId);
+		context.put(PipelineCode.CRS_KEY, layer.getCrs());
+		context.put(PipelineCode.FILTER_KEY, BenchmarkContext.getBean(FilterService.class).createBboxFilter(epsg,
+				new Envelope(0, 45, 0, 45), layer.getLayerInfo().getFeatureInfo().getGeometryType().getName()));
+		context.put(PipelineCode.STYLE_KEY, style);
+		context.put(PipelineCode.OFFSET_KEY, 0);
+		context.put(PipelineCode.MAX_RESULT_SIZE_KEY, 0);
+		context.put(PipelineCode.FEATURE_INCLUDES_KEY, VectorLayerService.FEATURE_INCLUDE_ALL);
+		featuresCacheContext = cacheKeyService.getCacheContext(context, FEATURES_KEYS);
+
+		GetVectorTileRequest tileMetadata = new GetVectorTileRequest();
+		tileMetadata.setLayerId(layerId);
+		tileMetadata.setCrs("EPSG:4326");
+		tileMetadata.setCode(new TileCode(3, 5, 4));
+		tileMetadata.setScale(6.02);
+		tileMetadata.setPanOrigin(new Coordinate(12.5, 45.3));
+		tileMetadata.setRenderer(TileMetadata.PARAM_SVG_RENDERER);
+		tileMetadata.setStyleInfo(style);
+		tileMetadata.setPaintGeometries(true);
+		tileMetadata.setPaintLabels(true);
+		context = new PipelineContextImpl();
+		context.put(PipelineCode.LAYER_ID_KEY, layerId);
+		context.put(PipelineCode.TILE_METADATA_KEY, tileMetadata);
+		tileCacheContext = cacheKeyService.getCacheContext(context, TILE_KEYS);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkContext.logout();
+	}
+
+	@Benchmark
+	public String featuresCacheKey() {
+		return cacheKeyService.getCacheKey(featuresCacheContext);
+	}
+
+	@Benchmark
+	public String tileCacheKey() {
+		return cacheKeyService.getCacheKey(tileCacheContext);
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.service.DtoConverterService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark for {@link DtoConverterService#toDto(InternalFeature)}, converting all features of a layer.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class DtoConverterServiceBenchmark {
+
+	@Param({BenchmarkContext.BEAN_LAYER, BenchmarkContext.SHAPE_LAYER})
+	private String layerId;
+
+	private DtoConverterService dtoConverterService;
+
+	private List<InternalFeature> features;
+
+	@Setup(Level.Trial)
+	public void setUp() throws GeomajasException {
+		BenchmarkContext.login();
+		dtoConverterService = BenchmarkContext.getBean(DtoConverterService.class);
+		features = BenchmarkContext.getFeatures(layerId, null);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkContext.logout();
+	}
+
+	@Benchmark
+	public void toDto(Blackhole blackhole) throws GeomajasException {
+		for (InternalFeature feature : features) {
+			blackhole.consume(dtoConverterService.toDto(feature));
+		}
+	}
+}
@@ -0,0 +1,86 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.geometry.CrsTransform;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.service.GeoService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Benchmark for {@link GeoService#transform(Geometry, CrsTransform)}, transforming all countries from lon/lat to the
+ * target coordinate system. The transform itself is looked up once, like in the pipelines.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class GeoServiceBenchmark {
+
+	private static final String SOURCE_CRS = "EPSG:4326";
+
+	@Param({"EPSG:900913", "EPSG:4326"})
+	private String targetCrs;
+
+	private GeoService geoService;
+
+	private CrsTransform transform;
+
+	private Geometry[] geometries;
+
+	@Setup(Level.Trial)
+	public void setUp() throws GeomajasException {
+		BenchmarkContext.login();
+		geoService = BenchmarkContext.getBean(GeoService.class);
+		transform = geoService.getCrsTransform(SOURCE_CRS, targetCrs);
+		List<InternalFeature> features = BenchmarkContext.getFeatures(BenchmarkContext.SHAPE_LAYER, null);
+		geometries = new Geometry[features.size()];
+		for (int i = 0; i < geometries.length; i++) {
+			geometries[i] = features.get(i).getGeometry();
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkContext.logout();
+	}
+
+	@Benchmark
+	public void transform(Blackhole blackhole) {
+		for (Geometry geometry : geometries) {
+			blackhole.consume(geoService.transform(geometry, transform));
+		}
+	}
+}
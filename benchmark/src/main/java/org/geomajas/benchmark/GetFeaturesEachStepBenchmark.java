@@ -0,0 +1,93 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.layer.vector.GetFeaturesEachStep;
+import org.geomajas.internal.layer.vector.GetFeaturesStyleStep;
+import org.geomajas.internal.service.pipeline.PipelineContextImpl;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerService;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.pipeline.GetFeaturesContainer;
+import org.geomajas.service.pipeline.PipelineCode;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.opengis.filter.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmark for {@link GetFeaturesEachStep}, which reads, secures and styles the features of a layer. The style
+ * filters are prepared once by {@link GetFeaturesStyleStep}, like in the pipeline.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class GetFeaturesEachStepBenchmark {
+
+	@Param({BenchmarkContext.BEAN_LAYER, BenchmarkContext.SHAPE_LAYER})
+	private String layerId;
+
+	@Param({"" + VectorLayerService.FEATURE_INCLUDE_ALL, "" + VectorLayerService.FEATURE_INCLUDE_GEOMETRY})
+	private int featureIncludes;
+
+	private GetFeaturesEachStep step;
+
+	private PipelineContext context;
+
+	@Setup(Level.Trial)
+	public void setUp() throws GeomajasException {
+		BenchmarkContext.login();
+		step = BenchmarkContext.createBean(GetFeaturesEachStep.class);
+		VectorLayer layer = BenchmarkContext.getLayer(layerId);
+		context = new PipelineContextImpl();
+		context.put(PipelineCode.LAYER_ID_KEY, layerId);
+		context.put(PipelineCode.LAYER_KEY, layer);
+		context.put(PipelineCode.FILTER_KEY, Filter.INCLUDE);
+		context.put(PipelineCode.STYLE_KEY, BenchmarkContext.getStyle(layerId));
+		context.put(PipelineCode.FEATURE_INCLUDES_KEY, featureIncludes);
+		context.put(PipelineCode.OFFSET_KEY, 0);
+		context.put(PipelineCode.MAX_RESULT_SIZE_KEY, 0);
+		BenchmarkContext.createBean(GetFeaturesStyleStep.class).execute(context, new GetFeaturesContainer());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkContext.logout();
+	}
+
+	@Benchmark
+	public List<InternalFeature> execute() throws GeomajasException {
+		GetFeaturesContainer container = new GetFeaturesContainer();
+		step.execute(context, container);
+		return container.getFeatures();
+	}
+}
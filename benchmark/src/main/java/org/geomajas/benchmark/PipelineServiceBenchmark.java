@@ -0,0 +1,106 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerService;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.pipeline.GetFeaturesContainer;
+import org.geomajas.service.pipeline.PipelineCode;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.geomajas.service.pipeline.PipelineService;
+import org.opengis.filter.Filter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks for {@link PipelineService#execute(String, String, PipelineContext, Object)}, both for a pipeline
+ * without functional steps (pipeline overhead) and for the complete "getFeatures" pipeline.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class PipelineServiceBenchmark {
+
+	private static final String NO_OP_PIPELINE = "benchmark.noOp";
+
+	@Param({BenchmarkContext.BEAN_LAYER, BenchmarkContext.SHAPE_LAYER})
+	private String layerId;
+
+	private PipelineService<Object> pipelineService;
+
+	private VectorLayer layer;
+
+	private NamedStyleInfo style;
+
+	@Setup(Level.Trial)
+	@SuppressWarnings("unchecked")
+	public void setUp() {
+		BenchmarkContext.login();
+		pipelineService = BenchmarkContext.getBean(PipelineService.class);
+		layer = BenchmarkContext.getLayer(layerId);
+		style = BenchmarkContext.getStyle(layerId);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkContext.logout();
+	}
+
+	@Benchmark
+	public PipelineContext noOpPipeline() throws GeomajasException {
+		PipelineContext context = pipelineService.createContext();
+		context.put(PipelineCode.LAYER_ID_KEY, layerId);
+		pipelineService.execute(NO_OP_PIPELINE, layerId, context, null);
+		return context;
+	}
+
+	@Benchmark
+	public List<InternalFeature> getFeatures() throws GeomajasException {
+		// same context as created by VectorLayerService.getFeatures()
+		GetFeaturesContainer container = new GetFeaturesContainer();
+		PipelineContext context = pipelineService.createContext();
+		context.put(PipelineCode.LAYER_ID_KEY, layerId);
+		context.put(PipelineCode.LAYER_KEY, layer);
+		context.put(PipelineCode.CRS_TRANSFORM_KEY, null);
+		context.put(PipelineCode.CRS_KEY, layer.getCrs());
+		context.put(PipelineCode.FILTER_KEY, Filter.INCLUDE);
+		context.put(PipelineCode.STYLE_KEY, style);
+		context.put(PipelineCode.FEATURE_INCLUDES_KEY, VectorLayerService.FEATURE_INCLUDE_ALL);
+		context.put(PipelineCode.OFFSET_KEY, 0);
+		context.put(PipelineCode.MAX_RESULT_SIZE_KEY, 0);
+		context.put(PipelineCode.FORCE_PAGING_KEY, false);
+		pipelineService.execute(PipelineCode.PIPELINE_GET_FEATURES, layerId, context, container);
+		return container.getFeatures();
+	}
+}
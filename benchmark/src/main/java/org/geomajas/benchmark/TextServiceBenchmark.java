@@ -0,0 +1,93 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.configuration.FontStyleInfo;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.service.TextService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmark for {@link TextService#getStringBounds(String, FontStyleInfo)}, measuring the labels of all countries
+ * using the label font of the layer. The "baseline" benchmark measures the same strings using
+ * {@link BaselineTextService}, the implementation before the fonts and advances were cached.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class TextServiceBenchmark {
+
+	private TextService textService;
+
+	private TextService baselineTextService;
+
+	private FontStyleInfo fontStyle;
+
+	private String[] labels;
+
+	@Setup(Level.Trial)
+	public void setUp() throws GeomajasException {
+		BenchmarkContext.login();
+		textService = BenchmarkContext.getBean(TextService.class);
+		baselineTextService = new BaselineTextService();
+		fontStyle = BenchmarkContext.getStyle(BenchmarkContext.SHAPE_LAYER).getLabelStyle().getFontStyle();
+		List<String> list = new ArrayList<String>();
+		for (InternalFeature feature : BenchmarkContext.getFeatures(BenchmarkContext.SHAPE_LAYER, null)) {
+			if (null != feature.getLabel()) {
+				list.add(feature.getLabel());
+			}
+		}
+		labels = list.toArray(new String[list.size()]);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkContext.logout();
+	}
+
+	@Benchmark
+	public void getStringBounds(Blackhole blackhole) {
+		for (String label : labels) {
+			blackhole.consume(textService.getStringBounds(label, fontStyle));
+		}
+	}
+
+	@Benchmark
+	public void getStringBoundsBaseline(Blackhole blackhole) {
+		for (String label : labels) {
+			blackhole.consume(baselineTextService.getStringBounds(label, fontStyle));
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.rendering.painter.tile.BinaryContentTilePainter;
+import org.geomajas.internal.rendering.painter.tile.StringContentTilePainter;
+import org.geomajas.internal.rendering.strategy.TiledFeatureService;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.tile.InternalTile;
+import org.geomajas.layer.tile.TileMetadata;
+import org.geomajas.rendering.painter.tile.TilePainter;
+import org.geomajas.service.GeoService;
+import org.geomajas.service.TextService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/**
+ * Benchmark for painting the content of a vector tile of the countries layer, using {@link StringContentTilePainter}
+ * for SVG and VML, and {@link BinaryContentTilePainter} for MVT. The tile is filled and clipped during setup.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class TilePainterBenchmark {
+
+	@Param({TileMetadata.PARAM_SVG_RENDERER, TileMetadata.PARAM_VML_RENDERER, TileMetadata.PARAM_MVT_RENDERER})
+	private String renderer;
+
+	@Param({"0", "6"})
+	private int level;
+
+	@Param({"false", "true"})
+	private boolean paintLabels;
+
+	private BenchmarkTile benchmarkTile;
+
+	private List<InternalFeature> clippedFeatures;
+
+	private VectorLayer layer;
+
+	private NamedStyleInfo style;
+
+	private GeoService geoService;
+
+	private TextService textService;
+
+	@Setup(Level.Trial)
+	public void setUp() throws GeomajasException {
+		BenchmarkContext.login();
+		geoService = BenchmarkContext.getBean(GeoService.class);
+		textService = BenchmarkContext.getBean(TextService.class);
+		layer = BenchmarkContext.getLayer(BenchmarkContext.SHAPE_LAYER);
+		style = BenchmarkContext.getStyle(BenchmarkContext.SHAPE_LAYER);
+		benchmarkTile = new BenchmarkTile(BenchmarkContext.SHAPE_LAYER, level, new Coordinate(100, 60));
+		TiledFeatureService tiledFeatureService = BenchmarkContext.getBean(TiledFeatureService.class);
+		InternalTile tile = benchmarkTile.createTile(benchmarkTile.getFeatures());
+		tiledFeatureService.fillTile(tile, benchmarkTile.getMaxExtent());
+		tiledFeatureService.clipTile(tile, benchmarkTile.getScale(), benchmarkTile.getPanOrigin());
+		clippedFeatures = tile.getFeatures();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkContext.logout();
+	}
+
+	@Benchmark
+	public String paint() throws GeomajasException {
+		TilePainter painter;
+		if (TileMetadata.PARAM_MVT_RENDERER.equals(renderer)) {
+			painter = new BinaryContentTilePainter(layer.getId(), benchmarkTile.getScale());
+		} else {
+			painter = new StringContentTilePainter(layer, style, renderer, benchmarkTile.getScale(),
+					benchmarkTile.getPanOrigin(), geoService, textService);
+		}
+		painter.setPaintGeometries(true);
+		painter.setPaintLabels(paintLabels);
+		return painter.paint(benchmarkTile.createTile(clippedFeatures)).getFeatureContent();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.benchmark;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.rendering.strategy.TiledFeatureService;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.tile.InternalTile;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/**
+ * Benchmarks for {@link TiledFeatureService#fillTile(InternalTile, com.vividsolutions.jts.geom.Envelope)} and
+ * {@link TiledFeatureService#clipTile(InternalTile, double, Coordinate)} on the countries layer. The tile is located
+ * in Siberia, at the higher levels the large countries need clipping.
+ *
+ * @author agent
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(2)
+public class TiledFeatureServiceBenchmark {
+
+	@Param({"0", "3", "6"})
+	private int level;
+
+	private TiledFeatureService tiledFeatureService;
+
+	private BenchmarkTile benchmarkTile;
+
+	private List<InternalFeature> filledFeatures;
+
+	@Setup(Level.Trial)
+	public void setUp() throws GeomajasException {
+		BenchmarkContext.login();
+		tiledFeatureService = BenchmarkContext.getBean(TiledFeatureService.class);
+		benchmarkTile = new BenchmarkTile(BenchmarkContext.SHAPE_LAYER, level, new Coordinate(100, 60));
+		filledFeatures = fillTile().getFeatures();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		BenchmarkContext.logout();
+	}
+
+	@Benchmark
+	public InternalTile fillTile() throws GeomajasException {
+		InternalTile tile = benchmarkTile.createTile(benchmarkTile.getFeatures());
+		tiledFeatureService.fillTile(tile, benchmarkTile.getMaxExtent());
+		return tile;
+	}
+
+	@Benchmark
+	public InternalTile clipTile() throws GeomajasException {
+		InternalTile tile = benchmarkTile.createTile(filledFeatures);
+		tiledFeatureService.clipTile(tile, benchmarkTile.getScale(), benchmarkTile.getPanOrigin());
+		return tile;
+	}
+}
@@ -12,6 +12,18 @@ package org.geomajas.command.feature;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.geomajas.annotation.Api;
 import org.geomajas.command.CommandHasRequest;
@@ -21,10 +33,13 @@ import org.geomajas.geometry.Crs;
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerLazyFeatureConversionSupport;
 import org.geomajas.layer.VectorLayerService;
 import org.geomajas.layer.feature.Feature;
 import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.security.SavedAuthorization;
 import org.geomajas.security.SecurityContext;
+import org.geomajas.security.SecurityManager;
 import org.geomajas.service.ConfigurationService;
 import org.geomajas.service.DtoConverterService;
 import org.geomajas.service.FilterService;
@@ -34,9 +49,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
 
 /**
  * <p>
@@ -73,6 +94,12 @@ import com.vividsolutions.jts.geom.Geometry;
 @Transactional(readOnly = true, rollbackFor = { Exception.class })
 public class SearchByLocationCommand implements CommandHasRequest<SearchByLocationRequest, SearchByLocationResponse> {
 
+	private static final int THREADS_PER_CORE = 4;
+
+	private static final int QUEUE_SIZE_FACTOR = 4;
+
+	private static final long THREAD_KEEP_ALIVE = 60;
+
 	private final Logger log = LoggerFactory.getLogger(SearchByLocationCommand.class);
 
 	@Autowired
@@ -93,6 +120,16 @@ public class SearchByLocationCommand implements CommandHasRequest<SearchByLocati
 	@Autowired
 	private SecurityContext securityContext;
 
+	@Autowired
+	private SecurityManager securityManager;
+
+	@Autowired(required = false)
+	private PlatformTransactionManager transactionManager;
+
+	private TransactionTemplate transactionTemplate;
+
+	private ExecutorService executorService;
+
 	// -------------------------------------------------------------------------
 	// Command implementation:
 	// -------------------------------------------------------------------------
@@ -112,6 +149,10 @@ public class SearchByLocationCommand implements CommandHasRequest<SearchByLocati
 	 * features, using the location geometry and the query type. In case the query type is "intersects", the overlapping
 	 * ratio is also checked. The resulting list of features is added to the command result so it can be send back to
 	 * the client.
+	 * <p/>
+	 * When all of multiple layers are searched, the layers are queried concurrently, each in its own read-only
+	 * transaction. The results are still processed in the order of the layers in the request. When searching for the
+	 * first layer with results, the layers are queried one by one.
 	 */
 	@Override
 	public void execute(SearchByLocationRequest request, SearchByLocationResponse response) throws Exception {
@@ -123,8 +164,6 @@ public class SearchByLocationCommand implements CommandHasRequest<SearchByLocati
 			throw new GeomajasException(ExceptionCode.PARAMETER_MISSING, "crs");
 		}
 		Geometry location = converter.toInternal(request.getLocation());
-		int queryType = request.getQueryType();
-		double ratio = request.getRatio();
 		int searchType = request.getSearchType();
 		Crs crs = geoService.getCrs2(request.getCrs());
 
@@ -134,7 +173,14 @@ public class SearchByLocationCommand implements CommandHasRequest<SearchByLocati
 			geometry = location.buffer(request.getBuffer());
 		}
 		log.debug("search by location " + geometry);
+		PreparedGeometry preparedGeometry = PreparedGeometryFactory.prepare(geometry);
+		Filter globalFilter = null;
+		if (null != request.getFilter()) {
+			globalFilter = filterCreator.parseFilter(request.getFilter());
+		}
 
+		// determine the layers to search
+		List<LayerSearch> searches = new ArrayList<LayerSearch>();
 		for (String clientLayerId : request.getLayerIds()) {
 			String serverLayerId = request.getServerLayerId(clientLayerId);
 			if (null == serverLayerId) {
@@ -144,89 +190,279 @@ public class SearchByLocationCommand implements CommandHasRequest<SearchByLocati
 			if (securityContext.isLayerVisible(serverLayerId)) {
 				VectorLayer vectorLayer = configurationService.getVectorLayer(serverLayerId);
 				if (vectorLayer != null) {
-					String geomName = vectorLayer.getLayerInfo().getFeatureInfo().getGeometryType().getName();
-
-					// Transform geometry to layer CRS:
-					Geometry layerGeometry = geoService.transform(geometry, crs, layerService.getCrs(vectorLayer));
-					log.trace("on layer " + serverLayerId + " use " + layerGeometry);
-
-					// Create the correct Filter object:
-					Filter f = null;
-					switch (queryType) {
-						case SearchByLocationRequest.QUERY_INTERSECTS:
-							f = filterCreator.createIntersectsFilter(layerGeometry, geomName);
-							break;
-						case SearchByLocationRequest.QUERY_CONTAINS:
-							f = filterCreator.createContainsFilter(layerGeometry, geomName);
-							break;
-						case SearchByLocationRequest.QUERY_TOUCHES:
-							f = filterCreator.createTouchesFilter(layerGeometry, geomName);
-							break;
-						case SearchByLocationRequest.QUERY_WITHIN:
-							f = filterCreator.createWithinFilter(layerGeometry, geomName);
-							break;
-						default:
-							throw new IllegalArgumentException("Unknown query type " + queryType);
+					searches.add(new LayerSearch(request, clientLayerId, vectorLayer, crs, geometry,
+							preparedGeometry, globalFilter));
+				}
+			}
+		}
+
+		// start the searches, lazily converted features need the transaction of the current thread
+		boolean concurrent = searches.size() > 1 && searchType == SearchByLocationRequest.SEARCH_ALL_LAYERS;
+		List<Future<List<Feature>>> futures = new ArrayList<Future<List<Feature>>>(searches.size());
+		for (LayerSearch search : searches) {
+			if (concurrent && !search.isLazy()) {
+				futures.add(executorService.submit(new SecurityContextCallable<List<Feature>>(search)));
+			} else {
+				futures.add(null);
+			}
+		}
+
+		// collect the results, in order of the requested layers
+		try {
+			for (int i = 0; i < searches.size(); i++) {
+				LayerSearch search = searches.get(i);
+				Future<List<Feature>> future = futures.get(i);
+				List<Feature> features = null == future ? search.call() : getResult(future);
+				// features.size can be 0... so check:
+				if (features.size() > 0) {
+					// We have a response for this layer!
+					response.addLayer(search.getClientLayerId(), features);
+
+					// If searchType == SEARCH_FIRST_LAYER, we should search no further:
+					if (searchType == SearchByLocationRequest.SEARCH_FIRST_LAYER) {
+						break;
 					}
-					//Set the per layer filter
-					if (null != request.getFilter(clientLayerId)) {
-						if (null == f) {
-							f = filterCreator.parseFilter(request.getFilter(clientLayerId));
-						} else {
-							f = filterCreator.createAndFilter(
-									filterCreator.parseFilter(request.getFilter(clientLayerId)), f);
-						}
+				}
+			}
+		} finally {
+			for (Future<List<Feature>> future : futures) {
+				if (null != future) {
+					future.cancel(false);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Create the bounded thread pool which is used to query the layers.
+	 */
+	@PostConstruct
+	protected void postConstruct() {
+		if (null != transactionManager) {
+			transactionTemplate = new TransactionTemplate(transactionManager);
+			transactionTemplate.setReadOnly(true);
+		}
+		int threadPoolSize = Runtime.getRuntime().availableProcessors() * THREADS_PER_CORE;
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, THREAD_KEEP_ALIVE,
+				TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(threadPoolSize * QUEUE_SIZE_FACTOR),
+				new ThreadFactory() {
+
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "geomajas-search-by-location-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
 					}
-					//Set the global filter
-					if (null != request.getFilter()) {
-						if (null == f) {
-							f = filterCreator.parseFilter(request.getFilter());
+				}, new ThreadPoolExecutor.CallerRunsPolicy());
+		executor.allowCoreThreadTimeOut(true);
+		executorService = executor;
+	}
+
+	/**
+	 * Stop the thread pool.
+	 */
+	@PreDestroy
+	protected void preDestroy() {
+		executorService.shutdownNow();
+	}
+
+	private List<Feature> getResult(Future<List<Feature>> future) throws Exception {
+		try {
+			return future.get();
+		} catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof Exception) {
+				throw (Exception) cause;
+			}
+			throw ee;
+		}
+	}
+
+	/**
+	 * Search for the features in one layer.
+	 *
+	 * @author agent
+	 */
+	private class LayerSearch implements Callable<List<Feature>> {
+
+		private final SearchByLocationRequest request;
+
+		private final String clientLayerId;
+
+		private final VectorLayer vectorLayer;
+
+		private final Crs crs;
+
+		private final Geometry geometry;
+
+		private final PreparedGeometry preparedGeometry;
+
+		private final Filter globalFilter;
+
+		public LayerSearch(SearchByLocationRequest request, String clientLayerId, VectorLayer vectorLayer, Crs crs,
+				Geometry geometry, PreparedGeometry preparedGeometry, Filter globalFilter) {
+			this.request = request;
+			this.clientLayerId = clientLayerId;
+			this.vectorLayer = vectorLayer;
+			this.crs = crs;
+			this.geometry = geometry;
+			this.preparedGeometry = preparedGeometry;
+			this.globalFilter = globalFilter;
+		}
+
+		public String getClientLayerId() {
+			return clientLayerId;
+		}
+
+		public boolean isLazy() {
+			return vectorLayer instanceof VectorLayerLazyFeatureConversionSupport &&
+					((VectorLayerLazyFeatureConversionSupport) vectorLayer).useLazyFeatureConversion();
+		}
+
+		@Override
+		public List<Feature> call() throws Exception {
+			int queryType = request.getQueryType();
+			double ratio = request.getRatio();
+			String serverLayerId = vectorLayer.getId();
+			String geomName = vectorLayer.getLayerInfo().getFeatureInfo().getGeometryType().getName();
+
+			// Transform geometry to layer CRS:
+			Geometry layerGeometry = geoService.transform(geometry, crs, layerService.getCrs(vectorLayer));
+			log.trace("on layer " + serverLayerId + " use " + layerGeometry);
+
+			// Create the correct Filter object:
+			Filter f = null;
+			switch (queryType) {
+				case SearchByLocationRequest.QUERY_INTERSECTS:
+					f = filterCreator.createIntersectsFilter(layerGeometry, geomName);
+					break;
+				case SearchByLocationRequest.QUERY_CONTAINS:
+					f = filterCreator.createContainsFilter(layerGeometry, geomName);
+					break;
+				case SearchByLocationRequest.QUERY_TOUCHES:
+					f = filterCreator.createTouchesFilter(layerGeometry, geomName);
+					break;
+				case SearchByLocationRequest.QUERY_WITHIN:
+					f = filterCreator.createWithinFilter(layerGeometry, geomName);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown query type " + queryType);
+			}
+			//Set the per layer filter
+			if (null != request.getFilter(clientLayerId)) {
+				if (null == f) {
+					f = filterCreator.parseFilter(request.getFilter(clientLayerId));
+				} else {
+					f = filterCreator.createAndFilter(
+							filterCreator.parseFilter(request.getFilter(clientLayerId)), f);
+				}
+			}
+			//Set the global filter
+			if (null != globalFilter) {
+				if (null == f) {
+					f = globalFilter;
+				} else {
+					f = filterCreator.createAndFilter(globalFilter, f);
+				}
+			}
+
+			// Get the features:
+			List<InternalFeature> temp = layerService.getFeatures(serverLayerId, crs, f, null, request
+					.getFeatureIncludes());
+			List<Feature> features = new ArrayList<Feature>();
+			if (temp.size() > 0) {
+				// Calculate overlap ratio in case of intersects:
+				if (queryType == SearchByLocationRequest.QUERY_INTERSECTS && ratio >= 0 && ratio < 1) {
+					for (InternalFeature feature : temp) {
+						Geometry featureGeometry = feature.getGeometry();
+						double minimalOverlap = featureGeometry.getArea() * ratio;
+						// no need to calculate the intersection when the feature is completely inside the location
+						double effectiveOverlap;
+						if (preparedGeometry.contains(featureGeometry)) {
+							effectiveOverlap = featureGeometry.getArea();
+						} else if (!preparedGeometry.intersects(featureGeometry)) {
+							effectiveOverlap = 0;
 						} else {
-							f = filterCreator.createAndFilter(filterCreator.parseFilter(request.getFilter()), f);
+							effectiveOverlap = geometry.intersection(featureGeometry).getArea();
+						}
+						if (minimalOverlap <= effectiveOverlap) {
+							features.add(toDto(feature));
 						}
 					}
+				} else {
+					for (InternalFeature feature : temp) {
+						features.add(toDto(feature));
+					}
+				}
+			}
+			return features;
+		}
 
-					// Get the features:
-					List<InternalFeature> temp = layerService.getFeatures(serverLayerId, crs, f, null, request
-							.getFeatureIncludes());
-					if (temp.size() > 0) {
-						List<Feature> features = new ArrayList<Feature>();
-
-						// Calculate overlap ratio in case of intersects:
-						if (queryType == SearchByLocationRequest.QUERY_INTERSECTS && ratio >= 0 && ratio < 1) {
-							for (InternalFeature feature : temp) {
-								double minimalOverlap = feature.getGeometry().getArea() * ratio;
-								Geometry overlap = geometry.intersection(feature.getGeometry());
-								double effectiveOverlap = overlap.getArea();
-								if (minimalOverlap <= effectiveOverlap) {
-									log.trace("found " + feature);
-									Feature dto = converter.toDto(feature);
-									dto.setCrs(crsCode);
-									features.add(dto);
-								}
-							}
-						} else {
-							for (InternalFeature feature : temp) {
-								log.trace("found " + feature);
-								Feature dto = converter.toDto(feature);
-								dto.setCrs(crsCode);
-								features.add(dto);
-							}
-						}
+		private Feature toDto(InternalFeature feature) throws GeomajasException {
+			log.trace("found " + feature);
+			Feature dto = converter.toDto(feature);
+			dto.setCrs(request.getCrs());
+			return dto;
+		}
+	}
 
-						// features.size can again be 0... so check:
-						if (features.size() > 0) {
-							// We have a response for this layer!
-							response.addLayer(clientLayerId, features);
+	/**
+	 * Wrapper which runs a callable in the security context of the thread which created the wrapper. When running on a
+	 * pool thread, the callable is executed in its own read-only transaction (if a transaction manager is available).
+	 *
+	 * @param <T> callable result type
+	 * @author agent
+	 */
+	private class SecurityContextCallable<T> implements Callable<T> {
 
-							// If searchType == SEARCH_FIRST_LAYER, we should search no further:
-							if (searchType == SearchByLocationRequest.SEARCH_FIRST_LAYER) {
-								break;
-							}
-						}
+		private final Callable<T> delegate;
+
+		private final Thread creator;
+
+		private final SavedAuthorization savedAuthorization;
+
+		public SecurityContextCallable(Callable<T> delegate) {
+			this.delegate = delegate;
+			this.creator = Thread.currentThread();
+			this.savedAuthorization = securityContext.getSavedAuthorization();
+		}
+
+		@Override
+		public T call() throws Exception {
+			if (Thread.currentThread() == creator) {
+				// pool is full, running in the calling thread, security context is already correct
+				return delegate.call();
+			}
+			securityManager.restoreSecurityContext(savedAuthorization);
+			try {
+				if (null == transactionTemplate) {
+					return delegate.call();
+				}
+				return callInTransaction();
+			} finally {
+				securityManager.clearSecurityContext();
+			}
+		}
+
+		private T callInTransaction() throws Exception {
+			final Exception[] failure = new Exception[1];
+			T result = transactionTemplate.execute(new TransactionCallback<T>() {
+
+				public T doInTransaction(TransactionStatus status) {
+					try {
+						return delegate.call();
+					} catch (Exception e) { // NOSONAR rethrown outside the transaction
+						status.setRollbackOnly();
+						failure[0] = e;
+						return null;
 					}
 				}
+			});
+			if (null != failure[0]) {
+				throw failure[0];
 			}
+			return result;
 		}
 	}
 }
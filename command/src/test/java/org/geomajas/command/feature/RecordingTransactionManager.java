@@ -0,0 +1,97 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.command.feature;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.AbstractPlatformTransactionManager;
+import org.springframework.transaction.support.DefaultTransactionStatus;
+
+/**
+ * Transaction manager which only records the threads in which transactions were completed.
+ *
+ * @author agent
+ */
+public class RecordingTransactionManager extends AbstractPlatformTransactionManager {
+
+	private static final long serialVersionUID = 1186L;
+
+	private final List<String> committed = new ArrayList<String>();
+
+	private final List<String> failed = new ArrayList<String>();
+
+	/**
+	 * Get the names of the threads in which a read-only transaction was committed by the thread which started it.
+	 *
+	 * @return thread names
+	 */
+	public synchronized List<String> getCommitted() {
+		return new ArrayList<String>(committed);
+	}
+
+	/**
+	 * Get the names of the threads in which a transaction was rolled back, was not read-only or was committed by
+	 * another thread than the one which started it.
+	 *
+	 * @return thread names
+	 */
+	public synchronized List<String> getFailed() {
+		return new ArrayList<String>(failed);
+	}
+
+	/** Forget the recorded transactions. */
+	public synchronized void clear() {
+		committed.clear();
+		failed.clear();
+	}
+
+	@Override
+	protected Object doGetTransaction() {
+		return new RecordedTransaction();
+	}
+
+	@Override
+	protected void doBegin(Object transaction, TransactionDefinition definition) {
+		RecordedTransaction recorded = (RecordedTransaction) transaction;
+		recorded.thread = Thread.currentThread();
+		recorded.readOnly = definition.isReadOnly();
+	}
+
+	@Override
+	protected synchronized void doCommit(DefaultTransactionStatus status) {
+		RecordedTransaction recorded = (RecordedTransaction) status.getTransaction();
+		String thread = Thread.currentThread().getName();
+		if (recorded.readOnly && recorded.thread == Thread.currentThread()) {
+			committed.add(thread);
+		} else {
+			failed.add(thread);
+		}
+	}
+
+	@Override
+	protected synchronized void doRollback(DefaultTransactionStatus status) {
+		failed.add(Thread.currentThread().getName());
+	}
+
+	/**
+	 * Transaction object, remembers the thread which started the transaction.
+	 *
+	 * @author agent
+	 */
+	private static final class RecordedTransaction {
+
+		private Thread thread;
+
+		private boolean readOnly;
+	}
+}
@@ -0,0 +1,132 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.command.feature;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geomajas.command.CommandDispatcher;
+import org.geomajas.command.dto.SearchByLocationRequest;
+import org.geomajas.command.dto.SearchByLocationResponse;
+import org.geomajas.layer.feature.Feature;
+import org.geomajas.service.DtoConverterService;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Test for the {@link SearchByLocationCommand} class, verifying that searching several layers at once gives the same
+ * results as searching the layers one by one. The layers are then queried on the thread pool, which needs the security
+ * context of the request and a transaction per thread.
+ *
+ * @author agent
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = {"/org/geomajas/spring/geomajasContext.xml",
+		"/org/geomajas/testdata/layerCountries.xml", "/org/geomajas/testdata/layerBeansPoint.xml",
+		"/org/geomajas/testdata/layerBeansMultiPolygon.xml",
+		"/org/geomajas/command/feature/searchByLocationConcurrent.xml"})
+public class SearchByLocationConcurrentTest {
+
+	private static final String TOKEN = "searchToken";
+
+	private static final String POLYGON_LAYER = "layerBeansMultiPolygon";
+
+	private static final String[] LAYERS = {SearchByLocationTestAuthorization.FILTERED_LAYER,
+			SearchByLocationTestAuthorization.HIDDEN_LAYER, POLYGON_LAYER};
+
+	private static final String POOL_THREAD = "geomajas-search-by-location-";
+
+	@Autowired
+	private CommandDispatcher dispatcher;
+
+	@Autowired
+	private DtoConverterService converter;
+
+	@Autowired
+	private RecordingTransactionManager transactionManager;
+
+	@Test
+	public void testAllLayers() throws Exception {
+		Map<String, List<String>> sequential = new LinkedHashMap<String, List<String>>();
+		for (String layerId : LAYERS) {
+			sequential.putAll(search(SearchByLocationRequest.SEARCH_ALL_LAYERS, layerId));
+		}
+		transactionManager.clear();
+		Map<String, List<String>> concurrent = search(SearchByLocationRequest.SEARCH_ALL_LAYERS, LAYERS);
+
+		Assert.assertEquals(sequential, concurrent);
+		// only the countries of region 1 are visible, the hidden layer is not searched
+		Assert.assertEquals(2, concurrent.size());
+		List<String> countries = concurrent.get(SearchByLocationTestAuthorization.FILTERED_LAYER);
+		Assert.assertEquals(2, countries.size());
+		Assert.assertTrue(countries.contains("Country 1"));
+		Assert.assertTrue(countries.contains("Country 2"));
+		Assert.assertEquals(1, concurrent.get(POLYGON_LAYER).size());
+		Assert.assertFalse(concurrent.containsKey(SearchByLocationTestAuthorization.HIDDEN_LAYER));
+
+		// each visible layer was searched in its own read-only transaction on a pool thread
+		List<String> committed = transactionManager.getCommitted();
+		Assert.assertEquals(2, committed.size());
+		for (String thread : committed) {
+			Assert.assertTrue(thread, thread.startsWith(POOL_THREAD));
+		}
+		Assert.assertTrue(transactionManager.getFailed().isEmpty());
+	}
+
+	@Test
+	public void testFirstLayer() throws Exception {
+		String[] layers = {SearchByLocationTestAuthorization.HIDDEN_LAYER, POLYGON_LAYER,
+				SearchByLocationTestAuthorization.FILTERED_LAYER};
+		transactionManager.clear();
+		Map<String, List<String>> result = search(SearchByLocationRequest.SEARCH_FIRST_LAYER, layers);
+
+		Assert.assertEquals(search(SearchByLocationRequest.SEARCH_ALL_LAYERS, POLYGON_LAYER), result);
+		// the first layer with results is searched in the calling thread
+		Assert.assertTrue(transactionManager.getCommitted().isEmpty());
+		Assert.assertTrue(transactionManager.getFailed().isEmpty());
+	}
+
+	private Map<String, List<String>> search(int searchType, String... layerIds) throws Exception {
+		SearchByLocationRequest request = new SearchByLocationRequest();
+		request.setCrs("EPSG:4326");
+		request.setQueryType(SearchByLocationRequest.QUERY_INTERSECTS);
+		request.setSearchType(searchType);
+		request.setLayerIds(layerIds);
+
+		GeometryFactory factory = new GeometryFactory();
+		Polygon location = factory.createPolygon(factory.createLinearRing(new Coordinate[] {new Coordinate(-2, -2),
+				new Coordinate(2, -2), new Coordinate(2, 2), new Coordinate(-2, 2), new Coordinate(-2, -2)}), null);
+		request.setLocation(converter.toDto(location));
+
+		SearchByLocationResponse response = (SearchByLocationResponse) dispatcher.execute(
+				SearchByLocationRequest.COMMAND, request, TOKEN, "en");
+		Assert.assertFalse(response.isError());
+		Map<String, List<String>> result = new LinkedHashMap<String, List<String>>();
+		for (Map.Entry<String, List<Feature>> entry : response.getFeatureMap().entrySet()) {
+			List<String> labels = new ArrayList<String>();
+			for (Feature feature : entry.getValue()) {
+				labels.add(feature.getLabel());
+			}
+			result.put(entry.getKey(), labels);
+		}
+		return result;
+	}
+}
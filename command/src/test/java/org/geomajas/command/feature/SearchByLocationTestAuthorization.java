@@ -0,0 +1,82 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.command.feature;
+
+import org.geomajas.layer.feature.Attribute;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.security.FeatureAuthorization;
+
+/**
+ * Authorization for {@link SearchByLocationConcurrentTest}. The {@link #HIDDEN_LAYER} is not visible and only the
+ * countries of region 1 are visible in the {@link #FILTERED_LAYER}.
+ *
+ * @author agent
+ */
+public class SearchByLocationTestAuthorization implements FeatureAuthorization {
+
+	public static final String HIDDEN_LAYER = "layerBeansPoint";
+
+	public static final String FILTERED_LAYER = "countries";
+
+	private static final String VISIBLE_REGION = "Region 1";
+
+	public String getId() {
+		return "SearchByLocationTest";
+	}
+
+	public boolean isToolAuthorized(String toolId) {
+		return true;
+	}
+
+	public boolean isCommandAuthorized(String commandName) {
+		return true;
+	}
+
+	public boolean isLayerVisible(String layerId) {
+		return !HIDDEN_LAYER.equals(layerId);
+	}
+
+	public boolean isLayerUpdateAuthorized(String layerId) {
+		return false;
+	}
+
+	public boolean isLayerCreateAuthorized(String layerId) {
+		return false;
+	}
+
+	public boolean isLayerDeleteAuthorized(String layerId) {
+		return false;
+	}
+
+	public boolean isFeatureVisible(String layerId, InternalFeature feature) {
+		if (FILTERED_LAYER.equals(layerId)) {
+			Attribute<?> region = feature.getAttributes().get("region");
+			return null != region && VISIBLE_REGION.equals(region.getValue());
+		}
+		return isLayerVisible(layerId);
+	}
+
+	public boolean isFeatureUpdateAuthorized(String layerId, InternalFeature feature) {
+		return false;
+	}
+
+	public boolean isFeatureUpdateAuthorized(String layerId, InternalFeature orgFeature, InternalFeature newFeature) {
+		return false;
+	}
+
+	public boolean isFeatureDeleteAuthorized(String layerId, InternalFeature feature) {
+		return false;
+	}
+
+	public boolean isFeatureCreateAuthorized(String layerId, InternalFeature feature) {
+		return false;
+	}
+}
@@ -0,0 +1,35 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.command.feature;
+
+import org.geomajas.security.Authentication;
+import org.geomajas.security.BaseAuthorization;
+import org.geomajas.security.SecurityService;
+
+/**
+ * Security service for {@link SearchByLocationConcurrentTest}, every token gets the
+ * {@link SearchByLocationTestAuthorization}.
+ *
+ * @author agent
+ */
+public class SearchByLocationTestSecurityService implements SecurityService {
+
+	public String getId() {
+		return "SearchByLocationTest";
+	}
+
+	public Authentication getAuthentication(String authenticationToken) {
+		Authentication authentication = new Authentication();
+		authentication.setUserId("searcher");
+		authentication.setAuthorizations(new BaseAuthorization[] { new SearchByLocationTestAuthorization() });
+		return authentication;
+	}
+}
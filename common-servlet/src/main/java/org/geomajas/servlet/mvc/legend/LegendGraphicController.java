@@ -88,7 +88,7 @@ public class LegendGraphicController {
 			@RequestParam(value = "scale", required = false) Double scale,
 			@RequestParam(value = "allRules", required = false) Boolean allRules, HttpServletRequest request)
 			throws GeomajasException {
-		if (!allRules) {
+		if (!Boolean.TRUE.equals(allRules)) {
 			return getGraphic(layerId, styleName, ruleIndex, format, width, height, scale);
 		} else {
 			return getGraphics(layerId, styleName, format, width, height, scale);
@@ -141,8 +141,10 @@ public class LegendGraphicController {
 					legendMetadata.setRuleInfo(ruleInfo);
 					allLegendMetaData.add(legendMetadata);
 				}
-				mav.addObject(LegendGraphicView.IMAGE_FORMAT_KEY, format == null ? "png" : format);
-				mav.addObject(LegendGraphicView.IMAGE_KEY, legendService.getLegendGraphics(allLegendMetaData));
+				String imageFormat = format == null ? "png" : format;
+				mav.addObject(LegendGraphicView.IMAGE_FORMAT_KEY, imageFormat);
+				mav.addObject(LegendGraphicView.ENCODED_IMAGE_KEY,
+						legendService.getEncodedLegendGraphics(allLegendMetaData, imageFormat));
 			}
 		}
 		return mav;
@@ -192,6 +194,8 @@ public class LegendGraphicController {
 						throw new GeomajasException(ExceptionCode.RULE_NOT_FOUND, ruleIndex, styleName);
 					} else {
 						legendMetadata.setRuleInfo(featureTypeStyle.getRuleList().get(ruleIndex));
+						// allows rendering the other rules of the style at the same time
+						legendMetadata.setUserStyle(userStyle);
 					}
 				} else {
 					legendMetadata.setUserStyle(userStyle);
@@ -199,8 +203,10 @@ public class LegendGraphicController {
 			}
 		}
 
-		mav.addObject(LegendGraphicView.IMAGE_FORMAT_KEY, format == null ? "png" : format);
-		mav.addObject(LegendGraphicView.IMAGE_KEY, legendService.getLegendGraphic(legendMetadata));
+		String imageFormat = format == null ? "png" : format;
+		mav.addObject(LegendGraphicView.IMAGE_FORMAT_KEY, imageFormat);
+		mav.addObject(LegendGraphicView.ENCODED_IMAGE_KEY,
+				legendService.getEncodedLegendGraphic(legendMetadata, imageFormat));
 		return mav;
 	}
 
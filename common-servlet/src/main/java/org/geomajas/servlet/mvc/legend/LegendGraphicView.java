@@ -20,14 +20,17 @@ import javax.servlet.ServletOutputStream;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.geomajas.service.legend.EncodedLegendGraphic;
 import org.springframework.stereotype.Component;
 import org.springframework.web.servlet.view.AbstractView;
 
 /**
  * View responsible for the actual icon generation.
+ * <p/>
+ * Encoded graphics are sent with an ETag header, conditional requests for an unchanged graphic get a
+ * "304 Not Modified" response without content.
  * 
  * @author Jan De Moerloose
- * 
  */
 @Component(LegendGraphicController.LEGENDGRAPHIC_VIEW_NAME)
 public class LegendGraphicView extends AbstractView {
@@ -35,6 +38,13 @@ public class LegendGraphicView extends AbstractView {
 	public static final String IMAGE_KEY = "image";
 
 	public static final String IMAGE_FORMAT_KEY = "format";
+
+	/** Key for the {@link EncodedLegendGraphic}, preferred over {@link #IMAGE_KEY}. */
+	public static final String ENCODED_IMAGE_KEY = "encodedImage";
+
+	private static final String HEADER_ETAG = "ETag";
+
+	private static final String HEADER_IF_NONE_MATCH = "If-None-Match";
 	
 	private static final Map<String, String> DEFAULT_MIME_TYPES = new HashMap<String, String>();
 
@@ -50,19 +60,58 @@ public class LegendGraphicView extends AbstractView {
 	@Override
 	protected void renderMergedOutputModel(Map<String, Object> model, HttpServletRequest request,
 			HttpServletResponse response) throws Exception {
+		EncodedLegendGraphic graphic = (EncodedLegendGraphic) model.get(ENCODED_IMAGE_KEY);
+		if (null != graphic) {
+			response.setHeader(HEADER_ETAG, graphic.getETag());
+			if (isNotModified(request.getHeader(HEADER_IF_NONE_MATCH), graphic.getETag())) {
+				response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+				return;
+			}
+			setContentType(response, graphic.getFormat());
+			response.setContentLength(graphic.getContent().length);
+			response.getOutputStream().write(graphic.getContent());
+			return;
+		}
 		String format = (String) model.get(IMAGE_FORMAT_KEY);
 		BufferedImage image = (BufferedImage) model.get(IMAGE_KEY);
 		ByteArrayOutputStream baos = new ByteArrayOutputStream(1024 * 8);
 		ImageIO.write(image, format, baos);
-		String mimeType = DEFAULT_MIME_TYPES.get(format);
+		setContentType(response, format);
+		response.setContentLength(baos.size());
+		// write the image
+		ServletOutputStream out = response.getOutputStream();
+		baos.writeTo(out);
+	}
+
+	private void setContentType(HttpServletResponse response, String format) {
+		String mimeType = DEFAULT_MIME_TYPES.get("." + format);
 		if (mimeType != null) {
 			response.setContentType(mimeType);
 		} else {
 			response.setContentType("image/" + format);
 		}
-		response.setContentLength(baos.size());
-		// write the image
-		ServletOutputStream out = response.getOutputStream();
-		baos.writeTo(out);
+	}
+
+	/**
+	 * Check whether the If-None-Match header matches the entity tag.
+	 *
+	 * @param ifNoneMatch If-None-Match header, can be null
+	 * @param eTag entity tag of the graphic
+	 * @return true when the client already has the graphic
+	 */
+	private boolean isNotModified(String ifNoneMatch, String eTag) {
+		if (null == ifNoneMatch) {
+			return false;
+		}
+		for (String tag : ifNoneMatch.split(",")) {
+			tag = tag.trim();
+			if (tag.startsWith("W/")) {
+				tag = tag.substring(2);
+			}
+			if ("*".equals(tag) || eTag.equals(tag)) {
+				return true;
+			}
+		}
+		return false;
 	}
 }
@@ -0,0 +1,198 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.servlet.mvc.metrics;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.geomajas.security.SecurityContext;
+import org.geomajas.service.metrics.HitCounter;
+import org.geomajas.service.metrics.LatencyTimer;
+import org.geomajas.service.metrics.Metric;
+import org.geomajas.service.metrics.MetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+
+/**
+ * Spring MVC controller which allows a monitoring system to pull the {@link MetricsService} metrics. The metrics are
+ * written in the Prometheus text format, durations are in seconds.
+ * <p/>
+ * The metrics include layer ids and timings, so the controller is not registered by default. To enable it, declare it
+ * in the web context of the dispatcher servlet:
+ * <pre>&lt;bean name="/metrics/**" class="org.geomajas.servlet.mvc.metrics.MetricsController" /&gt;</pre>
+ * The request needs a user token (like the other controllers) and the user needs to be authorized for the
+ * {@link #TOOL_ID} tool.
+ *
+ * @author agent
+ */
+public class MetricsController {
+
+	/** Tool id for which the user needs to be authorized to read the metrics. */
+	public static final String TOOL_ID = "Metrics";
+
+	private static final String PREFIX = "geomajas_";
+
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
+	private static final double[] QUANTILES = {0.5, 0.9, 0.99};
+
+	private static final double PERCENT = 100.0;
+
+	@Autowired
+	private MetricsService metricsService;
+
+	@Autowired
+	private SecurityContext securityContext;
+
+	/**
+	 * Write all metrics.
+	 *
+	 * @param response servlet response
+	 * @throws IOException cannot write response
+	 */
+	@RequestMapping(value = "/metrics", method = RequestMethod.GET)
+	public void getMetrics(HttpServletResponse response) throws IOException {
+		if (!securityContext.isToolAuthorized(TOOL_ID)) {
+			response.sendError(HttpServletResponse.SC_FORBIDDEN);
+			return;
+		}
+		response.setContentType(CONTENT_TYPE);
+		response.setHeader("Cache-Control", "no-cache");
+		PrintWriter writer = response.getWriter();
+		writeLatencyTimers(writer, sorted(metricsService.getLatencyTimers()));
+		List<HitCounter> counters = sorted(metricsService.getHitCounters());
+		writeHitCounters(writer, counters, true);
+		writeHitCounters(writer, counters, false);
+		writer.flush();
+	}
+
+	private void writeLatencyTimers(PrintWriter writer, List<LatencyTimer> timers) {
+		String family = null;
+		for (LatencyTimer timer : timers) {
+			String name = PREFIX + toName(timer.getName()) + "_seconds";
+			if (!name.equals(family)) {
+				family = name;
+				writer.append("# TYPE ").append(name).append(" summary\n");
+			}
+			String labels = toLabels(timer.getTags());
+			for (double quantile : QUANTILES) {
+				writer.append(name).append('{').append(labels);
+				if (labels.length() > 0) {
+					writer.append(',');
+				}
+				writer.append("quantile=\"").append(Double.toString(quantile)).append("\"} ")
+						.append(toSeconds(timer.getPercentileNanos(quantile * PERCENT))).append('\n');
+			}
+			writeSample(writer, name + "_count", labels, Long.toString(timer.getCount()));
+			writeSample(writer, name + "_sum", labels, toSeconds(timer.getTotalNanos()));
+			writeSample(writer, name + "_max", labels, toSeconds(timer.getMaxNanos()));
+		}
+	}
+
+	private void writeHitCounters(PrintWriter writer, List<HitCounter> counters, boolean hits) {
+		String family = null;
+		for (HitCounter counter : counters) {
+			String name = PREFIX + toName(counter.getName()) + (hits ? "_hits_total" : "_misses_total");
+			if (!name.equals(family)) {
+				family = name;
+				writer.append("# TYPE ").append(name).append(" counter\n");
+			}
+			writeSample(writer, name, toLabels(counter.getTags()),
+					Long.toString(hits ? counter.getHits() : counter.getMisses()));
+		}
+	}
+
+	private void writeSample(PrintWriter writer, String name, String labels, String value) {
+		writer.append(name);
+		if (labels.length() > 0) {
+			writer.append('{').append(labels).append('}');
+		}
+		writer.append(' ').append(value).append('\n');
+	}
+
+	private <METRIC extends Metric> List<METRIC> sorted(Collection<METRIC> metrics) {
+		List<METRIC> result = new ArrayList<METRIC>(metrics);
+		Collections.sort(result, new Comparator<Metric>() {
+			public int compare(Metric left, Metric right) {
+				int res = left.getName().compareTo(right.getName());
+				if (0 == res) {
+					res = left.getId().compareTo(right.getId());
+				}
+				return res;
+			}
+		});
+		return result;
+	}
+
+	private String toSeconds(long nanos) {
+		return Double.toString(nanos / NANOS_PER_SECOND);
+	}
+
+	/**
+	 * Convert a metric or tag name to a valid Prometheus name, invalid characters are replaced by an underscore.
+	 *
+	 * @param name name
+	 * @return valid name
+	 */
+	String toName(String name) {
+		StringBuilder sb = new StringBuilder(name.length());
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9' && i > 0) || c == '_') {
+				sb.append(c);
+			} else {
+				sb.append('_');
+			}
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Convert the tags to Prometheus labels, without the braces.
+	 *
+	 * @param tags tags
+	 * @return labels
+	 */
+	String toLabels(Map<String, String> tags) {
+		StringBuilder sb = new StringBuilder();
+		for (Map.Entry<String, String> tag : tags.entrySet()) {
+			if (sb.length() > 0) {
+				sb.append(',');
+			}
+			sb.append(toName(tag.getKey())).append("=\"");
+			String value = tag.getValue();
+			for (int i = 0; i < value.length(); i++) {
+				char c = value.charAt(i);
+				if (c == '\\' || c == '"') {
+					sb.append('\\').append(c);
+				} else if (c == '\n') {
+					sb.append("\\n");
+				} else {
+					sb.append(c);
+				}
+			}
+			sb.append('"');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.servlet.mvc.legend;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.geomajas.service.legend.EncodedLegendGraphic;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+/**
+ * Test for {@link LegendGraphicView}.
+ *
+ * @author agent
+ */
+public class LegendGraphicViewTest {
+
+	private static final String ETAG = "\"0123456789abcdef\"";
+
+	@Test
+	public void testEncoded() throws Exception {
+		LegendGraphicView view = new LegendGraphicView();
+		byte[] content = new byte[] {1, 2, 3};
+		Map<String, Object> model = new HashMap<String, Object>();
+		model.put(LegendGraphicView.ENCODED_IMAGE_KEY, new EncodedLegendGraphic("jpg", content, ETAG));
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		view.render(model, new MockHttpServletRequest(), response);
+		Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+		Assert.assertEquals("image/jpeg", response.getContentType());
+		Assert.assertEquals(ETAG, response.getHeader("ETag"));
+		Assert.assertArrayEquals(content, response.getContentAsByteArray());
+	}
+
+	@Test
+	public void testNotModified() throws Exception {
+		LegendGraphicView view = new LegendGraphicView();
+		Map<String, Object> model = new HashMap<String, Object>();
+		model.put(LegendGraphicView.ENCODED_IMAGE_KEY, new EncodedLegendGraphic("png", new byte[] {1, 2, 3}, ETAG));
+
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.addHeader("If-None-Match", "\"other\", " + ETAG);
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		view.render(model, request, response);
+		Assert.assertEquals(HttpServletResponse.SC_NOT_MODIFIED, response.getStatus());
+		Assert.assertEquals(ETAG, response.getHeader("ETag"));
+		Assert.assertEquals(0, response.getContentAsByteArray().length);
+
+		// changed content
+		request = new MockHttpServletRequest();
+		request.addHeader("If-None-Match", "\"other\"");
+		response = new MockHttpServletResponse();
+		view.render(model, request, response);
+		Assert.assertEquals(HttpServletResponse.SC_OK, response.getStatus());
+		Assert.assertEquals("image/png", response.getContentType());
+		Assert.assertEquals(3, response.getContentAsByteArray().length);
+	}
+}
@@ -0,0 +1,93 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.servlet.mvc.metrics;
+
+import java.util.Collections;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.geomajas.internal.security.DefaultSecurityContext;
+import org.geomajas.internal.service.metrics.MetricsServiceImpl;
+import org.geomajas.security.Authentication;
+import org.geomajas.security.BaseAuthorization;
+import org.geomajas.security.SecurityContext;
+import org.geomajas.security.allowall.AllowAllAuthorization;
+import org.geomajas.service.metrics.MetricsService;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+
+/**
+ * Test for {@link MetricsController}.
+ *
+ * @author agent
+ */
+public class MetricsControllerTest {
+
+	@Test
+	public void testGetMetrics() throws Exception {
+		MetricsService metricsService = new MetricsServiceImpl();
+		metricsService.getLatencyTimer(MetricsService.PIPELINE_STEP, MetricsService.TAG_PIPELINE, "getTile",
+				MetricsService.TAG_LAYER, "a\"b", MetricsService.TAG_STEP, "fill").record(2000000L);
+		metricsService.getHitCounter(MetricsService.CACHE, MetricsService.TAG_CATEGORY, "tile",
+				MetricsService.TAG_LAYER, "beans").record(true);
+		MetricsController controller = new MetricsController();
+		ReflectionTestUtils.setField(controller, "metricsService", metricsService);
+		ReflectionTestUtils.setField(controller, "securityContext", createSecurityContext(true));
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.getMetrics(response);
+		String content = response.getContentAsString();
+		Assert.assertTrue(response.getContentType().startsWith("text/plain"));
+		Assert.assertTrue(content.contains("# TYPE geomajas_pipeline_step_seconds summary\n"));
+		Assert.assertTrue(content.contains("geomajas_pipeline_step_seconds{pipeline=\"getTile\",layer=\"a\\\"b\","
+				+ "step=\"fill\",quantile=\"0.5\"} 0.002"));
+		Assert.assertTrue(content.contains("geomajas_pipeline_step_seconds_count{pipeline=\"getTile\",layer=\"a\\\"b\","
+				+ "step=\"fill\"} 1\n"));
+		Assert.assertTrue(content.contains("geomajas_cache_hits_total{category=\"tile\",layer=\"beans\"} 1\n"));
+		Assert.assertTrue(content.contains("geomajas_cache_misses_total{category=\"tile\",layer=\"beans\"} 0\n"));
+	}
+
+	@Test
+	public void testForbidden() throws Exception {
+		MetricsController controller = new MetricsController();
+		ReflectionTestUtils.setField(controller, "metricsService", new MetricsServiceImpl());
+		ReflectionTestUtils.setField(controller, "securityContext", createSecurityContext(false));
+
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		controller.getMetrics(response);
+		Assert.assertEquals(HttpServletResponse.SC_FORBIDDEN, response.getStatus());
+		Assert.assertEquals("", response.getContentAsString());
+	}
+
+	@Test
+	public void testToName() {
+		MetricsController controller = new MetricsController();
+		Assert.assertEquals("pipeline_step", controller.toName("pipeline.step"));
+		Assert.assertEquals("_a_b9", controller.toName("1a-b9"));
+	}
+
+	private SecurityContext createSecurityContext(final boolean metricsAuthorized) {
+		Authentication authentication = new Authentication();
+		authentication.setAuthorizations(new BaseAuthorization[] { new AllowAllAuthorization() {
+
+			@Override
+			public boolean isToolAuthorized(String toolId) {
+				return metricsAuthorized || !MetricsController.TOOL_ID.equals(toolId);
+			}
+		} });
+		DefaultSecurityContext securityContext = new DefaultSecurityContext();
+		securityContext.setAuthentications("token", Collections.singletonList(authentication));
+		return securityContext;
+	}
+}
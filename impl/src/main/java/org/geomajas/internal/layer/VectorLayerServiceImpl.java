@@ -14,6 +14,7 @@ package org.geomajas.internal.layer;
 import java.util.List;
 
 import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.configuration.SortType;
 import org.geomajas.geometry.Crs;
 import org.geomajas.geometry.CrsTransform;
 import org.geomajas.global.ExceptionCode;
@@ -23,8 +24,10 @@ import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.VectorLayerService;
 import org.geomajas.layer.feature.Attribute;
 import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
 import org.geomajas.layer.pipeline.GetAttributesContainer;
 import org.geomajas.layer.pipeline.GetBoundsContainer;
+import org.geomajas.layer.pipeline.GetCountContainer;
 import org.geomajas.layer.pipeline.GetFeaturesContainer;
 import org.geomajas.layer.pipeline.GetTileContainer;
 import org.geomajas.layer.tile.InternalTile;
@@ -119,12 +122,41 @@ public class VectorLayerServiceImpl extends LayerServiceImpl implements VectorLa
 			throws GeomajasException {
 		log.debug("getFeatures start on layer {}", layerId);
 		long ts = System.currentTimeMillis();
+		PipelineContext context = createGetFeaturesContext(layerId, crs, queryFilter, style, featureIncludes, offset,
+				maxResultSize);
+		context.put(PipelineCode.FORCE_PAGING_KEY, forcePaging);
+		GetFeaturesContainer container = new GetFeaturesContainer();
+		pipelineService.execute(PipelineCode.PIPELINE_GET_FEATURES, layerId, context, container);
+		log.debug("getFeatures done on layer {}, time {}s", layerId, (System.currentTimeMillis() - ts) / 1000.0);
+		return container.getFeatures();
+	}
+
+	@SuppressWarnings("unchecked")
+	public void getFeatures(String layerId, CoordinateReferenceSystem crs, Filter queryFilter, NamedStyleInfo style,
+			int featureIncludes, int offset, int maxResultSize, String sortAttributeName, SortType sortType,
+			InternalFeatureHandler handler) throws GeomajasException {
+		log.debug("getFeatures (streaming) start on layer {}", layerId);
+		long ts = System.currentTimeMillis();
+		PipelineContext context = createGetFeaturesContext(layerId, crs, queryFilter, style, featureIncludes, offset,
+				maxResultSize);
+		context.put(PipelineCode.FORCE_PAGING_KEY, false);
+		context.put(PipelineCode.SORT_ATTRIBUTE_NAME_KEY, sortAttributeName);
+		context.put(PipelineCode.SORT_TYPE_KEY, sortType);
+		GetFeaturesContainer container = new GetFeaturesContainer();
+		container.setFeatureHandler(handler);
+		pipelineService.execute(PipelineCode.PIPELINE_GET_FEATURES, layerId, context, container);
+		log.debug("getFeatures (streaming) done on layer {}, time {}s", layerId,
+				(System.currentTimeMillis() - ts) / 1000.0);
+	}
+
+	private PipelineContext createGetFeaturesContext(String layerId, CoordinateReferenceSystem crs,
+			Filter queryFilter, NamedStyleInfo style, int featureIncludes, int offset, int maxResultSize)
+			throws GeomajasException {
 		VectorLayer layer = getVectorLayer(layerId);
 		CrsTransform transformation = null;
 		if ((featureIncludes & FEATURE_INCLUDE_GEOMETRY) != 0 && crs != null && !crs.equals(layer.getCrs())) {
 			transformation = geoService.getCrsTransform(layer.getCrs(), crs);
 		}
-		GetFeaturesContainer container = new GetFeaturesContainer();
 		PipelineContext context = pipelineService.createContext();
 		context.put(PipelineCode.LAYER_ID_KEY, layerId);
 		context.put(PipelineCode.LAYER_KEY, layer);
@@ -135,10 +167,7 @@ public class VectorLayerServiceImpl extends LayerServiceImpl implements VectorLa
 		context.put(PipelineCode.FEATURE_INCLUDES_KEY, featureIncludes);
 		context.put(PipelineCode.OFFSET_KEY, offset);
 		context.put(PipelineCode.MAX_RESULT_SIZE_KEY, maxResultSize);
-		context.put(PipelineCode.FORCE_PAGING_KEY, forcePaging);
-		pipelineService.execute(PipelineCode.PIPELINE_GET_FEATURES, layerId, context, container);
-		log.debug("getFeatures done on layer {}, time {}s", layerId, (System.currentTimeMillis() - ts) / 1000.0);
-		return container.getFeatures();
+		return context;
 	}
 
 	public List<InternalFeature> getFeatures(String layerId, CoordinateReferenceSystem crs, Filter filter,
@@ -164,6 +193,21 @@ public class VectorLayerServiceImpl extends LayerServiceImpl implements VectorLa
 		return container.getEnvelope();
 	}
 
+	@SuppressWarnings("unchecked")
+	public int getCount(String layerId, Filter queryFilter) throws GeomajasException {
+		log.debug("getCount start on layer {}", layerId);
+		long ts = System.currentTimeMillis();
+		VectorLayer layer = getVectorLayer(layerId);
+		GetCountContainer container = new GetCountContainer();
+		PipelineContext context = pipelineService.createContext();
+		context.put(PipelineCode.LAYER_ID_KEY, layerId);
+		context.put(PipelineCode.LAYER_KEY, layer);
+		context.put(PipelineCode.FILTER_KEY, queryFilter);
+		pipelineService.execute(PipelineCode.PIPELINE_GET_COUNT, layerId, context, container);
+		log.debug("getCount done on layer {}, time {}s", layerId, (System.currentTimeMillis() - ts) / 1000.0);
+		return container.getCount();
+	}
+
 	@SuppressWarnings("unchecked")
 	public InternalTile getTile(TileMetadata tileMetadata) throws GeomajasException {
 		log.debug("getTile start tileMetadata {}", tileMetadata);
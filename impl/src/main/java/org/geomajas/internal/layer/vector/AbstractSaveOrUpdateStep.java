@@ -12,6 +12,7 @@
 package org.geomajas.internal.layer.vector;
 
 import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.security.SecurityAreaCache;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.security.SecurityContext;
 import org.geomajas.service.FilterService;
@@ -21,7 +22,10 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
 
 /**
  * Base step for saveOrUpdate pipeline. Has  helper method for building a filter to check compliance with the
@@ -39,6 +43,9 @@ public abstract class AbstractSaveOrUpdateStep implements PipelineStep {
 	@Autowired
 	private FilterService filterService;
 
+	@Autowired
+	private SecurityAreaCache securityAreaCache;
+
 	private String id;
 
 	public String getId() {
@@ -56,15 +63,7 @@ public abstract class AbstractSaveOrUpdateStep implements PipelineStep {
 	protected Filter getSecurityFilter(Filter baseFilter, VectorLayer layer, Geometry geometry)
 			throws GeomajasException {
 		String layerId = layer.getId();
-
-		// apply generic security filter
-		Filter filter = and(baseFilter, securityContext.getFeatureFilter(layerId));
-
-		// apply default filter
-		String defaultFilter = layer.getLayerInfo().getFilter();
-		if (null != defaultFilter) {
-			filter = and(filter, filterService.parseFilter(defaultFilter));
-		}
+		Filter filter = getLayerSecurityFilter(baseFilter, layer);
 
 		// apply area filter
 		if (!layer.getLayerInfo().isAllowEmptyGeometries()) {
@@ -89,6 +88,62 @@ public abstract class AbstractSaveOrUpdateStep implements PipelineStep {
 		return filter;
 	}
 
+	/**
+	 * Check whether a feature complies with the layer security filter, layer default filter and area.
+	 * <p/>
+	 * This gives the same result as evaluating {@link #getSecurityFilter(VectorLayer, Geometry)}, but the area is
+	 * checked directly on the feature geometry, using an envelope check and the cached prepared area.
+	 *
+	 * @param layer layer
+	 * @param feature feature object
+	 * @param area authorized area
+	 * @param kind kind of area, see {@link SecurityAreaCache}
+	 * @return true when the feature is authorized
+	 * @throws GeomajasException oops
+	 */
+	protected boolean isAuthorized(VectorLayer layer, Object feature, Geometry area, String kind)
+			throws GeomajasException {
+		String layerId = layer.getId();
+		if (!layer.getLayerInfo().isAllowEmptyGeometries()) {
+			if (null == area) {
+				log.warn("Usable area is null for layer " + layerId + "removing all content!");
+				return false;
+			}
+			Geometry geometry = layer.getFeatureModel().getGeometry(feature);
+			if (null == geometry || !isInArea(layerId, kind, area, geometry)) {
+				return false;
+			}
+		}
+		Filter filter = getLayerSecurityFilter(null, layer);
+		return null == filter || filter.evaluate(feature);
+	}
+
+	private boolean isInArea(String layerId, String kind, Geometry area, Geometry geometry) {
+		PreparedGeometry prepared = securityAreaCache.getPreparedArea(layerId, securityContext.getId(), kind);
+		if (null == prepared || prepared.getGeometry() != area) {
+			prepared = PreparedGeometryFactory.prepare(area);
+		}
+		Envelope areaEnvelope = area.getEnvelopeInternal();
+		Envelope envelope = geometry.getEnvelopeInternal();
+		if (securityContext.isPartlyVisibleSufficient(layerId)) {
+			return areaEnvelope.intersects(envelope) && prepared.intersects(geometry);
+		} else {
+			return areaEnvelope.contains(envelope) && prepared.contains(geometry);
+		}
+	}
+
+	private Filter getLayerSecurityFilter(Filter baseFilter, VectorLayer layer) throws GeomajasException {
+		// apply generic security filter
+		Filter filter = and(baseFilter, securityContext.getFeatureFilter(layer.getId()));
+
+		// apply default filter
+		String defaultFilter = layer.getLayerInfo().getFilter();
+		if (null != defaultFilter) {
+			filter = and(filter, filterService.parseFilter(defaultFilter));
+		}
+		return filter;
+	}
+
 	protected Filter and(Filter f1, Filter f2) {
 		if (null == f1) {
 			return f2;
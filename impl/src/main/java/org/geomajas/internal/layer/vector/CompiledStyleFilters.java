@@ -0,0 +1,204 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.layer.vector;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import org.geomajas.configuration.FeatureStyleInfo;
+import org.geomajas.internal.rendering.StyleFilterImpl;
+import org.geomajas.layer.feature.Attribute;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.rendering.StyleFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.PropertyIsEqualTo;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+
+/**
+ * Parsed style filters for a style, ready to be applied on features.
+ * <p/>
+ * When all style filters (except maybe a last filter without formula) test the same attribute for equality with a
+ * string value (for example "type = 'road'"), the style is found using a hash lookup of the attribute value instead of
+ * evaluating the filters one by one. For other values or filters the filters are evaluated in order.
+ *
+ * @author agent
+ */
+public class CompiledStyleFilters {
+
+	private static final Pattern SIMPLE_PROPERTY = Pattern.compile("\\w+");
+
+	private final List<FeatureStyleInfo> styleDefinitions;
+
+	private final List<StyleFilter> styleFilters;
+
+	private String lookupAttribute;
+
+	private Map<String, StyleFilter> lookup;
+
+	private StyleFilter lookupDefault;
+
+	/**
+	 * Create the compiled style filters.
+	 *
+	 * @param styleDefinitions style definitions from which the filters were built
+	 * @param styleFilters style filters, in order of evaluation
+	 */
+	public CompiledStyleFilters(List<FeatureStyleInfo> styleDefinitions, List<StyleFilter> styleFilters) {
+		this.styleDefinitions = null == styleDefinitions ? Collections.<FeatureStyleInfo>emptyList() :
+				new ArrayList<FeatureStyleInfo>(styleDefinitions);
+		this.styleFilters = Collections.unmodifiableList(styleFilters);
+		initLookup();
+	}
+
+	/**
+	 * Check whether these style filters were built from style definitions which are equal to the given ones.
+	 *
+	 * @param definitions style definitions
+	 * @return true when built from these style definitions
+	 */
+	public boolean isBuiltFrom(List<FeatureStyleInfo> definitions) {
+		int size = null == definitions ? 0 : definitions.size();
+		if (size != styleDefinitions.size()) {
+			return false;
+		}
+		for (int i = 0; i < size; i++) {
+			FeatureStyleInfo definition = styleDefinitions.get(i);
+			if (null == definition ? null != definitions.get(i) : !definition.equals(definitions.get(i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Get the style filters.
+	 *
+	 * @return unmodifiable list of style filters
+	 */
+	public List<StyleFilter> getStyleFilters() {
+		return styleFilters;
+	}
+
+	/**
+	 * Is the hash lookup used for finding the style filter?
+	 *
+	 * @return true when the style filter can be found using a hash lookup
+	 */
+	public boolean isLookup() {
+		return null != lookup;
+	}
+
+	/**
+	 * Find the style filter that must be applied to this feature.
+	 *
+	 * @param feature feature to find the style for
+	 * @return a style filter
+	 */
+	public StyleFilter findStyleFilter(InternalFeature feature) {
+		if (null != lookup && null != feature.getAttributes()) {
+			Attribute<?> attribute = feature.getAttributes().get(lookupAttribute);
+			if (null != attribute && attribute.getValue() instanceof String) {
+				StyleFilter styleFilter = lookup.get(attribute.getValue());
+				if (null == styleFilter) {
+					styleFilter = lookupDefault;
+				}
+				return null != styleFilter ? styleFilter : new StyleFilterImpl();
+			}
+		}
+		return findStyleFilter(feature, styleFilters);
+	}
+
+	/**
+	 * Find the style filter that must be applied to this feature by evaluating the filters in order.
+	 *
+	 * @param feature feature to find the style for
+	 * @param styles style filters to select from
+	 * @return a style filter
+	 */
+	public static StyleFilter findStyleFilter(Object feature, List<StyleFilter> styles) {
+		for (StyleFilter styleFilter : styles) {
+			if (styleFilter.getFilter().evaluate(feature)) {
+				return styleFilter;
+			}
+		}
+		return new StyleFilterImpl();
+	}
+
+	private void initLookup() {
+		String attribute = null;
+		Map<String, StyleFilter> map = new HashMap<String, StyleFilter>();
+		StyleFilter fallback = null;
+		for (StyleFilter styleFilter : styleFilters) {
+			Filter filter = styleFilter.getFilter();
+			if (Filter.INCLUDE.equals(filter)) {
+				// all next filters can never be used
+				fallback = styleFilter;
+				break;
+			}
+			if (!(filter instanceof PropertyIsEqualTo)) {
+				return;
+			}
+			PropertyIsEqualTo equalTo = (PropertyIsEqualTo) filter;
+			if (!equalTo.isMatchingCase()) {
+				return;
+			}
+			String name = getPropertyName(equalTo.getExpression1(), equalTo.getExpression2());
+			String value = getStringValue(equalTo.getExpression1(), equalTo.getExpression2());
+			if (null == name || null == value || (null != attribute && !attribute.equals(name))) {
+				return;
+			}
+			attribute = name;
+			if (!map.containsKey(value)) {
+				// first matching filter wins
+				map.put(value, styleFilter);
+			}
+		}
+		if (null != attribute) {
+			lookupAttribute = attribute;
+			lookup = map;
+			lookupDefault = fallback;
+		}
+	}
+
+	private String getPropertyName(Expression expression1, Expression expression2) {
+		PropertyName propertyName = null;
+		if (expression1 instanceof PropertyName && expression2 instanceof Literal) {
+			propertyName = (PropertyName) expression1;
+		} else if (expression2 instanceof PropertyName && expression1 instanceof Literal) {
+			propertyName = (PropertyName) expression2;
+		}
+		if (null != propertyName && null != propertyName.getPropertyName() &&
+				SIMPLE_PROPERTY.matcher(propertyName.getPropertyName()).matches()) {
+			return propertyName.getPropertyName();
+		}
+		return null;
+	}
+
+	private String getStringValue(Expression expression1, Expression expression2) {
+		Object value = null;
+		if (expression1 instanceof Literal) {
+			value = ((Literal) expression1).getValue();
+		} else if (expression2 instanceof Literal) {
+			value = ((Literal) expression2).getValue();
+		}
+		if (value instanceof String) {
+			return (String) value;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,114 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.layer.vector;
+
+import java.util.Iterator;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.layer.feature.AttributeService;
+import org.geomajas.internal.layer.feature.InternalFeatureImpl;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerCountingSupport;
+import org.geomajas.layer.feature.FeatureModel;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.pipeline.GetCountContainer;
+import org.geomajas.security.Authentication;
+import org.geomajas.security.BaseAuthorization;
+import org.geomajas.security.FeatureAuthorization;
+import org.geomajas.security.SecurityContext;
+import org.geomajas.service.pipeline.PipelineCode;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.geomajas.service.pipeline.PipelineStep;
+import org.opengis.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * Step for getCount in {@link org.geomajas.layer.VectorLayerService}.
+ * <p/>
+ * The filter in the context already includes the layer security (see {@link LayerFilterStep}). When no
+ * {@link FeatureAuthorization} applies, the visibility of a feature only depends on the layer, so the features can be
+ * counted by the layer. Otherwise each feature needs to be checked, so the features are read and counted one by one.
+ *
+ * @author agent
+ */
+public class GetCountStep implements PipelineStep<GetCountContainer> {
+
+	private final Logger log = LoggerFactory.getLogger(GetCountStep.class);
+
+	@Autowired
+	private SecurityContext securityContext;
+
+	@Autowired
+	private AttributeService attributeService;
+
+	private String id;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public void execute(PipelineContext context, GetCountContainer response) throws GeomajasException {
+		if (null == response.getCount()) {
+			VectorLayer layer = context.get(PipelineCode.LAYER_KEY, VectorLayer.class);
+			Filter filter = context.get(PipelineCode.FILTER_KEY, Filter.class);
+			int count;
+			if (hasFeatureAuthorization()) {
+				log.debug("count visible features of layer {}", layer.getId());
+				count = countVisible(layer, filter);
+			} else if (layer instanceof VectorLayerCountingSupport) {
+				count = ((VectorLayerCountingSupport) layer).getCount(filter);
+			} else {
+				count = 0;
+				Iterator<?> it = layer.getElements(filter, 0, 0);
+				while (it.hasNext()) {
+					it.next();
+					count++;
+				}
+			}
+			response.setCount(count);
+		}
+	}
+
+	private boolean hasFeatureAuthorization() {
+		for (Authentication authentication : securityContext.getSecurityServiceResults()) {
+			for (BaseAuthorization authorization : authentication.getAuthorizations()) {
+				if (authorization instanceof FeatureAuthorization) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private int countVisible(VectorLayer layer, Filter filter) throws GeomajasException {
+		FeatureModel featureModel = layer.getFeatureModel();
+		int count = 0;
+		Iterator<?> it = layer.getElements(filter, 0, 0);
+		while (it.hasNext()) {
+			Object featureObj = it.next();
+			InternalFeature feature = new InternalFeatureImpl();
+			feature.setId(featureModel.getId(featureObj));
+			feature.setLayer(layer);
+			feature.setGeometry(featureModel.getGeometry(featureObj)); // in layer coordinate space for security checks
+			if (null != attributeService.getAttributes(layer, feature, featureObj)) { // includes security checks
+				count++;
+			}
+		}
+		return count;
+	}
+}
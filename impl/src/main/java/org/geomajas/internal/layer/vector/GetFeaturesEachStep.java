@@ -12,21 +12,25 @@
 package org.geomajas.internal.layer.vector;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
 
 import org.geomajas.configuration.LabelStyleInfo;
 import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.configuration.SortType;
 import org.geomajas.geometry.CrsTransform;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.internal.layer.feature.AttributeService;
 import org.geomajas.internal.layer.feature.InternalFeatureImpl;
-import org.geomajas.internal.rendering.StyleFilterImpl;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.VectorLayerService;
+import org.geomajas.layer.VectorLayerSortingSupport;
 import org.geomajas.layer.feature.Attribute;
 import org.geomajas.layer.feature.FeatureModel;
 import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
 import org.geomajas.layer.pipeline.GetFeaturesContainer;
 import org.geomajas.rendering.StyleFilter;
 import org.geomajas.service.FeatureExpressionService;
@@ -44,6 +48,11 @@ import com.vividsolutions.jts.geom.Geometry;
 
 /**
  * Get features from a vector layer.
+ * <p/>
+ * When a feature handler is set in the container, the features are passed to the handler instead of being added to
+ * the list of features. When a sort attribute is set and the layer does not implement
+ * {@link VectorLayerSortingSupport}, the visible features are collected and sorted in memory before the paging is
+ * applied.
  * 
  * @author Joachim Van der Auwera
  * @author Kristof Heirwegh
@@ -86,19 +95,40 @@ public class GetFeaturesEachStep implements PipelineStep<GetFeaturesContainer> {
 			NamedStyleInfo style = context.get(PipelineCode.STYLE_KEY, NamedStyleInfo.class);
 			boolean forcePaging = context.getOptional(PipelineCode.FORCE_PAGING_KEY, Boolean.class, false);
 			CrsTransform transformation = context.getOptional(PipelineCode.CRS_TRANSFORM_KEY, CrsTransform.class);
-			List<StyleFilter> styleFilters = context.getOptional(GetFeaturesStyleStep.STYLE_FILTERS_KEY, List.class);
+			CompiledStyleFilters styleFilters = context.getOptional(GetFeaturesStyleStep.COMPILED_STYLE_FILTERS_KEY,
+					CompiledStyleFilters.class);
+			if (null == styleFilters) {
+				List<StyleFilter> styleFilterList =
+						context.getOptional(GetFeaturesStyleStep.STYLE_FILTERS_KEY, List.class);
+				if (null != styleFilterList) {
+					styleFilters = new CompiledStyleFilters(null, styleFilterList);
+				}
+			}
+
+			String sortAttributeName = context.getOptional(PipelineCode.SORT_ATTRIBUTE_NAME_KEY, String.class);
+			SortType sortType = context.getOptional(PipelineCode.SORT_TYPE_KEY, SortType.class, SortType.ASC);
+			boolean sortInMemory = null != sortAttributeName && !(layer instanceof VectorLayerSortingSupport);
 
 			if (log.isDebugEnabled()) {
-				log.debug("getElements " + filter + ", offset = " + offset + ", maxResultSize= " + maxResultSize);
+				log.debug("getElements " + filter + ", offset = " + offset + ", maxResultSize= " + maxResultSize +
+						", sort = " + sortAttributeName + " " + sortType);
 			}
-			Envelope bounds = null;
-			Iterator<?> it = null;
+			int layerOffset = 0;
+			int layerMaxResultSize = 0; // do not limit result here, security needs to be applied
 			if (forcePaging) {
-				it = layer.getElements(filter, offset, maxResultSize);
+				layerOffset = offset;
+				layerMaxResultSize = maxResultSize;
+			}
+			Iterator<?> it;
+			if (null != sortAttributeName && !sortInMemory) {
+				it = ((VectorLayerSortingSupport) layer).getElements(filter, sortAttributeName, sortType, layerOffset,
+						layerMaxResultSize);
 			} else {
-				it = layer.getElements(filter, 0, 0); // do not limit result here, security needs to be applied
+				it = layer.getElements(filter, layerOffset, layerMaxResultSize);
 			}
 
+			FeatureCollector collector = new FeatureCollector(features, response.getFeatureHandler());
+			List<SortedFeature> sortBuffer = sortInMemory ? new ArrayList<SortedFeature>() : null;
 			int count = 0;
 			while (it.hasNext()) {
 				log.debug("process feature");
@@ -107,20 +137,15 @@ public class GetFeaturesEachStep implements PipelineStep<GetFeaturesContainer> {
 				InternalFeature feature = convertFeature(featureObj, geometry, layer, transformation,
 						styleFilters, style.getLabelStyle(), featureIncludes);
 				if (null != feature) {
-					count++;
-					if (count > offset || forcePaging) {
-						features.add(feature);
-
-						if (null != geometry) {
-							Envelope envelope = geometry.getEnvelopeInternal();
-							if (null == bounds) {
-								bounds = new Envelope();
+					if (null != sortBuffer) {
+						sortBuffer.add(new SortedFeature(feature, geometry));
+					} else {
+						count++;
+						if (count > offset || forcePaging) {
+							collector.add(feature, geometry);
+							if (collector.getCount() == maxResultSize) {
+								break;
 							}
-							bounds.expandToInclude(envelope);
-						}
-
-						if (features.size() == maxResultSize) {
-							break;
 						}
 					}
 				} else {
@@ -129,7 +154,17 @@ public class GetFeaturesEachStep implements PipelineStep<GetFeaturesContainer> {
 					}
 				}
 			}
-			response.setBounds(bounds);
+			if (null != sortBuffer) {
+				Collections.sort(sortBuffer, new SortedFeatureComparator(sortAttributeName, sortType));
+				for (int i = forcePaging ? 0 : offset; i < sortBuffer.size(); i++) {
+					SortedFeature sorted = sortBuffer.get(i);
+					collector.add(sorted.feature, sorted.geometry);
+					if (collector.getCount() == maxResultSize) {
+						break;
+					}
+				}
+			}
+			response.setBounds(collector.getBounds());
 		}
 		log.debug("getElements done, bounds {}", response.getBounds());
 		log.trace("features {}", response.getFeatures());
@@ -158,7 +193,7 @@ public class GetFeaturesEachStep implements PipelineStep<GetFeaturesContainer> {
 	 *             oops
 	 */
 	private InternalFeature convertFeature(Object feature, Geometry geometry, VectorLayer layer,
-			CrsTransform transformation, List<StyleFilter> styles, LabelStyleInfo labelStyle, int featureIncludes)
+			CrsTransform transformation, CompiledStyleFilters styles, LabelStyleInfo labelStyle, int featureIncludes)
 			throws GeomajasException {
 		FeatureModel featureModel = layer.getFeatureModel();
 		InternalFeature res = new InternalFeatureImpl();
@@ -204,7 +239,7 @@ public class GetFeaturesEachStep implements PipelineStep<GetFeaturesContainer> {
 			// If allowed, add the style definition to the InternalFeature:
 			if ((featureIncludes & VectorLayerService.FEATURE_INCLUDE_STYLE) != 0) {
 				// We calculate the style on the (almost complete) internal feature to allow synthetic attributes.
-				res.setStyleDefinition(findStyleFilter(res, styles).getStyleDefinition());
+				res.setStyleDefinition(styles.findStyleFilter(res).getStyleDefinition());
 			}
 
 			// If allowed, add the attributes to the InternalFeature:
@@ -217,21 +252,106 @@ public class GetFeaturesEachStep implements PipelineStep<GetFeaturesContainer> {
 	}
 
 	/**
-	 * Find the style filter that must be applied to this feature.
-	 * 
-	 * @param feature
-	 *            feature to find the style for
-	 * @param styles
-	 *            style filters to select from
-	 * @return a style filter
+	 * Adds the features to the result list or passes them to the feature handler, calculating the bounds.
+	 *
+	 * @author agent
+	 */
+	private static final class FeatureCollector {
+
+		private final List<InternalFeature> features;
+
+		private final InternalFeatureHandler handler;
+
+		private Envelope bounds;
+
+		private int count;
+
+		private FeatureCollector(List<InternalFeature> features, InternalFeatureHandler handler) {
+			this.features = features;
+			this.handler = handler;
+		}
+
+		public void add(InternalFeature feature, Geometry geometry) throws GeomajasException {
+			if (null != handler) {
+				handler.handle(feature);
+			} else {
+				features.add(feature);
+			}
+			count++;
+			if (null != geometry) {
+				Envelope envelope = geometry.getEnvelopeInternal();
+				if (null == bounds) {
+					bounds = new Envelope();
+				}
+				bounds.expandToInclude(envelope);
+			}
+		}
+
+		public int getCount() {
+			return count;
+		}
+
+		public Envelope getBounds() {
+			return bounds;
+		}
+	}
+
+	/**
+	 * Feature which is kept for sorting, together with its geometry in layer coordinates.
+	 *
+	 * @author agent
 	 */
-	private StyleFilter findStyleFilter(Object feature, List<StyleFilter> styles) {
-		for (StyleFilter styleFilter : styles) {
-			if (styleFilter.getFilter().evaluate(feature)) {
-				return styleFilter;
+	private static final class SortedFeature {
+
+		private final InternalFeature feature;
+
+		private final Geometry geometry;
+
+		private SortedFeature(InternalFeature feature, Geometry geometry) {
+			this.feature = feature;
+			this.geometry = geometry;
+		}
+	}
+
+	/**
+	 * Compares features on the value of an attribute, null values are sorted last.
+	 *
+	 * @author agent
+	 */
+	private static final class SortedFeatureComparator implements Comparator<SortedFeature> {
+
+		private final String attributeName;
+
+		private final boolean ascending;
+
+		private SortedFeatureComparator(String attributeName, SortType sortType) {
+			this.attributeName = attributeName;
+			this.ascending = SortType.DESC != sortType;
+		}
+
+		@SuppressWarnings({ "unchecked", "rawtypes" })
+		public int compare(SortedFeature f1, SortedFeature f2) {
+			Object value1 = getValue(f1.feature);
+			Object value2 = getValue(f2.feature);
+			if (value1 == null) {
+				return value2 == null ? 0 : 1;
+			} else if (value2 == null) {
+				return -1;
+			} else if (value1 instanceof Comparable) {
+				int result = ((Comparable) value1).compareTo(value2);
+				return ascending ? result : -result;
+			} else {
+				return 0;
+			}
+		}
+
+		private Object getValue(InternalFeature feature) {
+			if (null == feature.getAttributes()) {
+				return null;
 			}
+			Attribute<?> attribute = feature.getAttributes().get(attributeName);
+			return null == attribute ? null : attribute.getValue();
 		}
-		return new StyleFilterImpl();
 	}
 
 }
@@ -11,23 +11,15 @@
 
 package org.geomajas.internal.layer.vector;
 
-import java.util.ArrayList;
-import java.util.List;
-
-import org.geomajas.configuration.FeatureStyleInfo;
 import org.geomajas.configuration.NamedStyleInfo;
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
-import org.geomajas.internal.rendering.StyleFilterImpl;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.VectorLayerService;
 import org.geomajas.layer.pipeline.GetFeaturesContainer;
-import org.geomajas.rendering.StyleFilter;
-import org.geomajas.service.FilterService;
 import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
 import org.geomajas.service.pipeline.PipelineStep;
-import org.opengis.filter.Filter;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -38,10 +30,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 public class GetFeaturesStyleStep implements PipelineStep<GetFeaturesContainer> {
 
 	public static final String STYLE_FILTERS_KEY = "styleFilters";
+
+	/** Key for the {@link CompiledStyleFilters} in the pipeline context. */
+	public static final String COMPILED_STYLE_FILTERS_KEY = "compiledStyleFilters";
+
 	private String id;
 	
 	@Autowired
-	private FilterService filterService;
+	private StyleFilterCache styleFilterCache;
 
 	public String getId() {
 		return id;
@@ -56,7 +52,7 @@ public class GetFeaturesStyleStep implements PipelineStep<GetFeaturesContainer>
 		int featureIncludes = context.get(PipelineCode.FEATURE_INCLUDES_KEY, Integer.class);
 		NamedStyleInfo style = context.getOptional(PipelineCode.STYLE_KEY, NamedStyleInfo.class);
 
-		List<StyleFilter> styleFilters = null;
+		CompiledStyleFilters styleFilters = null;
 		if (style == null) {
 			// no style specified, take the first
 			style = layer.getLayerInfo().getNamedStyleInfos().get(0);
@@ -70,37 +66,11 @@ public class GetFeaturesStyleStep implements PipelineStep<GetFeaturesContainer>
 			if (style == null) {
 				throw new GeomajasException(ExceptionCode.RENDER_FEATURE_MODEL_PROBLEM, "Style not found");
 			}
-			styleFilters = initStyleFilters(style.getFeatureStyles());
+			styleFilters = styleFilterCache.getStyleFilters(layer, style);
 		}
 
-		context.put(STYLE_FILTERS_KEY, styleFilters);
+		context.put(COMPILED_STYLE_FILTERS_KEY, styleFilters);
+		context.put(STYLE_FILTERS_KEY, null == styleFilters ? null : styleFilters.getStyleFilters());
 	}
 
-	/**
-	 * Build list of style filters from style definitions.
-	 *
-	 * @param styleDefinitions
-	 *            list of style definitions
-	 * @return list of style filters
-	 * @throws GeomajasException 
-	 */
-	private List<StyleFilter> initStyleFilters(List<FeatureStyleInfo> styleDefinitions) throws GeomajasException {
-		List<StyleFilter> styleFilters = new ArrayList<StyleFilter>();
-		if (styleDefinitions == null || styleDefinitions.size() == 0) {
-			styleFilters.add(new StyleFilterImpl()); // use default.
-		} else {
-			for (FeatureStyleInfo styleDef : styleDefinitions) {
-				StyleFilterImpl styleFilterImpl = null;
-				String formula = styleDef.getFormula();
-				if (null != formula && formula.length() > 0) {
-					styleFilterImpl = new StyleFilterImpl(filterService.parseFilter(formula), styleDef);
-				} else {
-					styleFilterImpl = new StyleFilterImpl(Filter.INCLUDE, styleDef);
-				}
-				styleFilters.add(styleFilterImpl);
-			}
-		}
-		return styleFilters;
-	}
-	
 }
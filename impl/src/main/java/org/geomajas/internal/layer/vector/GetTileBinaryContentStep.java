@@ -0,0 +1,55 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.layer.vector;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.rendering.painter.tile.BinaryContentTilePainter;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.pipeline.GetTileContainer;
+import org.geomajas.layer.tile.InternalTile;
+import org.geomajas.layer.tile.TileMetadata;
+import org.geomajas.rendering.painter.tile.TilePainter;
+import org.geomajas.service.pipeline.PipelineCode;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.geomajas.service.pipeline.PipelineStep;
+
+/**
+ * Set the binary content in the tile when the {@link TileMetadata#PARAM_MVT_RENDERER} renderer is requested. For
+ * other renderers nothing is done.
+ *
+ * @author agent
+ */
+public class GetTileBinaryContentStep implements PipelineStep<GetTileContainer> {
+
+	private String id;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public void execute(PipelineContext context, GetTileContainer response) throws GeomajasException {
+		InternalTile tile = response.getTile();
+		TileMetadata metadata = context.get(PipelineCode.TILE_METADATA_KEY, TileMetadata.class);
+		if (null == tile.getFeatureContent() &&
+				TileMetadata.PARAM_MVT_RENDERER.equalsIgnoreCase(metadata.getRenderer())) {
+			VectorLayer layer = context.get(PipelineCode.LAYER_KEY, VectorLayer.class);
+			TilePainter tilePainter = new BinaryContentTilePainter(layer.getId(), metadata.getScale());
+			tilePainter.setPaintGeometries(metadata.isPaintGeometries());
+			tilePainter.setPaintLabels(metadata.isPaintLabels());
+			tilePainter.paint(tile);
+		}
+	}
+}
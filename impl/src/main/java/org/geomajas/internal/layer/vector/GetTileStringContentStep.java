@@ -57,9 +57,11 @@ public class GetTileStringContentStep implements PipelineStep<GetTileContainer>
 
 	public void execute(PipelineContext context, GetTileContainer response) throws GeomajasException {
 		InternalTile tile = response.getTile();
-		if (null == tile.getFeatureContent()) {
+		TileMetadata metadata = context.get(PipelineCode.TILE_METADATA_KEY, TileMetadata.class);
+		// binary content is created by GetTileBinaryContentStep
+		if (null == tile.getFeatureContent() &&
+				!TileMetadata.PARAM_MVT_RENDERER.equalsIgnoreCase(metadata.getRenderer())) {
 			VectorLayer layer = context.get(PipelineCode.LAYER_KEY, VectorLayer.class);
-			TileMetadata metadata = context.get(PipelineCode.TILE_METADATA_KEY, TileMetadata.class);
 
 			tile.setContentType(VectorTile.VectorTileContentType.STRING_CONTENT);
 			Coordinate panOrigin = new Coordinate(metadata.getPanOrigin().getX(), metadata.getPanOrigin().getY());
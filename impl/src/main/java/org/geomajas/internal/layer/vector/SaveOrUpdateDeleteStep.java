@@ -13,12 +13,12 @@ package org.geomajas.internal.layer.vector;
 
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.security.SecurityAreaCache;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.feature.InternalFeature;
 import org.geomajas.security.GeomajasSecurityException;
 import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
-import org.opengis.filter.Filter;
 
 /**
  * Handle possible delete of an individual feature in saveOrUpdate.
@@ -40,9 +40,8 @@ public class SaveOrUpdateDeleteStep extends AbstractSaveOrUpdateStep {
 					VectorLayer layer = context.get(PipelineCode.LAYER_KEY, VectorLayer.class);
 					Object featureObj = layer.read(oldFeature.getId());
 					if (null != featureObj) {
-						Filter securityFilter = getSecurityFilter(layer,
-								securityContext.getDeleteAuthorizedArea(layerId));
-						if (securityFilter.evaluate(featureObj)) {
+						if (isAuthorized(layer, featureObj, securityContext.getDeleteAuthorizedArea(layerId),
+								SecurityAreaCache.DELETE)) {
 							layer.delete(oldFeature.getId());
 						} else {
 							throw new GeomajasSecurityException(ExceptionCode.FEATURE_DELETE_PROHIBITED,
@@ -21,6 +21,7 @@ import org.geomajas.configuration.VectorLayerInfo;
 import org.geomajas.geometry.Geometry;
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.security.SecurityAreaCache;
 import org.geomajas.layer.LayerException;
 import org.geomajas.layer.LayerType;
 import org.geomajas.layer.VectorLayer;
@@ -31,7 +32,6 @@ import org.geomajas.security.GeomajasSecurityException;
 import org.geomajas.service.DtoConverterService;
 import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
-import org.opengis.filter.Filter;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -98,13 +98,15 @@ public class SaveOrUpdateSaveStep extends AbstractSaveOrUpdateStep {
 			}
 		}
 
-		Filter securityFilter;
+		boolean authorized;
 		if (isCreate) {
-			securityFilter = getSecurityFilter(layer, securityContext.getCreateAuthorizedArea(layerId));
+			authorized = isAuthorized(layer, feature, securityContext.getCreateAuthorizedArea(layerId),
+					SecurityAreaCache.CREATE);
 		} else {
-			securityFilter = getSecurityFilter(layer, securityContext.getUpdateAuthorizedArea(layerId));
+			authorized = isAuthorized(layer, feature, securityContext.getUpdateAuthorizedArea(layerId),
+					SecurityAreaCache.UPDATE);
 		}
-		if (securityFilter.evaluate(feature)) {
+		if (authorized) {
 			context.put(PipelineCode.FEATURE_DATA_OBJECT_KEY, layer.saveOrUpdate(feature));
 			if (isCreate) {
 				newFeature.setId(featureModel.getId(feature));
@@ -0,0 +1,136 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.layer.vector;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.geomajas.configuration.FeatureStyleInfo;
+import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.rendering.StyleFilterImpl;
+import org.geomajas.layer.Layer;
+import org.geomajas.rendering.StyleFilter;
+import org.geomajas.service.FilterService;
+import org.geomajas.service.LayerInvalidationService;
+import org.opengis.filter.Filter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the {@link CompiledStyleFilters} for the styles of a layer. This prevents the formulas of the styles from
+ * being parsed again for each request. The cache for a layer is cleared when the layer is invalidated.
+ *
+ * @author agent
+ */
+@Component
+public class StyleFilterCache implements LayerInvalidationService {
+
+	/** Maximum number of styles which are cached per layer, can be exceeded when using dynamic styles. */
+	private static final int MAX_STYLES_PER_LAYER = 100;
+
+	@Autowired
+	private FilterService filterService;
+
+	private final ConcurrentMap<String, LayerStyles> cache = new ConcurrentHashMap<String, LayerStyles>();
+
+	/**
+	 * Get the compiled style filters for a style of a layer.
+	 *
+	 * @param layer layer
+	 * @param style style
+	 * @return compiled style filters
+	 * @throws GeomajasException formula could not be parsed
+	 */
+	public CompiledStyleFilters getStyleFilters(Layer<?> layer, NamedStyleInfo style) throws GeomajasException {
+		LayerStyles layerStyles = cache.get(layer.getId());
+		if (null == layerStyles) {
+			layerStyles = new LayerStyles();
+			LayerStyles existing = cache.putIfAbsent(layer.getId(), layerStyles);
+			if (null != existing) {
+				layerStyles = existing;
+			}
+		}
+		String key = style.getCacheId();
+		CompiledStyleFilters styleFilters = layerStyles.styles.get(key);
+		// the cache id does not contain all style details, so only reuse when built from equal style definitions
+		if (null == styleFilters || !styleFilters.isBuiltFrom(style.getFeatureStyles())) {
+			styleFilters = new CompiledStyleFilters(style.getFeatureStyles(),
+					initStyleFilters(layerStyles, style.getFeatureStyles()));
+			if (layerStyles.styles.size() >= MAX_STYLES_PER_LAYER) {
+				layerStyles.styles.clear();
+			}
+			layerStyles.styles.put(key, styleFilters);
+		}
+		return styleFilters;
+	}
+
+	@Override
+	public void invalidateLayer(Layer layer) throws GeomajasException {
+		if (null != layer) {
+			cache.remove(layer.getId());
+		}
+	}
+
+	/**
+	 * Build list of style filters from style definitions.
+	 *
+	 * @param layerStyles
+	 *            cached data for the layer
+	 * @param styleDefinitions
+	 *            list of style definitions
+	 * @return list of style filters
+	 * @throws GeomajasException
+	 */
+	private List<StyleFilter> initStyleFilters(LayerStyles layerStyles, List<FeatureStyleInfo> styleDefinitions)
+			throws GeomajasException {
+		List<StyleFilter> styleFilters = new ArrayList<StyleFilter>();
+		if (styleDefinitions == null || styleDefinitions.size() == 0) {
+			styleFilters.add(new StyleFilterImpl()); // use default.
+		} else {
+			for (FeatureStyleInfo styleDef : styleDefinitions) {
+				StyleFilterImpl styleFilterImpl = null;
+				String formula = styleDef.getFormula();
+				if (null != formula && formula.length() > 0) {
+					Filter filter = layerStyles.formulas.get(formula);
+					if (null == filter) {
+						filter = filterService.parseFilter(formula);
+						if (layerStyles.formulas.size() >= MAX_STYLES_PER_LAYER * MAX_STYLES_PER_LAYER) {
+							layerStyles.formulas.clear();
+						}
+						layerStyles.formulas.put(formula, filter);
+					}
+					styleFilterImpl = new StyleFilterImpl(filter, styleDef);
+				} else {
+					styleFilterImpl = new StyleFilterImpl(Filter.INCLUDE, styleDef);
+				}
+				styleFilters.add(styleFilterImpl);
+			}
+		}
+		return styleFilters;
+	}
+
+	/**
+	 * Cached style data for a layer.
+	 *
+	 * @author agent
+	 */
+	private static final class LayerStyles {
+
+		private final Map<String, CompiledStyleFilters> styles = new ConcurrentHashMap<String, CompiledStyleFilters>();
+
+		private final Map<String, Filter> formulas = new ConcurrentHashMap<String, Filter>();
+	}
+}
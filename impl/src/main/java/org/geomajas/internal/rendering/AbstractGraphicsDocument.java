@@ -36,8 +36,6 @@ import com.vividsolutions.jts.geom.Coordinate;
  */
 public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 
-	private static final Coordinate NULL_COORDINATE = new Coordinate(0, 0);
-
 	/**
 	 * A map of all the writers that are needed to transform objects to SVG
 	 * code. These writers are implementations of <code>GraphicsWriter</code>
@@ -58,6 +56,9 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 	/** A formatter for floating point values. Used when writing */
 	protected DecimalFormat formatter;
 
+	/** Fast formatter which gives the same results as {@link #formatter}. */
+	protected CoordinateFormatter coordinateFormatter;
+
 	/**
 	 * Initialise the abstract graphics document, specifically meant to set the formatter.
 	 *
@@ -82,6 +83,8 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 
 		// minimum fraction digits to 0 so they get not rendered if not needed
 		formatter.setMinimumFractionDigits(0);
+
+		coordinateFormatter = new CoordinateFormatter(formatter);
 	}
 
 	public String toString() {
@@ -123,13 +126,17 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 	}
 
 	public void writeAttribute(String name, double value) throws RenderException {
-		writeAttribute(name, formatter.format(value));
+		writeAttribute(name, coordinateFormatter.format(value));
 	}
 
 	public void writeAttribute(String name, String value) throws RenderException {
 		try {
 			checkState(false);
-			writer.write(" " + name + "=" + "\"" + safeHtml(value) + "\"");
+			writer.write(' ');
+			writer.write(name);
+			writer.write("=\"");
+			writeSafeHtml(value);
+			writer.write('"');
 		} catch (IOException ioe) {
 			throw new RenderException(ioe, ExceptionCode.RENDER_DOCUMENT_IO_EXCEPTION);
 		}
@@ -138,7 +145,7 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 	public void writeAttributeEnd() throws RenderException {
 		try {
 			checkState(true);
-			writer.write("\"");
+			writer.write('"');
 			inAttribute = false;
 		} catch (IOException ioe) {
 			throw new RenderException(ioe, ExceptionCode.RENDER_DOCUMENT_IO_EXCEPTION);
@@ -148,7 +155,9 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 	public void writeAttributeStart(String name) throws RenderException {
 		try {
 			checkState(false);
-			writer.write(" " + name + "=\"");
+			writer.write(' ');
+			writer.write(name);
+			writer.write("=\"");
 			inAttribute = true;
 		} catch (IOException ioe) {
 			throw new RenderException(ioe, ExceptionCode.RENDER_DOCUMENT_IO_EXCEPTION);
@@ -172,10 +181,11 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 					if (!previous.isOpened()) {
 						writer.write(">");
 					}
-					writer.write("</" + previous.getName() + ">");
+					writeEndTag(previous.getName());
 				}
 			}
-			writer.write("<" + name);
+			writer.write('<');
+			writer.write(name);
 			elements.push(new ElementState(name));
 		} catch (IOException ioe) {
 			throw new RenderException(ioe, ExceptionCode.RENDER_DOCUMENT_IO_EXCEPTION);
@@ -191,7 +201,7 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 					if (!current.isOpened()) {
 						writer.write(">");
 					}
-					writer.write("</" + current.getName() + ">");
+					writeEndTag(current.getName());
 				} else {
 					writer.write("/>");
 				}
@@ -203,28 +213,40 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 	}
 
 	public void writePathContent(Coordinate[] coords, char path, char point) throws RenderException {
+		writePathContent(coords, coords.length, path, point);
+	}
+
+	/**
+	 * Write the first coordinates of the array as path content. The first coordinate is written absolute, the others
+	 * relative to the previous one. Coordinates which do not differ from the previous one after rounding are skipped.
+	 *
+	 * @param coords coordinates
+	 * @param nCoords number of coordinates to write
+	 * @param path character to write before the first coordinate
+	 * @param point character to write before the relative coordinates
+	 * @throws RenderException document could not be written
+	 */
+	protected void writePathContent(Coordinate[] coords, int nCoords, char path, char point) throws RenderException {
 		try {
 			checkState(true);
 			writer.write(path);
 
-			Coordinate curr = roundCoordinate(coords[0]);
-			writeCoordinate(curr);
-			Coordinate prev = curr;
+			double prevX = roundDouble(coords[0].x);
+			double prevY = roundDouble(coords[0].y);
+			writeCoordinate(prevX, prevY);
 
-			int nCoords = coords.length;
 			if (nCoords > 1) {
 				writer.write(point);
 				for (int i = 1; i < nCoords; i++) {
-					curr = coords[i];
-					Coordinate delta = new Coordinate(curr.x - prev.x, curr.y - prev.y);
-					delta = roundCoordinate(delta);
-					if (!delta.equals(NULL_COORDINATE) || i == 1) {
-						writeCoordinate(delta);
-						prev.x += delta.x;
-						prev.y += delta.y;
+					Coordinate curr = coords[i];
+					double deltaX = roundDouble(curr.x - prevX);
+					double deltaY = roundDouble(curr.y - prevY);
+					if (deltaX != 0 || deltaY != 0 || i == 1) {
+						writeCoordinate(deltaX, deltaY);
+						prevX += deltaX;
+						prevY += deltaY;
 						writer.write(' ');
 					}
-
 				}
 			}
 		} catch (IOException ioe) {
@@ -256,16 +278,17 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 	}
 
 	protected void writeCoordinate(Coordinate c) throws IOException {
-		writer.write(formatter.format(c.x));
+		writeCoordinate(c.x, c.y);
+	}
+
+	private void writeCoordinate(double x, double y) throws IOException {
+		coordinateFormatter.format(x, writer);
 		writer.write(' ');
-		writer.write(formatter.format(c.y));
+		coordinateFormatter.format(y, writer);
 	}
 
 	protected double roundDouble(double d) {
-		int frac = formatter.getMaximumFractionDigits();
-		double scale = Math.pow(10, frac);
-		double result = d * scale;
-		return Math.round(result) / scale;
+		return coordinateFormatter.round(d);
 	}
 
 	protected void checkState(boolean toCheck) throws RenderException {
@@ -312,6 +335,37 @@ public abstract class AbstractGraphicsDocument implements GraphicsDocument {
 		return value.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;");
 	}
 
+	private void writeSafeHtml(String value) throws IOException {
+		int length = value.length();
+		int start = 0;
+		for (int i = 0; i < length; i++) {
+			String replacement;
+			switch (value.charAt(i)) {
+				case '&':
+					replacement = "&amp;";
+					break;
+				case '<':
+					replacement = "&lt;";
+					break;
+				case '>':
+					replacement = "&gt;";
+					break;
+				default:
+					continue;
+			}
+			writer.write(value, start, i - start);
+			writer.write(replacement);
+			start = i + 1;
+		}
+		writer.write(value, start, length - start);
+	}
+
+	private void writeEndTag(String name) throws IOException {
+		writer.write("</");
+		writer.write(name);
+		writer.write('>');
+	}
+
 	/** State for an element in the stack. */
 	protected static class ElementState {
 
@@ -0,0 +1,171 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.rendering;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+
+/**
+ * Fast fixed precision formatter for coordinates, producing exactly the same output as the {@link DecimalFormat} of
+ * an {@link AbstractGraphicsDocument}.
+ * <p/>
+ * The value is scaled to a long and written digit by digit into a reusable buffer. The number of fraction digits is
+ * read from the decimal format on each call, so changes to the decimal format are honoured. Values which cannot be
+ * handled exactly this way (very large values, values very close to a rounding tie, negative values which round to
+ * zero, NaN, infinity or formatter settings which differ from the document defaults) are formatted using the decimal
+ * format. Instances are not thread safe, a graphics document is only used by one thread.
+ *
+ * @author agent
+ */
+public class CoordinateFormatter {
+
+	private static final int MAX_FAST_DIGITS = 9;
+
+	/** Above this the precision of the scaled value is not enough to detect rounding ties. */
+	private static final double MAX_FAST_SCALED = 1e12;
+
+	/** Values this close to a tie are rounded by the decimal format, which uses the exact binary value. */
+	private static final double TIE_MARGIN = 1e-3;
+
+	private static final long[] POWERS = new long[MAX_FAST_DIGITS + 1];
+
+	static {
+		POWERS[0] = 1;
+		for (int i = 1; i < POWERS.length; i++) {
+			POWERS[i] = POWERS[i - 1] * 10;
+		}
+	}
+
+	private final DecimalFormat format;
+
+	// sign, up to 13 integer digits, separator and fraction digits
+	private final char[] buffer = new char[32];
+
+	/**
+	 * Create a formatter which produces the same output as the given decimal format.
+	 *
+	 * @param format decimal format, should not use grouping and should use '.' as decimal separator
+	 */
+	public CoordinateFormatter(DecimalFormat format) {
+		this.format = format;
+	}
+
+	/**
+	 * Format a value.
+	 *
+	 * @param value value to format
+	 * @return formatted value
+	 */
+	public String format(double value) {
+		int length = formatToBuffer(value);
+		if (length < 0) {
+			return format.format(value);
+		}
+		return new String(buffer, 0, length);
+	}
+
+	/**
+	 * Format a value and write it to a writer.
+	 *
+	 * @param value value to format
+	 * @param writer writer to write the formatted value to
+	 * @throws IOException writer failed
+	 */
+	public void format(double value, Writer writer) throws IOException {
+		int length = formatToBuffer(value);
+		if (length < 0) {
+			writer.write(format.format(value));
+		} else {
+			writer.write(buffer, 0, length);
+		}
+	}
+
+	/**
+	 * Round a value to the maximum number of fraction digits (rounding half up).
+	 *
+	 * @param value value to round
+	 * @return rounded value
+	 */
+	public double round(double value) {
+		int digits = format.getMaximumFractionDigits();
+		double scale = digits < POWERS.length ? POWERS[digits] : Math.pow(10, digits);
+		return Math.round(value * scale) / scale;
+	}
+
+	/**
+	 * Write the formatted value in the buffer.
+	 *
+	 * @param value value to format
+	 * @return number of characters in the buffer, -1 when the decimal format needs to be used
+	 */
+	private int formatToBuffer(double value) {
+		int maxDigits = format.getMaximumFractionDigits();
+		int minDigits = format.getMinimumFractionDigits();
+		if (maxDigits > MAX_FAST_DIGITS || minDigits > maxDigits || format.getMinimumIntegerDigits() != 1 ||
+				format.isGroupingUsed() || format.isDecimalSeparatorAlwaysShown() ||
+				format.getRoundingMode() != RoundingMode.HALF_EVEN) {
+			return -1;
+		}
+		long power = POWERS[maxDigits];
+		double scaled = value * power;
+		if (!(Math.abs(scaled) < MAX_FAST_SCALED)) {
+			return -1; // also catches NaN
+		}
+		double floor = Math.floor(scaled);
+		double fraction = scaled - floor;
+		if (Math.abs(fraction - 0.5) < TIE_MARGIN) {
+			return -1;
+		}
+		long units = (long) floor + (fraction > 0.5 ? 1 : 0);
+		if (units == 0 && (value < 0 || (value == 0 && 1 / value < 0))) {
+			return -1; // decimal format writes "-0"
+		}
+
+		int pos = 0;
+		if (units < 0) {
+			buffer[pos++] = '-';
+			units = -units;
+		}
+		long integer = units / power;
+		long decimals = units % power;
+		pos = writeDigits(integer, 1, pos);
+
+		// drop trailing zeros, but keep at least the minimum number of fraction digits
+		int digits = maxDigits;
+		while (digits > minDigits && decimals % 10 == 0) {
+			decimals /= 10;
+			digits--;
+		}
+		if (digits > 0) {
+			buffer[pos++] = '.';
+			pos = writeDigits(decimals, digits, pos);
+		}
+		return pos;
+	}
+
+	private int writeDigits(long value, int minLength, int pos) {
+		int length = 1;
+		for (long rest = value / 10; rest > 0; rest /= 10) {
+			length++;
+		}
+		length = Math.max(length, minLength);
+		int end = pos + length;
+		long rest = value;
+		for (int i = end - 1; i >= pos; i--) {
+			buffer[i] = (char) ('0' + rest % 10);
+			rest /= 10;
+		}
+		return end;
+	}
+}
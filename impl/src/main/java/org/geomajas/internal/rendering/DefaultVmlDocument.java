@@ -60,9 +60,7 @@ public class DefaultVmlDocument extends AbstractGraphicsDocument {
 	public void writeClosedPathContent(Coordinate[] coords) throws RenderException {
 		try {
 			checkState(true);
-			Coordinate[] openCoords = new Coordinate[coords.length - 1];
-			System.arraycopy(coords, 0, openCoords, 0, coords.length - 1);
-			writePathContent(openCoords);
+			writePathContent(coords, coords.length - 1, 'm', 'r');
 			writer.write('x');
 		} catch (IOException ioe) {
 			throw new RenderException(ioe, ExceptionCode.RENDER_DOCUMENT_IO_EXCEPTION);
@@ -0,0 +1,504 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.rendering.mvt;
+
+import java.io.ByteArrayOutputStream;
+import java.io.UnsupportedEncodingException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+
+/**
+ * Encoder for a single layer vector tile in the Mapbox Vector Tile (version 2) protocol buffer format.
+ * <p/>
+ * Geometries are converted to integer tile coordinates (pixels from the top left corner of the tile, y axis pointing
+ * down) and written as zig-zag delta-encoded commands. Attribute keys and values are only stored once per tile.
+ * Points which are equal to the previous point after rounding are skipped. Geometry collections are written as one
+ * feature per geometry.
+ *
+ * @author agent
+ */
+public class MvtEncoder {
+
+	private static final int WIRE_VARINT = 0;
+
+	private static final int WIRE_FIXED64 = 1;
+
+	private static final int WIRE_LENGTH_DELIMITED = 2;
+
+	private static final int WIRE_FIXED32 = 5;
+
+	private static final int TILE_LAYERS = 3;
+
+	private static final int LAYER_NAME = 1;
+
+	private static final int LAYER_FEATURES = 2;
+
+	private static final int LAYER_KEYS = 3;
+
+	private static final int LAYER_VALUES = 4;
+
+	private static final int LAYER_EXTENT = 5;
+
+	private static final int LAYER_VERSION = 15;
+
+	private static final int FEATURE_ID = 1;
+
+	private static final int FEATURE_TAGS = 2;
+
+	private static final int FEATURE_TYPE = 3;
+
+	private static final int FEATURE_GEOMETRY = 4;
+
+	private static final int VALUE_STRING = 1;
+
+	private static final int VALUE_FLOAT = 2;
+
+	private static final int VALUE_DOUBLE = 3;
+
+	private static final int VALUE_SINT = 6;
+
+	private static final int VALUE_BOOL = 7;
+
+	private static final int TYPE_POINT = 1;
+
+	private static final int TYPE_LINESTRING = 2;
+
+	private static final int TYPE_POLYGON = 3;
+
+	private static final int COMMAND_MOVE_TO = 1;
+
+	private static final int COMMAND_LINE_TO = 2;
+
+	private static final int COMMAND_CLOSE_PATH = 7;
+
+	private static final int VERSION = 2;
+
+	private final String layerName;
+
+	private final int extent;
+
+	private final double scale;
+
+	private final double originX;
+
+	private final double originY;
+
+	private final Map<String, Integer> keys = new LinkedHashMap<String, Integer>();
+
+	private final Map<Object, Integer> values = new LinkedHashMap<Object, Integer>();
+
+	private final ProtobufBuffer features = new ProtobufBuffer();
+
+	// reused for each feature
+	private final ProtobufBuffer feature = new ProtobufBuffer();
+
+	private final IntBuffer tags = new IntBuffer();
+
+	private final IntBuffer commands = new IntBuffer();
+
+	private int cursorX;
+
+	private int cursorY;
+
+	/**
+	 * Create an encoder for a tile.
+	 *
+	 * @param layerName name of the layer in the tile
+	 * @param extent size of the tile in tile coordinates
+	 * @param scale number of tile coordinates per map unit
+	 * @param originX x-coordinate of the top left corner of the tile (in map coordinates)
+	 * @param originY y-coordinate of the top left corner of the tile (in map coordinates)
+	 */
+	public MvtEncoder(String layerName, int extent, double scale, double originX, double originY) {
+		this.layerName = layerName;
+		this.extent = extent;
+		this.scale = scale;
+		this.originX = originX;
+		this.originY = originY;
+	}
+
+	/**
+	 * Add a feature to the tile. Features with an empty geometry (after rounding to tile coordinates) are skipped.
+	 *
+	 * @param id feature id, only written when it is a non-negative number
+	 * @param attributes attributes (key-value pairs) for the feature, null values are skipped, values which are not
+	 *        a string, boolean or number are written as string
+	 * @param geometry geometry in map coordinates
+	 */
+	public void addFeature(String id, Map<String, Object> attributes, Geometry geometry) {
+		if (null == geometry || geometry.isEmpty()) {
+			return;
+		}
+		if (geometry.getClass() != Point.class && geometry.getClass() != MultiPoint.class &&
+				!(geometry instanceof LineString) && geometry.getClass() != MultiLineString.class &&
+				geometry.getClass() != Polygon.class && geometry.getClass() != MultiPolygon.class) {
+			// geometry collection, write each geometry as a feature
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				addFeature(id, attributes, geometry.getGeometryN(i));
+			}
+			return;
+		}
+		int type = encodeGeometry(geometry);
+		if (commands.size() == 0) {
+			return;
+		}
+		encodeTags(attributes);
+
+		feature.reset();
+		long numericId = parseId(id);
+		if (numericId >= 0) {
+			feature.writeTag(FEATURE_ID, WIRE_VARINT);
+			feature.writeVarint(numericId);
+		}
+		feature.writePacked(FEATURE_TAGS, tags);
+		feature.writeTag(FEATURE_TYPE, WIRE_VARINT);
+		feature.writeVarint(type);
+		feature.writePacked(FEATURE_GEOMETRY, commands);
+		features.writeMessage(LAYER_FEATURES, feature);
+	}
+
+	/**
+	 * Get the encoded tile.
+	 *
+	 * @return encoded vector tile
+	 */
+	public byte[] encode() {
+		ProtobufBuffer layer = new ProtobufBuffer();
+		layer.writeString(LAYER_NAME, layerName);
+		layer.writeBuffer(features);
+		for (String key : keys.keySet()) {
+			layer.writeString(LAYER_KEYS, key);
+		}
+		ProtobufBuffer value = new ProtobufBuffer();
+		for (Object object : values.keySet()) {
+			value.reset();
+			if (object instanceof String) {
+				value.writeString(VALUE_STRING, (String) object);
+			} else if (object instanceof Boolean) {
+				value.writeTag(VALUE_BOOL, WIRE_VARINT);
+				value.writeVarint((Boolean) object ? 1 : 0);
+			} else if (object instanceof Float) {
+				value.writeTag(VALUE_FLOAT, WIRE_FIXED32);
+				value.writeFixed32(Float.floatToIntBits((Float) object));
+			} else if (object instanceof Double) {
+				value.writeTag(VALUE_DOUBLE, WIRE_FIXED64);
+				value.writeFixed64(Double.doubleToLongBits((Double) object));
+			} else {
+				long number = (Long) object;
+				value.writeTag(VALUE_SINT, WIRE_VARINT);
+				value.writeVarint((number << 1) ^ (number >> 63));
+			}
+			layer.writeMessage(LAYER_VALUES, value);
+		}
+		layer.writeTag(LAYER_EXTENT, WIRE_VARINT);
+		layer.writeVarint(extent);
+		layer.writeTag(LAYER_VERSION, WIRE_VARINT);
+		layer.writeVarint(VERSION);
+
+		ProtobufBuffer tile = new ProtobufBuffer();
+		tile.writeMessage(TILE_LAYERS, layer);
+		return tile.toByteArray();
+	}
+
+	private long parseId(String id) {
+		if (null == id || id.length() == 0 || id.length() > 18) {
+			return -1;
+		}
+		for (int i = 0; i < id.length(); i++) {
+			char c = id.charAt(i);
+			if (c < '0' || c > '9') {
+				return -1;
+			}
+		}
+		return Long.parseLong(id);
+	}
+
+	private void encodeTags(Map<String, Object> attributes) {
+		tags.reset();
+		if (null == attributes) {
+			return;
+		}
+		for (Map.Entry<String, Object> entry : attributes.entrySet()) {
+			Object value = normalizeValue(entry.getValue());
+			if (null != value) {
+				tags.add(index(keys, entry.getKey()));
+				tags.add(index(values, value));
+			}
+		}
+	}
+
+	private Object normalizeValue(Object value) {
+		if (null == value || value instanceof String || value instanceof Boolean || value instanceof Float ||
+				value instanceof Double || value instanceof Long) {
+			return value;
+		}
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+			return ((Number) value).longValue();
+		}
+		return value.toString();
+	}
+
+	private <T> int index(Map<T, Integer> map, T object) {
+		Integer index = map.get(object);
+		if (null == index) {
+			index = map.size();
+			map.put(object, index);
+		}
+		return index;
+	}
+
+	private int encodeGeometry(Geometry geometry) {
+		commands.reset();
+		cursorX = 0;
+		cursorY = 0;
+		if (geometry instanceof Point || geometry instanceof MultiPoint) {
+			encodePoints(geometry);
+			return TYPE_POINT;
+		} else if (geometry instanceof LineString || geometry instanceof MultiLineString) {
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				encodeLine(geometry.getGeometryN(i).getCoordinates(), false, false);
+			}
+			return TYPE_LINESTRING;
+		} else {
+			for (int i = 0; i < geometry.getNumGeometries(); i++) {
+				Polygon polygon = (Polygon) geometry.getGeometryN(i);
+				if (encodeLine(polygon.getExteriorRing().getCoordinates(), true, true)) {
+					for (int j = 0; j < polygon.getNumInteriorRing(); j++) {
+						encodeLine(polygon.getInteriorRingN(j).getCoordinates(), true, false);
+					}
+				}
+			}
+			return TYPE_POLYGON;
+		}
+	}
+
+	private void encodePoints(Geometry geometry) {
+		int count = geometry.getNumGeometries();
+		commands.add(command(COMMAND_MOVE_TO, count));
+		for (int i = 0; i < count; i++) {
+			Coordinate coordinate = ((Point) geometry.getGeometryN(i)).getCoordinate();
+			addDelta(toTileX(coordinate.x), toTileY(coordinate.y));
+		}
+	}
+
+	/**
+	 * Encode a line or ring.
+	 *
+	 * @param coordinates coordinates
+	 * @param ring is this a polygon ring?
+	 * @param exterior is this the exterior ring of a polygon?
+	 * @return true when the line was written, false when it was too small
+	 */
+	private boolean encodeLine(Coordinate[] coordinates, boolean ring, boolean exterior) {
+		// convert to tile coordinates, dropping repeated points
+		int[] x = new int[coordinates.length];
+		int[] y = new int[coordinates.length];
+		int count = 0;
+		for (Coordinate coordinate : coordinates) {
+			int tileX = toTileX(coordinate.x);
+			int tileY = toTileY(coordinate.y);
+			if (count == 0 || tileX != x[count - 1] || tileY != y[count - 1]) {
+				x[count] = tileX;
+				y[count] = tileY;
+				count++;
+			}
+		}
+		if (ring) {
+			// closing point is implied by the close path command
+			if (count > 1 && x[0] == x[count - 1] && y[0] == y[count - 1]) {
+				count--;
+			}
+			if (count < 3) {
+				return false;
+			}
+			long area = 0;
+			for (int i = 0; i < count; i++) {
+				int next = (i + 1) % count;
+				area += (long) x[i] * y[next] - (long) x[next] * y[i];
+			}
+			if (area == 0) {
+				return false;
+			}
+			// exterior rings are clockwise (positive area as y points down), interior rings anti-clockwise
+			if ((area > 0) != exterior) {
+				reverse(x, count);
+				reverse(y, count);
+			}
+		} else if (count < 2) {
+			return false;
+		}
+		commands.add(command(COMMAND_MOVE_TO, 1));
+		addDelta(x[0], y[0]);
+		commands.add(command(COMMAND_LINE_TO, count - 1));
+		for (int i = 1; i < count; i++) {
+			addDelta(x[i], y[i]);
+		}
+		if (ring) {
+			commands.add(command(COMMAND_CLOSE_PATH, 1));
+		}
+		return true;
+	}
+
+	private void reverse(int[] array, int count) {
+		for (int i = 0, j = count - 1; i < j; i++, j--) {
+			int temp = array[i];
+			array[i] = array[j];
+			array[j] = temp;
+		}
+	}
+
+	private void addDelta(int x, int y) {
+		commands.add(zigZag(x - cursorX));
+		commands.add(zigZag(y - cursorY));
+		cursorX = x;
+		cursorY = y;
+	}
+
+	private int toTileX(double x) {
+		return (int) Math.round((x - originX) * scale);
+	}
+
+	private int toTileY(double y) {
+		return (int) Math.round((originY - y) * scale);
+	}
+
+	private static int command(int id, int count) {
+		return (id & 0x7) | (count << 3);
+	}
+
+	private static int zigZag(int value) {
+		return (value << 1) ^ (value >> 31);
+	}
+
+	/**
+	 * Growable list of ints.
+	 *
+	 * @author agent
+	 */
+	private static final class IntBuffer {
+
+		private int[] data = new int[64];
+
+		private int size;
+
+		public void add(int value) {
+			if (size == data.length) {
+				int[] grown = new int[size * 2];
+				System.arraycopy(data, 0, grown, 0, size);
+				data = grown;
+			}
+			data[size++] = value;
+		}
+
+		public int get(int index) {
+			return data[index];
+		}
+
+		public int size() {
+			return size;
+		}
+
+		public void reset() {
+			size = 0;
+		}
+	}
+
+	/**
+	 * Buffer for writing protocol buffer messages.
+	 *
+	 * @author agent
+	 */
+	private static final class ProtobufBuffer extends ByteArrayOutputStream {
+
+		public void writeTag(int field, int wireType) {
+			writeVarint((field << 3) | wireType);
+		}
+
+		public void writeVarint(long value) {
+			long rest = value;
+			while ((rest & ~0x7FL) != 0) {
+				write((int) ((rest & 0x7F) | 0x80));
+				rest >>>= 7;
+			}
+			write((int) rest);
+		}
+
+		public void writeFixed32(int value) {
+			for (int i = 0; i < 4; i++) {
+				write((value >>> (8 * i)) & 0xFF);
+			}
+		}
+
+		public void writeFixed64(long value) {
+			for (int i = 0; i < 8; i++) {
+				write((int) ((value >>> (8 * i)) & 0xFF));
+			}
+		}
+
+		public void writeString(int field, String value) {
+			byte[] bytes = toUtf8(value);
+			writeTag(field, WIRE_LENGTH_DELIMITED);
+			writeVarint(bytes.length);
+			write(bytes, 0, bytes.length);
+		}
+
+		public void writeMessage(int field, ProtobufBuffer message) {
+			writeTag(field, WIRE_LENGTH_DELIMITED);
+			writeVarint(message.size());
+			writeBuffer(message);
+		}
+
+		public void writeBuffer(ProtobufBuffer message) {
+			write(message.buf, 0, message.count);
+		}
+
+		public void writePacked(int field, IntBuffer ints) {
+			if (ints.size() == 0) {
+				return;
+			}
+			int length = 0;
+			for (int i = 0; i < ints.size(); i++) {
+				length += varintSize(ints.get(i));
+			}
+			writeTag(field, WIRE_LENGTH_DELIMITED);
+			writeVarint(length);
+			for (int i = 0; i < ints.size(); i++) {
+				writeVarint(ints.get(i) & 0xFFFFFFFFL);
+			}
+		}
+
+		private int varintSize(int value) {
+			int size = 1;
+			for (long rest = (value & 0xFFFFFFFFL) >>> 7; rest != 0; rest >>>= 7) {
+				size++;
+			}
+			return size;
+		}
+
+		private byte[] toUtf8(String value) {
+			try {
+				return value.getBytes("UTF-8");
+			} catch (UnsupportedEncodingException uee) {
+				throw new IllegalStateException(uee); // UTF-8 is always supported
+			}
+		}
+	}
+}
@@ -0,0 +1,137 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.rendering.painter.tile;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.apache.commons.codec.binary.Base64;
+import org.geomajas.internal.rendering.mvt.MvtEncoder;
+import org.geomajas.layer.feature.Attribute;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.tile.InternalTile;
+import org.geomajas.layer.tile.VectorTile.VectorTileContentType;
+import org.geomajas.rendering.RenderException;
+import org.geomajas.rendering.painter.tile.TilePainter;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * <p>
+ * TilePainter implementation which encodes the features of an {@link InternalTile} as a Mapbox Vector Tile. The
+ * feature content of the tile contains the base64 encoded binary tile, the content type is
+ * {@link VectorTileContentType#BINARY_CONTENT}.
+ * </p>
+ * <p>
+ * Besides the primitive attributes of the features, the feature id is stored in the {@link #ID_KEY} attribute and
+ * the style id in the {@link #STYLE_KEY} attribute. When labels are painted, the label is stored in the
+ * {@link #LABEL_KEY} attribute.
+ * </p>
+ *
+ * @author agent
+ */
+public class BinaryContentTilePainter implements TilePainter {
+
+	/** Attribute key for the feature id. */
+	public static final String ID_KEY = "geomajas:id";
+
+	/** Attribute key for the id of the feature style. */
+	public static final String STYLE_KEY = "geomajas:style";
+
+	/** Attribute key for the feature label. */
+	public static final String LABEL_KEY = "geomajas:label";
+
+	private final String layerId;
+
+	private final double scale;
+
+	private boolean paintGeometries = true;
+
+	private boolean paintLabels;
+
+	/**
+	 * Initialize this painter with all the info it needs.
+	 *
+	 * @param layerId
+	 *            id of the layer, used as layer name in the vector tile
+	 * @param scale
+	 *            the current client-side scale, used to convert to tile coordinates (pixels)
+	 */
+	public BinaryContentTilePainter(String layerId, double scale) {
+		this.layerId = layerId;
+		this.scale = scale;
+	}
+
+	/**
+	 * Paint the tile. The features in the tile should be in map coordinates. Clipped geometries are used for clipped
+	 * features.
+	 *
+	 * @param tile
+	 *            the tile to paint
+	 * @return the tile with binary feature content
+	 */
+	public InternalTile paint(InternalTile tile) throws RenderException {
+		if (null != tile && !paintGeometries) {
+			tile.setContentType(VectorTileContentType.BINARY_CONTENT);
+			tile.setFeatureContent("");
+		} else if (null != tile && null != tile.getFeatures()) {
+			Envelope bounds = tile.getBounds();
+			MvtEncoder encoder = new MvtEncoder(layerId, Math.max(tile.getScreenWidth(), tile.getScreenHeight()),
+					scale, bounds.getMinX(), bounds.getMaxY());
+			Map<String, Object> values = new LinkedHashMap<String, Object>();
+			for (InternalFeature feature : tile.getFeatures()) {
+				values.clear();
+				values.put(ID_KEY, feature.getId());
+				if (null != feature.getStyleInfo()) {
+					values.put(STYLE_KEY, feature.getStyleInfo().getStyleId());
+				}
+				if (paintLabels) {
+					values.put(LABEL_KEY, feature.getLabel());
+				}
+				if (null != feature.getAttributes()) {
+					for (Map.Entry<String, Attribute> entry : feature.getAttributes().entrySet()) {
+						Attribute<?> attribute = entry.getValue();
+						if (null != attribute && attribute.isPrimitive()) {
+							values.put(entry.getKey(), attribute.getValue());
+						}
+					}
+				}
+				encoder.addFeature(feature.getId(), values,
+						feature.isClipped() ? feature.getClippedGeometry() : feature.getGeometry());
+			}
+			tile.setContentType(VectorTileContentType.BINARY_CONTENT);
+			tile.setFeatureContent(Base64.encodeBase64String(encoder.encode()));
+		}
+		return tile;
+	}
+
+	/**
+	 * Enables or disables painting the geometries of the features in the tile. Without geometries the feature content
+	 * is empty.
+	 *
+	 * @param paintGeometries
+	 *            true or false.
+	 */
+	public void setPaintGeometries(boolean paintGeometries) {
+		this.paintGeometries = paintGeometries;
+	}
+
+	/**
+	 * Enables or disables including the labels of the features in the tile.
+	 *
+	 * @param paintLabels
+	 *            true or false.
+	 */
+	public void setPaintLabels(boolean paintLabels) {
+		this.paintLabels = paintLabels;
+	}
+}
@@ -12,7 +12,7 @@
 package org.geomajas.internal.rendering.painter.tile;
 
 import java.awt.geom.AffineTransform;
-import java.io.StringWriter;
+import java.io.Writer;
 import java.util.Collections;
 
 import org.geomajas.configuration.LabelStyleInfo;
@@ -28,6 +28,7 @@ import org.geomajas.internal.rendering.writer.svg.SvgTileWriter;
 import org.geomajas.internal.rendering.writer.vml.VmlFeatureWriter;
 import org.geomajas.internal.rendering.writer.vml.VmlLabelTileWriter;
 import org.geomajas.internal.rendering.writer.vml.VmlTileWriter;
+import org.geomajas.internal.util.StringBuilderWriter;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.tile.InternalTile;
 import org.geomajas.layer.tile.TileMetadata;
@@ -59,6 +60,11 @@ public class StringContentTilePainter implements TilePainter {
 	 */
 	protected static final int MAXIMUM_FRACTION_DIGITS = 0;
 
+	/**
+	 * Estimated size of the content for one feature, used to size the buffer.
+	 */
+	private static final int FEATURE_CONTENT_SIZE = 256;
+
 	/**
 	 * Should this painter paint a feature's geometries or not?
 	 */
@@ -183,7 +189,7 @@ public class StringContentTilePainter implements TilePainter {
 
 			// Create the SVG / VML feature fragment:
 			if (paintGeometries && featureDocument == null) {
-				StringWriter writer = new StringWriter();
+				StringBuilderWriter writer = createWriter();
 				try {
 					featureDocument = createFeatureDocument(writer);
 					featureDocument.setRootId(layer.getId());
@@ -197,7 +203,7 @@ public class StringContentTilePainter implements TilePainter {
 
 			// Create the SVG / VML label fragment:
 			if (paintLabels && labelDocument == null) {
-				StringWriter writer = new StringWriter();
+				StringBuilderWriter writer = createWriter();
 				try {
 					labelDocument = createLabelDocument(writer, style.getLabelStyle());
 					labelDocument.setRootId(layer.getId());
@@ -238,6 +244,15 @@ public class StringContentTilePainter implements TilePainter {
 	// Private functions:
 	// -------------------------------------------------------------------------
 
+	/**
+	 * Create a writer for the tile content, sized for the number of features in the tile.
+	 *
+	 * @return writer
+	 */
+	private StringBuilderWriter createWriter() {
+		return new StringBuilderWriter(FEATURE_CONTENT_SIZE * (1 + tile.getFeatures().size()));
+	}
+
 	/**
 	 * Create a document that parses the tile's featureFragment, using GraphicsWriter classes.
 	 * 
@@ -247,7 +262,7 @@ public class StringContentTilePainter implements TilePainter {
 	 * @throws RenderException
 	 *             oops
 	 */
-	private GraphicsDocument createFeatureDocument(StringWriter writer) throws RenderException {
+	private GraphicsDocument createFeatureDocument(Writer writer) throws RenderException {
 		if (TileMetadata.PARAM_SVG_RENDERER.equalsIgnoreCase(renderer)) {
 			DefaultSvgDocument document = new DefaultSvgDocument(writer, false);
 			document.setMaximumFractionDigits(MAXIMUM_FRACTION_DIGITS);
@@ -279,7 +294,7 @@ public class StringContentTilePainter implements TilePainter {
 	 * @throws RenderException
 	 *             cannot render
 	 */
-	private GraphicsDocument createLabelDocument(StringWriter writer, LabelStyleInfo labelStyleInfo)
+	private GraphicsDocument createLabelDocument(Writer writer, LabelStyleInfo labelStyleInfo)
 			throws RenderException {
 
 		if (TileMetadata.PARAM_SVG_RENDERER.equalsIgnoreCase(renderer)) {
@@ -73,6 +73,8 @@ public class DefaultSecurityContext implements SecurityContext {
 
 	private String id; // SecurityContext id
 
+	private boolean cacheAreas; // can the areas be cached using the id?
+
 	// user info
 	private String userId;
 
@@ -99,6 +101,9 @@ public class DefaultSecurityContext implements SecurityContext {
 	@Autowired
 	private ApplicationContext applicationContext;
 
+	@Autowired
+	private SecurityAreaCache securityAreaCache;
+
 	/**
 	 * Default constructor.
 	 *
@@ -134,6 +139,35 @@ public class DefaultSecurityContext implements SecurityContext {
 		userInfoInit();
 	}
 
+	/**
+	 * Get a snapshot of the authentications and user info of this security context.
+	 *
+	 * @return security context state
+	 */
+	public SecurityContextState getState() {
+		return new SecurityContextState(this);
+	}
+
+	/**
+	 * Set the token and restore the authentications and user info from a snapshot. The authorizations in the
+	 * snapshot are already wired.
+	 *
+	 * @param token current token
+	 * @param state security context state, as obtained from {@link #getState()}
+	 */
+	public void setState(String token, SecurityContextState state) {
+		this.token = token;
+		authentications.clear();
+		authentications.addAll(state.getAuthentications());
+		id = state.getId();
+		cacheAreas = hasAuthorizationIds();
+		userId = state.getUserId();
+		userName = state.getUserName();
+		userLocale = state.getUserLocale();
+		userOrganization = state.getUserOrganization();
+		userDivision = state.getUserDivision();
+	}
+
 	/**
 	 * @inheritDoc
 	 */
@@ -241,6 +275,24 @@ public class DefaultSecurityContext implements SecurityContext {
 			sb.append(key);
 		}
 		id = sb.toString();
+		cacheAreas = hasAuthorizationIds();
+	}
+
+	/**
+	 * Check whether all authorizations have an id. The id is optional, authorizations without id cannot be
+	 * distinguished in the security context id.
+	 *
+	 * @return true when all authorizations have an id
+	 */
+	private boolean hasAuthorizationIds() {
+		for (Authentication auth : authentications) {
+			for (BaseAuthorization ba : auth.getAuthorizations()) {
+				if (null == ba.getId()) {
+					return false;
+				}
+			}
+		}
+		return true;
 	}
 
 	/**
@@ -393,15 +445,23 @@ public class DefaultSecurityContext implements SecurityContext {
 	 * @inheritDoc
 	 */
 	public Geometry getVisibleArea(final String layerId) {
-		return areaCombine(layerId, new VisibleAreaCombineGetter(layerId));
+		return areaCombine(layerId, SecurityAreaCache.VISIBLE, new VisibleAreaCombineGetter(layerId));
 	}
 
-	private Geometry areaCombine(String layerId, AreaCombineGetter areaGetter) {
+	private Geometry areaCombine(String layerId, String kind, AreaCombineGetter areaGetter) {
 		if (null == authentications || authentications.size() == 0) {
 			// no authorizations, so nothing should be allowed
 			return null;
 		}
 
+		// the combined area only depends on the authorizations, which determine the id (when they all have an id)
+		if (cacheAreas) {
+			Geometry cached = securityAreaCache.getArea(layerId, id, kind);
+			if (null != cached) {
+				return cached;
+			}
+		}
+
 		Layer<?> layer = configurationService.getLayer(layerId);
 		if (null == layer) {
 			log.error("areaCombine on unknown layer " + layerId);
@@ -425,6 +485,9 @@ public class DefaultSecurityContext implements SecurityContext {
 			}
 		}
 		geometry.setSRID(srid); // force srid, even when not set correctly by security service
+		if (cacheAreas) {
+			securityAreaCache.putArea(layerId, id, kind, geometry);
+		}
 		return geometry;
 	}
 
@@ -457,7 +520,7 @@ public class DefaultSecurityContext implements SecurityContext {
 		if (!isLayerUpdateCapable(layerId)) {
 			return null;
 		}
-		return areaCombine(layerId, new UpdateAreaCombineGetter(layerId));
+		return areaCombine(layerId, SecurityAreaCache.UPDATE, new UpdateAreaCombineGetter(layerId));
 	}
 
 	/**
@@ -474,7 +537,7 @@ public class DefaultSecurityContext implements SecurityContext {
 		if (!isLayerCreateCapable(layerId)) {
 			return null;
 		}
-		return areaCombine(layerId, new CreateAreaCombineGetter(layerId));
+		return areaCombine(layerId, SecurityAreaCache.CREATE, new CreateAreaCombineGetter(layerId));
 	}
 
 	/**
@@ -491,7 +554,7 @@ public class DefaultSecurityContext implements SecurityContext {
 		if (!isLayerDeleteCapable(layerId)) {
 			return null;
 		}
-		return areaCombine(layerId, new DeleteAreaCombineGetter(layerId));
+		return areaCombine(layerId, SecurityAreaCache.DELETE, new DeleteAreaCombineGetter(layerId));
 	}
 
 	/**
@@ -12,7 +12,12 @@
 package org.geomajas.internal.security;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.geomajas.annotation.Api;
 import org.geomajas.security.Authentication;
@@ -30,6 +35,12 @@ import org.springframework.stereotype.Component;
  * The security manager tries to find the authorization objects for an authentication token.
  * <p/>
  * It can be used to create or clear the security context for the current thread.
+ * <p/>
+ * When {@link SecurityInfo#getAuthenticationCacheTime()} is set (caching is off by default), the authentications for a
+ * token are cached for that many seconds, together with the derived user info. This avoids querying the security
+ * services for each request. The cached entry is never used beyond the {@link Authentication#getValidUntil()
+ * validUntil} or {@link Authentication#getInvalidAfter() invalidAfter} timestamp of the authentications. Security
+ * services which revoke a token earlier must call {@link #invalidateAuthentication(String)}.
  *
  * @author Joachim Van der Auwera
  * @since 1.10.0
@@ -38,15 +49,36 @@ import org.springframework.stereotype.Component;
 @Component
 public class DefaultSecurityManager implements SecurityManager {
 
+	private static final long MS_IN_S = 1000;
+
+	/** Maximum number of tokens for which the authentications are cached. */
+	private static final int MAX_CACHED_TOKENS = 10000;
+
 	@Autowired
 	private SecurityInfo securityInfo;
 
 	@Autowired
 	private SecurityContext securityContext;
 
+	private final ConcurrentMap<String, CachedState> cache = new ConcurrentHashMap<String, CachedState>();
+
+	private final AtomicLong invalidations = new AtomicLong();
+
 	/** @inheritDoc */
 	public boolean createSecurityContext(String authenticationToken) {
 		clearSecurityContext(); // assure there is no authenticated user in case of problems during creation
+		long cacheTime = MS_IN_S * securityInfo.getAuthenticationCacheTime();
+		if (cacheTime > 0 && null != authenticationToken) {
+			CachedState cached = cache.get(authenticationToken);
+			if (null != cached) {
+				if (cached.isValid()) {
+					((DefaultSecurityContext) securityContext).setState(authenticationToken, cached.state);
+					return true;
+				}
+				cache.remove(authenticationToken, cached);
+			}
+		}
+		long invalidationCount = invalidations.get();
 		List<SecurityService> services = securityInfo.getSecurityServices();
 		List<Authentication> authentications = new ArrayList<Authentication>();
 		for (SecurityService service : services) {
@@ -59,7 +91,20 @@ public class DefaultSecurityManager implements SecurityManager {
 				}
 			}
 		}
-		return setSecurityContext(authenticationToken, authentications);
+		boolean authenticated = setSecurityContext(authenticationToken, authentications);
+		if (authenticated && cacheTime > 0 && null != authenticationToken) {
+			if (cache.size() >= MAX_CACHED_TOKENS) {
+				removeExpired();
+			}
+			CachedState cached = new CachedState(((DefaultSecurityContext) securityContext).getState(),
+					getValidUntil(authentications, System.currentTimeMillis() + cacheTime));
+			cache.put(authenticationToken, cached);
+			if (invalidations.get() != invalidationCount) {
+				// a token was invalidated while querying the security services, don't risk caching a stale result
+				cache.remove(authenticationToken, cached);
+			}
+		}
+		return authenticated;
 	}
 
 	/**
@@ -93,4 +138,71 @@ public class DefaultSecurityManager implements SecurityManager {
 			((DefaultSecurityContext) securityContext).restoreSecurityContext(authorizations);
 		}
 	}
+
+	/** @inheritDoc */
+	public void invalidateAuthentication(String authenticationToken) {
+		if (null != authenticationToken) {
+			invalidations.incrementAndGet();
+			cache.remove(authenticationToken);
+		}
+	}
+
+	/**
+	 * Determine until when the authentications can be cached, the cache time limited to the validity of the
+	 * authentications.
+	 *
+	 * @param authentications authentications
+	 * @param cacheUntil end of the cache time
+	 * @return timestamp until when the authentications can be cached
+	 */
+	private long getValidUntil(List<Authentication> authentications, long cacheUntil) {
+		long validUntil = cacheUntil;
+		for (Authentication authentication : authentications) {
+			validUntil = min(validUntil, authentication.getValidUntil());
+			validUntil = min(validUntil, authentication.getInvalidAfter());
+		}
+		return validUntil;
+	}
+
+	private long min(long time, Date date) {
+		if (null != date && date.getTime() < time) {
+			return date.getTime();
+		}
+		return time;
+	}
+
+	/**
+	 * Remove the expired entries from the authentication cache. When the cache is still too large, it is cleared.
+	 */
+	private void removeExpired() {
+		for (Map.Entry<String, CachedState> entry : cache.entrySet()) {
+			if (!entry.getValue().isValid()) {
+				cache.remove(entry.getKey(), entry.getValue());
+			}
+		}
+		if (cache.size() >= MAX_CACHED_TOKENS) {
+			cache.clear();
+		}
+	}
+
+	/**
+	 * Cached security context state for a token with its validity timestamp.
+	 *
+	 * @author agent
+	 */
+	private static final class CachedState {
+
+		private final SecurityContextState state;
+
+		private final long validUntil;
+
+		private CachedState(SecurityContextState state, long validUntil) {
+			this.state = state;
+			this.validUntil = validUntil;
+		}
+
+		private boolean isValid() {
+			return System.currentTimeMillis() <= validUntil;
+		}
+	}
 }
\ No newline at end of file
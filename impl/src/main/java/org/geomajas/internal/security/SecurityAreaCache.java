@@ -0,0 +1,147 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.internal.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.Layer;
+import org.geomajas.service.LayerInvalidationService;
+import org.springframework.stereotype.Component;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometry;
+import com.vividsolutions.jts.geom.prep.PreparedGeometryFactory;
+
+/**
+ * Cache of the combined authorized areas of the security contexts. The areas are cached per layer, security context id
+ * and kind of area. As the security context id is determined by the authorizations, the areas can be reused by all
+ * requests with the same authorizations. The cache for a layer is cleared when the layer is invalidated.
+ * <p/>
+ * The security context id is only unique when all authorizations have an id. Areas of security contexts which contain
+ * authorizations without id should not be cached.
+ * <p/>
+ * The cached geometries are shared and should not be modified.
+ *
+ * @author agent
+ */
+@Component
+public class SecurityAreaCache implements LayerInvalidationService {
+
+	/** Kind for the visible area. */
+	public static final String VISIBLE = "visible";
+
+	/** Kind for the area in which features can be updated. */
+	public static final String UPDATE = "update";
+
+	/** Kind for the area in which features can be created. */
+	public static final String CREATE = "create";
+
+	/** Kind for the area in which features can be deleted. */
+	public static final String DELETE = "delete";
+
+	/** Maximum number of areas which are cached per layer. */
+	private static final int MAX_AREAS_PER_LAYER = 1000;
+
+	private final ConcurrentMap<String, Map<String, Area>> cache = new ConcurrentHashMap<String, Map<String, Area>>();
+
+	/**
+	 * Get a cached area.
+	 *
+	 * @param layerId layer id
+	 * @param contextId security context id
+	 * @param kind kind of area
+	 * @return area or null when not cached
+	 */
+	public Geometry getArea(String layerId, String contextId, String kind) {
+		Area area = get(layerId, contextId, kind);
+		return null == area ? null : area.geometry;
+	}
+
+	/**
+	 * Get a cached area as prepared geometry, allowing faster repeated spatial predicates.
+	 *
+	 * @param layerId layer id
+	 * @param contextId security context id
+	 * @param kind kind of area
+	 * @return prepared area or null when not cached
+	 */
+	public PreparedGeometry getPreparedArea(String layerId, String contextId, String kind) {
+		Area area = get(layerId, contextId, kind);
+		return null == area ? null : area.getPrepared();
+	}
+
+	/**
+	 * Put an area in the cache.
+	 *
+	 * @param layerId layer id
+	 * @param contextId security context id
+	 * @param kind kind of area
+	 * @param geometry area
+	 */
+	public void putArea(String layerId, String contextId, String kind, Geometry geometry) {
+		Map<String, Area> areas = cache.get(layerId);
+		if (null == areas) {
+			areas = new ConcurrentHashMap<String, Area>();
+			Map<String, Area> existing = cache.putIfAbsent(layerId, areas);
+			if (null != existing) {
+				areas = existing;
+			}
+		}
+		if (areas.size() >= MAX_AREAS_PER_LAYER) {
+			areas.clear();
+		}
+		areas.put(getKey(contextId, kind), new Area(geometry));
+	}
+
+	@Override
+	public void invalidateLayer(Layer layer) throws GeomajasException {
+		if (null != layer) {
+			cache.remove(layer.getId());
+		}
+	}
+
+	private Area get(String layerId, String contextId, String kind) {
+		Map<String, Area> areas = cache.get(layerId);
+		return null == areas ? null : areas.get(getKey(contextId, kind));
+	}
+
+	private String getKey(String contextId, String kind) {
+		return kind + ":" + contextId;
+	}
+
+	/**
+	 * Cached area, the prepared geometry is only built when needed.
+	 *
+	 * @author agent
+	 */
+	private static final class Area {
+
+		private final Geometry geometry;
+
+		private volatile PreparedGeometry prepared;
+
+		private Area(Geometry geometry) {
+			this.geometry = geometry;
+		}
+
+		private PreparedGeometry getPrepared() {
+			if (null == prepared) {
+				prepared = PreparedGeometryFactory.prepare(geometry); // thread safe, at worst prepared twice
+			}
+			return prepared;
+		}
+	}
+}
@@ -0,0 +1,88 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.internal.security;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import org.geomajas.security.Authentication;
+
+/**
+ * Snapshot of the authentications and derived user info of a {@link DefaultSecurityContext}. This allows the
+ * security context to be set again for the same token without querying the security services and without
+ * recalculating the user info.
+ *
+ * @author agent
+ */
+public final class SecurityContextState {
+
+	private final List<Authentication> authentications;
+
+	private final String id;
+
+	private final String userId;
+
+	private final String userName;
+
+	private final Locale userLocale;
+
+	private final String userOrganization;
+
+	private final String userDivision;
+
+	/**
+	 * Create a snapshot of a security context.
+	 *
+	 * @param context security context
+	 */
+	SecurityContextState(DefaultSecurityContext context) {
+		authentications = Collections.unmodifiableList(
+				new ArrayList<Authentication>(context.getSecurityServiceResults()));
+		id = context.getId();
+		userId = context.getUserId();
+		userName = context.getUserName();
+		userLocale = context.getUserLocale();
+		userOrganization = context.getUserOrganization();
+		userDivision = context.getUserDivision();
+	}
+
+	List<Authentication> getAuthentications() {
+		return authentications;
+	}
+
+	String getId() {
+		return id;
+	}
+
+	String getUserId() {
+		return userId;
+	}
+
+	String getUserName() {
+		return userName;
+	}
+
+	Locale getUserLocale() {
+		return userLocale;
+	}
+
+	String getUserOrganization() {
+		return userOrganization;
+	}
+
+	String getUserDivision() {
+		return userDivision;
+	}
+}
@@ -10,11 +10,15 @@
  */
 package org.geomajas.internal.service;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.HashMap;
 import java.util.Map;
-import java.util.Map.Entry;
+import java.util.Queue;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
 
 import org.geomajas.service.CacheService;
 import org.springframework.stereotype.Component;
@@ -22,14 +26,27 @@ import org.springframework.stereotype.Component;
 /**
  * Default implementation of the caches service that works in-memory. Note that this service does not distribute objects
  * to different nodes in a load balancing environment.
- * 
+ * <p/>
+ * Each cache is bounded in size. When a cache is full, entries are evicted using the CLOCK algorithm (an
+ * approximation of least recently used which does not need locking when reading). Expired entries are removed when
+ * they are encountered and by the scheduled {@link #cleanUp()}.
+ *
  * @author Oliver May
- * 
+ *
  */
 @Component
 public class DefaultCacheService implements CacheService {
 
-	private Map<String, Map<Object, CachedObject>> caches = new ConcurrentHashMap<String, Map<Object, CachedObject>>();
+	/**
+	 * Default maximum number of entries in a cache.
+	 */
+	public static final int DEFAULT_MAX_SIZE = 10000;
+
+	private final ConcurrentMap<String, Cache> caches = new ConcurrentHashMap<String, Cache>();
+
+	private int defaultMaxSize = DEFAULT_MAX_SIZE;
+
+	private Map<String, Integer> maxSizes = new HashMap<String, Integer>();
 
 	@Override
 	public void put(String cacheId, Object key, Object value) {
@@ -38,36 +55,37 @@ public class DefaultCacheService implements CacheService {
 
 	@Override
 	public void put(String cacheId, Object key, Object value, long timeToLive) {
-		getOrCreateCache(cacheId).put(key, new CachedObject(value, System.currentTimeMillis() + timeToLive));
+		getOrCreateCache(cacheId).put(key, value, System.currentTimeMillis() + timeToLive);
 	}
 
 	@Override
 	public Object get(String cacheId, Object key) {
-		CachedObject co = getOrCreateCache(cacheId).get(key); 
-		return co != null ? co.getObject() : null;
+		Cache cache = caches.get(cacheId);
+		if (null == cache) {
+			return null;
+		}
+		return cache.get(key);
 	}
 
 	@Override
 	public void cleanUp() {
-		List<Object> toRemove = new ArrayList<Object>();
-		for (Map<Object, CachedObject> cache : caches.values()) {
-			for (Entry<Object, CachedObject> cachedObject : cache.entrySet()) {
-				if (cachedObject.getValue().getExpireTime() < System.currentTimeMillis()) {
-					toRemove.add(cachedObject.getKey());
-				}
-			}
-			cache.keySet().removeAll(toRemove);
+		long now = System.currentTimeMillis();
+		for (Cache cache : caches.values()) {
+			cache.cleanUp(now);
 		}
 	}
 
-	private synchronized Map<Object, CachedObject> getOrCreateCache(String cacheId) {
-		if (caches.containsKey(cacheId)) {
-			return caches.get(cacheId);
-		} else {
-			Map<Object, CachedObject> newCache = new ConcurrentHashMap<Object, DefaultCacheService.CachedObject>();
-			caches.put(cacheId, newCache);
-			return newCache;
+	private Cache getOrCreateCache(String cacheId) {
+		Cache cache = caches.get(cacheId);
+		if (null == cache) {
+			Integer maxSize = maxSizes.get(cacheId);
+			cache = new Cache(null != maxSize ? maxSize : defaultMaxSize);
+			Cache existing = caches.putIfAbsent(cacheId, cache);
+			if (null != existing) {
+				cache = existing;
+			}
 		}
+		return cache;
 	}
 
 	@SuppressWarnings("unchecked")
@@ -82,28 +100,296 @@ public class DefaultCacheService implements CacheService {
 	}
 
 	@Override
-	public void remove(String cache, Object key) {
-		getOrCreateCache(cache).remove(key);
+	public void remove(String cacheId, Object key) {
+		Cache cache = caches.get(cacheId);
+		if (null != cache) {
+			cache.remove(key);
+		}
 	}
 
 	@Override
-	public void clear(String cache) {
-		getOrCreateCache(cache).clear();
+	public void clear(String cacheId) {
+		Cache cache = caches.get(cacheId);
+		if (null != cache) {
+			caches.replace(cacheId, cache, new Cache(cache));
+		}
+	}
+
+	/**
+	 * Get the statistics for a cache.
+	 *
+	 * @param cacheId the cache id
+	 * @return statistics for the cache, null when the cache has not been used
+	 */
+	public CacheStatistics getStatistics(String cacheId) {
+		return caches.get(cacheId);
+	}
+
+	/**
+	 * Get the maximum number of entries for caches which have no specific maximum size.
+	 *
+	 * @return default maximum size
+	 */
+	public int getDefaultMaxSize() {
+		return defaultMaxSize;
+	}
+
+	/**
+	 * Set the maximum number of entries for caches which have no specific maximum size. Only applies to caches which
+	 * are created after this is set.
+	 *
+	 * @param defaultMaxSize default maximum size
+	 */
+	public void setDefaultMaxSize(int defaultMaxSize) {
+		this.defaultMaxSize = defaultMaxSize;
+	}
+
+	/**
+	 * Set the maximum number of entries for specific caches, indexed by cache id. Only applies to caches which are
+	 * created after this is set.
+	 *
+	 * @param maxSizes maximum size per cache id
+	 */
+	public void setMaxSizes(Map<String, Integer> maxSizes) {
+		this.maxSizes = maxSizes;
+	}
+
+	/**
+	 * Usage statistics for a cache.
+	 *
+	 * @author agent
+	 */
+	public interface CacheStatistics {
+
+		/**
+		 * Get the number of entries in the cache.
+		 *
+		 * @return number of entries
+		 */
+		int getSize();
+
+		/**
+		 * Get the maximum number of entries in the cache.
+		 *
+		 * @return maximum number of entries
+		 */
+		int getMaxSize();
+
+		/**
+		 * Get the number of successful lookups.
+		 *
+		 * @return hit count
+		 */
+		long getHitCount();
+
+		/**
+		 * Get the number of lookups for which no (valid) entry was found.
+		 *
+		 * @return miss count
+		 */
+		long getMissCount();
+
+		/**
+		 * Get the number of entries which were removed because the cache was full.
+		 *
+		 * @return eviction count
+		 */
+		long getEvictionCount();
+
+		/**
+		 * Get the number of entries which were removed because they expired.
+		 *
+		 * @return expiration count
+		 */
+		long getExpirationCount();
+	}
+
+	/**
+	 * One bounded cache. Lookups do not lock, they only mark the entry as recently used. Eviction is done by one
+	 * thread at a time, sweeping the queue of entries in insertion order and giving recently used entries a second
+	 * chance.
+	 * <p/>
+	 * The clock size is incremented after an entry is added to the clock and decremented after one is taken from it.
+	 * A cache is never cleared in place, this could leave entries in the map which are not on the clock (or the other
+	 * way around) when done concurrently with a put. It is replaced by a new cache instead.
+	 *
+	 * @author agent
+	 */
+	private static final class Cache implements CacheStatistics {
+
+		private final int maxSize;
+
+		private final ConcurrentMap<Object, CachedObject> map = new ConcurrentHashMap<Object, CachedObject>();
+
+		private final Queue<CachedObject> clock = new ConcurrentLinkedQueue<CachedObject>();
+
+		private final AtomicInteger clockSize = new AtomicInteger();
+
+		private final ReentrantLock evictionLock = new ReentrantLock();
+
+		private final AtomicLong hits;
+
+		private final AtomicLong misses;
+
+		private final AtomicLong evictions;
+
+		private final AtomicLong expirations;
+
+		private Cache(int maxSize) {
+			this.maxSize = Math.max(1, maxSize);
+			hits = new AtomicLong();
+			misses = new AtomicLong();
+			evictions = new AtomicLong();
+			expirations = new AtomicLong();
+		}
+
+		/**
+		 * Create an empty cache which replaces the given one, the statistics are kept.
+		 *
+		 * @param previous cache which is replaced
+		 */
+		private Cache(Cache previous) {
+			maxSize = previous.maxSize;
+			hits = previous.hits;
+			misses = previous.misses;
+			evictions = previous.evictions;
+			expirations = previous.expirations;
+		}
+
+		public Object get(Object key) {
+			CachedObject co = map.get(key);
+			if (null == co) {
+				misses.incrementAndGet();
+				return null;
+			}
+			if (co.getExpireTime() < System.currentTimeMillis()) {
+				if (map.remove(key, co)) {
+					expirations.incrementAndGet();
+				}
+				misses.incrementAndGet();
+				return null;
+			}
+			co.setAccessed(true);
+			hits.incrementAndGet();
+			return co.getObject();
+		}
+
+		public void put(Object key, Object value, long expireTime) {
+			CachedObject co = new CachedObject(key, value, expireTime);
+			map.put(key, co);
+			clock.offer(co);
+			clockSize.incrementAndGet();
+			// the clock may also contain replaced or removed entries, assure it does not keep growing either
+			if (map.size() > maxSize || clockSize.get() > 2 * maxSize) {
+				evict();
+			}
+		}
+
+		public void remove(Object key) {
+			map.remove(key);
+		}
+
+		public void cleanUp(long now) {
+			for (CachedObject co : map.values()) {
+				if (co.getExpireTime() < now && map.remove(co.getKey(), co)) {
+					expirations.incrementAndGet();
+				}
+			}
+			if (clockSize.get() > map.size()) {
+				evict();
+			}
+		}
+
+		private void evict() {
+			// when another thread is already evicting, there is no need to wait
+			if (!evictionLock.tryLock()) {
+				return;
+			}
+			try {
+				// at most one pass over the clock, recently used entries are evicted on the next pass
+				int remaining = clockSize.get();
+				while (remaining-- > 0 && (map.size() > maxSize || clockSize.get() > map.size())) {
+					CachedObject co = clock.poll();
+					if (null == co) {
+						return;
+					}
+					if (map.get(co.getKey()) != co) {
+						// stale, entry was replaced or removed
+						clockSize.decrementAndGet();
+					} else if (map.size() <= maxSize) {
+						// only stale entries need to be dropped, keep the live ones in order
+						clock.offer(co);
+						if (clockSize.get() <= map.size()) {
+							return;
+						}
+					} else if (co.isAccessed()) {
+						// second chance
+						co.setAccessed(false);
+						clock.offer(co);
+					} else {
+						clockSize.decrementAndGet();
+						if (map.remove(co.getKey(), co)) {
+							evictions.incrementAndGet();
+						}
+					}
+				}
+			} finally {
+				evictionLock.unlock();
+			}
+		}
+
+		@Override
+		public int getSize() {
+			return map.size();
+		}
+
+		@Override
+		public int getMaxSize() {
+			return maxSize;
+		}
+
+		@Override
+		public long getHitCount() {
+			return hits.get();
+		}
+
+		@Override
+		public long getMissCount() {
+			return misses.get();
+		}
+
+		@Override
+		public long getEvictionCount() {
+			return evictions.get();
+		}
+
+		@Override
+		public long getExpirationCount() {
+			return expirations.get();
+		}
 	}
 
 	/**
 	 * Helper class that stores extra data (expire time) about an object in the cache.
-	 * 
+	 *
 	 * @author Oliver May
 	 */
-	private class CachedObject {
-		private Object object;
-		private long expireTime;
-		public CachedObject(Object object, long expireTime) {
+	private static final class CachedObject {
+		private final Object key;
+		private final Object object;
+		private final long expireTime;
+		private volatile boolean accessed;
+
+		public CachedObject(Object key, Object object, long expireTime) {
+			this.key = key;
 			this.object = object;
 			this.expireTime = expireTime;
 		}
 
+		public Object getKey() {
+			return key;
+		}
+
 		public Object getObject() {
 			return object;
 		}
@@ -112,6 +398,13 @@ public class DefaultCacheService implements CacheService {
 			return expireTime;
 		}
 
+		public boolean isAccessed() {
+			return accessed;
+		}
+
+		public void setAccessed(boolean accessed) {
+			this.accessed = accessed;
+		}
 	}
 
 }
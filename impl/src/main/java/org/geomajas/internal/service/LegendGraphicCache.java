@@ -0,0 +1,86 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.internal.service;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.Layer;
+import org.geomajas.service.LayerInvalidationService;
+import org.geomajas.service.legend.EncodedLegendGraphic;
+import org.springframework.stereotype.Component;
+
+/**
+ * Cache of the encoded legend graphics. The graphics are cached per layer, the cache for a layer is cleared when the
+ * layer is invalidated. Graphics which are not linked to a layer are cleared when all layers are invalidated.
+ * <p/>
+ * The keys are built by {@link LegendGraphicServiceImpl}, styles and rules are compared on identity, so a changed
+ * style definition never matches a graphic which was rendered for the previous definition.
+ *
+ * @author agent
+ */
+@Component
+public class LegendGraphicCache implements LayerInvalidationService {
+
+	/** Maximum number of graphics which are cached per layer. */
+	private static final int MAX_GRAPHICS_PER_LAYER = 1000;
+
+	/** Layer id which is used for graphics which are not linked to a layer. */
+	private static final String NO_LAYER = "";
+
+	private final ConcurrentMap<String, Map<Object, EncodedLegendGraphic>> cache =
+			new ConcurrentHashMap<String, Map<Object, EncodedLegendGraphic>>();
+
+	/**
+	 * Get a cached legend graphic.
+	 *
+	 * @param layerId layer id, can be null
+	 * @param key key for the graphic
+	 * @return graphic or null when not cached
+	 */
+	public EncodedLegendGraphic get(String layerId, Object key) {
+		Map<Object, EncodedLegendGraphic> graphics = cache.get(null == layerId ? NO_LAYER : layerId);
+		return null == graphics ? null : graphics.get(key);
+	}
+
+	/**
+	 * Put a legend graphic in the cache.
+	 *
+	 * @param layerId layer id, can be null
+	 * @param key key for the graphic
+	 * @param graphic encoded graphic
+	 */
+	public void put(String layerId, Object key, EncodedLegendGraphic graphic) {
+		String id = null == layerId ? NO_LAYER : layerId;
+		Map<Object, EncodedLegendGraphic> graphics = cache.get(id);
+		if (null == graphics) {
+			graphics = new ConcurrentHashMap<Object, EncodedLegendGraphic>();
+			Map<Object, EncodedLegendGraphic> existing = cache.putIfAbsent(id, graphics);
+			if (null != existing) {
+				graphics = existing;
+			}
+		}
+		if (graphics.size() >= MAX_GRAPHICS_PER_LAYER) {
+			graphics.clear();
+		}
+		graphics.put(key, graphic);
+	}
+
+	@Override
+	public void invalidateLayer(Layer layer) throws GeomajasException {
+		cache.remove(null == layer ? NO_LAYER : layer.getId());
+	}
+
+}
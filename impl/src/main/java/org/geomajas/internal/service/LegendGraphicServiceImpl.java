@@ -15,8 +15,12 @@ import java.awt.Graphics2D;
 import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.awt.image.RenderedImage;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
 import java.util.List;
 
 import javax.imageio.ImageIO;
@@ -32,7 +36,11 @@ import org.geomajas.service.ConfigurationService;
 import org.geomajas.service.LegendGraphicService;
 import org.geomajas.service.ResourceService;
 import org.geomajas.service.StyleConverterService;
+import org.geomajas.service.legend.DefaultLegendGraphicMetadata;
+import org.geomajas.service.legend.EncodedLegendGraphic;
 import org.geomajas.service.legend.LegendGraphicMetadata;
+import org.geomajas.sld.FeatureTypeStyleInfo;
+import org.geomajas.sld.RuleInfo;
 import org.geomajas.sld.UserStyleInfo;
 import org.geotools.data.DataUtilities;
 import org.geotools.feature.SchemaException;
@@ -78,6 +86,10 @@ public class LegendGraphicServiceImpl implements LegendGraphicService {
 	 */
 	private static final String DEFAULT_RASTER_IMAGE_PATH = "org/geomajas/internal/image/layer-raster.png";
 
+	private static final int ENCODED_BUFFER_SIZE = 1024 * 8;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
 	@Autowired
 	private StyleConverterService styleConverterService;
 
@@ -87,6 +99,9 @@ public class LegendGraphicServiceImpl implements LegendGraphicService {
 	@Autowired
 	private ResourceService resourceService;
 
+	@Autowired
+	private LegendGraphicCache legendGraphicCache;
+
 	private SLDStyleFactory styleFactory = new SLDStyleFactory();
 
 	private StyledShapePainter shapePainter = new StyledShapePainter();
@@ -172,8 +187,12 @@ public class LegendGraphicServiceImpl implements LegendGraphicService {
 			vectorLayer = (VectorLayer) layer;
 		}
 		UserStyleInfo userStyleInfo = legendMetadata.getUserStyle();
+		// the style is only needed (and converted) when no rule is specified
+		boolean needStyle = legendMetadata.getRule() == null;
 		if (userStyleInfo != null) {
-			style = styleConverterService.convert(userStyleInfo);
+			if (needStyle) {
+				style = styleConverterService.convert(userStyleInfo);
+			}
 		} else {
 			// try to get style from layer
 			String styleName = null;
@@ -190,7 +209,9 @@ public class LegendGraphicServiceImpl implements LegendGraphicService {
 				} else {
 					namedStyle = vectorLayer.getLayerInfo().getNamedStyleInfos().get(0);
 				}
-				style = styleConverterService.convert(namedStyle.getUserStyle());
+				if (needStyle) {
+					style = styleConverterService.convert(namedStyle.getUserStyle());
+				}
 			}
 		}
 		Rule rule = null;
@@ -269,6 +290,116 @@ public class LegendGraphicServiceImpl implements LegendGraphicService {
 		
 	}
 
+	@Override
+	public EncodedLegendGraphic getEncodedLegendGraphic(LegendGraphicMetadata legendMetadata, String format)
+			throws GeomajasException {
+		String layerId = legendMetadata.getLayerId();
+		LegendKey key = new LegendKey(legendMetadata, format);
+		EncodedLegendGraphic graphic = legendGraphicCache.get(layerId, key);
+		if (null == graphic) {
+			List<RuleInfo> rules = getStyleRules(legendMetadata);
+			if (null != rules) {
+				// legends typically request all rules of a style, render them all at once
+				for (RuleInfo rule : rules) {
+					DefaultLegendGraphicMetadata ruleMetadata = new DefaultLegendGraphicMetadata();
+					ruleMetadata.setLayerId(layerId);
+					ruleMetadata.setUserStyle(legendMetadata.getUserStyle());
+					ruleMetadata.setNamedStyle(legendMetadata.getNamedStyle());
+					ruleMetadata.setRuleInfo(rule);
+					ruleMetadata.setScale(legendMetadata.getScale());
+					ruleMetadata.setWidth(legendMetadata.getWidth());
+					ruleMetadata.setHeight(legendMetadata.getHeight());
+					EncodedLegendGraphic ruleGraphic = encode(getLegendGraphicInternal(ruleMetadata), format, layerId);
+					legendGraphicCache.put(layerId, new LegendKey(ruleMetadata, format), ruleGraphic);
+					if (rule == legendMetadata.getRule()) {
+						graphic = ruleGraphic;
+					}
+				}
+			} else {
+				graphic = encode(getLegendGraphicInternal(legendMetadata), format, layerId);
+				legendGraphicCache.put(layerId, key, graphic);
+			}
+		}
+		return graphic;
+	}
+
+	@Override
+	public EncodedLegendGraphic getEncodedLegendGraphics(List<LegendGraphicMetadata> legendMetadata, String format)
+			throws GeomajasException {
+		String layerId = legendMetadata.isEmpty() ? null : legendMetadata.get(0).getLayerId();
+		List<LegendKey> key = new ArrayList<LegendKey>(legendMetadata.size());
+		for (LegendGraphicMetadata lmd : legendMetadata) {
+			key.add(new LegendKey(lmd, format));
+		}
+		EncodedLegendGraphic graphic = legendGraphicCache.get(layerId, key);
+		if (null == graphic) {
+			graphic = encode(getLegendGraphics(legendMetadata), format, layerId);
+			legendGraphicCache.put(layerId, key, graphic);
+		}
+		return graphic;
+	}
+
+	/**
+	 * Get the rules of the user style when the requested rule is one of them.
+	 *
+	 * @param legendMetadata legend metadata
+	 * @return all rules of the style or null when the rule is not part of the user style
+	 */
+	private List<RuleInfo> getStyleRules(LegendGraphicMetadata legendMetadata) {
+		UserStyleInfo userStyle = legendMetadata.getUserStyle();
+		RuleInfo rule = legendMetadata.getRule();
+		if (null != userStyle && null != rule && null != userStyle.getFeatureTypeStyleList()) {
+			for (FeatureTypeStyleInfo featureTypeStyle : userStyle.getFeatureTypeStyleList()) {
+				List<RuleInfo> rules = featureTypeStyle.getRuleList();
+				if (null != rules) {
+					for (RuleInfo candidate : rules) {
+						if (candidate == rule) {
+							return rules;
+						}
+					}
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Encode a legend graphic in the requested format.
+	 *
+	 * @param image legend graphic
+	 * @param format image format
+	 * @param layerId layer id, for the error message
+	 * @return encoded graphic
+	 * @throws GeomajasException format not supported or cannot encode
+	 */
+	private EncodedLegendGraphic encode(RenderedImage image, String format, String layerId)
+			throws GeomajasException {
+		try {
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(ENCODED_BUFFER_SIZE);
+			if (!ImageIO.write(image, format, baos)) {
+				throw new GeomajasException(ExceptionCode.LEGEND_GRAPHIC_RENDERING_PROBLEM, layerId);
+			}
+			byte[] content = baos.toByteArray();
+			return new EncodedLegendGraphic(format, content, getETag(content));
+		} catch (IOException ioe) {
+			throw new GeomajasException(ioe, ExceptionCode.LEGEND_GRAPHIC_RENDERING_PROBLEM, layerId);
+		}
+	}
+
+	private String getETag(byte[] content) {
+		try {
+			byte[] digest = MessageDigest.getInstance("MD5").digest(content);
+			StringBuilder eTag = new StringBuilder(digest.length * 2 + 2);
+			eTag.append('"');
+			for (byte b : digest) {
+				eTag.append(HEX[(b >> 4) & 0xf]).append(HEX[b & 0xf]);
+			}
+			return eTag.append('"').toString();
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException("MD5 should always be available", nsae);
+		}
+	}
+
 	private SimpleFeature createSampleFeature(VectorLayer vectorLayer) {
 		SimpleFeatureType type;
 		try {
@@ -346,4 +477,70 @@ public class LegendGraphicServiceImpl implements LegendGraphicService {
 		}
 	}
 
+	/**
+	 * Key for the legend graphic cache. Styles and rules are compared on identity, the configuration objects are
+	 * shared between requests and a changed definition should not match.
+	 *
+	 * @author agent
+	 */
+	private final class LegendKey {
+
+		private final String layerId;
+
+		private final Object userStyle;
+
+		private final Object namedStyle;
+
+		private final Object rule;
+
+		private final double scale;
+
+		private final int width;
+
+		private final int height;
+
+		private final String format;
+
+		private LegendKey(LegendGraphicMetadata legendMetadata, String format) {
+			layerId = legendMetadata.getLayerId();
+			userStyle = legendMetadata.getUserStyle();
+			namedStyle = legendMetadata.getNamedStyle();
+			rule = legendMetadata.getRule();
+			scale = legendMetadata.getScale();
+			width = legendMetadata.getWidth() > 0 ? legendMetadata.getWidth() : defaultWidth;
+			height = legendMetadata.getHeight() > 0 ? legendMetadata.getHeight() : defaultHeight;
+			this.format = format;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof LegendKey)) {
+				return false;
+			}
+			LegendKey other = (LegendKey) o;
+			return userStyle == other.userStyle && namedStyle == other.namedStyle && rule == other.rule &&
+					width == other.width && height == other.height &&
+					Double.compare(scale, other.scale) == 0 &&
+					(layerId == null ? other.layerId == null : layerId.equals(other.layerId)) &&
+					(format == null ? other.format == null : format.equals(other.format));
+		}
+
+		@Override
+		public int hashCode() {
+			int result = layerId == null ? 0 : layerId.hashCode();
+			result = 31 * result + System.identityHashCode(userStyle);
+			result = 31 * result + System.identityHashCode(namedStyle);
+			result = 31 * result + System.identityHashCode(rule);
+			long temp = Double.doubleToLongBits(scale);
+			result = 31 * result + (int) (temp ^ (temp >>> 32));
+			result = 31 * result + width;
+			result = 31 * result + height;
+			result = 31 * result + (format == null ? 0 : format.hashCode());
+			return result;
+		}
+	}
+
 }
@@ -15,6 +15,9 @@ import java.awt.Font;
 import java.awt.font.FontRenderContext;
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.geomajas.configuration.FontStyleInfo;
 import org.geomajas.service.TextService;
@@ -22,6 +25,11 @@ import org.springframework.stereotype.Component;
 
 /**
  * AWT-based text service implementation. This should work in a headless server environment.
+ * <p/>
+ * The fonts are cached, together with the advances of the characters which were measured. The bounds of a string
+ * containing only simple characters (no combining marks or scripts which need shaping) are calculated by summing the
+ * cached advances, which gives the same result as {@link Font#getStringBounds(String, FontRenderContext)}. Other
+ * strings are measured using a full layout.
  * 
  * @author Jan De Moerloose
  */
@@ -34,14 +42,37 @@ public class TextServiceImpl implements TextService {
 	private static final String STYLE_BOLD = "bold";
 	private static final String STYLE_ITALIC = "italic";
 
+	/** Characters from this code point on (combining diacritical marks) may need a full layout. */
+	private static final char FIRST_COMPLEX_CHAR = 0x0300;
+
+	/** Maximum number of cached fonts, can only be exceeded with many different font styles. */
+	private static final int MAX_FONTS = 1000;
+
+	private static final FontRenderContext RENDER_CONTEXT = new FontRenderContext(new AffineTransform(), true, true);
+
+	private final Map<FontKey, CachedFont> fonts = new ConcurrentHashMap<FontKey, CachedFont>();
+
 	@Override
 	public Rectangle2D getStringBounds(String text, FontStyleInfo fontStyle) {
-		Font font = getFont(fontStyle);
-		return font.getStringBounds(text, 0, text.length(), new FontRenderContext(new AffineTransform(), true, true));
+		CachedFont font = getCachedFont(fontStyle);
+		float width = 0;
+		int length = text.length();
+		for (int i = 0; i < length; i++) {
+			char c = text.charAt(i);
+			if (c >= FIRST_COMPLEX_CHAR) {
+				return font.font.getStringBounds(text, 0, length, RENDER_CONTEXT);
+			}
+			width += font.getAdvance(c);
+		}
+		return new Rectangle2D.Double(0, font.y, width, font.height);
 	}
 
 	@Override
 	public Font getFont(FontStyleInfo fontStyle) {
+		return getCachedFont(fontStyle).font;
+	}
+
+	private CachedFont getCachedFont(FontStyleInfo fontStyle) {
 		int style = Font.PLAIN;
 		String styleStr = fontStyle.getStyle();
 		if (styleStr != null) {
@@ -60,7 +91,87 @@ public class TextServiceImpl implements TextService {
 		if (fontStyle.getSize() != -1) {
 			size = fontStyle.getSize();
 		}
-		return new Font(family, style, size);
+		FontKey key = new FontKey(family, style, size);
+		CachedFont font = fonts.get(key);
+		if (null == font) {
+			font = new CachedFont(new Font(family, style, size));
+			if (fonts.size() >= MAX_FONTS) {
+				fonts.clear();
+			}
+			fonts.put(key, font);
+		}
+		return font;
+	}
+
+	/**
+	 * Key for the font cache.
+	 *
+	 * @author agent
+	 */
+	private static final class FontKey {
+
+		private final String family;
+
+		private final int style;
+
+		private final int size;
+
+		private FontKey(String family, int style, int size) {
+			this.family = family;
+			this.style = style;
+			this.size = size;
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			if (this == o) {
+				return true;
+			}
+			if (!(o instanceof FontKey)) {
+				return false;
+			}
+			FontKey other = (FontKey) o;
+			return style == other.style && size == other.size && family.equals(other.family);
+		}
+
+		@Override
+		public int hashCode() {
+			return (family.hashCode() * 31 + style) * 31 + size;
+		}
+	}
+
+	/**
+	 * Font with its vertical metrics and the advances of the simple characters, measured when first needed.
+	 *
+	 * @author agent
+	 */
+	private static final class CachedFont {
+
+		private final Font font;
+
+		private final double y;
+
+		private final double height;
+
+		/** Advances per character, NaN when not measured yet. Races are harmless, the result is always the same. */
+		private final float[] advances = new float[FIRST_COMPLEX_CHAR];
+
+		private CachedFont(Font font) {
+			this.font = font;
+			Rectangle2D empty = font.getStringBounds("", RENDER_CONTEXT);
+			y = empty.getY();
+			height = empty.getHeight();
+			Arrays.fill(advances, Float.NaN);
+		}
+
+		private float getAdvance(char c) {
+			float advance = advances[c];
+			if (Float.isNaN(advance)) {
+				advance = (float) font.getStringBounds(String.valueOf(c), RENDER_CONTEXT).getWidth();
+				advances[c] = advance;
+			}
+			return advance;
+		}
 	}
 
 }
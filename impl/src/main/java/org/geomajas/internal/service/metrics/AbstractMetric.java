@@ -0,0 +1,106 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.metrics;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.geomajas.service.metrics.Metric;
+
+/**
+ * Base class for the metrics, holds the name and tags.
+ *
+ * @author agent
+ */
+public abstract class AbstractMetric implements Metric {
+
+	private final String name;
+
+	private final Map<String, String> tags;
+
+	private final String id;
+
+	/**
+	 * Create a metric.
+	 *
+	 * @param name metric name
+	 * @param tags tags as key-value pairs
+	 */
+	protected AbstractMetric(String name, String... tags) {
+		this.name = name;
+		Map<String, String> map = new LinkedHashMap<String, String>();
+		for (int i = 0; i + 1 < tags.length; i += 2) {
+			map.put(tags[i], null == tags[i + 1] ? "" : tags[i + 1]);
+		}
+		this.tags = Collections.unmodifiableMap(map);
+		this.id = toId(name, tags);
+	}
+
+	@Override
+	public String getName() {
+		return name;
+	}
+
+	@Override
+	public Map<String, String> getTags() {
+		return tags;
+	}
+
+	@Override
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Reset the recorded values.
+	 */
+	public abstract void reset();
+
+	/**
+	 * Build the metric id for given name and tags.
+	 *
+	 * @param name metric name
+	 * @param tags tags as key-value pairs
+	 * @return metric id
+	 */
+	public static String toId(String name, String... tags) {
+		if (tags.length < 2) {
+			return name;
+		}
+		StringBuilder sb = new StringBuilder(name.length() + 16 * tags.length);
+		sb.append(name).append('{');
+		for (int i = 0; i + 1 < tags.length; i += 2) {
+			if (i > 0) {
+				sb.append(',');
+			}
+			sb.append(tags[i]).append("=\"");
+			String value = tags[i + 1];
+			if (null != value) {
+				for (int j = 0; j < value.length(); j++) {
+					char c = value.charAt(j);
+					if (c == '"' || c == '\\') {
+						sb.append('\\');
+					}
+					sb.append(c);
+				}
+			}
+			sb.append('"');
+		}
+		return sb.append('}').toString();
+	}
+
+	@Override
+	public String toString() {
+		return id;
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.geomajas.service.metrics.HitCounter;
+
+/**
+ * {@link HitCounter} implementation.
+ *
+ * @author agent
+ */
+public class HitCounterImpl extends AbstractMetric implements HitCounter {
+
+	private final AtomicLong hits = new AtomicLong();
+
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Create a hit counter.
+	 *
+	 * @param name metric name
+	 * @param tags tags as key-value pairs
+	 */
+	public HitCounterImpl(String name, String... tags) {
+		super(name, tags);
+	}
+
+	@Override
+	public void record(boolean hit) {
+		if (hit) {
+			hits.incrementAndGet();
+		} else {
+			misses.incrementAndGet();
+		}
+	}
+
+	@Override
+	public long getHits() {
+		return hits.get();
+	}
+
+	@Override
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public double getHitRatio() {
+		long hit = hits.get();
+		long total = hit + misses.get();
+		return total == 0 ? 0 : (double) hit / total;
+	}
+
+	@Override
+	public void reset() {
+		hits.set(0);
+		misses.set(0);
+	}
+}
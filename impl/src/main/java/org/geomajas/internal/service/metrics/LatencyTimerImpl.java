@@ -0,0 +1,277 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.geomajas.service.metrics.LatencyTimer;
+
+/**
+ * {@link LatencyTimer} which records the durations in a log-linear histogram.
+ * <p/>
+ * Each power of two is split in 8 linear sub-buckets, so a bucket covers at most 12.5% of its lower bound, for any
+ * duration between 1ns and 2^63ns. Recording is a couple of atomic increments.
+ * <p/>
+ * The maximum and percentiles only reflect the recent durations. The histogram is split in {@link #SLICE_COUNT} time
+ * slices which together cover the window (one minute by default), a slice is cleared when it is reused. The count and
+ * total are kept since the start (or last reset).
+ *
+ * @author agent
+ */
+public class LatencyTimerImpl extends AbstractMetric implements LatencyTimer {
+
+	/** Default duration of the window for the maximum and percentiles. */
+	public static final long DEFAULT_WINDOW_NANOS = 60L * 1000000000L;
+
+	/** Number of slices in the window. */
+	static final int SLICE_COUNT = 6;
+
+	private static final int SUB_BUCKET_BITS = 3;
+
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+	private static final int SUB_BUCKET_MASK = SUB_BUCKET_COUNT - 1;
+
+	// values below SUB_BUCKET_COUNT have their own bucket, above that 8 buckets per power of two up to 2^62
+	private static final int BUCKET_COUNT = (63 - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+	private static final double PERCENT = 100.0;
+
+	private final Slice[] slices = new Slice[SLICE_COUNT];
+
+	private final long sliceNanos;
+
+	private final AtomicLong count = new AtomicLong();
+
+	private final AtomicLong total = new AtomicLong();
+
+	/**
+	 * Create a latency timer with the default window.
+	 *
+	 * @param name metric name
+	 * @param tags tags as key-value pairs
+	 */
+	public LatencyTimerImpl(String name, String... tags) {
+		this(DEFAULT_WINDOW_NANOS, name, tags);
+	}
+
+	/**
+	 * Create a latency timer.
+	 *
+	 * @param windowNanos duration of the window for the maximum and percentiles in nanoseconds
+	 * @param name metric name
+	 * @param tags tags as key-value pairs
+	 */
+	public LatencyTimerImpl(long windowNanos, String name, String... tags) {
+		super(name, tags);
+		sliceNanos = Math.max(1, windowNanos / SLICE_COUNT);
+		for (int i = 0; i < SLICE_COUNT; i++) {
+			slices[i] = new Slice();
+		}
+	}
+
+	@Override
+	public void record(long nanos) {
+		if (nanos < 0) {
+			return;
+		}
+		long epoch = currentEpoch();
+		Slice slice = slices[sliceIndex(epoch)];
+		if (slice.epoch != epoch) {
+			slice.rotate(epoch);
+		}
+		slice.record(nanos);
+		count.incrementAndGet();
+		total.addAndGet(nanos);
+	}
+
+	@Override
+	public long getCount() {
+		return count.get();
+	}
+
+	@Override
+	public long getTotalNanos() {
+		return total.get();
+	}
+
+	@Override
+	public long getMaxNanos() {
+		long max = 0;
+		long epoch = currentEpoch();
+		for (Slice slice : slices) {
+			if (slice.isInWindow(epoch)) {
+				max = Math.max(max, slice.max.get());
+			}
+		}
+		return max;
+	}
+
+	@Override
+	public double getMeanNanos() {
+		long n = count.get();
+		return n == 0 ? 0 : (double) total.get() / n;
+	}
+
+	@Override
+	public long getPercentileNanos(double percentile) {
+		long epoch = currentEpoch();
+		List<Slice> window = new ArrayList<Slice>(SLICE_COUNT);
+		long n = 0;
+		long max = 0;
+		for (Slice slice : slices) {
+			if (slice.isInWindow(epoch)) {
+				window.add(slice);
+				n += slice.count.get();
+				max = Math.max(max, slice.max.get());
+			}
+		}
+		if (n == 0) {
+			return 0;
+		}
+		double fraction = Math.min(Math.max(percentile, 0), PERCENT) / PERCENT;
+		long rank = Math.max(1, (long) Math.ceil(fraction * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			for (Slice slice : window) {
+				seen += slice.buckets.get(i);
+			}
+			if (seen >= rank) {
+				return Math.min(bucketUpperBound(i), max);
+			}
+		}
+		return max; // concurrent updates, count was incremented after the bucket
+	}
+
+	@Override
+	public void reset() {
+		for (Slice slice : slices) {
+			slice.clear();
+		}
+		count.set(0);
+		total.set(0);
+	}
+
+	/**
+	 * Get the current time, can be overwritten for testing.
+	 *
+	 * @return current time in nanoseconds
+	 */
+	long nanoTime() {
+		return System.nanoTime();
+	}
+
+	private long currentEpoch() {
+		return nanoTime() / sliceNanos;
+	}
+
+	private int sliceIndex(long epoch) {
+		int index = (int) (epoch % SLICE_COUNT);
+		return index < 0 ? index + SLICE_COUNT : index;
+	}
+
+	/**
+	 * Get the index of the bucket which contains the value.
+	 *
+	 * @param value value, not negative
+	 * @return bucket index
+	 */
+	static int bucketIndex(long value) {
+		if (value < SUB_BUCKET_COUNT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & SUB_BUCKET_MASK;
+		return ((exponent - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + subBucket;
+	}
+
+	/**
+	 * Get the smallest value which is stored in a bucket.
+	 *
+	 * @param index bucket index
+	 * @return lower bound (inclusive)
+	 */
+	static long bucketLowerBound(int index) {
+		if (index < SUB_BUCKET_COUNT) {
+			return index;
+		}
+		int exponent = (index >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+		long subBucket = index & SUB_BUCKET_MASK;
+		return (SUB_BUCKET_COUNT + subBucket) << (exponent - SUB_BUCKET_BITS);
+	}
+
+	/**
+	 * Get the largest value which is stored in a bucket.
+	 *
+	 * @param index bucket index
+	 * @return upper bound (inclusive)
+	 */
+	static long bucketUpperBound(int index) {
+		if (index == BUCKET_COUNT - 1) {
+			return Long.MAX_VALUE;
+		}
+		return bucketLowerBound(index + 1) - 1;
+	}
+
+	/**
+	 * Histogram of the durations which were recorded during one slice of the window.
+	 *
+	 * @author agent
+	 */
+	private static final class Slice {
+
+		private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+
+		private final AtomicLong count = new AtomicLong();
+
+		private final AtomicLong max = new AtomicLong();
+
+		private volatile long epoch = Long.MIN_VALUE;
+
+		private void record(long nanos) {
+			buckets.incrementAndGet(bucketIndex(nanos));
+			count.incrementAndGet();
+			long current = max.get();
+			while (nanos > current && !max.compareAndSet(current, nanos)) {
+				current = max.get();
+			}
+		}
+
+		private boolean isInWindow(long currentEpoch) {
+			long current = epoch;
+			return current <= currentEpoch && current > currentEpoch - SLICE_COUNT;
+		}
+
+		/**
+		 * Reuse the slice for a new epoch, clearing the durations of the previous use.
+		 *
+		 * @param newEpoch epoch
+		 */
+		private synchronized void rotate(long newEpoch) {
+			if (newEpoch > epoch) {
+				clear();
+				epoch = newEpoch;
+			}
+		}
+
+		private void clear() {
+			for (int i = 0; i < BUCKET_COUNT; i++) {
+				buckets.set(i, 0);
+			}
+			count.set(0);
+			max.set(0);
+		}
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.metrics;
+
+/**
+ * Management interface which exposes the {@link org.geomajas.service.metrics.MetricsService} metrics using JMX.
+ * Durations are expressed in milliseconds.
+ *
+ * @author agent
+ */
+public interface MetricsBean {
+
+	/**
+	 * Are metrics being recorded?
+	 *
+	 * @return true when enabled
+	 */
+	boolean isEnabled();
+
+	/**
+	 * Enable or disable recording metrics.
+	 *
+	 * @param enabled true when metrics should be recorded
+	 */
+	void setEnabled(boolean enabled);
+
+	/**
+	 * Get the ids of all latency timers, sorted.
+	 *
+	 * @return latency timer ids
+	 */
+	String[] getLatencyTimerIds();
+
+	/**
+	 * Get the ids of all hit counters, sorted.
+	 *
+	 * @return hit counter ids
+	 */
+	String[] getHitCounterIds();
+
+	/**
+	 * Get the number of recorded durations for a latency timer.
+	 *
+	 * @param id latency timer id
+	 * @return count, 0 for an unknown timer
+	 */
+	long getCount(String id);
+
+	/**
+	 * Get the mean duration for a latency timer.
+	 *
+	 * @param id latency timer id
+	 * @return mean in milliseconds, 0 for an unknown timer
+	 */
+	double getMeanMillis(String id);
+
+	/**
+	 * Get the maximum duration for a latency timer.
+	 *
+	 * @param id latency timer id
+	 * @return maximum in milliseconds, 0 for an unknown timer
+	 */
+	double getMaxMillis(String id);
+
+	/**
+	 * Get a percentile for a latency timer.
+	 *
+	 * @param id latency timer id
+	 * @param percentile percentile between 0 and 100
+	 * @return duration in milliseconds, 0 for an unknown timer
+	 */
+	double getPercentileMillis(String id, double percentile);
+
+	/**
+	 * Get the hit ratio of a hit counter.
+	 *
+	 * @param id hit counter id
+	 * @return hit ratio between 0 and 1, 0 for an unknown counter
+	 */
+	double getHitRatio(String id);
+
+	/**
+	 * Overview of all metrics, one line per metric, slowest total time first.
+	 *
+	 * @return report
+	 */
+	String getReport();
+
+	/**
+	 * Reset all metrics.
+	 */
+	void reset();
+}
@@ -0,0 +1,165 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.geomajas.service.metrics.HitCounter;
+import org.geomajas.service.metrics.LatencyTimer;
+import org.geomajas.service.metrics.Metric;
+import org.geomajas.service.metrics.MetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jmx.export.naming.SelfNaming;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link MetricsBean} implementation, a view on the {@link MetricsService}.
+ * <p/>
+ * The bean is registered as <code>org.geomajas:type=Metrics,application=...</code> using the id of the application
+ * context, so several applications in the same JVM each expose their own metrics.
+ *
+ * @author agent
+ */
+@Component
+public class MetricsBeanImpl implements MetricsBean, SelfNaming {
+
+	private static final String OBJECT_NAME = "org.geomajas:type=Metrics,application=";
+
+	private static final double NANOS_PER_MILLI = 1000000.0;
+
+	private static final double P50 = 50;
+
+	private static final double P99 = 99;
+
+	@Autowired
+	private MetricsService metricsService;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	@Override
+	public ObjectName getObjectName() throws MalformedObjectNameException {
+		return new ObjectName(OBJECT_NAME + ObjectName.quote(applicationContext.getId()));
+	}
+
+	@Override
+	public boolean isEnabled() {
+		return metricsService.isEnabled();
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		metricsService.setEnabled(enabled);
+	}
+
+	@Override
+	public String[] getLatencyTimerIds() {
+		return ids(metricsService.getLatencyTimers());
+	}
+
+	@Override
+	public String[] getHitCounterIds() {
+		return ids(metricsService.getHitCounters());
+	}
+
+	@Override
+	public long getCount(String id) {
+		LatencyTimer timer = getTimer(id);
+		return null == timer ? 0 : timer.getCount();
+	}
+
+	@Override
+	public double getMeanMillis(String id) {
+		LatencyTimer timer = getTimer(id);
+		return null == timer ? 0 : timer.getMeanNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getMaxMillis(String id) {
+		LatencyTimer timer = getTimer(id);
+		return null == timer ? 0 : timer.getMaxNanos() / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getPercentileMillis(String id, double percentile) {
+		LatencyTimer timer = getTimer(id);
+		return null == timer ? 0 : timer.getPercentileNanos(percentile) / NANOS_PER_MILLI;
+	}
+
+	@Override
+	public double getHitRatio(String id) {
+		for (HitCounter counter : metricsService.getHitCounters()) {
+			if (counter.getId().equals(id)) {
+				return counter.getHitRatio();
+			}
+		}
+		return 0;
+	}
+
+	@Override
+	public String getReport() {
+		List<LatencyTimer> timers = new ArrayList<LatencyTimer>(metricsService.getLatencyTimers());
+		Collections.sort(timers, new Comparator<LatencyTimer>() {
+			public int compare(LatencyTimer left, LatencyTimer right) {
+				long l = left.getTotalNanos();
+				long r = right.getTotalNanos();
+				return l > r ? -1 : (l == r ? 0 : 1);
+			}
+		});
+		StringBuilder report = new StringBuilder();
+		for (LatencyTimer timer : timers) {
+			report.append(timer.getId()).append(" count=").append(timer.getCount())
+					.append(" mean=").append(timer.getMeanNanos() / NANOS_PER_MILLI)
+					.append("ms p50=").append(timer.getPercentileNanos(P50) / NANOS_PER_MILLI)
+					.append("ms p99=").append(timer.getPercentileNanos(P99) / NANOS_PER_MILLI)
+					.append("ms max=").append(timer.getMaxNanos() / NANOS_PER_MILLI).append("ms\n");
+		}
+		for (HitCounter counter : metricsService.getHitCounters()) {
+			report.append(counter.getId()).append(" hits=").append(counter.getHits())
+					.append(" misses=").append(counter.getMisses())
+					.append(" ratio=").append(counter.getHitRatio()).append('\n');
+		}
+		return report.toString();
+	}
+
+	@Override
+	public void reset() {
+		metricsService.reset();
+	}
+
+	private LatencyTimer getTimer(String id) {
+		for (LatencyTimer timer : metricsService.getLatencyTimers()) {
+			if (timer.getId().equals(id)) {
+				return timer;
+			}
+		}
+		return null;
+	}
+
+	private String[] ids(Iterable<? extends Metric> metrics) {
+		List<String> ids = new ArrayList<String>();
+		for (Metric metric : metrics) {
+			ids.add(metric.getId());
+		}
+		String[] result = ids.toArray(new String[ids.size()]);
+		Arrays.sort(result);
+		return result;
+	}
+}
@@ -0,0 +1,96 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.metrics;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.geomajas.service.metrics.HitCounter;
+import org.geomajas.service.metrics.LatencyTimer;
+import org.geomajas.service.metrics.MetricsService;
+import org.springframework.stereotype.Component;
+
+/**
+ * Default {@link MetricsService} implementation which keeps the metrics in memory.
+ *
+ * @author agent
+ */
+@Component
+public class MetricsServiceImpl implements MetricsService {
+
+	private final ConcurrentMap<String, LatencyTimerImpl> timers = new ConcurrentHashMap<String, LatencyTimerImpl>();
+
+	private final ConcurrentMap<String, HitCounterImpl> counters = new ConcurrentHashMap<String, HitCounterImpl>();
+
+	private volatile boolean enabled = true;
+
+	@Override
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	@Override
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+	}
+
+	@Override
+	public LatencyTimer getLatencyTimer(String name, String... tags) {
+		String id = AbstractMetric.toId(name, tags);
+		LatencyTimerImpl timer = timers.get(id);
+		if (null == timer) {
+			timer = new LatencyTimerImpl(name, tags);
+			LatencyTimerImpl previous = timers.putIfAbsent(id, timer);
+			if (null != previous) {
+				timer = previous;
+			}
+		}
+		return timer;
+	}
+
+	@Override
+	public HitCounter getHitCounter(String name, String... tags) {
+		String id = AbstractMetric.toId(name, tags);
+		HitCounterImpl counter = counters.get(id);
+		if (null == counter) {
+			counter = new HitCounterImpl(name, tags);
+			HitCounterImpl previous = counters.putIfAbsent(id, counter);
+			if (null != previous) {
+				counter = previous;
+			}
+		}
+		return counter;
+	}
+
+	@Override
+	public Collection<LatencyTimer> getLatencyTimers() {
+		return Collections.<LatencyTimer>unmodifiableCollection(new ArrayList<LatencyTimerImpl>(timers.values()));
+	}
+
+	@Override
+	public Collection<HitCounter> getHitCounters() {
+		return Collections.<HitCounter>unmodifiableCollection(new ArrayList<HitCounterImpl>(counters.values()));
+	}
+
+	@Override
+	public void reset() {
+		for (LatencyTimerImpl timer : timers.values()) {
+			timer.reset();
+		}
+		for (HitCounterImpl counter : counters.values()) {
+			counter.reset();
+		}
+	}
+}
@@ -11,28 +11,36 @@
 
 package org.geomajas.internal.service.pipeline;
 
-import java.util.HashMap;
-import java.util.Map;
-
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.service.pipeline.PipelineContext;
 
 /**
  * Context which is provided to a pipeline context to help execute.
+ * <p/>
+ * A context is created for each pipeline execution and only contains a handful of entries, so the entries are stored
+ * in a small open addressed hash table instead of a {@link java.util.HashMap}, which avoids allocating an entry
+ * object per key. Keys are normally the (interned) constants from {@link org.geomajas.service.pipeline.PipelineCode},
+ * which are matched on identity before falling back to {@link String#equals(Object)}.
  *
  * @author Joachim Van der Auwera
  */
 public class PipelineContextImpl implements PipelineContext {
 
-	private Map<String, Object> map = new HashMap<String, Object>();
+	private static final int INITIAL_CAPACITY = 32; // needs to be a power of two
+
+	private String[] keys = new String[INITIAL_CAPACITY];
+
+	private Object[] values = new Object[INITIAL_CAPACITY];
+
+	private int size;
 
 	private boolean finished;
 
 	public boolean containsKey(String key) {
-		return map.containsKey(key);
+		return indexOf(key) >= 0;
 	}
-	
+
 	public Object get(String key) throws GeomajasException {
 		Object res = getOptional(key);
 		if (null == res) {
@@ -42,7 +50,8 @@ public class PipelineContextImpl implements PipelineContext {
 	}
 
 	public Object getOptional(String key) {
-		return map.get(key);
+		int index = indexOf(key);
+		return index >= 0 ? values[index] : null;
 	}
 
 	public <TYPE> TYPE get(String key, Class<TYPE> type) throws GeomajasException {
@@ -54,7 +63,7 @@ public class PipelineContextImpl implements PipelineContext {
 	}
 
 	public <TYPE> TYPE getOptional(String key, Class<TYPE> type, TYPE defaultValue) {
-		Object obj = map.get(key);
+		Object obj = getOptional(key);
 		if (null != obj && type.isAssignableFrom(obj.getClass())) {
 			return (TYPE) obj;
 		}
@@ -67,7 +76,19 @@ public class PipelineContextImpl implements PipelineContext {
 
 	public Object put(String key, Object value) {
 		if (null != key) {
-			return map.put(key, value);
+			int index = indexOf(key);
+			if (index >= 0) {
+				Object previous = values[index];
+				values[index] = value;
+				return previous;
+			}
+			index = -index - 1;
+			keys[index] = key;
+			values[index] = value;
+			size++;
+			if (size > keys.length >> 1) {
+				resize();
+			}
 		}
 		return null;
 	}
@@ -80,4 +101,52 @@ public class PipelineContextImpl implements PipelineContext {
 		this.finished = finished;
 	}
 
+	/**
+	 * Find the slot for a key.
+	 *
+	 * @param key key to find
+	 * @return index of the key when present, (-insertionPoint - 1) otherwise
+	 */
+	private int indexOf(String key) {
+		if (null == key) {
+			return -1; // never stored, the insertion point is not used
+		}
+		int mask = keys.length - 1;
+		int index = hash(key) & mask;
+		String current = keys[index];
+		while (null != current) {
+			if (current == key || current.equals(key)) {
+				return index;
+			}
+			index = (index + 1) & mask;
+			current = keys[index];
+		}
+		return -index - 1;
+	}
+
+	private void resize() {
+		String[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new String[oldKeys.length << 1];
+		values = new Object[oldKeys.length << 1];
+		int mask = keys.length - 1;
+		for (int i = 0; i < oldKeys.length; i++) {
+			String key = oldKeys[i];
+			if (null != key) {
+				int index = hash(key) & mask;
+				while (null != keys[index]) {
+					index = (index + 1) & mask;
+				}
+				keys[index] = key;
+				values[index] = oldValues[i];
+			}
+		}
+	}
+
+	private static int hash(String key) {
+		// String caches its hash code, spread the high bits as the table is small
+		int h = key.hashCode();
+		return h ^ (h >>> 16);
+	}
+
 }
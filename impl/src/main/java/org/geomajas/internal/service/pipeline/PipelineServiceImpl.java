@@ -15,21 +15,27 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import javax.annotation.PostConstruct;
 
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
+import org.geomajas.service.metrics.LatencyTimer;
+import org.geomajas.service.metrics.MetricsService;
+import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
 import org.geomajas.service.pipeline.PipelineHook;
 import org.geomajas.service.pipeline.PipelineInfo;
 import org.geomajas.service.pipeline.PipelineInterceptor;
 import org.geomajas.service.pipeline.PipelineInterceptor.ExecutionMode;
+import org.geomajas.service.pipeline.PipelineInterceptorCompletion;
 import org.geomajas.service.pipeline.PipelineService;
 import org.geomajas.service.pipeline.PipelineStep;
-import org.geotools.util.Utilities;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +43,13 @@ import org.springframework.stereotype.Component;
 
 /**
  * Service which allows "executing" a pipeline.
+ * <p/>
+ * At startup, all pipelines are extended, intercepted and compiled into an immutable execution plan which
+ * holds the steps in an array. The plans are indexed by pipeline name and layer id, so finding and executing a
+ * pipeline does not allocate anything. As a consequence, changes to the steps of a {@link PipelineInfo} after startup
+ * are not picked up.
+ * <p/>
+ * The execution time of the pipelines, steps and interceptors is recorded in the {@link MetricsService}, per layer.
  * 
  * @param <RESPONSE>
  *            type of response object for the pipeline
@@ -51,63 +64,132 @@ public class PipelineServiceImpl<RESPONSE> implements PipelineService<RESPONSE>
 	
 	private static final String INDENT = "   ";
 
+	private static final double NANOS_PER_SECOND = 1000000000.0;
+
 	@Autowired
 	private List<PipelineInfo<RESPONSE>> pipelineInfos;
 
-	private Map<PipelineStamp, PipelineInfo<RESPONSE>> pipelineMap;
+	@Autowired
+	private MetricsService metricsService;
+
+	/** Execution plans indexed on pipeline name. */
+	private Map<String, PipelinePlans<RESPONSE>> pipelineMap;
+
+	/** Execution plans indexed on pipeline info, for {@link #execute(PipelineInfo, PipelineContext, Object)}. */
+	private Map<PipelineInfo<RESPONSE>, ExecutionPlan<RESPONSE>> planMap;
 
 	/** @inheritDoc */
 	public void execute(String key, String layerId, PipelineContext context, RESPONSE response)
 			throws GeomajasException {
-		execute(getPipeline(key, layerId), context, response);
+		execute(getPlan(key, layerId), layerId, context, response);
 	}
 
 	/** @inheritDoc */
-	public void execute(PipelineInfo<RESPONSE> pipeline, PipelineContext startContext, RESPONSE response)
+	public void execute(PipelineInfo<RESPONSE> pipeline, PipelineContext context, RESPONSE response)
 			throws GeomajasException {
+		ExecutionPlan<RESPONSE> plan = planMap.get(pipeline);
+		if (null == plan) {
+			// pipeline which was not registered at startup
+			plan = new ExecutionPlan<RESPONSE>(pipeline);
+		}
+		String layerId = pipeline.getLayerId();
+		if (null == layerId && null != context) {
+			layerId = context.getOptional(PipelineCode.LAYER_ID_KEY, String.class);
+		}
+		execute(plan, layerId, context, response);
+	}
+
+	private void execute(ExecutionPlan<RESPONSE> plan, String layerId, PipelineContext startContext,
+			RESPONSE response) throws GeomajasException {
 		PipelineContext context = startContext;
 		if (null == context) {
 			context = createContext();
 		}
-		long ps = 0;
-		if (log.isDebugEnabled()) {
-			ps = System.currentTimeMillis();
-			log.debug("execute pipeline {}", pipeline.getPipelineName());
+		PlanMetrics metrics = null;
+		if (metricsService.isEnabled()) {
+			metrics = plan.getMetrics(metricsService, layerId);
 		}
-		for (PipelineStep<RESPONSE> step : pipeline.getPipeline()) {
+		if (null == metrics && !log.isDebugEnabled()) {
+			PipelineStep<RESPONSE>[] steps = plan.steps;
+			for (int i = 0; i < steps.length && !context.isFinished(); i++) {
+				steps[i].execute(context, response);
+			}
+			return;
+		}
+		String pipelineName = plan.pipeline.getPipelineName();
+		log.debug("execute pipeline {}", pipelineName);
+		long start = System.nanoTime();
+		executeSteps(plan.steps, plan.offsets, 0, metrics, context, response, plan.description);
+		long time = System.nanoTime() - start;
+		if (null != metrics) {
+			metrics.pipeline.record(time);
+		}
+		log.debug("pipeline done, {}, time {}s", pipelineName, time / NANOS_PER_SECOND);
+	}
+
+	/**
+	 * Execute steps, measuring the time of each step.
+	 *
+	 * @param steps steps to execute
+	 * @param offsets index of each step in the metrics, relative to base
+	 * @param base base index in the metrics
+	 * @param metrics metrics to record the times in, null when only logging
+	 * @param context pipeline context
+	 * @param response response object
+	 * @param owner description of the pipeline or interceptor which contains the steps, for logging
+	 * @param <T> type of response object
+	 * @throws GeomajasException step failed
+	 */
+	@SuppressWarnings("unchecked")
+	private <T> void executeSteps(PipelineStep<T>[] steps, int[] offsets, int base, PlanMetrics metrics,
+			PipelineContext context, T response, String owner) throws GeomajasException {
+		boolean debug = log.isDebugEnabled();
+		for (int i = 0; i < steps.length; i++) {
 			if (context.isFinished()) {
-				log.debug("context finished, pipeline {} execution done.", pipeline.getPipelineName());
+				log.debug("context finished, {} execution done", owner);
 				break;
 			}
-			long ts = 0;
-			if (log.isDebugEnabled()) {
-				log.debug("execute step {} for pipeline {}.", step.getId(), pipeline.getPipelineName());
-				ts = System.currentTimeMillis();
+			PipelineStep<T> step = steps[i];
+			if (debug) {
+				log.debug("execute step {} for {}", step.getId(), owner);
 			}
-			step.execute(context, response);
-			if (log.isDebugEnabled()) {
-				log.debug("done step {}, time {}s", step.getId(), (System.currentTimeMillis() - ts) / 1000.0);
+			int index = base + offsets[i];
+			long start = System.nanoTime();
+			if (step instanceof PipelineInterceptorStep) {
+				((PipelineInterceptorStep<T>) step).execute(context, response, metrics, index);
+			} else {
+				step.execute(context, response);
+			}
+			long time = System.nanoTime() - start;
+			if (null != metrics) {
+				metrics.steps[index].record(time);
+			}
+			if (debug) {
+				log.debug("done step {}, time {}s", step.getId(), time / NANOS_PER_SECOND);
 			}
-		}
-		if (log.isDebugEnabled()) {
-			log.debug("pipeline done, {}, time {}s", pipeline.getPipelineName(),
-					(System.currentTimeMillis() - ps) / 1000.0);
 		}
 	}
 
 	/** @inheritDoc */
-	@SuppressWarnings("unchecked")
 	public PipelineInfo<RESPONSE> getPipeline(String pipelineName, String layerId) throws GeomajasException {
-		PipelineStamp stamp = new PipelineStamp(pipelineName, layerId);
-		PipelineInfo<RESPONSE> pipeline = pipelineMap.get(stamp);
-		if (null == pipeline) {
-			stamp = new PipelineStamp(pipelineName, null);
-			pipeline = pipelineMap.get(stamp);
+		return getPlan(pipelineName, layerId).pipeline;
+	}
+
+	private ExecutionPlan<RESPONSE> getPlan(String pipelineName, String layerId) throws GeomajasException {
+		PipelinePlans<RESPONSE> plans = null == pipelineName ? null : pipelineMap.get(pipelineName);
+		ExecutionPlan<RESPONSE> plan = null;
+		if (null != plans) {
+			if (null != layerId) {
+				plan = plans.layerPlans.get(layerId);
+			}
+			if (null == plan) {
+				plan = plans.defaultPlan;
+			}
 		}
-		if (null == pipeline) {
+		if (null == plan) {
 			throw new GeomajasException(ExceptionCode.PIPELINE_UNKNOWN, pipelineName, layerId);
 		}
-		return pipeline;
+		return plan;
 	}
 
 	/** @inheritDoc */
@@ -155,17 +237,38 @@ public class PipelineServiceImpl<RESPONSE> implements PipelineService<RESPONSE>
 		for (PipelineInfo<RESPONSE> pipeline : delegateLast) {
 			interceptPipeline(pipeline);
 		}
-		// remove double names
-		pipelineMap = new HashMap<PipelineStamp, PipelineInfo<RESPONSE>>();
+		// compile and index, remove double names
+		Map<String, PipelinePlans<RESPONSE>> plansByName = new HashMap<String, PipelinePlans<RESPONSE>>();
+		Map<PipelineInfo<RESPONSE>, ExecutionPlan<RESPONSE>> plansByInfo =
+				new IdentityHashMap<PipelineInfo<RESPONSE>, ExecutionPlan<RESPONSE>>();
 		for (PipelineInfo<RESPONSE> pipeline : pipelineInfos) {
-			// equal stamps will be overwritten here, last one wins !
-			pipelineMap.put(new PipelineStamp(pipeline), pipeline);
+			ExecutionPlan<RESPONSE> plan = new ExecutionPlan<RESPONSE>(pipeline);
+			plansByInfo.put(pipeline, plan);
+			PipelinePlans<RESPONSE> plans = plansByName.get(pipeline.getPipelineName());
+			if (null == plans) {
+				plans = new PipelinePlans<RESPONSE>();
+				plansByName.put(pipeline.getPipelineName(), plans);
+			}
+			// equal name and layer will be overwritten here, last one wins !
+			if (null == pipeline.getLayerId()) {
+				plans.defaultPlan = plan;
+			} else {
+				plans.layerPlans.put(pipeline.getLayerId(), plan);
+			}
 		}
+		pipelineMap = plansByName;
+		planMap = plansByInfo;
 		if (log.isDebugEnabled()) {
 			log.debug("listing pipeline structures");
-			for (PipelineInfo<RESPONSE> pipeline : pipelineMap.values()) {
-				log.debug("");
-				print(pipeline);
+			for (PipelinePlans<RESPONSE> plans : pipelineMap.values()) {
+				if (null != plans.defaultPlan) {
+					log.debug("");
+					print(plans.defaultPlan.pipeline);
+				}
+				for (ExecutionPlan<RESPONSE> plan : plans.layerPlans.values()) {
+					log.debug("");
+					print(plan.pipeline);
+				}
 			}
 		}
 	}
@@ -313,6 +416,12 @@ public class PipelineServiceImpl<RESPONSE> implements PipelineService<RESPONSE>
 
 		private List<PipelineStep<T>> steps;
 
+		private PipelineStep<T>[] stepArray;
+
+		private int[] offsets;
+
+		private final String description;
+
 		private PipelineStep<T> fromStep;
 
 		private PipelineStep<T> toStep;
@@ -322,6 +431,7 @@ public class PipelineServiceImpl<RESPONSE> implements PipelineService<RESPONSE>
 		public PipelineInterceptorStep(PipelineInterceptor<T> interceptor, List<PipelineStep<T>> steps)
 				throws GeomajasException {
 			this.interceptor = interceptor;
+			this.description = "interceptor " + interceptor.getId();
 			int fromIndex = -1;
 			int toIndex = -1;
 			for (int i = 0 ; i < steps.size() ; i++) {
@@ -362,6 +472,9 @@ public class PipelineServiceImpl<RESPONSE> implements PipelineService<RESPONSE>
 
 		public void setSteps(List<PipelineStep<T>> steps) {
 			this.steps = steps;
+			this.stepArray = toArray(steps);
+			// relative position of the steps in the metrics, assigned when the pipeline is compiled
+			this.offsets = new int[stepArray.length];
 		}
 
 		public List<PipelineStep<T>> getSteps() {
@@ -385,51 +498,54 @@ public class PipelineServiceImpl<RESPONSE> implements PipelineService<RESPONSE>
 		}
 
 		public void execute(PipelineContext context, T response) throws GeomajasException {
+			execute(context, response, null, 0);
+		}
+
+		@SuppressWarnings("unchecked")
+		void execute(PipelineContext context, T response, PlanMetrics metrics, int index) throws GeomajasException {
 			log.debug("execute beforeSteps for interceptor {}", interceptor.getId());
+			boolean debug = log.isDebugEnabled();
 			long its = 0;
-			if (log.isDebugEnabled()) {
-				its  = System.currentTimeMillis();
+			if (debug) {
+				its = System.nanoTime();
 			}
 			ExecutionMode mode = interceptor.beforeSteps(context, response);
 			if (mode == null) {
 				mode = ExecutionMode.EXECUTE_ALL;
 			}
-			switch (mode) {
-				case EXECUTE_ALL:
-				case EXECUTE_STEPS_NOT_AFTER:
-					if (!context.isFinished()) {
-						for (PipelineStep<T> step : getSteps()) {
-							if (context.isFinished()) {
-								log.debug("context finished, interceptor {} execution done", interceptor.getId());
-								break;
-							}
-							long ts = 0;
-							if (log.isDebugEnabled()) {
-								ts = System.currentTimeMillis();
-								log.debug("execute step {} for interceptor {}", step.getId(), interceptor.getId());
-							}
-							step.execute(context, response);
-							if (log.isDebugEnabled()) {
-								log.debug("done step {}, time {}s", step.getId(),
-										(System.currentTimeMillis() - ts) / 1000.0);
+			boolean success = false;
+			try {
+				switch (mode) {
+					case EXECUTE_ALL:
+					case EXECUTE_STEPS_NOT_AFTER:
+						if (null == metrics && !debug) {
+							for (int i = 0; i < stepArray.length && !context.isFinished(); i++) {
+								stepArray[i].execute(context, response);
 							}
+						} else {
+							executeSteps(stepArray, offsets, index, metrics, context, response, description);
 						}
-					}
-					break;
-				default:
-					log.debug("skipping steps for interceptor {}", interceptor.getId());
-			}
-			switch (mode) {
-				case EXECUTE_ALL:
-				case EXECUTE_SKIP_STEPS:
-					interceptor.afterSteps(context, response);
-					break;
-				default:
-					log.debug("skipping afterSteps for interceptor {}", interceptor.getId());
-			}
-			if (log.isDebugEnabled()) {
+						break;
+					default:
+						log.debug("skipping steps for interceptor {}", interceptor.getId());
+				}
+				switch (mode) {
+					case EXECUTE_ALL:
+					case EXECUTE_SKIP_STEPS:
+						interceptor.afterSteps(context, response);
+						break;
+					default:
+						log.debug("skipping afterSteps for interceptor {}", interceptor.getId());
+				}
+				success = true;
+			} finally {
+				if (interceptor instanceof PipelineInterceptorCompletion) {
+					((PipelineInterceptorCompletion<T>) interceptor).afterCompletion(context, response, success);
+				}
+			}
+			if (debug) {
 				log.debug("beforeSteps done for {}, time {}s", interceptor.getId(),
-						(System.currentTimeMillis() - its) / 1000.0);
+						(System.nanoTime() - its) / NANOS_PER_SECOND);
 			}
 		}
 	}
@@ -448,43 +564,146 @@ public class PipelineServiceImpl<RESPONSE> implements PipelineService<RESPONSE>
 	}
 
 	/**
-	 * Stamp for detection of duplicate pipelines.
-	 * 
-	 * @author Jan De Moerloose
+	 * Compiled pipeline, the steps (including interceptor steps) of the pipeline in an array.
+	 * <p/>
+	 * For the metrics, the steps and interceptors are numbered in execution order (depth first), each interceptor is
+	 * directly followed by its steps.
+	 *
+	 * @param <T> type of response object for the pipeline
+	 *
+	 * @author agent
 	 */
-	private static final class PipelineStamp {
-
-		private final String name;
-
-		private final String layerId;
-
-		public PipelineStamp(PipelineInfo info) {
-			this.name = info.getPipelineName();
-			this.layerId = info.getLayerId();
+	private static final class ExecutionPlan<T> {
+
+		private final PipelineInfo<T> pipeline;
+
+		private final PipelineStep<T>[] steps;
+
+		/** Index of each step in the metrics. */
+		private final int[] offsets;
+
+		/** Metric name for each index, either for a step or an interceptor. */
+		private final String[] metricNames;
+
+		/** Step or interceptor id for each index. */
+		private final String[] stepIds;
+
+		private final String description;
+
+		/** Metrics for the plan, indexed on layer id. */
+		private final ConcurrentMap<String, PlanMetrics> metrics = new ConcurrentHashMap<String, PlanMetrics>();
+
+		public ExecutionPlan(PipelineInfo<T> pipeline) {
+			this.pipeline = pipeline;
+			this.steps = toArray(pipeline.getPipeline());
+			this.description = "pipeline " + pipeline.getPipelineName();
+			List<String> names = new ArrayList<String>();
+			List<String> ids = new ArrayList<String>();
+			offsets = new int[steps.length];
+			number(steps, offsets, 0, names, ids);
+			metricNames = names.toArray(new String[names.size()]);
+			stepIds = ids.toArray(new String[ids.size()]);
+		}
+
+		/**
+		 * Get the metrics for executing the plan for a layer.
+		 *
+		 * @param metricsService metrics service
+		 * @param layerId layer id, can be null
+		 * @return metrics
+		 */
+		public PlanMetrics getMetrics(MetricsService metricsService, String layerId) {
+			String key = null == layerId ? "" : layerId;
+			PlanMetrics result = metrics.get(key);
+			if (null == result) {
+				result = new PlanMetrics(metricsService, this, layerId);
+				PlanMetrics previous = metrics.putIfAbsent(key, result);
+				if (null != previous) {
+					result = previous;
+				}
+			}
+			return result;
 		}
 
-		public PipelineStamp(String name, String layerId) {
-			this.name = name;
-			this.layerId = layerId;
+		/**
+		 * Number the steps and (recursively) the steps of the interceptors.
+		 *
+		 * @param steps steps to number
+		 * @param stepOffsets array to put the index of each step in
+		 * @param start index of the first step
+		 * @param names list to add the metric names to
+		 * @param ids list to add the step ids to
+		 * @return number of indexes used
+		 */
+		private static int number(PipelineStep<?>[] steps, int[] stepOffsets, int start, List<String> names,
+				List<String> ids) {
+			int position = start;
+			for (int i = 0; i < steps.length; i++) {
+				PipelineStep<?> step = steps[i];
+				stepOffsets[i] = position++;
+				ids.add(step.getId());
+				if (step instanceof PipelineServiceImpl.PipelineInterceptorStep) {
+					names.add(MetricsService.PIPELINE_INTERCEPTOR);
+					PipelineServiceImpl<?>.PipelineInterceptorStep<?> interceptorStep =
+							(PipelineServiceImpl<?>.PipelineInterceptorStep<?>) step;
+					// offsets of interceptor steps are relative to the interceptor
+					int[] nested = new int[interceptorStep.stepArray.length];
+					position += number(interceptorStep.stepArray, nested, 1, names, ids);
+					interceptorStep.offsets = nested;
+				} else {
+					names.add(MetricsService.PIPELINE_STEP);
+				}
+			}
+			return position - start;
 		}
+	}
 
-		public boolean equals(Object otherObject) {
-			if (this == otherObject) {
-				return true;
-			}
-			if (otherObject == null || !(otherObject instanceof PipelineStamp)) {
-				return false;
+	/**
+	 * Latency timers for executing a plan for a specific layer.
+	 *
+	 * @author agent
+	 */
+	private static final class PlanMetrics {
+
+		private final LatencyTimer pipeline;
+
+		private final LatencyTimer[] steps;
+
+		public PlanMetrics(MetricsService metricsService, ExecutionPlan<?> plan, String layerId) {
+			String name = plan.pipeline.getPipelineName();
+			pipeline = metricsService.getLatencyTimer(MetricsService.PIPELINE,
+					MetricsService.TAG_PIPELINE, name, MetricsService.TAG_LAYER, layerId);
+			steps = new LatencyTimer[plan.metricNames.length];
+			for (int i = 0; i < steps.length; i++) {
+				String metricName = plan.metricNames[i];
+				String tag = MetricsService.PIPELINE_INTERCEPTOR.equals(metricName) ? MetricsService.TAG_INTERCEPTOR
+						: MetricsService.TAG_STEP;
+				steps[i] = metricsService.getLatencyTimer(metricName, MetricsService.TAG_PIPELINE, name,
+						MetricsService.TAG_LAYER, layerId, tag, plan.stepIds[i]);
 			}
-			PipelineStamp otherStamp = (PipelineStamp) otherObject;
-			return Utilities.equals(name, otherStamp.name) && Utilities.equals(layerId, otherStamp.layerId);
 		}
+	}
 
-		public int hashCode() {
-			int result = 13;
-			result = Utilities.hash(name, result);
-			result = Utilities.hash(layerId, result);
-			return result;
+	/**
+	 * Execution plans for one pipeline name, the default plan and the layer specific plans.
+	 *
+	 * @param <T> type of response object for the pipeline
+	 *
+	 * @author agent
+	 */
+	private static final class PipelinePlans<T> {
+
+		private ExecutionPlan<T> defaultPlan;
+
+		private final Map<String, ExecutionPlan<T>> layerPlans = new HashMap<String, ExecutionPlan<T>>();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> PipelineStep<T>[] toArray(List<PipelineStep<T>> steps) {
+		if (null == steps) {
+			return new PipelineStep[0];
 		}
+		return steps.toArray(new PipelineStep[steps.size()]);
 	}
 
 }
@@ -0,0 +1,90 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.util;
+
+import java.io.Writer;
+
+/**
+ * {@link Writer} which writes into a {@link StringBuilder}. Unlike {@link java.io.StringWriter} this is not
+ * synchronized, so it should only be used by one thread.
+ *
+ * @author agent
+ */
+public class StringBuilderWriter extends Writer {
+
+	private final StringBuilder builder;
+
+	/**
+	 * Create a writer with the given initial capacity.
+	 *
+	 * @param initialCapacity initial capacity of the buffer
+	 */
+	public StringBuilderWriter(int initialCapacity) {
+		builder = new StringBuilder(initialCapacity);
+	}
+
+	@Override
+	public void write(int c) {
+		builder.append((char) c);
+	}
+
+	@Override
+	public void write(char[] buffer, int offset, int length) {
+		builder.append(buffer, offset, length);
+	}
+
+	@Override
+	public void write(String str) {
+		builder.append(str);
+	}
+
+	@Override
+	public void write(String str, int offset, int length) {
+		builder.append(str, offset, offset + length);
+	}
+
+	@Override
+	public Writer append(CharSequence csq) {
+		builder.append(csq);
+		return this;
+	}
+
+	@Override
+	public Writer append(char c) {
+		builder.append(c);
+		return this;
+	}
+
+	@Override
+	public void flush() {
+		// nothing to do
+	}
+
+	@Override
+	public void close() {
+		// nothing to do
+	}
+
+	/**
+	 * Get the buffer.
+	 *
+	 * @return buffer
+	 */
+	public StringBuilder getBuilder() {
+		return builder;
+	}
+
+	@Override
+	public String toString() {
+		return builder.toString();
+	}
+}
@@ -32,6 +32,7 @@ import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.LayerException;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.VectorLayerAssociationSupport;
+import org.geomajas.layer.VectorLayerCountingSupport;
 import org.geomajas.layer.VectorLayerLazyFeatureConversionSupport;
 import org.geomajas.layer.entity.EntityAttributeService;
 import org.geomajas.layer.feature.Attribute;
@@ -40,6 +41,7 @@ import org.geomajas.service.DtoConverterService;
 import org.geomajas.service.FilterService;
 import org.geomajas.service.GeoService;
 import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -56,7 +58,8 @@ import com.vividsolutions.jts.geom.Geometry;
  */
 @Api
 @edu.umd.cs.findbugs.annotations.SuppressWarnings("IS2_INCONSISTENT_SYNC")
-public class BeanLayer implements VectorLayer, VectorLayerAssociationSupport, VectorLayerLazyFeatureConversionSupport {
+public class BeanLayer implements VectorLayer, VectorLayerAssociationSupport, VectorLayerLazyFeatureConversionSupport,
+		VectorLayerCountingSupport {
 
 	private final Logger log = LoggerFactory.getLogger(BeanLayer.class);
 
@@ -175,6 +178,43 @@ public class BeanLayer implements VectorLayer, VectorLayerAssociationSupport, Ve
 		}
 	}
 
+	/**
+	 * Count the features which match the filter. The features are not copied or sorted. When the filter accepts all
+	 * features or selects features by id, the features are counted using the id index.
+	 *
+	 * @since 1.18.6
+	 */
+	@Api
+	public int getCount(Filter filter) throws LayerException {
+		if (null == filter) {
+			filter = Filter.INCLUDE;
+		}
+		try {
+			synchronized (featuresById) {
+				if (Filter.INCLUDE.equals(filter)) {
+					return featuresById.size();
+				}
+				int count = 0;
+				if (filter instanceof Id) {
+					for (Object featureId : ((Id) filter).getIDs()) {
+						if (featuresById.containsKey(featureId.toString())) {
+							count++;
+						}
+					}
+				} else {
+					for (Object feature : featuresById.values()) {
+						if (filter.evaluate(feature)) {
+							count++;
+						}
+					}
+				}
+				return count;
+			}
+		} catch (Exception e) { // NOSONAR
+			throw new LayerException(e, ExceptionCode.FILTER_EVALUATION_PROBLEM, filter, getId());
+		}
+	}
+
 	public Envelope getBounds() throws LayerException {
 		return getBounds(Filter.INCLUDE);
 	}
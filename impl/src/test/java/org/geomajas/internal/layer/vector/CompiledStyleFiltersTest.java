@@ -0,0 +1,118 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.layer.vector;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geomajas.configuration.FeatureStyleInfo;
+import org.geomajas.internal.layer.feature.InternalFeatureImpl;
+import org.geomajas.internal.rendering.StyleFilterImpl;
+import org.geomajas.layer.feature.Attribute;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.attribute.IntegerAttribute;
+import org.geomajas.layer.feature.attribute.StringAttribute;
+import org.geomajas.rendering.StyleFilter;
+import org.geotools.filter.text.ecql.ECQL;
+import org.junit.Assert;
+import org.junit.Test;
+import org.opengis.filter.Filter;
+
+/**
+ * Test for {@link CompiledStyleFilters}.
+ *
+ * @author agent
+ */
+public class CompiledStyleFiltersTest {
+
+	@Test
+	public void testLookup() throws Exception {
+		CompiledStyleFilters filters = compile("type = 'road'", "'river' = type", "type = 'road'", null);
+		Assert.assertTrue(filters.isLookup());
+		Assert.assertEquals("0", filters.findStyleFilter(feature("road", 1)).getStyleDefinition().getName());
+		Assert.assertEquals("1", filters.findStyleFilter(feature("river", 1)).getStyleDefinition().getName());
+		Assert.assertEquals("3", filters.findStyleFilter(feature("rail", 1)).getStyleDefinition().getName());
+	}
+
+	@Test
+	public void testLookupWithoutDefault() throws Exception {
+		CompiledStyleFilters filters = compile("type = 'road'", "type = 'river'");
+		Assert.assertTrue(filters.isLookup());
+		Assert.assertEquals("invisible-style",
+				filters.findStyleFilter(feature("rail", 1)).getStyleDefinition().getName());
+	}
+
+	@Test
+	public void testNoLookup() throws Exception {
+		Assert.assertFalse(compile("type = 'road'", "number = 3").isLookup());
+		Assert.assertFalse(compile("type = 'road'", "other = 'river'").isLookup());
+		Assert.assertFalse(compile("type = 'road'", "type LIKE 'riv%'").isLookup());
+		Assert.assertFalse(compile((String) null).isLookup());
+
+		CompiledStyleFilters filters = compile("type = 'road'", "number > 2", null);
+		Assert.assertEquals("0", filters.findStyleFilter(feature("road", 1)).getStyleDefinition().getName());
+		Assert.assertEquals("1", filters.findStyleFilter(feature("river", 3)).getStyleDefinition().getName());
+		Assert.assertEquals("2", filters.findStyleFilter(feature("river", 1)).getStyleDefinition().getName());
+	}
+
+	@Test
+	public void testSameResultAsSequential() throws Exception {
+		CompiledStyleFilters filters = compile("type = 'road'", "type = 'river'", "type = 'Road'", null);
+		Assert.assertTrue(filters.isLookup());
+		for (String type : new String[] {"road", "river", "Road", "ROAD", "", "other"}) {
+			InternalFeature feature = feature(type, 1);
+			Assert.assertSame(CompiledStyleFilters.findStyleFilter(feature, filters.getStyleFilters()),
+					filters.findStyleFilter(feature));
+		}
+	}
+
+	@Test
+	public void testBuiltFrom() throws Exception {
+		List<FeatureStyleInfo> definitions = new ArrayList<FeatureStyleInfo>();
+		definitions.add(new FeatureStyleInfo());
+		CompiledStyleFilters filters = new CompiledStyleFilters(definitions, new ArrayList<StyleFilter>());
+		Assert.assertTrue(filters.isBuiltFrom(definitions));
+		List<FeatureStyleInfo> other = new ArrayList<FeatureStyleInfo>();
+		other.add(new FeatureStyleInfo());
+		Assert.assertTrue(filters.isBuiltFrom(other));
+		other.get(0).setFormula("type = 'road'");
+		Assert.assertFalse(filters.isBuiltFrom(other));
+		Assert.assertFalse(filters.isBuiltFrom(null));
+	}
+
+	private CompiledStyleFilters compile(String... formulas) throws Exception {
+		List<FeatureStyleInfo> definitions = new ArrayList<FeatureStyleInfo>();
+		List<StyleFilter> styleFilters = new ArrayList<StyleFilter>();
+		int index = 0;
+		for (String formula : formulas) {
+			FeatureStyleInfo definition = new FeatureStyleInfo();
+			definition.setName(Integer.toString(index++));
+			definition.setFormula(formula);
+			definitions.add(definition);
+			Filter filter = null == formula ? Filter.INCLUDE : ECQL.toFilter(formula);
+			styleFilters.add(new StyleFilterImpl(filter, definition));
+		}
+		return new CompiledStyleFilters(definitions, styleFilters);
+	}
+
+	private InternalFeature feature(String type, int number) {
+		InternalFeature feature = new InternalFeatureImpl();
+		Map<String, Attribute> attributes = new HashMap<String, Attribute>();
+		attributes.put("type", new StringAttribute(type));
+		attributes.put("number", new IntegerAttribute(number));
+		attributes.put("other", new StringAttribute("x"));
+		feature.setAttributes(attributes);
+		return feature;
+	}
+}
@@ -0,0 +1,99 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.layer.vector;
+
+import org.geomajas.internal.service.pipeline.PipelineContextImpl;
+import org.geomajas.layer.bean.BeanLayer;
+import org.geomajas.layer.pipeline.GetCountContainer;
+import org.geomajas.service.FilterService;
+import org.geomajas.service.pipeline.PipelineCode;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.opengis.filter.Filter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Test cases for {@link GetCountStep} when a feature authorization applies.
+ *
+ * @author agent
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "/org/geomajas/spring/geomajasContext.xml",
+		"/org/geomajas/testdata/beanContext.xml", "/org/geomajas/testdata/layerBeans.xml",
+		"/org/geomajas/internal/layer/vector/getCountStep.xml",
+		"/org/geomajas/internal/layer/vector/oddFeatureSecurity.xml" })
+public class GetCountStepSecuredTest {
+
+	@Autowired
+	@Qualifier("lotsObeans")
+	private BeanLayer testLayer;
+
+	@Autowired
+	private GetCountStep step;
+
+	@Autowired
+	private FilterService filterService;
+
+	@Autowired
+	private org.geomajas.security.SecurityManager securityManager;
+
+	@Before
+	public void login() {
+		// assure security context is set
+		securityManager.createSecurityContext(null);
+	}
+
+	@After
+	public void clearSecurityContext() {
+		securityManager.clearSecurityContext();
+	}
+
+	@Test
+	public void testSecurity() throws Exception {
+		// the layer has 20 features, only the features with an even id are visible
+		Assert.assertEquals(20, testLayer.getCount(Filter.INCLUDE));
+		GetCountContainer result = new GetCountContainer();
+		step.execute(getPipelineContext(Filter.INCLUDE), result);
+		Assert.assertEquals(10, result.getCount().intValue());
+	}
+
+	@Test
+	public void testSecurityAndFilter() throws Exception {
+		GetCountContainer result = new GetCountContainer();
+		step.execute(getPipelineContext(filterService.createFidFilter(new String[] { "1", "2", "3", "4" })),
+				result);
+		Assert.assertEquals(2, result.getCount().intValue());
+	}
+
+	@Test
+	public void testCountKnown() throws Exception {
+		GetCountContainer result = new GetCountContainer();
+		result.setCount(3);
+		step.execute(getPipelineContext(Filter.INCLUDE), result);
+		Assert.assertEquals(3, result.getCount().intValue());
+	}
+
+	private PipelineContext getPipelineContext(Filter filter) {
+		PipelineContext context = new PipelineContextImpl();
+		context.put(PipelineCode.LAYER_KEY, testLayer);
+		context.put(PipelineCode.LAYER_ID_KEY, testLayer.getId());
+		context.put(PipelineCode.FILTER_KEY, filter);
+		return context;
+	}
+}
@@ -11,9 +11,17 @@
 
 package org.geomajas.internal.layer.vector;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
 import org.geomajas.configuration.NamedStyleInfo;
+import org.geomajas.configuration.SortType;
 import org.geomajas.internal.service.pipeline.PipelineContextImpl;
+import org.geomajas.layer.VectorLayerService;
 import org.geomajas.layer.bean.BeanLayer;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
 import org.geomajas.layer.pipeline.GetFeaturesContainer;
 import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
@@ -46,6 +54,10 @@ public class GetFeaturesEachStepTest {
 	@Qualifier("lotsObeans")
 	private BeanLayer testLayer;
 
+	@Autowired
+	@Qualifier("beans")
+	private BeanLayer beanLayer;
+
 	@Autowired
 	private GetFeaturesEachStep gfes;
 
@@ -153,6 +165,37 @@ public class GetFeaturesEachStepTest {
 		Assert.assertEquals("15", result.getFeatures().get(9).getId());
 	}
 
+	@Test
+	public void testSortInMemory() throws Exception {
+		GetFeaturesContainer result = new GetFeaturesContainer();
+		PipelineContext context = getPipelineContext(1, Integer.MAX_VALUE);
+		context.put(PipelineCode.LAYER_KEY, beanLayer);
+		context.put(PipelineCode.FEATURE_INCLUDES_KEY, VectorLayerService.FEATURE_INCLUDE_ATTRIBUTES);
+		context.put(PipelineCode.SORT_ATTRIBUTE_NAME_KEY, "stringAttr");
+		context.put(PipelineCode.SORT_TYPE_KEY, SortType.DESC);
+		gfes.execute(context, result);
+
+		Assert.assertEquals(2, result.getFeatures().size());
+		Assert.assertEquals("2", result.getFeatures().get(0).getId());
+		Assert.assertEquals("1", result.getFeatures().get(1).getId());
+	}
+
+	@Test
+	public void testFeatureHandler() throws Exception {
+		final List<String> ids = new ArrayList<String>();
+		GetFeaturesContainer result = new GetFeaturesContainer();
+		result.setFeatureHandler(new InternalFeatureHandler() {
+
+			public void handle(InternalFeature feature) {
+				ids.add(feature.getId());
+			}
+		});
+		gfes.execute(getPipelineContext(5, 3), result);
+
+		Assert.assertEquals(Arrays.asList("6", "7", "8"), ids);
+		Assert.assertTrue(result.getFeatures().isEmpty());
+	}
+
 	// ----------------------------------------------------------
 	
 	private PipelineContext getPipelineContext(int offset, int limit, Boolean forcePaging) {
@@ -0,0 +1,182 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.rendering;
+
+import java.io.StringWriter;
+import java.text.DecimalFormat;
+import java.util.Random;
+
+import org.geomajas.rendering.GraphicsDocument;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+
+/**
+ * Test for {@link CoordinateFormatter}, verifying that the output is identical to the output of the
+ * {@link DecimalFormat} which was used before.
+ *
+ * @author agent
+ */
+public class CoordinateFormatterTest {
+
+	private static final double[] SPECIAL_VALUES = {0, -0.0, 0.5, 1.5, 2.5, -0.5, -2.5, 0.125, 0.375, -0.125,
+			1.005, 2.675, 0.1, 0.2, 0.3, -0.4, -1e-10, 1e-10, 123456789.987654321, -98765.4321, 1e11, 1e12, 1e13,
+			1e20, -1e20, 9.999999999, 99.5, 0.05, 0.15, 0.25, 0.35, Double.NaN, Double.POSITIVE_INFINITY,
+			Double.NEGATIVE_INFINITY, Double.MIN_VALUE, Double.MAX_VALUE, Long.MAX_VALUE};
+
+	@Test
+	public void testSpecialValues() {
+		for (int digits = 0; digits <= 10; digits++) {
+			DecimalFormat format = createFormat(digits);
+			CoordinateFormatter formatter = new CoordinateFormatter(format);
+			for (double value : SPECIAL_VALUES) {
+				Assert.assertEquals("value " + value + ", digits " + digits, format.format(value),
+						formatter.format(value));
+			}
+		}
+	}
+
+	@Test
+	public void testRandomValues() {
+		Random random = new Random(20161018);
+		for (int digits = 0; digits <= 10; digits++) {
+			DecimalFormat format = createFormat(digits);
+			CoordinateFormatter formatter = new CoordinateFormatter(format);
+			for (int i = 0; i < 20000; i++) {
+				double value = (random.nextDouble() - 0.5) * Math.pow(10, random.nextInt(16) - 4);
+				Assert.assertEquals("value " + value + ", digits " + digits, format.format(value),
+						formatter.format(value));
+				// rounded values, as written in paths
+				value = formatter.round(value);
+				Assert.assertEquals("value " + value + ", digits " + digits, format.format(value),
+						formatter.format(value));
+			}
+		}
+	}
+
+	@Test
+	public void testMinimumFractionDigits() throws Exception {
+		DecimalFormat format = createFormat(6);
+		format.setMinimumFractionDigits(4);
+		CoordinateFormatter formatter = new CoordinateFormatter(format);
+		Assert.assertEquals("1.2340", formatter.format(1.234));
+		Assert.assertEquals("1.234568", formatter.format(1.23456789));
+		Assert.assertEquals("-3.0000", formatter.format(-3));
+		StringWriter writer = new StringWriter();
+		formatter.format(9.87654321, writer);
+		Assert.assertEquals("9.876543", writer.toString());
+	}
+
+	@Test
+	public void testRound() {
+		DecimalFormat format = createFormat(2);
+		CoordinateFormatter formatter = new CoordinateFormatter(format);
+		Random random = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			double value = (random.nextDouble() - 0.5) * 1e6;
+			Assert.assertEquals(Math.round(value * Math.pow(10, 2)) / Math.pow(10, 2), formatter.round(value), 0);
+		}
+	}
+
+	@Test
+	public void testSvgPathContent() throws Exception {
+		for (int digits = 0; digits <= 5; digits++) {
+			Coordinate[] coordinates = randomCoordinates(digits);
+			StringWriter writer = new StringWriter();
+			DefaultSvgDocument document = new DefaultSvgDocument(writer, false);
+			document.setMaximumFractionDigits(digits);
+			document.writeElement("path", false);
+			document.writeAttributeStart("d");
+			document.writeClosedPathContent(coordinates);
+			document.writeAttributeEnd();
+			document.closeElement();
+			Assert.assertEquals("<path d=\"" + legacyPath(coordinates, coordinates.length, 'M', 'l', digits) + "Z\"/>",
+					writer.toString());
+		}
+	}
+
+	@Test
+	public void testVmlPathContent() throws Exception {
+		for (int digits = 0; digits <= 5; digits++) {
+			Coordinate[] coordinates = randomCoordinates(digits);
+			StringWriter writer = new StringWriter();
+			GraphicsDocument document = new DefaultVmlDocument(writer);
+			document.setMaximumFractionDigits(digits);
+			document.writeElement("vml:shape", false);
+			document.writeAttributeStart("path");
+			document.writeClosedPathContent(coordinates);
+			document.writeAttributeEnd();
+			document.closeElement();
+			Assert.assertEquals("<vml:shape path=\"" +
+					legacyPath(coordinates, coordinates.length - 1, 'm', 'r', digits) + "x\"/>", writer.toString());
+		}
+	}
+
+	private Coordinate[] randomCoordinates(int seed) {
+		Random random = new Random(seed);
+		Coordinate[] coordinates = new Coordinate[500];
+		double x = random.nextDouble() * 1000;
+		double y = random.nextDouble() * 1000;
+		for (int i = 0; i < coordinates.length - 1; i++) {
+			coordinates[i] = new Coordinate(x, y);
+			// small steps, so some coordinates are skipped after rounding
+			x += (random.nextDouble() - 0.5) * (i % 7 == 0 ? 0.0001 : 20);
+			y += (random.nextDouble() - 0.5) * (i % 5 == 0 ? 0.0001 : 20);
+		}
+		coordinates[coordinates.length - 1] = coordinates[0];
+		return coordinates;
+	}
+
+	/** The path content as it was written using {@link DecimalFormat} and intermediate coordinates. */
+	private String legacyPath(Coordinate[] coords, int nCoords, char path, char point, int digits) {
+		DecimalFormat format = createFormat(digits);
+		Coordinate nullCoordinate = new Coordinate(0, 0);
+		StringBuilder sb = new StringBuilder();
+		sb.append(path);
+		Coordinate curr = legacyRound(coords[0], digits);
+		sb.append(format.format(curr.x)).append(' ').append(format.format(curr.y));
+		Coordinate prev = curr;
+		if (nCoords > 1) {
+			sb.append(point);
+			for (int i = 1; i < nCoords; i++) {
+				curr = coords[i];
+				Coordinate delta = legacyRound(new Coordinate(curr.x - prev.x, curr.y - prev.y), digits);
+				if (!delta.equals(nullCoordinate) || i == 1) {
+					sb.append(format.format(delta.x)).append(' ').append(format.format(delta.y));
+					prev.x += delta.x;
+					prev.y += delta.y;
+					sb.append(' ');
+				}
+			}
+		}
+		return sb.toString();
+	}
+
+	private Coordinate legacyRound(Coordinate c, int digits) {
+		double scale = Math.pow(10, digits);
+		return new Coordinate(Math.round(c.x * scale) / scale, Math.round(c.y * scale) / scale);
+	}
+
+	private DecimalFormat createFormat(int digits) {
+		// same settings as AbstractGraphicsDocument
+		DefaultSvgDocument document;
+		try {
+			document = new DefaultSvgDocument(new StringWriter(), false);
+		} catch (Exception e) {
+			throw new IllegalStateException(e);
+		}
+		DecimalFormat format = document.getFormatter();
+		format.setMaximumFractionDigits(digits);
+		return format;
+	}
+}
@@ -0,0 +1,287 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.rendering.mvt;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LinearRing;
+
+/**
+ * Test for {@link MvtEncoder}. The encoded tile is decoded using a minimal protocol buffer reader.
+ *
+ * @author agent
+ */
+public class MvtEncoderTest {
+
+	private static final GeometryFactory FACTORY = new GeometryFactory();
+
+	@Test
+	public void testPoint() throws Exception {
+		MvtEncoder encoder = new MvtEncoder("layer", 256, 1, 0, 256);
+		encoder.addFeature("12", null, FACTORY.createPoint(new Coordinate(25, 239)));
+		Message layer = decodeLayer(encoder.encode());
+		Assert.assertEquals("layer", layer.getString(1));
+		Assert.assertEquals(Long.valueOf(256), layer.getVarint(5));
+		Assert.assertEquals(Long.valueOf(2), layer.getVarint(15));
+		Message feature = layer.getMessages(2).get(0);
+		Assert.assertEquals(Long.valueOf(12), feature.getVarint(1));
+		Assert.assertEquals(Long.valueOf(1), feature.getVarint(3));
+		// MoveTo(1), zigzag(25), zigzag(17)
+		Assert.assertEquals(Arrays.asList(9L, 50L, 34L), feature.getPacked(4));
+	}
+
+	@Test
+	public void testLineString() throws Exception {
+		MvtEncoder encoder = new MvtEncoder("layer", 256, 2, 10, 100);
+		encoder.addFeature("line.1", null, FACTORY.createLineString(new Coordinate[] {new Coordinate(12, 98),
+				new Coordinate(12.1, 98.1), new Coordinate(13, 100), new Coordinate(11, 100)}));
+		Message feature = decodeLayer(encoder.encode()).getMessages(2).get(0);
+		Assert.assertNull(feature.getVarint(1));
+		Assert.assertEquals(Long.valueOf(2), feature.getVarint(3));
+		// MoveTo(1) 4,4; repeated point skipped; LineTo(2) +2,-4 -4,0
+		Assert.assertEquals(Arrays.asList(9L, 8L, 8L, 18L, 4L, 7L, 7L, 0L), feature.getPacked(4));
+	}
+
+	@Test
+	public void testPolygonWinding() throws Exception {
+		MvtEncoder encoder = new MvtEncoder("layer", 256, 1, 0, 10);
+		// exterior ring should get a positive area, holes a negative area (y axis pointing down)
+		LinearRing shell = FACTORY.createLinearRing(new Coordinate[] {new Coordinate(0, 0), new Coordinate(0, 10),
+				new Coordinate(10, 10), new Coordinate(10, 0), new Coordinate(0, 0)});
+		LinearRing hole = FACTORY.createLinearRing(new Coordinate[] {new Coordinate(2, 2), new Coordinate(2, 4),
+				new Coordinate(4, 4), new Coordinate(4, 2), new Coordinate(2, 2)});
+		encoder.addFeature("1", null, FACTORY.createPolygon(shell, new LinearRing[] {hole}));
+		Message feature = decodeLayer(encoder.encode()).getMessages(2).get(0);
+		Assert.assertEquals(Long.valueOf(3), feature.getVarint(3));
+		List<int[]> rings = decodeRings(feature.getPacked(4));
+		Assert.assertEquals(2, rings.size());
+		Assert.assertTrue(area(rings.get(0)) > 0);
+		Assert.assertTrue(area(rings.get(1)) < 0);
+		Assert.assertEquals(8, rings.get(0).length);
+	}
+
+	@Test
+	public void testEmptyGeometrySkipped() throws Exception {
+		MvtEncoder encoder = new MvtEncoder("layer", 256, 1, 0, 10);
+		LinearRing tiny = FACTORY.createLinearRing(new Coordinate[] {new Coordinate(0, 0), new Coordinate(0, 0.1),
+				new Coordinate(0.1, 0.1), new Coordinate(0, 0)});
+		encoder.addFeature("1", null, FACTORY.createPolygon(tiny, null));
+		encoder.addFeature("2", null, null);
+		Assert.assertTrue(decodeLayer(encoder.encode()).getMessages(2).isEmpty());
+	}
+
+	@Test
+	public void testAttributes() throws Exception {
+		MvtEncoder encoder = new MvtEncoder("layer", 256, 1, 0, 10);
+		Map<String, Object> attributes = new LinkedHashMap<String, Object>();
+		attributes.put("name", "a");
+		attributes.put("count", 3);
+		attributes.put("none", null);
+		encoder.addFeature("1", attributes, FACTORY.createPoint(new Coordinate(1, 1)));
+		attributes.put("name", "b");
+		attributes.put("count", 3L);
+		attributes.put("flag", true);
+		encoder.addFeature("2", attributes, FACTORY.createPoint(new Coordinate(2, 2)));
+
+		Message layer = decodeLayer(encoder.encode());
+		Assert.assertEquals(Arrays.asList("name", "count", "flag"), layer.getStrings(3));
+		List<Message> values = layer.getMessages(4);
+		Assert.assertEquals(4, values.size());
+		Assert.assertEquals("a", values.get(0).getString(1));
+		Assert.assertEquals(Long.valueOf(6), values.get(1).getVarint(6)); // zigzag(3), shared by int and long
+		Assert.assertEquals("b", values.get(2).getString(1));
+		Assert.assertEquals(Long.valueOf(1), values.get(3).getVarint(7));
+		List<Message> features = layer.getMessages(2);
+		Assert.assertEquals(Arrays.asList(0L, 0L, 1L, 1L), features.get(0).getPacked(2));
+		Assert.assertEquals(Arrays.asList(0L, 2L, 1L, 1L, 2L, 3L), features.get(1).getPacked(2));
+	}
+
+	@Test
+	public void testGeometryCollection() throws Exception {
+		MvtEncoder encoder = new MvtEncoder("layer", 256, 1, 0, 10);
+		Geometry collection = FACTORY.createGeometryCollection(new Geometry[] {
+				FACTORY.createPoint(new Coordinate(1, 1)),
+				FACTORY.createLineString(new Coordinate[] {new Coordinate(1, 1), new Coordinate(5, 5)})});
+		encoder.addFeature("7", null, collection);
+		List<Message> features = decodeLayer(encoder.encode()).getMessages(2);
+		Assert.assertEquals(2, features.size());
+		Assert.assertEquals(Long.valueOf(1), features.get(0).getVarint(3));
+		Assert.assertEquals(Long.valueOf(2), features.get(1).getVarint(3));
+		Assert.assertEquals(Long.valueOf(7), features.get(1).getVarint(1));
+	}
+
+	private Message decodeLayer(byte[] tile) {
+		List<Message> layers = new Message(tile, 0, tile.length).getMessages(3);
+		Assert.assertEquals(1, layers.size());
+		return layers.get(0);
+	}
+
+	private List<int[]> decodeRings(List<Long> commands) {
+		List<int[]> rings = new ArrayList<int[]>();
+		List<Integer> ring = new ArrayList<Integer>();
+		int x = 0;
+		int y = 0;
+		int i = 0;
+		while (i < commands.size()) {
+			int command = commands.get(i++).intValue();
+			int id = command & 7;
+			int count = command >> 3;
+			if (id == 7) {
+				int[] coordinates = new int[ring.size()];
+				for (int j = 0; j < coordinates.length; j++) {
+					coordinates[j] = ring.get(j);
+				}
+				rings.add(coordinates);
+				ring.clear();
+				continue;
+			}
+			for (int j = 0; j < count; j++) {
+				x += unZigZag(commands.get(i++));
+				y += unZigZag(commands.get(i++));
+				ring.add(x);
+				ring.add(y);
+			}
+		}
+		return rings;
+	}
+
+	private int unZigZag(long value) {
+		return (int) ((value >>> 1) ^ -(value & 1));
+	}
+
+	private long area(int[] ring) {
+		long area = 0;
+		int count = ring.length / 2;
+		for (int i = 0; i < count; i++) {
+			int next = (i + 1) % count;
+			area += (long) ring[2 * i] * ring[2 * next + 1] - (long) ring[2 * next] * ring[2 * i + 1];
+		}
+		return area;
+	}
+
+	/**
+	 * Minimal protocol buffer message reader.
+	 *
+	 * @author agent
+	 */
+	private static final class Message {
+
+		private final Map<Integer, List<Object>> fields = new HashMap<Integer, List<Object>>();
+
+		private final byte[] data;
+
+		private int pos;
+
+		public Message(byte[] data, int offset, int length) {
+			this.data = data;
+			pos = offset;
+			int end = offset + length;
+			while (pos < end) {
+				long tag = readVarint();
+				int field = (int) (tag >>> 3);
+				int wireType = (int) (tag & 7);
+				Object value;
+				switch (wireType) {
+					case 0:
+						value = readVarint();
+						break;
+					case 1:
+						value = new byte[] {data[pos]};
+						pos += 8;
+						break;
+					case 2:
+						int size = (int) readVarint();
+						value = new int[] {pos, size};
+						pos += size;
+						break;
+					case 5:
+						value = new byte[] {data[pos]};
+						pos += 4;
+						break;
+					default:
+						throw new IllegalStateException("Unexpected wire type " + wireType);
+				}
+				if (!fields.containsKey(field)) {
+					fields.put(field, new ArrayList<Object>());
+				}
+				fields.get(field).add(value);
+			}
+		}
+
+		private long readVarint() {
+			long result = 0;
+			int shift = 0;
+			byte b;
+			do {
+				b = data[pos++];
+				result |= (long) (b & 0x7F) << shift;
+				shift += 7;
+			} while ((b & 0x80) != 0);
+			return result;
+		}
+
+		private List<Object> get(int field) {
+			List<Object> values = fields.get(field);
+			return null == values ? new ArrayList<Object>() : values;
+		}
+
+		public Long getVarint(int field) {
+			List<Object> values = get(field);
+			return values.isEmpty() ? null : (Long) values.get(0);
+		}
+
+		public String getString(int field) {
+			return getStrings(field).get(0);
+		}
+
+		public List<String> getStrings(int field) {
+			List<String> result = new ArrayList<String>();
+			for (Object value : get(field)) {
+				int[] range = (int[]) value;
+				result.add(new String(data, range[0], range[1]));
+			}
+			return result;
+		}
+
+		public List<Message> getMessages(int field) {
+			List<Message> result = new ArrayList<Message>();
+			for (Object value : get(field)) {
+				int[] range = (int[]) value;
+				result.add(new Message(data, range[0], range[1]));
+			}
+			return result;
+		}
+
+		public List<Long> getPacked(int field) {
+			List<Long> result = new ArrayList<Long>();
+			for (Object value : get(field)) {
+				int[] range = (int[]) value;
+				pos = range[0];
+				while (pos < range[0] + range[1]) {
+					result.add(readVarint());
+				}
+			}
+			return result;
+		}
+	}
+}
@@ -22,6 +22,7 @@ import org.geomajas.security.BaseAuthorization;
 import org.geomajas.security.SecurityContext;
 import org.geomajas.security.SecurityManager;
 import org.geomajas.security.allowall.AllowAllAuthorization;
+import org.geomajas.service.ConfigurationService;
 import org.geomajas.spring.ThreadScopeContextHolder;
 import org.junit.After;
 import org.junit.Test;
@@ -58,6 +59,12 @@ public class SecurityContextAreaAuthorizationTest {
 
 	@Autowired
 	private SecurityManager SecurityManager;
+
+	@Autowired
+	private SecurityAreaCache securityAreaCache;
+
+	@Autowired
+	private ConfigurationService configurationService;
 	
 	@After
 	public void fixSideEffects() {
@@ -168,6 +175,70 @@ public class SecurityContextAreaAuthorizationTest {
 		Assert.assertFalse(securityContext.isPartlyVisibleSufficient(LAYER_ID));
 	}
 
+	@Test
+	public void testVisibleAreaCached() throws Exception {
+		DefaultSecurityContext securityContext = (DefaultSecurityContext)this.securityContext;
+		List<Authentication> authentications = new ArrayList<Authentication>();
+		authentications.add(getAreaAuthentication(1));
+		securityContext.setAuthentications("token", authentications);
+		Geometry geometry = securityContext.getVisibleArea(LAYER_ID);
+		Assert.assertNotNull(geometry);
+
+		// same authorizations, other token
+		authentications = new ArrayList<Authentication>();
+		authentications.add(getAreaAuthentication(1));
+		securityContext.setAuthentications("other", authentications);
+		Assert.assertSame(geometry, securityContext.getVisibleArea(LAYER_ID));
+		Assert.assertNotNull(securityAreaCache.getPreparedArea(LAYER_ID, securityContext.getId(),
+				SecurityAreaCache.VISIBLE));
+		Assert.assertNotSame(geometry, securityContext.getUpdateAuthorizedArea(LAYER_ID));
+
+		// other authorizations
+		authentications = new ArrayList<Authentication>();
+		authentications.add(getAreaAuthentication(2));
+		securityContext.setAuthentications("token", authentications);
+		Assert.assertNotSame(geometry, securityContext.getVisibleArea(LAYER_ID));
+
+		// cleared when the layer is invalidated
+		String contextId = securityContext.getId();
+		Assert.assertNotNull(securityAreaCache.getArea(LAYER_ID, contextId, SecurityAreaCache.VISIBLE));
+		configurationService.invalidateLayer(LAYER_ID);
+		Assert.assertNull(securityAreaCache.getArea(LAYER_ID, contextId, SecurityAreaCache.VISIBLE));
+	}
+
+	@Test
+	public void testVisibleAreaNotCachedWithoutAuthorizationId() throws Exception {
+		DefaultSecurityContext securityContext = (DefaultSecurityContext)this.securityContext;
+		List<Authentication> authentications = new ArrayList<Authentication>();
+		authentications.add(getAnonymousAreaAuthentication(1));
+		securityContext.setAuthentications("token", authentications);
+		Geometry geometry = securityContext.getVisibleArea(LAYER_ID);
+		String contextId = securityContext.getId();
+		Assert.assertNull(securityAreaCache.getArea(LAYER_ID, contextId, SecurityAreaCache.VISIBLE));
+
+		// other area, but the same context id as the authorizations have no id
+		authentications = new ArrayList<Authentication>();
+		authentications.add(getAnonymousAreaAuthentication(2));
+		securityContext.setAuthentications("other", authentications);
+		Assert.assertEquals(contextId, securityContext.getId());
+		Geometry other = securityContext.getVisibleArea(LAYER_ID);
+		Assert.assertFalse(geometry.equalsExact(other));
+	}
+
+	private Authentication getAnonymousAreaAuthentication(int which) {
+		Authentication auth = new Authentication();
+		auth.setAuthorizations(new BaseAuthorization[]{new TestAuthorization(which) {
+
+			@Override
+			public String getId() {
+				return null;
+			}
+		}});
+		auth.setSecurityServiceId(SECURITY_SERVICE_ID);
+		auth.setUserId(USER_ID);
+		return auth;
+	}
+
 	private Authentication getAuthentication() {
 		Authentication auth = new Authentication();
 		auth.setAuthorizations(new BaseAuthorization[]{new AllowAllAuthorization()});
@@ -0,0 +1,131 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.internal.security;
+
+import java.util.Date;
+
+import junit.framework.Assert;
+
+import org.geomajas.security.Authentication;
+import org.geomajas.security.BaseAuthorization;
+import org.geomajas.security.SecurityContext;
+import org.geomajas.security.SecurityInfo;
+import org.geomajas.security.SecurityManager;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.annotation.DirtiesContext;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Tests for the authentication cache in the SecurityManager implementation class.
+ *
+ * @author agent
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "/org/geomajas/spring/geomajasContext.xml",
+		"/org/geomajas/internal/service/inMemorySecurityContext.xml" })
+@DirtiesContext
+public class SecurityManagerCacheTest {
+
+	private static final String TOKEN = "cachedToken";
+
+	private static final int CACHE_TIME = 60;
+
+	@Autowired
+	private SecurityManager securityManager;
+
+	@Autowired
+	private SecurityContext securityContext;
+
+	@Autowired
+	private SecurityInfo securityInfo;
+
+	@Autowired
+	private InMemorySecurityService securityService;
+
+	private int originalCacheTime;
+
+	@Before
+	public void enableCache() {
+		// caching is opt-in
+		originalCacheTime = securityInfo.getAuthenticationCacheTime();
+		securityInfo.setAuthenticationCacheTime(CACHE_TIME);
+	}
+
+	@After
+	public void clearSecurityContext() {
+		securityManager.clearSecurityContext();
+		securityManager.invalidateAuthentication(TOKEN);
+		securityService.clear();
+		securityInfo.setAuthenticationCacheTime(originalCacheTime);
+	}
+
+	@Test
+	public void testCached() {
+		securityService.put(TOKEN, createTestAuthentication());
+		Assert.assertTrue(securityManager.createSecurityContext(TOKEN));
+		Assert.assertEquals("user", securityContext.getUserId());
+		String id = securityContext.getId();
+
+		// still authenticated when the security service no longer knows the token
+		securityService.remove(TOKEN);
+		Assert.assertTrue(securityManager.createSecurityContext(TOKEN));
+		Assert.assertEquals(TOKEN, securityContext.getToken());
+		Assert.assertEquals("user", securityContext.getUserId());
+		Assert.assertEquals(id, securityContext.getId());
+		Assert.assertEquals(1, securityContext.getSecurityServiceResults().size());
+
+		// no longer authenticated once invalidated
+		securityManager.invalidateAuthentication(TOKEN);
+		Assert.assertFalse(securityManager.createSecurityContext(TOKEN));
+		Assert.assertNull(securityContext.getUserId());
+	}
+
+	@Test
+	public void testNotCached() {
+		securityInfo.setAuthenticationCacheTime(0);
+		securityService.put(TOKEN, createTestAuthentication());
+		Assert.assertTrue(securityManager.createSecurityContext(TOKEN));
+		securityService.remove(TOKEN);
+		Assert.assertFalse(securityManager.createSecurityContext(TOKEN));
+	}
+
+	@Test
+	public void testNotCachedBeyondValidity() throws Exception {
+		Authentication authentication = createTestAuthentication();
+		authentication.setValidUntil(new Date(System.currentTimeMillis() + 50));
+		securityService.put(TOKEN, authentication);
+		Assert.assertTrue(securityManager.createSecurityContext(TOKEN));
+		securityService.remove(TOKEN);
+		Thread.sleep(100);
+		Assert.assertFalse(securityManager.createSecurityContext(TOKEN));
+	}
+
+	@Test
+	public void testFailureNotCached() {
+		Assert.assertFalse(securityManager.createSecurityContext(TOKEN));
+		securityService.put(TOKEN, createTestAuthentication());
+		Assert.assertTrue(securityManager.createSecurityContext(TOKEN));
+	}
+
+	private Authentication createTestAuthentication() {
+		Authentication authentication = new Authentication();
+		authentication.setAuthorizations(new BaseAuthorization[] { new AllowTestAuthorization() });
+		authentication.setUserId("user");
+		return authentication;
+	}
+}
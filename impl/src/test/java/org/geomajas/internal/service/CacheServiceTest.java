@@ -60,4 +60,77 @@ public class CacheServiceTest {
 		String s2 = cacheService.get(CACHE_KEY, "myKey", String.class);
 		Assert.assertNull(s2);
 	}
+
+	@Test
+	public void testExpiredNotReturned() {
+		cacheService.put(CACHE_KEY, "expired", "Test string", -1L);
+		Assert.assertNull(cacheService.get(CACHE_KEY, "expired"));
+	}
+
+	@Test
+	public void testBounded() {
+		DefaultCacheService bounded = new DefaultCacheService();
+		bounded.setDefaultMaxSize(10);
+		for (int i = 0; i < 100; i++) {
+			bounded.put(CACHE_KEY, i, "value" + i);
+			// keep using the first entry, this should prevent it from being evicted
+			Assert.assertEquals("value0", bounded.get(CACHE_KEY, 0));
+		}
+		DefaultCacheService.CacheStatistics statistics = bounded.getStatistics(CACHE_KEY);
+		Assert.assertTrue(statistics.getSize() <= 10);
+		Assert.assertEquals(10, statistics.getMaxSize());
+		Assert.assertEquals(100 - statistics.getSize(), statistics.getEvictionCount());
+		Assert.assertEquals("value99", bounded.get(CACHE_KEY, 99));
+		Assert.assertNull(bounded.get(CACHE_KEY, 1));
+	}
+
+	@Test
+	public void testConcurrentClear() throws Exception {
+		final DefaultCacheService service = new DefaultCacheService();
+		service.setDefaultMaxSize(10);
+		Thread putter = new Thread() {
+
+			@Override
+			public void run() {
+				for (int i = 0; i < 100000; i++) {
+					service.put(CACHE_KEY, i % 20, "value");
+				}
+			}
+		};
+		putter.start();
+		while (putter.isAlive()) {
+			service.clear(CACHE_KEY);
+		}
+		// cleaning up should never hang, whatever the outcome of the race
+		Thread cleaner = new Thread() {
+
+			@Override
+			public void run() {
+				service.cleanUp();
+				service.put(CACHE_KEY, "myKey", "Test string");
+				service.cleanUp();
+			}
+		};
+		cleaner.start();
+		cleaner.join(5000);
+		Assert.assertFalse(cleaner.isAlive());
+		Assert.assertEquals("Test string", service.get(CACHE_KEY, "myKey"));
+	}
+
+	@Test
+	public void testStatistics() {
+		DefaultCacheService service = new DefaultCacheService();
+		Assert.assertNull(service.getStatistics(CACHE_KEY));
+		service.put(CACHE_KEY, "myKey", "Test string");
+		service.get(CACHE_KEY, "myKey");
+		service.get(CACHE_KEY, "otherKey");
+		service.put(CACHE_KEY, "expired", "Test string", -1L);
+		service.cleanUp();
+		DefaultCacheService.CacheStatistics statistics = service.getStatistics(CACHE_KEY);
+		Assert.assertEquals(1, statistics.getSize());
+		Assert.assertEquals(1, statistics.getHitCount());
+		Assert.assertEquals(1, statistics.getMissCount());
+		Assert.assertEquals(0, statistics.getEvictionCount());
+		Assert.assertEquals(1, statistics.getExpirationCount());
+	}
 }
@@ -1,9 +1,14 @@
 package org.geomajas.internal.service;
 
+import java.io.ByteArrayInputStream;
 import java.util.Arrays;
 
+import javax.imageio.ImageIO;
+
 import org.geomajas.layer.RasterLayer;
 import org.geomajas.service.LegendGraphicService;
+import org.geomajas.service.legend.DefaultLegendGraphicMetadata;
+import org.geomajas.service.legend.EncodedLegendGraphic;
 import org.geomajas.service.legend.LegendGraphicMetadata;
 import org.geomajas.sld.FeatureTypeStyleInfo;
 import org.geomajas.sld.NamedLayerInfo;
@@ -16,6 +21,7 @@ import org.jibx.runtime.BindingDirectory;
 import org.jibx.runtime.IBindingFactory;
 import org.jibx.runtime.IUnmarshallingContext;
 import org.jibx.runtime.JiBXException;
+import org.junit.Assert;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -36,6 +42,9 @@ public class LegendGraphicServiceTest {
 	@Autowired
 	private RasterLayer blueMarble;
 
+	@Autowired
+	private LegendGraphicCache legendGraphicCache;
+
 	private boolean writeImages = false;
 
 	@Test
@@ -82,6 +91,70 @@ public class LegendGraphicServiceTest {
 		imageAssert.assertEquals("layer-raster.png", service.getLegendGraphic(rasterMetadata), 0.01, writeImages);
 	}
 
+	@Test
+	public void testEncoded() throws Exception {
+		UserStyleInfo userStyle = loadUserStyle();
+		EncodedLegendGraphic point = service.getEncodedLegendGraphic(getRuleMetadata(userStyle, "point:1"), "png");
+		Assert.assertEquals("png", point.getFormat());
+		Assert.assertTrue(point.getETag().startsWith("\""));
+		imageAssert.assertEquals("point1-18x18.png", ImageIO.read(new ByteArrayInputStream(point.getContent())),
+				0.01, false);
+
+		// cached
+		Assert.assertSame(point, service.getEncodedLegendGraphic(getRuleMetadata(userStyle, "point:1"), "png"));
+
+		// the other rules of the style were rendered at the same time
+		EncodedLegendGraphic polygon =
+				service.getEncodedLegendGraphic(getRuleMetadata(userStyle, "polygon:1"), "png");
+		imageAssert.assertEquals("polygon1-18x18.png", ImageIO.read(new ByteArrayInputStream(polygon.getContent())),
+				0.01, false);
+		Assert.assertFalse(point.getETag().equals(polygon.getETag()));
+
+		// a different size is a different graphic
+		DefaultLegendGraphicMetadata larger = (DefaultLegendGraphicMetadata) getRuleMetadata(userStyle, "point:1");
+		larger.setWidth(19);
+		larger.setHeight(19);
+		EncodedLegendGraphic point19 = service.getEncodedLegendGraphic(larger, "png");
+		imageAssert.assertEquals("point1-19x19.png", ImageIO.read(new ByteArrayInputStream(point19.getContent())),
+				0.01, false);
+		Assert.assertFalse(point.getETag().equals(point19.getETag()));
+
+		// combined
+		EncodedLegendGraphic combined = service.getEncodedLegendGraphics(Arrays.asList(
+				getRuleMetadata(userStyle, "point:1"), getRuleMetadata(userStyle, "polygon:1")), "png");
+		Assert.assertSame(combined, service.getEncodedLegendGraphics(Arrays.asList(
+				getRuleMetadata(userStyle, "point:1"), getRuleMetadata(userStyle, "polygon:1")), "png"));
+
+		// invalidation renders again, same content gives the same ETag
+		legendGraphicCache.invalidateLayer(null);
+		EncodedLegendGraphic again = service.getEncodedLegendGraphic(getRuleMetadata(userStyle, "point:1"), "png");
+		Assert.assertNotSame(point, again);
+		Assert.assertEquals(point.getETag(), again.getETag());
+	}
+
+	private LegendGraphicMetadata getRuleMetadata(UserStyleInfo userStyle, String ruleName) {
+		DefaultLegendGraphicMetadata metadata = new DefaultLegendGraphicMetadata();
+		metadata.setUserStyle(userStyle);
+		for (RuleInfo rule : userStyle.getFeatureTypeStyleList().get(0).getRuleList()) {
+			if (ruleName.equals(rule.getName())) {
+				metadata.setRuleInfo(rule);
+			}
+		}
+		metadata.setWidth(18);
+		metadata.setHeight(18);
+		return metadata;
+	}
+
+	private UserStyleInfo loadUserStyle() throws JiBXException {
+		IBindingFactory bfact = BindingDirectory.getFactory(StyledLayerDescriptorInfo.class);
+		IUnmarshallingContext uctx = bfact.createUnmarshallingContext();
+		Object object = uctx.unmarshalDocument(
+				getClass().getResourceAsStream("/org/geomajas/testdata/sld/simple_rules.sld"), null);
+		StyledLayerDescriptorInfo sld = (StyledLayerDescriptorInfo) object;
+		NamedLayerInfo namedLayerInfo = sld.getChoiceList().get(0).getNamedLayer();
+		return namedLayerInfo.getChoiceList().get(0).getUserStyle();
+	}
+
 	public class SimpleRulesData implements LegendGraphicMetadata {
 
 		private int width;
@@ -0,0 +1,74 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.internal.service;
+
+import java.awt.Font;
+import java.awt.font.FontRenderContext;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Rectangle2D;
+
+import org.geomajas.configuration.FontStyleInfo;
+import org.geomajas.service.TextService;
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link TextServiceImpl}.
+ *
+ * @author agent
+ */
+public class TextServiceTest {
+
+	private static final String[] TEXTS = {"Belgium", "", "C\u00f4te d'Ivoire", "S\u00e3o Tom\u00e9 and Pr\u00edncipe",
+			"e\u0301t\u00e9", "\u0395\u03bb\u03bb\u03ac\u03b4\u03b1", "\u65e5\u672c", "W.M.M. ii"};
+
+	private final TextService textService = new TextServiceImpl();
+
+	@Test
+	public void testStringBounds() {
+		FontRenderContext frc = new FontRenderContext(new AffineTransform(), true, true);
+		for (String style : new String[] {null, "bold", "italic"}) {
+			for (int size : new int[] {8, 12, 17}) {
+				FontStyleInfo fontStyle = new FontStyleInfo();
+				fontStyle.setFamily("Verdana");
+				fontStyle.setStyle(style);
+				fontStyle.setSize(size);
+				Font font = textService.getFont(fontStyle);
+				for (String text : TEXTS) {
+					Rectangle2D expected = new Font(font.getFamily(), font.getStyle(), font.getSize())
+							.getStringBounds(text, frc);
+					// measure twice, the second time uses the cached advances
+					Assert.assertEquals(text, expected, textService.getStringBounds(text, fontStyle));
+					Assert.assertEquals(text, expected, textService.getStringBounds(text, fontStyle));
+				}
+			}
+		}
+	}
+
+	@Test
+	public void testFont() {
+		FontStyleInfo fontStyle = new FontStyleInfo();
+		fontStyle.setSize(-1);
+		Font font = textService.getFont(fontStyle);
+		Assert.assertEquals("Verdana", font.getName());
+		Assert.assertEquals(12, font.getSize());
+		Assert.assertEquals(Font.PLAIN, font.getStyle());
+		Assert.assertSame(font, textService.getFont(fontStyle));
+
+		fontStyle.setStyle(" Bold ");
+		fontStyle.setSize(10);
+		font = textService.getFont(fontStyle);
+		Assert.assertEquals(Font.BOLD, font.getStyle());
+		Assert.assertEquals(10, font.getSize());
+	}
+}
@@ -257,6 +257,14 @@ public class VectorLayerServiceTest {
 	}
 
 
+	@Test
+	public void testGetCount() throws Exception {
+		Assert.assertEquals(3, layerService.getCount(LAYER_ID, null));
+		Assert.assertEquals(2, layerService.getCount(LAYER_ID, filterService.createFidFilter(new String[]{"2", "3"})));
+		Assert.assertEquals(1, layerService.getCount(LAYER_ID,
+				filterService.createCompareFilter(STRING_ATTR, "==", "bean2")));
+	}
+
 	@Test
 	public void getTile()  throws Exception {
 		TileMetadata tileMetadata = getTileMetadata();
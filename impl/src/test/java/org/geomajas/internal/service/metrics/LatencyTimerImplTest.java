@@ -0,0 +1,107 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.metrics;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link LatencyTimerImpl}.
+ *
+ * @author agent
+ */
+public class LatencyTimerImplTest {
+
+	@Test
+	public void testBuckets() {
+		long previousUpper = -1;
+		for (int i = 0; i < 488; i++) {
+			long lower = LatencyTimerImpl.bucketLowerBound(i);
+			long upper = LatencyTimerImpl.bucketUpperBound(i);
+			Assert.assertEquals(previousUpper + 1, lower); // buckets are contiguous
+			Assert.assertEquals(i, LatencyTimerImpl.bucketIndex(lower));
+			Assert.assertEquals(i, LatencyTimerImpl.bucketIndex(upper));
+			Assert.assertTrue(upper - lower <= lower / 8); // relative error 12.5%
+			previousUpper = upper;
+		}
+		Assert.assertEquals(Long.MAX_VALUE, previousUpper);
+	}
+
+	@Test
+	public void testRecord() {
+		LatencyTimerImpl timer = new LatencyTimerImpl("test", "layer", "beans", "step", null);
+		Assert.assertEquals("test{layer=\"beans\",step=\"\"}", timer.getId());
+		Assert.assertEquals("", timer.getTags().get("step"));
+		Assert.assertEquals(0, timer.getPercentileNanos(50));
+		Assert.assertEquals(0, timer.getMeanNanos(), 0);
+		for (int i = 1; i <= 1000; i++) {
+			timer.record(i * 1000L);
+		}
+		timer.record(-1); // ignored
+		Assert.assertEquals(1000, timer.getCount());
+		Assert.assertEquals(500500000L, timer.getTotalNanos());
+		Assert.assertEquals(1000000L, timer.getMaxNanos());
+		Assert.assertEquals(500500.0, timer.getMeanNanos(), 0.001);
+		assertNear(500000, timer.getPercentileNanos(50));
+		assertNear(990000, timer.getPercentileNanos(99));
+		Assert.assertEquals(1000000L, timer.getPercentileNanos(100));
+		assertNear(1000, timer.getPercentileNanos(0));
+
+		timer.reset();
+		Assert.assertEquals(0, timer.getCount());
+		Assert.assertEquals(0, timer.getMaxNanos());
+		Assert.assertEquals(0, timer.getPercentileNanos(99));
+	}
+
+	@Test
+	public void testWindow() {
+		final long[] now = new long[1];
+		LatencyTimerImpl timer = new LatencyTimerImpl(60000L, "test") {
+
+			@Override
+			long nanoTime() {
+				return now[0];
+			}
+		};
+		timer.record(5000L);
+		now[0] = 30000L;
+		timer.record(1000L);
+		Assert.assertEquals(5000L, timer.getMaxNanos());
+		assertNear(5000, timer.getPercentileNanos(99));
+
+		// the first duration is no longer in the window
+		now[0] = 65000L;
+		Assert.assertEquals(1000L, timer.getMaxNanos());
+		assertNear(1000, timer.getPercentileNanos(99));
+		Assert.assertEquals(2, timer.getCount());
+		Assert.assertEquals(6000L, timer.getTotalNanos());
+
+		// nothing recorded in the window
+		now[0] = 200000L;
+		Assert.assertEquals(0, timer.getMaxNanos());
+		Assert.assertEquals(0, timer.getPercentileNanos(50));
+		timer.record(2000L);
+		Assert.assertEquals(2000L, timer.getMaxNanos());
+		Assert.assertEquals(3, timer.getCount());
+	}
+
+	@Test
+	public void testEscapeId() {
+		Assert.assertEquals("cache{category=\"a\\\"b\\\\c\"}", AbstractMetric.toId("cache", "category", "a\"b\\c"));
+		Assert.assertEquals("cache", AbstractMetric.toId("cache"));
+	}
+
+	private void assertNear(long expected, long actual) {
+		Assert.assertTrue("expected " + expected + " got " + actual,
+				actual >= expected && actual <= expected + expected / 8);
+	}
+}
@@ -0,0 +1,29 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.pipeline;
+
+import org.geomajas.layer.feature.attribute.StringAttribute;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.geomajas.service.pipeline.PipelineInterceptorCompletion;
+
+/**
+ * Pipeline interceptor for testing the completion notification.
+ *
+ * @author agent
+ */
+public class CompletionInterceptor extends ForTestInterceptor
+		implements PipelineInterceptorCompletion<StringAttribute> {
+
+	public void afterCompletion(PipelineContext context, StringAttribute response, boolean success) {
+		response.setValue(response.getValue() + (success ? "_success_" : "_failure_"));
+	}
+}
@@ -0,0 +1,41 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.internal.service.pipeline;
+
+import org.geomajas.global.ExceptionCode;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.feature.attribute.StringAttribute;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.geomajas.service.pipeline.PipelineStep;
+
+/**
+ * Pipeline step for testing which always fails.
+ *
+ * @author agent
+ */
+public class FailStep implements PipelineStep<StringAttribute> {
+
+	private String id;
+
+	public String getId() {
+		return id;
+	}
+
+	public void setId(String id) {
+		this.id = id;
+	}
+
+	public void execute(PipelineContext context, StringAttribute response) throws GeomajasException {
+		response.setValue(response.getValue() + "-FAIL");
+		throw new GeomajasException(ExceptionCode.UNEXPECTED_PROBLEM, "fail");
+	}
+}
@@ -73,4 +73,28 @@ public class PipelineContextTest {
 		Assert.assertTrue(context.containsKey("int"));
 		Assert.assertFalse(context.containsKey("other"));
 	}
+
+	@Test
+	public void testManyKeys() throws Exception {
+		PipelineContext context = new PipelineContextImpl();
+		for (int i = 0; i < 100; i++) {
+			Assert.assertNull(context.put("key" + i, i));
+		}
+		for (int i = 0; i < 100; i++) {
+			// keys are not interned, should still be found
+			Assert.assertTrue(context.containsKey("key" + i));
+			Assert.assertEquals(i, (int) context.get("key" + i, Integer.class));
+		}
+		Assert.assertEquals(7, context.put("key7", "seven"));
+		Assert.assertEquals("seven", context.get("key7"));
+		Assert.assertFalse(context.containsKey("key100"));
+	}
+
+	@Test
+	public void testNullKey() throws Exception {
+		PipelineContext context = new PipelineContextImpl();
+		Assert.assertNull(context.put(null, "value"));
+		Assert.assertFalse(context.containsKey(null));
+		Assert.assertNull(context.getOptional(null));
+	}
 }
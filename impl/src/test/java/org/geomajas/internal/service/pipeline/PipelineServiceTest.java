@@ -16,6 +16,8 @@ import junit.framework.Assert;
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.feature.attribute.StringAttribute;
+import org.geomajas.service.metrics.LatencyTimer;
+import org.geomajas.service.metrics.MetricsService;
 import org.geomajas.service.pipeline.PipelineContext;
 import org.geomajas.service.pipeline.PipelineInfo;
 import org.geomajas.service.pipeline.PipelineService;
@@ -38,6 +40,9 @@ public class PipelineServiceTest {
 	@Autowired
 	private PipelineService pipelineService;
 
+	@Autowired
+	private MetricsService metricsService;
+
 	@Test
 	public void testPipeline() throws Exception {
 		StringAttribute response = new StringAttribute("bla");
@@ -94,6 +99,21 @@ public class PipelineServiceTest {
 		Assert.assertEquals("stop-s1-STOP", response.getValue());
 	}
 
+	@Test
+	public void testUnregisteredPipeline() throws Exception {
+		PipelineInfo<StringAttribute> registered = pipelineService.getPipeline("pipelineTest", null);
+		Assert.assertSame(registered, pipelineService.getPipeline("pipelineTest", "unknownLayer"));
+
+		PipelineInfo<StringAttribute> pipelineInfo = new PipelineInfo<StringAttribute>();
+		pipelineInfo.setPipelineName("notRegistered");
+		pipelineInfo.setPipeline(registered.getPipeline());
+		StringAttribute response = new StringAttribute("bla");
+		PipelineContext context = pipelineService.createContext();
+		context.put("start", "start");
+		pipelineService.execute(pipelineInfo, context, response);
+		Assert.assertEquals("starts1s2s3", response.getValue());
+	}
+
 	@Test
 	public void extensionTest() throws Exception {
 		StringAttribute response = new StringAttribute("bla");
@@ -176,6 +196,27 @@ public class PipelineServiceTest {
 		Assert.assertEquals("bla_before_s2", response.getValue());
 	}
 
+	@Test
+	public void interceptorTestCompletion() throws Exception {
+		StringAttribute response = new StringAttribute("bla");
+		PipelineContext context = pipelineService.createContext();
+		pipelineService.execute("interceptorCompletion", "base", context, response);
+		Assert.assertEquals("bla_before_s1_after__success_s2", response.getValue());
+	}
+
+	@Test
+	public void interceptorTestCompletionFailure() throws Exception {
+		StringAttribute response = new StringAttribute("bla");
+		PipelineContext context = pipelineService.createContext();
+		try {
+			pipelineService.execute("interceptorCompletionFailure", "base", context, response);
+			Assert.fail("step should have failed");
+		} catch (GeomajasException ge) {
+			Assert.assertEquals(ExceptionCode.UNEXPECTED_PROBLEM, ge.getExceptionCode());
+		}
+		Assert.assertEquals("bla_before_s1-FAIL_failure_", response.getValue());
+	}
+
 	@Test
 	public void testComplexInterceptorCombination() throws Exception {
 		StringAttribute response = new StringAttribute("*");
@@ -183,4 +224,41 @@ public class PipelineServiceTest {
 		pipelineService.execute("complexPipeline", "base", context, response);
 		Assert.assertEquals("*([s1s2]{<s3>s4})", response.getValue());
 	}
+
+	@Test
+	public void testMetrics() throws Exception {
+		metricsService.reset();
+		StringAttribute response = new StringAttribute("bla");
+		pipelineService.execute("interceptorTest2", "base", pipelineService.createContext(), response);
+		Assert.assertEquals("blabeforei1beforei2s1afteri2s2afteri1", response.getValue());
+
+		LatencyTimer pipeline = metricsService.getLatencyTimer(MetricsService.PIPELINE,
+				MetricsService.TAG_PIPELINE, "interceptorTest2", MetricsService.TAG_LAYER, "base");
+		LatencyTimer i1 = getTimer(MetricsService.PIPELINE_INTERCEPTOR, MetricsService.TAG_INTERCEPTOR, "i1");
+		LatencyTimer i2 = getTimer(MetricsService.PIPELINE_INTERCEPTOR, MetricsService.TAG_INTERCEPTOR, "i2");
+		LatencyTimer s1 = getTimer(MetricsService.PIPELINE_STEP, MetricsService.TAG_STEP, "s1");
+		LatencyTimer s2 = getTimer(MetricsService.PIPELINE_STEP, MetricsService.TAG_STEP, "s2");
+		Assert.assertEquals(1, pipeline.getCount());
+		Assert.assertEquals(1, i1.getCount());
+		Assert.assertEquals(1, i2.getCount());
+		Assert.assertEquals(1, s1.getCount());
+		Assert.assertEquals(1, s2.getCount());
+		// interceptors include the time of their steps
+		Assert.assertTrue(pipeline.getTotalNanos() >= i1.getTotalNanos());
+		Assert.assertTrue(i1.getTotalNanos() >= i2.getTotalNanos() + s2.getTotalNanos());
+		Assert.assertTrue(i2.getTotalNanos() >= s1.getTotalNanos());
+
+		metricsService.setEnabled(false);
+		try {
+			pipelineService.execute("interceptorTest2", "base", pipelineService.createContext(), response);
+			Assert.assertEquals(1, pipeline.getCount());
+		} finally {
+			metricsService.setEnabled(true);
+		}
+	}
+
+	private LatencyTimer getTimer(String name, String tag, String id) {
+		return metricsService.getLatencyTimer(name, MetricsService.TAG_PIPELINE, "interceptorTest2",
+				MetricsService.TAG_LAYER, "base", tag, id);
+	}
 }
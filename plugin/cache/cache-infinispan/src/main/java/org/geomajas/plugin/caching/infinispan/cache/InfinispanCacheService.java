@@ -11,18 +11,33 @@
 
 package org.geomajas.plugin.caching.infinispan.cache;
 
+import org.geomajas.plugin.caching.service.CacheEvictionListener;
+import org.geomajas.plugin.caching.service.CacheEvictionNotifier;
 import org.geomajas.plugin.caching.service.CacheService;
 import org.infinispan.Cache;
+import org.infinispan.notifications.Listener;
+import org.infinispan.notifications.cachelistener.annotation.CacheEntriesEvicted;
+import org.infinispan.notifications.cachelistener.event.CacheEntriesEvictedEvent;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Geomajas cache based on infinispan.
+ * <p/>
+ * Eviction listeners are notified when entries are evicted from a cache without store. When the cache has a store
+ * (second level cache), evicted entries remain available in the store.
  *
  * @author Joachim Van der Auwera
  */
-public class InfinispanCacheService implements CacheService {
+public class InfinispanCacheService implements CacheService, CacheEvictionNotifier {
 
 	private final Cache<String, Object> cache;
 
+	private final List<CacheEvictionListener> evictionListeners = new CopyOnWriteArrayList<CacheEvictionListener>();
+
+	private boolean evictionListening;
+
 	/**
 	 * Create a {@link InfinispanCacheService}.
 	 *
@@ -66,4 +81,33 @@ public class InfinispanCacheService implements CacheService {
 	public void drop() {
 		clear();
 	}
+
+	@Override
+	public synchronized void addEvictionListener(CacheEvictionListener listener) {
+		evictionListeners.add(listener);
+		if (!evictionListening && !cache.getCacheConfiguration().persistence().usingStores()) {
+			cache.addListener(new EvictionListener());
+			evictionListening = true;
+		}
+	}
+
+	/**
+	 * Infinispan listener which passes evicted keys to the eviction listeners.
+	 *
+	 * @author agent
+	 */
+	@Listener
+	public class EvictionListener {
+
+		@CacheEntriesEvicted
+		public void evicted(CacheEntriesEvictedEvent<String, Object> event) {
+			if (!event.isPre()) {
+				for (String key : event.getEntries().keySet()) {
+					for (CacheEvictionListener listener : evictionListeners) {
+						listener.evicted(key);
+					}
+				}
+			}
+		}
+	}
 }
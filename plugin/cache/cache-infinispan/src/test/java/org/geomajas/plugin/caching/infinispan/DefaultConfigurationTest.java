@@ -148,4 +148,20 @@ public class DefaultConfigurationTest {
 		Assert.assertNull(cacheManager.get(otherLayer, CacheCategory.FEATURE, key));
 		Assert.assertEquals(data, cacheManager.get(layer, CacheCategory.REBUILD, key));
 	}
+
+	@Test
+	public void invalidateOutsideEnvelope() throws Exception {
+		String data = "data";
+		String key = "123";
+		Envelope otherEnvelope = new Envelope(100, 110, 100, 110);
+		cacheManager.put(layer, CacheCategory.FEATURE, key, data, envelope);
+		cacheManager.put(layer, CacheCategory.TILE, key, data, envelope);
+		cacheManager.invalidate(layer, otherEnvelope);
+		// a changed feature may match the filter of any cached feature list
+		Assert.assertNull(cacheManager.get(layer, CacheCategory.FEATURE, key));
+		// tiles are only invalidated when they overlap
+		Assert.assertEquals(data, cacheManager.get(layer, CacheCategory.TILE, key));
+		cacheManager.invalidate(layer, overlappingEnvelope);
+		Assert.assertNull(cacheManager.get(layer, CacheCategory.TILE, key));
+	}
 }
@@ -0,0 +1,74 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.caching.infinispan.cache;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.geomajas.plugin.caching.service.CacheEvictionListener;
+import org.infinispan.configuration.cache.ConfigurationBuilder;
+import org.infinispan.configuration.global.GlobalConfigurationBuilder;
+import org.infinispan.eviction.EvictionStrategy;
+import org.infinispan.manager.DefaultCacheManager;
+import org.infinispan.manager.EmbeddedCacheManager;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Test for {@link InfinispanCacheService}.
+ *
+ * @author agent
+ */
+public class InfinispanCacheServiceTest {
+
+	private static final int MAX_ENTRIES = 10;
+
+	private EmbeddedCacheManager manager;
+
+	@Before
+	public void init() {
+		GlobalConfigurationBuilder global = new GlobalConfigurationBuilder();
+		global.globalJmxStatistics().allowDuplicateDomains(true);
+		manager = new DefaultCacheManager(global.build());
+		ConfigurationBuilder builder = new ConfigurationBuilder();
+		builder.eviction().strategy(EvictionStrategy.LRU).maxEntries(MAX_ENTRIES);
+		manager.defineConfiguration("evicting", builder.build());
+	}
+
+	@After
+	public void stop() {
+		manager.stop();
+	}
+
+	@Test
+	public void testEvictionListener() {
+		InfinispanCacheService cacheService =
+				new InfinispanCacheService(manager.<String, Object>getCache("evicting"));
+		final List<String> evicted = Collections.synchronizedList(new ArrayList<String>());
+		cacheService.addEvictionListener(new CacheEvictionListener() {
+
+			public void evicted(String key) {
+				evicted.add(key);
+			}
+		});
+		for (int i = 0; i < 10 * MAX_ENTRIES; i++) {
+			cacheService.put("key" + i, "value" + i);
+		}
+		Assert.assertFalse(evicted.isEmpty());
+		for (String key : evicted) {
+			Assert.assertNull(cacheService.get(key));
+		}
+	}
+}
@@ -0,0 +1,124 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.caching.cache;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.layer.Layer;
+import org.geomajas.plugin.caching.service.CacheCategory;
+import org.geomajas.plugin.caching.service.CacheFactory;
+import org.geomajas.plugin.caching.service.CacheService;
+
+import java.io.File;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link CacheFactory} which creates persistent {@link FileCacheService} instances, the cached content survives a
+ * restart of the application.
+ * <p/>
+ * Each layer/category combination is stored in a subdirectory of the configured directory. To allow the entries to
+ * be invalidated after a restart, the index for the cache should be created using a
+ * {@link org.geomajas.plugin.caching.index.FileCacheIndexFactory} which refers to this factory.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public class FileCacheFactory implements CacheFactory {
+
+	private static final long DEFAULT_MAX_SIZE = 1024L * 1024L * 1024L; // 1GB
+
+	private static final String NO_LAYER = "_";
+
+	private final ConcurrentMap<String, FileCacheService> caches = new ConcurrentHashMap<String, FileCacheService>();
+
+	private File directory = new File(System.getProperty("java.io.tmpdir"), "geomajas-cache");
+
+	private long maxSize = DEFAULT_MAX_SIZE;
+
+	/**
+	 * Get the directory in which the caches are stored.
+	 *
+	 * @return cache directory
+	 */
+	public File getDirectory() {
+		return directory;
+	}
+
+	/**
+	 * Set the directory in which the caches are stored. Each layer/category combination uses a subdirectory. Default
+	 * "geomajas-cache" in the temporary directory, this should be changed for the cache to survive a reboot.
+	 *
+	 * @param directory cache directory
+	 */
+	public void setDirectory(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Get the maximum size for each cache (layer/category combination).
+	 *
+	 * @return maximum size in bytes
+	 */
+	public long getMaxSize() {
+		return maxSize;
+	}
+
+	/**
+	 * Set the maximum size for each cache (layer/category combination). When the total size of the entries is larger,
+	 * the least recently used entries are removed. Default 1GB.
+	 *
+	 * @param maxSize maximum size in bytes
+	 */
+	public void setMaxSize(long maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	@Override
+	public CacheService create(Layer layer, CacheCategory category) {
+		return getCacheService(layer, category);
+	}
+
+	/**
+	 * Get the cache for a layer/category combination. The same instance is returned for all calls, it is both the
+	 * cache and the index for the cache.
+	 *
+	 * @param layer layer to get cache for
+	 * @param category category to get cache for
+	 * @return cache instance
+	 */
+	public FileCacheService getCacheService(Layer layer, CacheCategory category) {
+		String name = (null == layer ? NO_LAYER : encode(layer.getId())) + File.separator + category.toString();
+		FileCacheService cache = caches.get(name);
+		if (null == cache) {
+			synchronized (caches) {
+				cache = caches.get(name);
+				if (null == cache) {
+					cache = new FileCacheService(new File(directory, name), maxSize);
+					caches.put(name, cache);
+				}
+			}
+		}
+		return cache;
+	}
+
+	private String encode(String name) {
+		try {
+			return URLEncoder.encode(name, "UTF-8");
+		} catch (UnsupportedEncodingException uee) {
+			throw new IllegalStateException("UTF-8 not available", uee);
+		}
+	}
+}
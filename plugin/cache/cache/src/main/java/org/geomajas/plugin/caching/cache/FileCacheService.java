@@ -0,0 +1,529 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.caching.cache;
+
+import com.vividsolutions.jts.geom.Envelope;
+import org.geomajas.plugin.caching.index.QuadTreeIndexService;
+import org.geomajas.plugin.caching.service.CacheIndexService;
+import org.geomajas.plugin.caching.service.CacheService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamClass;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache which stores each entry in a file, so the cached content survives a restart.
+ * <p/>
+ * The cache is also the {@link CacheIndexService} for its entries. The envelope of each entry is stored in the entry
+ * file, the spatial index is rebuilt from the files when the cache is opened. Entries are written to a temporary
+ * file which is moved in place, so readers never see a partially written entry. Large entries are read using a
+ * memory mapped buffer. When the total size of the entries exceeds the maximum size, the least recently used
+ * entries are removed.
+ * <p/>
+ * Only {@link Serializable} objects are cached, other objects are ignored.
+ *
+ * @author agent
+ */
+public class FileCacheService implements CacheService, CacheIndexService {
+
+	private static final int MAGIC = 0x474d4331; // "GMC1"
+
+	private static final String SUFFIX = ".entry";
+
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private static final int MAP_THRESHOLD = 64 * 1024;
+
+	private static final int BUFFER_SIZE = 8 * 1024;
+
+	private static final int BYTE_MASK = 0xff;
+
+	private static final int SUBDIRECTORY_LENGTH = 2;
+
+	private final Logger log = LoggerFactory.getLogger(FileCacheService.class);
+
+	private final File directory;
+
+	private final long maxSize;
+
+	// no maximum, the envelopes are stored with the entries and the number of entries is limited by maxSize
+	private final QuadTreeIndexService index = new QuadTreeIndexService(Integer.MAX_VALUE);
+
+	// access ordered for LRU eviction, guarded by "this"
+	private final LinkedHashMap<String, FileEntry> entries = new LinkedHashMap<String, FileEntry>(16, 0.75f, true);
+
+	// envelopes which are put in the index before the object is put in the cache, guarded by "this"
+	private final Map<String, Envelope> pendingEnvelopes = new HashMap<String, Envelope>();
+
+	private long size;
+
+	/**
+	 * Create a file cache, reading the existing entries from the directory.
+	 *
+	 * @param directory directory to store the entries
+	 * @param maxSize maximum total size of the entries in bytes
+	 */
+	public FileCacheService(File directory, long maxSize) {
+		this.directory = directory;
+		this.maxSize = maxSize;
+		if (!directory.isDirectory() && !directory.mkdirs()) {
+			log.error("Cannot create cache directory " + directory.getAbsolutePath());
+		}
+		load();
+	}
+
+	@Override
+	public void put(String key, Object object) {
+		if (!(object instanceof Serializable)) {
+			log.warn("Object for key {} is not serializable, not cached", key);
+			return;
+		}
+		Envelope envelope;
+		synchronized (this) {
+			envelope = pendingEnvelopes.remove(key);
+			FileEntry current = entries.get(key);
+			if (null == envelope && null != current) {
+				envelope = current.envelope;
+			}
+		}
+		File file = getFile(key);
+		File temp = null;
+		try {
+			File parent = file.getParentFile();
+			if (!parent.isDirectory() && !parent.mkdirs()) {
+				throw new IOException("Cannot create directory " + parent.getAbsolutePath());
+			}
+			temp = File.createTempFile(file.getName(), TEMP_SUFFIX, parent);
+			write(temp, key, envelope, object);
+			long length = temp.length();
+			synchronized (this) {
+				move(temp, file);
+				FileEntry previous = entries.put(key, new FileEntry(file, length, envelope));
+				if (null != previous) {
+					size -= previous.length;
+				}
+				size += length;
+				index.put(key, envelope);
+				evict();
+			}
+		} catch (IOException ioe) {
+			log.warn("Could not write cache entry for key " + key, ioe);
+			if (null != temp && temp.exists() && !temp.delete()) {
+				log.warn("Could not delete temporary file " + temp.getAbsolutePath());
+			}
+		}
+	}
+
+	@Override
+	public void put(String key, Envelope envelope) {
+		synchronized (this) {
+			FileEntry entry = entries.get(key);
+			if (null == entry) {
+				// normally called before the object is put in the cache
+				pendingEnvelopes.put(key, envelope);
+			} else {
+				entry.envelope = envelope;
+				index.put(key, envelope);
+			}
+		}
+	}
+
+	@Override
+	public Object get(String key) {
+		FileEntry entry;
+		synchronized (this) {
+			entry = entries.get(key);
+		}
+		if (null == entry) {
+			return null;
+		}
+		try {
+			return read(entry.file, key);
+		} catch (IOException ioe) {
+			log.warn("Could not read cache entry for key " + key + ", removing", ioe);
+			remove(key, entry);
+		} catch (ClassNotFoundException cnfe) {
+			log.warn("Could not read cache entry for key " + key + ", removing", cnfe);
+			remove(key, entry);
+		}
+		return null;
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public <TYPE> TYPE get(String key, Class<TYPE> type) {
+		Object res = get(key);
+		if (type.isInstance(res)) {
+			return (TYPE) res;
+		}
+		return null;
+	}
+
+	@Override
+	public synchronized void remove(String key) {
+		pendingEnvelopes.remove(key);
+		FileEntry entry = entries.remove(key);
+		if (null != entry) {
+			delete(entry);
+		}
+		index.remove(key);
+	}
+
+	/**
+	 * Remove an entry which could not be read, unless it was replaced in the meantime.
+	 *
+	 * @param key key
+	 * @param entry entry which could not be read
+	 */
+	private synchronized void remove(String key, FileEntry entry) {
+		if (entries.get(key) == entry) {
+			remove(key);
+		}
+	}
+
+	@Override
+	public synchronized void clear() {
+		for (FileEntry entry : entries.values()) {
+			delete(entry);
+		}
+		entries.clear();
+		pendingEnvelopes.clear();
+		index.clear();
+	}
+
+	@Override
+	public void drop() {
+		clear();
+	}
+
+	@Override
+	public List<String> getOverlappingKeys(Envelope envelope) {
+		return index.getOverlappingKeys(envelope);
+	}
+
+	/**
+	 * Get the number of entries in the cache.
+	 *
+	 * @return number of entries
+	 */
+	public synchronized int getCount() {
+		return entries.size();
+	}
+
+	/**
+	 * Get the total size of the entries in the cache.
+	 *
+	 * @return size in bytes
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	private void evict() {
+		Iterator<Map.Entry<String, FileEntry>> it = entries.entrySet().iterator();
+		while (size > maxSize && it.hasNext()) {
+			Map.Entry<String, FileEntry> eldest = it.next();
+			log.debug("Evicting {}", eldest.getKey());
+			it.remove();
+			delete(eldest.getValue());
+			index.remove(eldest.getKey());
+		}
+	}
+
+	private void delete(FileEntry entry) {
+		size -= entry.length;
+		if (entry.file.exists() && !entry.file.delete()) {
+			log.warn("Could not delete cache file " + entry.file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Read the headers of the existing entries. The least recently modified entries are considered least recently
+	 * used.
+	 */
+	private synchronized void load() {
+		List<File> files = new ArrayList<File>();
+		File[] subdirectories = directory.listFiles();
+		if (null != subdirectories) {
+			for (File subdirectory : subdirectories) {
+				File[] entryFiles = subdirectory.listFiles();
+				if (null != entryFiles) {
+					for (File file : entryFiles) {
+						if (file.getName().endsWith(SUFFIX)) {
+							files.add(file);
+						} else if (file.getName().endsWith(TEMP_SUFFIX) && !file.delete()) {
+							// left behind by an interrupted write
+							log.warn("Could not delete temporary file " + file.getAbsolutePath());
+						}
+					}
+				}
+			}
+		}
+		Collections.sort(files, new Comparator<File>() {
+
+			public int compare(File left, File right) {
+				long diff = left.lastModified() - right.lastModified();
+				return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+			}
+		});
+		for (File file : files) {
+			DataInputStream in = null;
+			try {
+				in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+				String key = readKey(in);
+				Envelope envelope = readEnvelope(in);
+				FileEntry entry = new FileEntry(file, file.length(), envelope);
+				entries.put(key, entry);
+				size += entry.length;
+				index.put(key, envelope);
+			} catch (IOException ioe) {
+				log.warn("Invalid cache file " + file.getAbsolutePath() + ", removing", ioe);
+				if (!file.delete()) {
+					log.warn("Could not delete cache file " + file.getAbsolutePath());
+				}
+			} finally {
+				close(in);
+			}
+		}
+		log.info("Opened file cache {} with {} entries, {} bytes", new Object[] {directory, entries.size(), size});
+		evict();
+	}
+
+	private void write(File file, String key, Envelope envelope, Object object) throws IOException {
+		OutputStream out = new BufferedOutputStream(new FileOutputStream(file), BUFFER_SIZE);
+		try {
+			DataOutputStream data = new DataOutputStream(out);
+			data.writeInt(MAGIC);
+			data.writeUTF(key);
+			data.writeBoolean(null != envelope);
+			if (null != envelope) {
+				data.writeDouble(envelope.getMinX());
+				data.writeDouble(envelope.getMaxX());
+				data.writeDouble(envelope.getMinY());
+				data.writeDouble(envelope.getMaxY());
+			}
+			ObjectOutputStream objects = new ObjectOutputStream(data);
+			objects.writeObject(object);
+			objects.flush();
+		} finally {
+			out.close();
+		}
+	}
+
+	private Object read(File file, String key) throws IOException, ClassNotFoundException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			long length = channel.size();
+			ByteBuffer buffer;
+			if (length >= MAP_THRESHOLD) {
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+			} else {
+				// mapping small files is more expensive than reading them
+				buffer = ByteBuffer.allocate((int) length);
+				while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+					// keep reading
+				}
+				buffer.flip();
+			}
+			DataInputStream in = new DataInputStream(new ByteBufferInputStream(buffer));
+			if (!key.equals(readKey(in))) {
+				return null; // hash collision, different key
+			}
+			readEnvelope(in);
+			return new ContextClassLoaderObjectInputStream(in).readObject();
+		} finally {
+			raf.close();
+		}
+	}
+
+	private String readKey(DataInputStream in) throws IOException {
+		if (MAGIC != in.readInt()) {
+			throw new IOException("Not a cache file");
+		}
+		return in.readUTF();
+	}
+
+	private Envelope readEnvelope(DataInputStream in) throws IOException {
+		if (in.readBoolean()) {
+			double minX = in.readDouble();
+			double maxX = in.readDouble();
+			double minY = in.readDouble();
+			double maxY = in.readDouble();
+			return new Envelope(minX, maxX, minY, maxY);
+		}
+		return null;
+	}
+
+	/**
+	 * Move the file to its target, replacing an existing file. The rename is atomic on most platforms, when the
+	 * target cannot be replaced (Windows), it is deleted first.
+	 */
+	private void move(File source, File target) throws IOException {
+		if (!source.renameTo(target)) {
+			if (target.exists() && !target.delete()) {
+				throw new IOException("Cannot replace " + target.getAbsolutePath());
+			}
+			if (!source.renameTo(target)) {
+				throw new IOException("Cannot rename " + source.getAbsolutePath() + " to " + target.getAbsolutePath());
+			}
+		}
+	}
+
+	/**
+	 * Get the file for a key. Keys can be long (URLs) and contain any character, so the file name is a hash of the
+	 * key. The files are spread over subdirectories to keep the directories small.
+	 */
+	private File getFile(String key) {
+		String hash = hash(key);
+		return new File(new File(directory, hash.substring(0, SUBDIRECTORY_LENGTH)), hash + SUFFIX);
+	}
+
+	private static String hash(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-1").digest(key.getBytes("UTF-8"));
+			StringBuilder sb = new StringBuilder(digest.length * 2);
+			for (byte b : digest) {
+				String hex = Integer.toHexString(b & BYTE_MASK);
+				if (hex.length() < 2) {
+					sb.append('0');
+				}
+				sb.append(hex);
+			}
+			return sb.toString();
+		} catch (NoSuchAlgorithmException nsae) {
+			throw new IllegalStateException("SHA-1 not available", nsae);
+		} catch (IOException ioe) {
+			throw new IllegalStateException("UTF-8 not available", ioe);
+		}
+	}
+
+	private void close(InputStream in) {
+		if (null != in) {
+			try {
+				in.close();
+			} catch (IOException ioe) {
+				// ignore, closing anyway
+			}
+		}
+	}
+
+	/**
+	 * Cache entry administration.
+	 *
+	 * @author agent
+	 */
+	private static final class FileEntry {
+
+		private final File file;
+
+		private final long length;
+
+		private Envelope envelope;
+
+		private FileEntry(File file, long length, Envelope envelope) {
+			this.file = file;
+			this.length = length;
+			this.envelope = envelope;
+		}
+	}
+
+	/**
+	 * {@link InputStream} which reads from a {@link ByteBuffer}.
+	 *
+	 * @author agent
+	 */
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & BYTE_MASK : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (0 == length) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			int count = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, count);
+			return count;
+		}
+
+		@Override
+		public int available() {
+			return buffer.remaining();
+		}
+	}
+
+	/**
+	 * {@link ObjectInputStream} which resolves classes using the context class loader, the cached objects may be
+	 * defined in a plug-in or the application.
+	 *
+	 * @author agent
+	 */
+	private static final class ContextClassLoaderObjectInputStream extends ObjectInputStream {
+
+		private ContextClassLoaderObjectInputStream(InputStream in) throws IOException {
+			super(in);
+		}
+
+		@Override
+		protected Class<?> resolveClass(ObjectStreamClass desc) throws IOException, ClassNotFoundException {
+			ClassLoader classLoader = Thread.currentThread().getContextClassLoader();
+			if (null != classLoader) {
+				try {
+					return Class.forName(desc.getName(), false, classLoader);
+				} catch (ClassNotFoundException cnfe) {
+					// fall back to the default resolution
+				}
+			}
+			return super.resolveClass(desc);
+		}
+	}
+}
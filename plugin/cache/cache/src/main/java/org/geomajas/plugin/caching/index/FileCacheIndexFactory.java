@@ -0,0 +1,60 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.caching.index;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.layer.Layer;
+import org.geomajas.plugin.caching.cache.FileCacheFactory;
+import org.geomajas.plugin.caching.service.CacheCategory;
+import org.geomajas.plugin.caching.service.CacheIndexFactory;
+import org.geomajas.plugin.caching.service.CacheIndexService;
+
+import javax.validation.constraints.NotNull;
+
+/**
+ * Index for the persistent caches which are created using a {@link FileCacheFactory}. The envelopes are stored with
+ * the cache entries, so invalidation keeps working after a restart.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public class FileCacheIndexFactory implements CacheIndexFactory {
+
+	@NotNull
+	private FileCacheFactory cacheFactory;
+
+	/**
+	 * Get the factory which creates the indexed caches.
+	 *
+	 * @return file cache factory
+	 */
+	public FileCacheFactory getCacheFactory() {
+		return cacheFactory;
+	}
+
+	/**
+	 * Set the factory which creates the indexed caches. This should be the same factory as used in the
+	 * {@link org.geomajas.plugin.caching.service.CacheServiceInfo} for the layer/category.
+	 *
+	 * @param cacheFactory file cache factory
+	 */
+	public void setCacheFactory(FileCacheFactory cacheFactory) {
+		this.cacheFactory = cacheFactory;
+	}
+
+	@Override
+	public CacheIndexService create(Layer layer, CacheCategory category) {
+		return cacheFactory.getCacheService(layer, category);
+	}
+}
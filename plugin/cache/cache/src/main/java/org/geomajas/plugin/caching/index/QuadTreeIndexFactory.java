@@ -0,0 +1,48 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.caching.index;
+
+import org.geomajas.annotation.FutureApi;
+import org.geomajas.layer.Layer;
+import org.geomajas.plugin.caching.service.CacheCategory;
+import org.geomajas.plugin.caching.service.CacheIndexFactory;
+import org.geomajas.plugin.caching.service.CacheIndexService;
+
+/**
+ * Create a real spatial index, based on a quadtree. Only entries which overlap with the invalidated area are
+ * invalidated.
+ * <p/>
+ * The index only lives in memory. Persistent caches which use this index are cleared when they are first used, as
+ * the entries which survived a restart are not indexed.
+ *
+ * @author agent
+ */
+@FutureApi
+public class QuadTreeIndexFactory implements CacheIndexFactory {
+
+	private int maxEntries = QuadTreeIndexService.DEFAULT_MAX_ENTRIES;
+
+	/**
+	 * Set the maximum number of keys in each index. When the index is full, the next invalidation invalidates all
+	 * entries. Default is 10000.
+	 *
+	 * @param maxEntries maximum number of keys in the index
+	 */
+	public void setMaxEntries(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	@Override
+	public CacheIndexService create(Layer layer, CacheCategory category) {
+		return new QuadTreeIndexService(maxEntries);
+	}
+}
@@ -0,0 +1,202 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.caching.index;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
+import org.geomajas.plugin.caching.service.CacheIndexService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Spatial index implementation which uses a quadtree to determine the keys which overlap with an envelope.
+ * <p/>
+ * Unlike an STR-tree, the quadtree can be updated after creation, which is needed as cache entries are added and
+ * removed all the time. Access is guarded by a read/write lock, so lookups can happen concurrently.
+ * <p/>
+ * Entries which are put without envelope have an unknown extent and are always considered to be overlapping.
+ * <p/>
+ * The index only lives in memory and is not informed about all entries which disappear from the cache (for example
+ * because they expire). To keep the memory use bounded, the number of indexed keys is limited. When the limit is
+ * reached, the index stops tracking the individual keys and the next invalidation invalidates all entries.
+ *
+ * @author agent
+ */
+public class QuadTreeIndexService implements CacheIndexService {
+
+	/** Default maximum number of keys in the index. */
+	public static final int DEFAULT_MAX_ENTRIES = 10000;
+
+	private final Logger log = LoggerFactory.getLogger(QuadTreeIndexService.class);
+
+	private final int maxEntries;
+
+	private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+	private Quadtree tree = new Quadtree();
+
+	private final Map<String, IndexEntry> entries = new HashMap<String, IndexEntry>();
+
+	private final Set<String> unboundedKeys = new HashSet<String>();
+
+	private boolean overflow;
+
+	/**
+	 * Create an index with the default maximum number of keys.
+	 */
+	public QuadTreeIndexService() {
+		this(DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Create an index.
+	 *
+	 * @param maxEntries maximum number of keys in the index
+	 */
+	public QuadTreeIndexService(int maxEntries) {
+		this.maxEntries = maxEntries;
+	}
+
+	@Override
+	public void put(String key, Envelope envelope) {
+		lock.writeLock().lock();
+		try {
+			removeInternal(key);
+			if (overflow) {
+				return; // all entries are invalidated on the next invalidation anyway
+			}
+			if (entries.size() + unboundedKeys.size() >= maxEntries) {
+				log.debug("Index is full, all entries will be invalidated on the next invalidation");
+				tree = new Quadtree();
+				entries.clear();
+				unboundedKeys.clear();
+				overflow = true;
+			} else if (null == envelope || envelope.isNull()) {
+				unboundedKeys.add(key);
+			} else {
+				IndexEntry entry = new IndexEntry(key, new Envelope(envelope));
+				entries.put(key, entry);
+				tree.insert(entry.getEnvelope(), entry);
+			}
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void remove(String key) {
+		lock.writeLock().lock();
+		try {
+			removeInternal(key);
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		lock.writeLock().lock();
+		try {
+			tree = new Quadtree();
+			entries.clear();
+			unboundedKeys.clear();
+			overflow = false;
+		} finally {
+			lock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void drop() {
+		clear();
+	}
+
+	@Override
+	public List<String> getOverlappingKeys(Envelope envelope) {
+		if (null == envelope) {
+			return ALL_KEYS;
+		}
+		lock.readLock().lock();
+		try {
+			if (overflow) {
+				return ALL_KEYS;
+			}
+			List<String> keys = new ArrayList<String>(unboundedKeys);
+			// the quadtree query may return false positives, check the actual envelopes
+			for (Object candidate : tree.query(envelope)) {
+				IndexEntry entry = (IndexEntry) candidate;
+				if (entry.getEnvelope().intersects(envelope)) {
+					keys.add(entry.getKey());
+				}
+			}
+			return keys;
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Get the number of keys in the index.
+	 *
+	 * @return number of indexed keys
+	 */
+	public int size() {
+		lock.readLock().lock();
+		try {
+			return entries.size() + unboundedKeys.size();
+		} finally {
+			lock.readLock().unlock();
+		}
+	}
+
+	private void removeInternal(String key) {
+		IndexEntry entry = entries.remove(key);
+		if (null != entry) {
+			tree.remove(entry.getEnvelope(), entry);
+		}
+		unboundedKeys.remove(key);
+	}
+
+	/**
+	 * Entry in the quadtree, combination of key and envelope.
+	 *
+	 * @author agent
+	 */
+	private static final class IndexEntry {
+
+		private final String key;
+
+		private final Envelope envelope;
+
+		private IndexEntry(String key, Envelope envelope) {
+			this.key = key;
+			this.envelope = envelope;
+		}
+
+		public String getKey() {
+			return key;
+		}
+
+		public Envelope getEnvelope() {
+			return envelope;
+		}
+	}
+}
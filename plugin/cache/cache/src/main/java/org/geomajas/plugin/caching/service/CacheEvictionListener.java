@@ -0,0 +1,31 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.caching.service;
+
+import org.geomajas.annotation.FutureApi;
+
+/**
+ * Listener which is notified when a {@link CacheService} drops an entry by itself, for example because of eviction.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@FutureApi(allMethods = true)
+public interface CacheEvictionListener {
+
+	/**
+	 * The entry for the key is no longer available in the cache.
+	 *
+	 * @param key key of the entry
+	 */
+	void evicted(String key);
+}
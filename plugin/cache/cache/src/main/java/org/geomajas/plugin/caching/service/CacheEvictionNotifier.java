@@ -0,0 +1,33 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.caching.service;
+
+import org.geomajas.annotation.FutureApi;
+
+/**
+ * Optional interface for a {@link CacheService} which can notify when entries are dropped without being removed
+ * through the service (for example because of eviction). This allows the {@link CacheIndexService} to forget these
+ * entries.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@FutureApi(allMethods = true)
+public interface CacheEvictionNotifier {
+
+	/**
+	 * Add a listener which is notified when entries are evicted.
+	 *
+	 * @param listener listener
+	 */
+	void addEvictionListener(CacheEvictionListener listener);
+}
@@ -0,0 +1,243 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.caching.service;
+
+/**
+ * Streaming 128-bit MurmurHash3 (x64 variant) for building cache keys. Values are added as 64-bit words, which avoids
+ * converting them to strings or byte arrays first.
+ * <p/>
+ * Instances are not thread safe, but can be reused by calling {@link #reset()}.
+ *
+ * @author agent
+ */
+final class CacheKeyHasher {
+
+	private static final long C1 = 0x87c37b91114253d5L;
+
+	private static final long C2 = 0x4cf5ad432745937fL;
+
+	private static final int R1 = 31;
+
+	private static final int R2 = 33;
+
+	private static final int R3 = 27;
+
+	private static final int M = 5;
+
+	private static final long N1 = 0x52dce729L;
+
+	private static final long N2 = 0x38495ab5L;
+
+	private static final long F1 = 0xff51afd7ed558ccdL;
+
+	private static final long F2 = 0xc4ceb9fe1a85ec53L;
+
+	private static final int FMIX_SHIFT = 33;
+
+	private static final int WORD_BYTES = 8;
+
+	private static final int BYTE_MASK = 0xff;
+
+	private static final int CHARS_PER_WORD = 4;
+
+	private static final int CHAR_BITS = 16;
+
+	private static final int HEX_LENGTH = 32;
+
+	private static final int NIBBLE_BITS = 4;
+
+	private static final int NIBBLE_MASK = 0xf;
+
+	private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+	private long h1;
+
+	private long h2;
+
+	private long pending;
+
+	private boolean hasPending;
+
+	private long length;
+
+	/**
+	 * Start a new hash.
+	 */
+	void reset() {
+		h1 = 0;
+		h2 = 0;
+		pending = 0;
+		hasPending = false;
+		length = 0;
+	}
+
+	/**
+	 * Add a 64-bit word.
+	 *
+	 * @param word word to add
+	 */
+	void update(long word) {
+		if (hasPending) {
+			mix(pending, word);
+			hasPending = false;
+		} else {
+			pending = word;
+			hasPending = true;
+		}
+		length += WORD_BYTES;
+	}
+
+	/**
+	 * Add a double, using its bit pattern.
+	 *
+	 * @param value value to add
+	 */
+	void update(double value) {
+		update(Double.doubleToLongBits(value));
+	}
+
+	/**
+	 * Add a string. The length is included, so consecutive strings can not be confused.
+	 *
+	 * @param value string to add, can be null
+	 */
+	void update(String value) {
+		if (null == value) {
+			update(-1);
+			return;
+		}
+		int count = value.length();
+		update(count);
+		long word = 0;
+		int inWord = 0;
+		for (int i = 0; i < count; i++) {
+			word = (word << CHAR_BITS) | value.charAt(i);
+			if (++inWord == CHARS_PER_WORD) {
+				update(word);
+				word = 0;
+				inWord = 0;
+			}
+		}
+		if (inWord > 0) {
+			update(word);
+		}
+	}
+
+	/**
+	 * Add a byte array. The length is included, so consecutive arrays can not be confused.
+	 *
+	 * @param bytes bytes to add
+	 */
+	void update(byte[] bytes) {
+		update(bytes.length);
+		long word = 0;
+		int inWord = 0;
+		for (byte b : bytes) {
+			word = (word << Byte.SIZE) | (b & BYTE_MASK);
+			if (++inWord == WORD_BYTES) {
+				update(word);
+				word = 0;
+				inWord = 0;
+			}
+		}
+		if (inWord > 0) {
+			update(word);
+		}
+	}
+
+	/**
+	 * Finish the hash. The result is available using {@link #getHigh()} and {@link #getLow()}.
+	 */
+	void finish() {
+		if (hasPending) {
+			long k1 = pending;
+			k1 *= C1;
+			k1 = Long.rotateLeft(k1, R1);
+			k1 *= C2;
+			h1 ^= k1;
+			hasPending = false;
+		}
+		h1 ^= length;
+		h2 ^= length;
+		h1 += h2;
+		h2 += h1;
+		h1 = fmix(h1);
+		h2 = fmix(h2);
+		h1 += h2;
+		h2 += h1;
+	}
+
+	/**
+	 * Get the high 64 bits of the finished hash.
+	 *
+	 * @return high bits
+	 */
+	long getHigh() {
+		return h1;
+	}
+
+	/**
+	 * Get the low 64 bits of the finished hash.
+	 *
+	 * @return low bits
+	 */
+	long getLow() {
+		return h2;
+	}
+
+	/**
+	 * Get the finished hash as 32 character hexadecimal string.
+	 *
+	 * @return hash as hex string
+	 */
+	String asHex() {
+		char[] res = new char[HEX_LENGTH];
+		toHex(h1, res, 0);
+		toHex(h2, res, HEX_LENGTH / 2);
+		return new String(res);
+	}
+
+	private void toHex(long value, char[] target, int offset) {
+		for (int i = HEX_LENGTH / 2 - 1; i >= 0; i--) {
+			target[offset + i] = HEX[(int) (value & NIBBLE_MASK)];
+			value >>>= NIBBLE_BITS;
+		}
+	}
+
+	private void mix(long k1, long k2) {
+		k1 *= C1;
+		k1 = Long.rotateLeft(k1, R1);
+		k1 *= C2;
+		h1 ^= k1;
+		h1 = Long.rotateLeft(h1, R3);
+		h1 += h2;
+		h1 = h1 * M + N1;
+
+		k2 *= C2;
+		k2 = Long.rotateLeft(k2, R2);
+		k2 *= C1;
+		h2 ^= k2;
+		h2 = Long.rotateLeft(h2, R1);
+		h2 += h1;
+		h2 = h2 * M + N2;
+	}
+
+	private static long fmix(long k) {
+		k ^= k >>> FMIX_SHIFT;
+		k *= F1;
+		k ^= k >>> FMIX_SHIFT;
+		k *= F2;
+		k ^= k >>> FMIX_SHIFT;
+		return k;
+	}
+}
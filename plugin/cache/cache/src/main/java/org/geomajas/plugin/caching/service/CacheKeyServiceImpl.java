@@ -13,33 +13,62 @@ package org.geomajas.plugin.caching.service;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
 
+import org.geomajas.geometry.Bbox;
 import org.geomajas.geometry.Crs;
 import org.geomajas.global.CacheableObject;
 import org.geomajas.service.pipeline.PipelineContext;
 import org.jboss.serial.io.JBossObjectOutputStream;
+import org.opengis.filter.BinaryComparisonOperator;
+import org.opengis.filter.BinaryLogicOperator;
+import org.opengis.filter.ExcludeFilter;
 import org.opengis.filter.Filter;
+import org.opengis.filter.Id;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.Not;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsLike;
+import org.opengis.filter.PropertyIsNull;
+import org.opengis.filter.expression.BinaryExpression;
+import org.opengis.filter.expression.Expression;
+import org.opengis.filter.expression.Function;
+import org.opengis.filter.expression.Literal;
+import org.opengis.filter.expression.PropertyName;
+import org.opengis.filter.identity.Identifier;
+import org.opengis.filter.spatial.BinarySpatialOperator;
+import org.opengis.filter.spatial.DistanceBufferOperator;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
-import com.twmacinta.util.MD5;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
 
 /**
  * Implementation of {@link CacheKeyService}.
+ * <p/>
+ * The cache key is a 128-bit hash of the cache context. Geometries, filters and other known types are hashed by
+ * walking their structure, the WKT of coordinate reference systems is cached.
  *
  * @author Joachim Van der Auwera
  */
 @Component
 public class CacheKeyServiceImpl implements CacheKeyService {
 
-	private static final int BASE_KEY_LENGTH = 512;
-
 	private static final int SERIALIZED_BUFFER_SIZE = 512;
 	private static final int SAFE_ASCII_LOWER = 32;
 	private static final int SAFE_ASCII_UPPER = 127;
@@ -50,91 +79,355 @@ public class CacheKeyServiceImpl implements CacheKeyService {
 			'u', 'v', 'w', 'x', 'y', 'z',
 			'0', '1', '2', '3', '4', '5', '6', '7', '8', '9'};
 
-	private static final String ENCODING = "UTF-8";
+	// type markers, assure values of different types give different hashes
+	private static final long TYPE_NULL = 0;
+	private static final long TYPE_STRING = 1;
+	private static final long TYPE_CACHEABLE = 2;
+	private static final long TYPE_CRS = 3;
+	private static final long TYPE_GEOMETRY = 4;
+	private static final long TYPE_FILTER = 5;
+	private static final long TYPE_EXPRESSION = 6;
+	private static final long TYPE_INTEGER = 7;
+	private static final long TYPE_DOUBLE = 8;
+	private static final long TYPE_BOOLEAN = 9;
+	private static final long TYPE_ENUM = 10;
+	private static final long TYPE_DATE = 11;
+	private static final long TYPE_ENVELOPE = 12;
+	private static final long TYPE_BBOX = 13;
+	private static final long TYPE_LIST = 14;
+	private static final long TYPE_OBJECT = 15;
+	private static final long TYPE_LITERAL = 16;
+	private static final long TYPE_PROPERTY = 17;
+	private static final long TYPE_FUNCTION = 18;
+	private static final long TYPE_SET = 19;
+	private static final long TYPE_MAP = 20;
+
+	private static final Map<Class<?>, Boolean> HAS_HASH_CODE = new ConcurrentHashMap<Class<?>, Boolean>();
 
 	private final Logger log = LoggerFactory.getLogger(CacheKeyServiceImpl.class);
 
+	/** WKT for the coordinate reference systems, weak keys as the CRS objects may be discarded. */
+	private final Map<CoordinateReferenceSystem, String> crsIds = new WeakHashMap<CoordinateReferenceSystem, String>();
+
 	private final Random random = new Random();
 
 	@Override
 	public String getCacheKey(CacheContext context) {
-		try {
-			MD5 md5 = new MD5();
-			StringBuilder toHash = new StringBuilder(BASE_KEY_LENGTH);
-			if (context instanceof CacheContextImpl) {
-				CacheContextImpl cci = (CacheContextImpl) context;
-				for (Map.Entry<String, Object> entry : cci.entries()) {
-					md5.Update(entry.getKey(), ENCODING);
-					md5.Update(":");
-					if (log.isTraceEnabled()) {
-						toHash.append(entry.getKey());
-						toHash.append(":");
-					}
-					Object value = entry.getValue();
-					if (null != value) {
-						String cid = getCacheId(value);
-						md5.Update(cid, ENCODING);
-						if (log.isTraceEnabled()) {
-							toHash.append(cid);
-						}
-					}
-					md5.Update("-");
-					if (log.isTraceEnabled()) {
-						toHash.append("-");
-					}
-				}
-			} else {
-				String cid = getCacheId(context);
-				md5.Update(cid, ENCODING);
-				if (log.isTraceEnabled()) {
-					toHash.append(cid);
-				}
-			}
-			String key = md5.asHex();
-			if (log.isTraceEnabled()) {
-				log.trace("key for context {} which is a hash for {}", key, forceAscii(toHash));
-			}
-			if (log.isDebugEnabled()) {
-				log.debug("key for context {}", key);
+		CacheKeyHasher hasher = new CacheKeyHasher();
+		if (context instanceof CacheContextImpl) {
+			// combine the entry hashes independent of the iteration order
+			long high = 0;
+			long low = 0;
+			int count = 0;
+			for (Map.Entry<String, Object> entry : ((CacheContextImpl) context).entries()) {
+				hasher.reset();
+				hasher.update(entry.getKey());
+				hash(hasher, entry.getValue());
+				hasher.finish();
+				high += hasher.getHigh();
+				low += hasher.getLow();
+				count++;
 			}
-			
-			return key;
-		} catch (UnsupportedEncodingException uee) {
-			log.error("Impossible error, UTF-8 should be supported:" + uee.getMessage(), uee);
-			return null;
+			hasher.reset();
+			hasher.update(count);
+			hasher.update(high);
+			hasher.update(low);
+		} else {
+			hasher.reset();
+			hash(hasher, context);
+		}
+		hasher.finish();
+		String key = hasher.asHex();
+		if (log.isTraceEnabled()) {
+			log.trace("key for context {} which is a hash for {}", key, forceAscii(new StringBuilder(
+					context instanceof CacheContextImpl ? ((CacheContextImpl) context).entries().toString() :
+							context.toString())));
 		}
+		if (log.isDebugEnabled()) {
+			log.debug("key for context {}", key);
+		}
+		return key;
 	}
 
-	private String getCacheId(Object value) {
-		if (value instanceof CacheableObject) {
-			return ((CacheableObject) value).getCacheId();
+	/**
+	 * Add a value to the hash. Known types are walked structurally, so no string representation needs to be built.
+	 *
+	 * @param hasher hasher
+	 * @param value value to add
+	 */
+	private void hash(CacheKeyHasher hasher, Object value) {
+		if (null == value) {
+			hasher.update(TYPE_NULL);
+		} else if (value instanceof String) {
+			hasher.update(TYPE_STRING);
+			hasher.update((String) value);
+		} else if (value instanceof CacheableObject) {
+			hasher.update(TYPE_CACHEABLE);
+			hasher.update(((CacheableObject) value).getCacheId());
 		} else if (value instanceof Crs) {
-			return ((Crs) value).getId();
+			hasher.update(TYPE_CRS);
+			hasher.update(((Crs) value).getId());
 		} else if (value instanceof CoordinateReferenceSystem) {
-			return ((CoordinateReferenceSystem) value).toWKT();
+			hasher.update(TYPE_CRS);
+			hasher.update(getCrsId((CoordinateReferenceSystem) value));
 		} else if (value instanceof Geometry) {
-			return ((Geometry) value).toText();
+			hasher.update(TYPE_GEOMETRY);
+			hashGeometry(hasher, (Geometry) value);
 		} else if (value instanceof Filter) {
-			return value.toString();
-		} else if (value instanceof Integer) {
-			return Integer.toString((Integer) value);
-		} else if (value instanceof String) {
-			return value.toString();
+			hasher.update(TYPE_FILTER);
+			hashFilter(hasher, (Filter) value);
+		} else if (value instanceof Expression) {
+			hasher.update(TYPE_EXPRESSION);
+			hashExpression(hasher, (Expression) value);
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Short ||
+				value instanceof Byte) {
+			hasher.update(TYPE_INTEGER);
+			hasher.update(((Number) value).longValue());
+		} else if (value instanceof Double || value instanceof Float) {
+			hasher.update(TYPE_DOUBLE);
+			hasher.update(((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			hasher.update(TYPE_BOOLEAN);
+			hasher.update((Boolean) value ? 1 : 0);
+		} else if (value instanceof Enum) {
+			hasher.update(TYPE_ENUM);
+			hasher.update(value.getClass().getName());
+			hasher.update(((Enum<?>) value).name());
+		} else if (value instanceof Date) {
+			hasher.update(TYPE_DATE);
+			hasher.update(((Date) value).getTime());
+		} else if (value instanceof Envelope) {
+			Envelope envelope = (Envelope) value;
+			hasher.update(TYPE_ENVELOPE);
+			hasher.update(envelope.getMinX());
+			hasher.update(envelope.getMinY());
+			hasher.update(envelope.getMaxX());
+			hasher.update(envelope.getMaxY());
+		} else if (value instanceof Bbox) {
+			Bbox bbox = (Bbox) value;
+			hasher.update(TYPE_BBOX);
+			hasher.update(bbox.getX());
+			hasher.update(bbox.getY());
+			hasher.update(bbox.getWidth());
+			hasher.update(bbox.getHeight());
+		} else if (value instanceof Set) {
+			hasher.update(TYPE_SET);
+			hashUnordered(hasher, (Set<?>) value);
+		} else if (value instanceof Collection) {
+			Collection<?> collection = (Collection<?>) value;
+			hasher.update(TYPE_LIST);
+			hasher.update(collection.size());
+			for (Object item : collection) {
+				hash(hasher, item);
+			}
+		} else if (value instanceof Map) {
+			hasher.update(TYPE_MAP);
+			hashUnordered(hasher, ((Map<?, ?>) value).entrySet());
+		} else if (value instanceof Object[]) {
+			Object[] array = (Object[]) value;
+			hasher.update(TYPE_LIST);
+			hasher.update(array.length);
+			for (Object item : array) {
+				hash(hasher, item);
+			}
+		} else {
+			hashObject(hasher, value);
+		}
+	}
+
+	/**
+	 * Add the items of a set (or the entries of a map) to the hash, independent of the iteration order. Each item is
+	 * hashed on its own and the 128-bit hashes are added, the same way as the entries of the cache context.
+	 *
+	 * @param hasher hasher
+	 * @param items items to add, map entries are hashed as key and value
+	 */
+	private void hashUnordered(CacheKeyHasher hasher, Collection<?> items) {
+		CacheKeyHasher itemHasher = new CacheKeyHasher();
+		long high = 0;
+		long low = 0;
+		for (Object item : items) {
+			itemHasher.reset();
+			if (item instanceof Map.Entry) {
+				hash(itemHasher, ((Map.Entry<?, ?>) item).getKey());
+				hash(itemHasher, ((Map.Entry<?, ?>) item).getValue());
+			} else {
+				hash(itemHasher, item);
+			}
+			itemHasher.finish();
+			high += itemHasher.getHigh();
+			low += itemHasher.getLow();
+		}
+		hasher.update(items.size());
+		hasher.update(high);
+		hasher.update(low);
+	}
+
+	/**
+	 * Add an object of unknown type to the hash. The hash code is used when the class defines it. The cache context
+	 * is compared using equals() so hash collisions are harmless. Only objects which use the identity hash code are
+	 * serialized.
+	 *
+	 * @param hasher hasher
+	 * @param value value to add
+	 */
+	private void hashObject(CacheKeyHasher hasher, Object value) {
+		Class<?> type = value.getClass();
+		hasher.update(TYPE_OBJECT);
+		hasher.update(type.getName());
+		if (hasHashCode(type)) {
+			hasher.update(value.hashCode());
 		} else {
 			try {
-				log.debug("Serializing {} for unique id", value.getClass().getName());
+				log.debug("Serializing {} for unique id", type.getName());
 				ByteArrayOutputStream baos = new ByteArrayOutputStream(SERIALIZED_BUFFER_SIZE);
 				JBossObjectOutputStream serialize = new JBossObjectOutputStream(baos);
 				serialize.writeObject(value);
 				serialize.flush();
 				serialize.close();
-				return baos.toString("UTF-8");
+				hasher.update(baos.toByteArray());
 			} catch (IOException ioe) {
-				String fallback = value.toString();
 				log.error("Could not serialize " + value + ", falling back to toString() which may cause problems.",
 						ioe);
-				return fallback;
+				hasher.update(value.toString());
+			}
+		}
+	}
+
+	private boolean hasHashCode(Class<?> type) {
+		Boolean res = HAS_HASH_CODE.get(type);
+		if (null == res) {
+			try {
+				res = Object.class != type.getMethod("hashCode").getDeclaringClass();
+			} catch (NoSuchMethodException nsme) {
+				res = false; // impossible, defined on Object
+			}
+			HAS_HASH_CODE.put(type, res);
+		}
+		return res;
+	}
+
+	private String getCrsId(CoordinateReferenceSystem crs) {
+		synchronized (crsIds) {
+			String id = crsIds.get(crs);
+			if (null == id) {
+				id = crs.toWKT();
+				crsIds.put(crs, id);
+			}
+			return id;
+		}
+	}
+
+	private void hashGeometry(CacheKeyHasher hasher, Geometry geometry) {
+		hasher.update(geometry.getGeometryType());
+		if (geometry instanceof Point) {
+			hashCoordinates(hasher, ((Point) geometry).getCoordinateSequence());
+		} else if (geometry instanceof LineString) {
+			hashCoordinates(hasher, ((LineString) geometry).getCoordinateSequence());
+		} else if (geometry instanceof Polygon) {
+			Polygon polygon = (Polygon) geometry;
+			hashCoordinates(hasher, polygon.getExteriorRing().getCoordinateSequence());
+			int holes = polygon.getNumInteriorRing();
+			hasher.update(holes);
+			for (int i = 0; i < holes; i++) {
+				hashCoordinates(hasher, polygon.getInteriorRingN(i).getCoordinateSequence());
 			}
+		} else {
+			int count = geometry.getNumGeometries();
+			hasher.update(count);
+			for (int i = 0; i < count; i++) {
+				hashGeometry(hasher, geometry.getGeometryN(i));
+			}
+		}
+	}
+
+	private void hashCoordinates(CacheKeyHasher hasher, CoordinateSequence coordinates) {
+		int size = coordinates.size();
+		hasher.update(size);
+		for (int i = 0; i < size; i++) {
+			hasher.update(coordinates.getX(i));
+			hasher.update(coordinates.getY(i));
+		}
+	}
+
+	private void hashFilter(CacheKeyHasher hasher, Filter filter) {
+		hasher.update(filter.getClass().getName());
+		if (filter instanceof BinaryLogicOperator) {
+			List<Filter> children = ((BinaryLogicOperator) filter).getChildren();
+			hasher.update(children.size());
+			for (Filter child : children) {
+				hashFilter(hasher, child);
+			}
+		} else if (filter instanceof Not) {
+			hashFilter(hasher, ((Not) filter).getFilter());
+		} else if (filter instanceof BinaryComparisonOperator) {
+			BinaryComparisonOperator comparison = (BinaryComparisonOperator) filter;
+			hashExpression(hasher, comparison.getExpression1());
+			hashExpression(hasher, comparison.getExpression2());
+			hasher.update(comparison.isMatchingCase() ? 1 : 0);
+		} else if (filter instanceof DistanceBufferOperator) {
+			DistanceBufferOperator distance = (DistanceBufferOperator) filter;
+			hashExpression(hasher, distance.getExpression1());
+			hashExpression(hasher, distance.getExpression2());
+			hasher.update(distance.getDistance());
+			hash(hasher, distance.getDistanceUnits());
+		} else if (filter instanceof BinarySpatialOperator) {
+			BinarySpatialOperator spatial = (BinarySpatialOperator) filter;
+			hashExpression(hasher, spatial.getExpression1());
+			hashExpression(hasher, spatial.getExpression2());
+		} else if (filter instanceof PropertyIsBetween) {
+			PropertyIsBetween between = (PropertyIsBetween) filter;
+			hashExpression(hasher, between.getExpression());
+			hashExpression(hasher, between.getLowerBoundary());
+			hashExpression(hasher, between.getUpperBoundary());
+		} else if (filter instanceof PropertyIsLike) {
+			PropertyIsLike like = (PropertyIsLike) filter;
+			hashExpression(hasher, like.getExpression());
+			hash(hasher, like.getLiteral());
+			hash(hasher, like.getWildCard());
+			hash(hasher, like.getSingleChar());
+			hash(hasher, like.getEscape());
+			hasher.update(like.isMatchingCase() ? 1 : 0);
+		} else if (filter instanceof PropertyIsNull) {
+			hashExpression(hasher, ((PropertyIsNull) filter).getExpression());
+		} else if (filter instanceof Id) {
+			// identifiers are a set, combine independent of the order
+			List<Object> ids = new ArrayList<Object>();
+			for (Identifier identifier : ((Id) filter).getIdentifiers()) {
+				ids.add(identifier.getID());
+			}
+			hashUnordered(hasher, ids);
+		} else if (!(filter instanceof IncludeFilter || filter instanceof ExcludeFilter)) {
+			hasher.update(filter.toString());
+		}
+	}
+
+	private void hashExpression(CacheKeyHasher hasher, Expression expression) {
+		if (null == expression) {
+			hasher.update(TYPE_NULL);
+		} else if (expression instanceof Literal) {
+			hasher.update(TYPE_LITERAL);
+			hash(hasher, ((Literal) expression).getValue());
+		} else if (expression instanceof PropertyName) {
+			hasher.update(TYPE_PROPERTY);
+			hasher.update(((PropertyName) expression).getPropertyName());
+		} else if (expression instanceof Function) {
+			Function function = (Function) expression;
+			hasher.update(TYPE_FUNCTION);
+			hasher.update(function.getName());
+			List<Expression> parameters = function.getParameters();
+			hasher.update(parameters.size());
+			for (Expression parameter : parameters) {
+				hashExpression(hasher, parameter);
+			}
+		} else if (expression instanceof BinaryExpression) {
+			BinaryExpression binary = (BinaryExpression) expression;
+			hasher.update(expression.getClass().getName());
+			hashExpression(hasher, binary.getExpression1());
+			hashExpression(hasher, binary.getExpression2());
+		} else {
+			hasher.update(expression.getClass().getName());
+			hasher.update(expression.toString());
 		}
 	}
 
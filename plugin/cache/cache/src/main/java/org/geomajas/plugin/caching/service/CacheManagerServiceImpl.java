@@ -13,6 +13,7 @@ package org.geomajas.plugin.caching.service;
 
 import com.vividsolutions.jts.geom.Envelope;
 import org.geomajas.layer.Layer;
+import org.geomajas.plugin.caching.index.QuadTreeIndexService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -21,9 +22,13 @@ import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * {@link CacheManagerService} implementation.
@@ -38,8 +43,11 @@ public class CacheManagerServiceImpl implements CacheManagerService {
 	@Autowired
 	private ApplicationContext applicationContext;
 
-	private final Map<String, Map<CacheCategory, IndexedCache>> caches =
-			new ConcurrentHashMap<String, Map<CacheCategory, IndexedCache>>();
+	private final ConcurrentMap<String, ConcurrentMap<CacheCategory, IndexedCache>> caches =
+			new ConcurrentHashMap<String, ConcurrentMap<CacheCategory, IndexedCache>>();
+
+	private final Set<CacheService> clearedCaches =
+			Collections.newSetFromMap(new IdentityHashMap<CacheService, Boolean>());
 
 	@Override
 	public void put(Layer layer, CacheCategory category, String key, Object object, Envelope envelope) {
@@ -188,17 +196,24 @@ public class CacheManagerServiceImpl implements CacheManagerService {
 
 	IndexedCache getCache(Layer layer, CacheCategory cacheCategory, boolean createIfNotExists) {
 		String layerId = getLayerId(layer);
-		Map<CacheCategory, IndexedCache> layerCaches = caches.get(layerId);
-		IndexedCache cache;
+		ConcurrentMap<CacheCategory, IndexedCache> layerCaches = caches.get(layerId);
 		if (null == layerCaches) {
 			layerCaches = new ConcurrentHashMap<CacheCategory, IndexedCache>();
-			caches.put(layerId, layerCaches);
-			layerCaches = caches.get(layerId); // request again for concurrency?
+			ConcurrentMap<CacheCategory, IndexedCache> existing = caches.putIfAbsent(layerId, layerCaches);
+			if (null != existing) {
+				layerCaches = existing;
+			}
 		}
-		cache = layerCaches.get(cacheCategory);
+		IndexedCache cache = layerCaches.get(cacheCategory);
 		if (null == cache && createIfNotExists) {
-			cache = createCache(layer, cacheCategory);
-			layerCaches.put(cacheCategory, cache);
+			// synchronized to assure there is only one index, entries in a lost index would never be invalidated
+			synchronized (layerCaches) {
+				cache = layerCaches.get(cacheCategory);
+				if (null == cache) {
+					cache = createCache(layer, cacheCategory);
+					layerCaches.put(cacheCategory, cache);
+				}
+			}
 		}
 		return cache;
 	}
@@ -217,8 +232,19 @@ public class CacheManagerServiceImpl implements CacheManagerService {
 		String layerId = getLayerId(layer);
 		CacheServiceInfo cacheServiceInfo = getInfo(layerId, cacheCategory, CacheServiceInfo.class);
 		CacheIndexInfo cacheIndexInfo = getInfo(layerId, cacheCategory, CacheIndexInfo.class);
-		return new IndexedCache(cacheServiceInfo.getCacheFactory().create(layer, cacheCategory),
-				cacheIndexInfo.getCacheIndexFactory().create(layer, cacheCategory));
+		CacheService cacheService = cacheServiceInfo.getCacheFactory().create(layer, cacheCategory);
+		CacheIndexService cacheIndexService = cacheIndexInfo.getCacheIndexFactory().create(layer, cacheCategory);
+		if (cacheIndexService instanceof QuadTreeIndexService) {
+			// the index only lives in memory, entries in a persistent cache which survived a restart are not indexed
+			// and would never be invalidated, clear the cache when it is first used (caches can be shared by layers)
+			synchronized (clearedCaches) {
+				if (clearedCaches.add(cacheService)) {
+					log.debug("Clear cache for {} {} as the index is not persistent", layerId, cacheCategory);
+					cacheService.clear();
+				}
+			}
+		}
+		return new IndexedCache(cacheService, cacheIndexService);
 	}
 
 	/**
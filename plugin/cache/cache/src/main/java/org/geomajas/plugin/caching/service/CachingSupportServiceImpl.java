@@ -14,8 +14,10 @@ package org.geomajas.plugin.caching.service;
 import com.vividsolutions.jts.geom.Envelope;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.plugin.caching.step.CacheContainer;
+import org.geomajas.service.GeoService;
 import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -38,6 +40,9 @@ public class CachingSupportServiceImpl implements CachingSupportService {
 	@Autowired
 	private CacheKeyService cacheKeyService;
 
+	@Autowired
+	private GeoService geoService;
+
 	@Override
 	public <CONTAINER extends CacheContainer> CONTAINER getContainer(String keyKey, String contextKey,
 			String[] keys, CacheCategory category, PipelineContext pipelineContext,
@@ -106,7 +111,8 @@ public class CachingSupportServiceImpl implements CachingSupportService {
 			if (keyKey != null) {
 				pipelineContext.put(keyKey, cacheKey);
 			}
-			cacheManager.put(layer, category, cacheKey, cacheContainer, envelope);
+			cacheManager.put(layer, category, cacheKey, cacheContainer, getLayerEnvelope(pipelineContext, layer,
+					envelope));
 			pipelineContext.put(keyKey, cacheKey);
 		} catch (Throwable t) { //NOPMD
 			// have to prevent caching code from making the pipeline fail, log and discard errors
@@ -114,4 +120,31 @@ public class CachingSupportServiceImpl implements CachingSupportService {
 		}
 	}
 
+	/**
+	 * Convert the envelope to layer coordinates. Invalidation is done using the feature geometries in layer
+	 * coordinates, so the spatial index needs to contain envelopes in the layer CRS.
+	 *
+	 * @param pipelineContext pipeline context, contains the CRS of the envelope
+	 * @param layer layer
+	 * @param envelope envelope in pipeline CRS
+	 * @return envelope in layer CRS, null when the extent is not known
+	 */
+	private Envelope getLayerEnvelope(PipelineContext pipelineContext, VectorLayer layer, Envelope envelope) {
+		if (null == envelope || null == layer) {
+			return envelope;
+		}
+		try {
+			CoordinateReferenceSystem crs =
+					pipelineContext.getOptional(PipelineCode.CRS_KEY, CoordinateReferenceSystem.class);
+			if (null == crs || crs.equals(layer.getCrs())) {
+				return envelope;
+			}
+			return geoService.transform(envelope, geoService.getCrsTransform(crs, layer.getCrs()));
+		} catch (Throwable t) { //NOPMD
+			// unknown extent, this assures the entry is always invalidated
+			log.warn("Could not transform cache envelope to layer CRS, entry will always be invalidated", t);
+			return null;
+		}
+	}
+
 }
@@ -29,9 +29,18 @@ public class IndexedCache {
 	private final CacheService cache;
 	private final CacheIndexService index;
 
-	public IndexedCache(CacheService cache, CacheIndexService index) {
+	public IndexedCache(CacheService cache, final CacheIndexService index) {
 		this.cache = cache;
 		this.index = index;
+		if (cache instanceof CacheEvictionNotifier) {
+			// forget the entries which the cache drops by itself
+			((CacheEvictionNotifier) cache).addEvictionListener(new CacheEvictionListener() {
+
+				public void evicted(String key) {
+					index.remove(key);
+				}
+			});
+		}
 	}
 
 	/**
@@ -11,18 +11,36 @@
 
 package org.geomajas.plugin.caching.step;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
 import org.geomajas.annotation.Api;
 import org.geomajas.plugin.caching.service.CacheCategory;
+import org.geomajas.plugin.caching.service.CacheContext;
+import org.geomajas.plugin.caching.service.CacheKeyService;
 import org.geomajas.plugin.caching.service.CachingSupportService;
 import org.geomajas.plugin.caching.service.CachingSupportServiceContextAdder;
+import org.geomajas.service.metrics.HitCounter;
+import org.geomajas.service.metrics.MetricsService;
 import org.geomajas.service.pipeline.AbstractPipelineInterceptor;
+import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
+import org.geomajas.service.pipeline.PipelineInterceptorCompletion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.vividsolutions.jts.geom.Envelope;
 
 /**
  * Abstract base class for pipeline interceptors that implement a cache cycle. Caches the security context.
+ * <p/>
+ * The cache hits and misses are counted in the {@link MetricsService}, per cache category, layer and interceptor.
+ * <p/>
+ * Concurrent misses for the same cache entry are coalesced: only the first thread executes the steps, the others wait
+ * until the entry is put in the cache (or the coalesce timeout expires) and then read it from the cache. This avoids
+ * that all requests for a popular tile or feature set hit the data store at once when the entry expires. When the
+ * steps fail, the waiting threads are released immediately and calculate the entry themselves.
  * 
  * @param <T> pipeline result type
  *
@@ -31,14 +49,64 @@ import com.vividsolutions.jts.geom.Envelope;
  */
 @Api(allMethods = true)
 public abstract class AbstractCachingInterceptor<T> extends AbstractPipelineInterceptor<T> implements
-		CachingSupportServiceContextAdder {
+		CachingSupportServiceContextAdder, PipelineInterceptorCompletion<T> {
 
 	@Autowired
 	private CachingSupportService cachingSupportService;
 
+	private static final String FLIGHT_SUFFIX = "-flight";
+
+	private static final long DEFAULT_COALESCE_TIMEOUT = 10000;
+
+	/** Cache entries being calculated by this interceptor, the key includes category and layer. */
+	private final SingleFlight flights = new SingleFlight();
+
+	/** Key of the pipeline context entry which holds the flight of the current thread. */
+	private final String flightKey = getClass().getName() + FLIGHT_SUFFIX;
+
+	private final Logger log = LoggerFactory.getLogger(AbstractCachingInterceptor.class);
+
+	@Autowired
+	private MetricsService metricsService;
+
+	@Autowired
+	private CacheKeyService cacheKeyService;
+
+	private long coalesceTimeout = DEFAULT_COALESCE_TIMEOUT;
+
+	/** Hit counters per cache category and layer id, to avoid looking them up for each request. */
+	private final ConcurrentMap<CacheCategory, ConcurrentMap<String, HitCounter>> hitCounters =
+			new ConcurrentHashMap<CacheCategory, ConcurrentMap<String, HitCounter>>();
+
+	/**
+	 * Get the maximum time in milliseconds to wait for another thread which calculates the same cache entry.
+	 *
+	 * @return coalesce timeout in milliseconds
+	 * @since 1.18.6
+	 */
+	public long getCoalesceTimeout() {
+		return coalesceTimeout;
+	}
+
+	/**
+	 * Set the maximum time in milliseconds to wait for another thread which calculates the same cache entry. When the
+	 * entry is not available within this time, the waiting thread executes the steps itself. Use 0 to disable
+	 * coalescing of concurrent cache misses. Defaults to 10 seconds.
+	 *
+	 * @param coalesceTimeout coalesce timeout in milliseconds
+	 * @since 1.18.6
+	 */
+	public void setCoalesceTimeout(long coalesceTimeout) {
+		this.coalesceTimeout = coalesceTimeout;
+	}
+
 	/**
 	 * Get the requested object from the cache. The key is either obtained from the pipeline context (keyKey) if
 	 * possible. Alternatively, the {@link CacheContainer} is built to determine the cache key.
+	 * <p/>
+	 * When the entry is not in the cache and another thread is already calculating it, this waits for that thread.
+	 * When null is returned, the caller is expected to calculate the entry and call
+	 * {@link #putContainer(PipelineContext, CacheCategory, String[], String, String, CacheContainer, Envelope)}.
 	 *
 	 * @param keyKey key to put the cache key in the pipeline context
 	 * @param contextKey key to put the cache context in the pipeline context
@@ -51,8 +119,44 @@ public abstract class AbstractCachingInterceptor<T> extends AbstractPipelineInte
 	 */
 	protected <CONTAINER extends CacheContainer> CONTAINER getContainer(String keyKey, String contextKey,
 			String[] keys, CacheCategory category, PipelineContext pipelineContext, Class<CONTAINER> containerClass) {
-		return cachingSupportService.getContainer(keyKey, contextKey, keys, category, pipelineContext, this,
-				containerClass);
+		CONTAINER container = cachingSupportService.getContainer(keyKey, contextKey, keys, category, pipelineContext,
+				this, containerClass);
+		if (null == container && coalesceTimeout > 0 && !joinFlight(keys, category, pipelineContext)) {
+			// another thread calculated the entry, it should be in the cache now
+			container = cachingSupportService.getContainer(keyKey, contextKey, keys, category, pipelineContext, this,
+					containerClass);
+		}
+		if (metricsService.isEnabled()) {
+			getHitCounter(category, pipelineContext.getOptional(PipelineCode.LAYER_ID_KEY, String.class))
+					.record(null != container);
+		}
+		return container;
+	}
+
+	/**
+	 * Get the hit counter for a cache category and layer.
+	 *
+	 * @param category cache category
+	 * @param layerId layer id, may be null
+	 * @return hit counter
+	 */
+	private HitCounter getHitCounter(CacheCategory category, String layerId) {
+		ConcurrentMap<String, HitCounter> layerCounters = hitCounters.get(category);
+		if (null == layerCounters) {
+			layerCounters = new ConcurrentHashMap<String, HitCounter>();
+			ConcurrentMap<String, HitCounter> previous = hitCounters.putIfAbsent(category, layerCounters);
+			if (null != previous) {
+				layerCounters = previous;
+			}
+		}
+		String key = null == layerId ? "" : layerId;
+		HitCounter counter = layerCounters.get(key);
+		if (null == counter) {
+			counter = metricsService.getHitCounter(MetricsService.CACHE, MetricsService.TAG_CATEGORY,
+					category.getName(), MetricsService.TAG_LAYER, layerId, MetricsService.TAG_INTERCEPTOR, getId());
+			layerCounters.putIfAbsent(key, counter); // the metrics service returns the same instance
+		}
+		return counter;
 	}
 
 	/**
@@ -70,6 +174,58 @@ public abstract class AbstractCachingInterceptor<T> extends AbstractPipelineInte
 			String contextKey, CacheContainer cacheContainer, Envelope envelope) {
 		cachingSupportService.putContainer(pipelineContext, this, category, keys, keyKey, contextKey, cacheContainer,
 				envelope);
+		finishFlight(pipelineContext);
+	}
+
+	/**
+	 * Finish the flight of the current thread (if any) when the steps are done. This assures waiting threads are
+	 * released when the steps failed or the entry was not put in the cache.
+	 *
+	 * @param context pipeline context
+	 * @param response pipeline response
+	 * @param success true when the steps completed normally
+	 * @since 1.18.6
+	 */
+	@Override
+	public void afterCompletion(PipelineContext context, T response, boolean success) {
+		finishFlight(context);
+	}
+
+	private void finishFlight(PipelineContext pipelineContext) {
+		SingleFlight.Flight flight = pipelineContext.getOptional(flightKey, SingleFlight.Flight.class);
+		if (null != flight) {
+			pipelineContext.put(flightKey, null);
+			flights.done(flight);
+		}
+	}
+
+	/**
+	 * Join the calculation of a missing cache entry. Either the current thread becomes the leader (the flight is
+	 * stored in the pipeline context and finished when the container is put in the cache or the steps are done), or
+	 * this waits for the thread which is already calculating the entry.
+	 *
+	 * @param keys keys which need to be include in the cache context
+	 * @param category cache category
+	 * @param pipelineContext pipeline context
+	 * @return true when the current thread should calculate the entry, false when another thread did
+	 */
+	private boolean joinFlight(String[] keys, CacheCategory category, PipelineContext pipelineContext) {
+		try {
+			CacheContext cacheContext = cacheKeyService.getCacheContext(pipelineContext, keys);
+			addMoreContext(cacheContext);
+			String key = category.getName() + '/' + pipelineContext.getOptional(PipelineCode.LAYER_ID_KEY) + '/' +
+					cacheKeyService.getCacheKey(cacheContext);
+			SingleFlight.Flight flight = flights.join(key, coalesceTimeout);
+			if (null != flight) {
+				pipelineContext.put(flightKey, flight);
+				return true;
+			}
+			return false;
+		} catch (Throwable t) { //NOPMD
+			// have to prevent caching code from making the pipeline fail, log and discard errors
+			log.error("Error during caching step, only logged: " + t.getMessage(), t);
+			return true;
+		}
 	}
 
 }
@@ -37,7 +37,7 @@ public class GetFeaturesEachCachingInterceptor extends AbstractSecurityContextCa
 	@Override
 	public ExecutionMode beforeSteps(PipelineContext context, GetFeaturesContainer response) throws GeomajasException {
 		// do not cache features which are converted lazily, this would put detached objects in cache
-		if (isCacheable(context)) {
+		if (isCacheable(context, response)) {
 			FeaturesCacheContainer cc =
 					getContainer(CacheStepConstant.CACHE_FEATURES_KEY, CacheStepConstant.CACHE_FEATURES_CONTEXT, KEYS,
 							CacheCategory.FEATURE, context, FeaturesCacheContainer.class);
@@ -54,7 +54,7 @@ public class GetFeaturesEachCachingInterceptor extends AbstractSecurityContextCa
 	@Override
 	public void afterSteps(PipelineContext context, GetFeaturesContainer response) throws GeomajasException {
 		// do not cache features which are converted lazily, this would put detached objects in cache
-		if (isCacheable(context)) {
+		if (isCacheable(context, response)) {
 			recorder.record(CacheCategory.FEATURE, "Put item in cache");
 			putContainer(context, CacheCategory.FEATURE, KEYS, CacheStepConstant.CACHE_FEATURES_KEY,
 					CacheStepConstant.CACHE_FEATURES_CONTEXT,
@@ -64,11 +64,15 @@ public class GetFeaturesEachCachingInterceptor extends AbstractSecurityContextCa
 
 	/**
 	 * Features are only cacheable when not converted lazily as lazy features are incomplete, it would put detached
-	 * objects in the cache.
+	 * objects in the cache. Features which are passed to a feature handler are not cached either, they are not kept
+	 * in the container.
 	 *
-	 * @return true when features are not converted lazily
+	 * @return true when features are not converted lazily and not streamed
 	 */
-	private boolean isCacheable(PipelineContext context) throws GeomajasException {
+	private boolean isCacheable(PipelineContext context, GetFeaturesContainer response) throws GeomajasException {
+		if (null != response.getFeatureHandler()) {
+			return false;
+		}
 		VectorLayer layer = context.get(PipelineCode.LAYER_KEY, VectorLayer.class);
 		return !(layer instanceof VectorLayerLazyFeatureConversionSupport &&
 				((VectorLayerLazyFeatureConversionSupport) layer).useLazyFeatureConversion());
@@ -0,0 +1,110 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.caching.step;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Administration of the cache entries which are being calculated, used to assure only one thread calculates a missing
+ * cache entry while other threads which need the same entry wait for the result.
+ * <p/>
+ * A flight which is not finished within the timeout is considered abandoned (for example because the leading thread
+ * hangs) and can be taken over by the next thread.
+ *
+ * @author agent
+ */
+final class SingleFlight {
+
+	private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<String, Flight>();
+
+	/**
+	 * Join the flight for a key. When no other thread is calculating the entry, the caller becomes the leader and
+	 * should call {@link #done(Flight)} when the entry is available. Otherwise, this waits until the leader is done
+	 * or its flight expires.
+	 *
+	 * @param key key of the entry
+	 * @param timeout time in milliseconds after which a flight is considered abandoned
+	 * @return flight when the caller is the leader, null when the caller waited for another thread
+	 */
+	Flight join(String key, long timeout) {
+		Flight flight = new Flight(key, System.currentTimeMillis() + timeout);
+		Flight current = flights.putIfAbsent(key, flight);
+		if (null == current) {
+			return flight;
+		}
+		if (current.isExpired() && flights.replace(key, current, flight)) {
+			current.release(); // abandoned, let any waiting threads continue
+			return flight;
+		}
+		current.await();
+		return null;
+	}
+
+	/**
+	 * Finish a flight, wake up the waiting threads.
+	 *
+	 * @param flight flight which was obtained from {@link #join(String, long)}
+	 */
+	void done(Flight flight) {
+		flights.remove(flight.key, flight);
+		flight.release();
+	}
+
+	/**
+	 * Number of flights which are in progress.
+	 *
+	 * @return number of flights
+	 */
+	int size() {
+		return flights.size();
+	}
+
+	/**
+	 * Calculation of one entry.
+	 *
+	 * @author agent
+	 */
+	static final class Flight {
+
+		private final String key;
+
+		private final long expires;
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		private Flight(String key, long expires) {
+			this.key = key;
+			this.expires = expires;
+		}
+
+		private boolean isExpired() {
+			return System.currentTimeMillis() >= expires;
+		}
+
+		private void release() {
+			latch.countDown();
+		}
+
+		private void await() {
+			try {
+				latch.await(expires - System.currentTimeMillis(), TimeUnit.MILLISECONDS);
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+}
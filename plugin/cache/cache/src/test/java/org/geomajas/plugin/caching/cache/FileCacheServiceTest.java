@@ -0,0 +1,133 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.caching.cache;
+
+import com.vividsolutions.jts.geom.Envelope;
+import org.geomajas.plugin.caching.service.IndexedCache;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.List;
+
+/**
+ * Test for {@link FileCacheService}.
+ *
+ * @author agent
+ */
+public class FileCacheServiceTest {
+
+	private static final long MAX_SIZE = 1024 * 1024;
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	@Test
+	public void testPutGet() throws Exception {
+		FileCacheService cache = new FileCacheService(folder.getRoot(), MAX_SIZE);
+		cache.put("key", "value");
+		Assert.assertEquals("value", cache.get("key"));
+		Assert.assertEquals("value", cache.get("key", String.class));
+		Assert.assertNull(cache.get("key", Integer.class));
+		Assert.assertNull(cache.get("other"));
+
+		cache.put("key", "changed");
+		Assert.assertEquals("changed", cache.get("key"));
+		Assert.assertEquals(1, cache.getCount());
+
+		// large entries are memory mapped
+		byte[] large = new byte[100 * 1024];
+		large[1234] = 12;
+		cache.put("http://some.host/some/path?with=parameters&and=more", large);
+		byte[] read = cache.get("http://some.host/some/path?with=parameters&and=more", byte[].class);
+		Assert.assertEquals(large.length, read.length);
+		Assert.assertEquals(12, read[1234]);
+
+		cache.remove("key");
+		Assert.assertNull(cache.get("key"));
+		cache.clear();
+		Assert.assertEquals(0, cache.getCount());
+		Assert.assertEquals(0, cache.getSize());
+	}
+
+	@Test
+	public void testNotSerializable() throws Exception {
+		FileCacheService cache = new FileCacheService(folder.getRoot(), MAX_SIZE);
+		cache.put("key", new Object());
+		Assert.assertNull(cache.get("key"));
+		Assert.assertEquals(0, cache.getCount());
+	}
+
+	@Test
+	public void testPersistent() throws Exception {
+		File directory = folder.getRoot();
+		FileCacheService cache = new FileCacheService(directory, MAX_SIZE);
+		IndexedCache indexedCache = new IndexedCache(cache, cache);
+		indexedCache.put("left", "l", new Envelope(0, 10, 0, 10));
+		indexedCache.put("right", "r", new Envelope(20, 30, 0, 10));
+		indexedCache.put("unbounded", "u", null);
+
+		// reopen, content and index are restored
+		cache = new FileCacheService(directory, MAX_SIZE);
+		Assert.assertEquals(3, cache.getCount());
+		Assert.assertEquals("l", cache.get("left"));
+		List<String> keys = cache.getOverlappingKeys(new Envelope(5, 6, 5, 6));
+		Assert.assertEquals(2, keys.size());
+		Assert.assertTrue(keys.contains("left"));
+		Assert.assertTrue(keys.contains("unbounded"));
+
+		indexedCache = new IndexedCache(cache, cache);
+		indexedCache.invalidate(new Envelope(25, 26, 5, 6));
+		Assert.assertEquals("l", cache.get("left"));
+		Assert.assertNull(cache.get("right"));
+		Assert.assertNull(cache.get("unbounded"));
+
+		cache = new FileCacheService(directory, MAX_SIZE);
+		Assert.assertEquals(1, cache.getCount());
+	}
+
+	@Test
+	public void testManyEntries() throws Exception {
+		File directory = folder.getRoot();
+		FileCacheService cache = new FileCacheService(directory, 100 * MAX_SIZE);
+		IndexedCache indexedCache = new IndexedCache(cache, cache);
+		int count = 12000; // more than the default maximum of the quad tree index
+		for (int i = 0; i < count; i++) {
+			indexedCache.put("key" + i, i, new Envelope(i, i + 0.5, 0, 1));
+		}
+
+		// reopen, the index is restored and invalidation only removes the overlapping entry
+		cache = new FileCacheService(directory, 100 * MAX_SIZE);
+		Assert.assertEquals(count, cache.getCount());
+		indexedCache = new IndexedCache(cache, cache);
+		indexedCache.invalidate(new Envelope(5.1, 5.2, 0, 1));
+		Assert.assertNull(cache.get("key5"));
+		Assert.assertEquals(4, cache.get("key4"));
+		Assert.assertEquals(count - 1, cache.getCount());
+	}
+
+	@Test
+	public void testEviction() throws Exception {
+		FileCacheService cache = new FileCacheService(folder.getRoot(), 3 * 1024);
+		cache.put("one", new byte[1000]);
+		cache.put("two", new byte[1000]);
+		Assert.assertNotNull(cache.get("one")); // "two" is now least recently used
+		cache.put("three", new byte[1000]);
+		Assert.assertNull(cache.get("two"));
+		Assert.assertNotNull(cache.get("one"));
+		Assert.assertNotNull(cache.get("three"));
+		Assert.assertTrue(cache.getSize() <= 3 * 1024);
+	}
+}
@@ -0,0 +1,108 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.caching.index;
+
+import com.vividsolutions.jts.geom.Envelope;
+import org.geomajas.plugin.caching.service.CacheIndexService;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+
+/**
+ * Test for {@link QuadTreeIndexService}.
+ *
+ * @author agent
+ */
+public class QuadTreeIndexServiceTest {
+
+	private QuadTreeIndexService index;
+
+	@Before
+	public void init() {
+		index = new QuadTreeIndexService();
+		index.put("left", new Envelope(0, 10, 0, 10));
+		index.put("right", new Envelope(20, 30, 0, 10));
+		index.put("point", new Envelope(5, 5, 5, 5));
+	}
+
+	@Test
+	public void testOverlapping() {
+		List<String> keys = index.getOverlappingKeys(new Envelope(5, 15, 5, 15));
+		Assert.assertEquals(2, keys.size());
+		Assert.assertTrue(keys.contains("left"));
+		Assert.assertTrue(keys.contains("point"));
+
+		keys = index.getOverlappingKeys(new Envelope(25, 26, 1, 2));
+		Assert.assertEquals(1, keys.size());
+		Assert.assertTrue(keys.contains("right"));
+
+		Assert.assertTrue(index.getOverlappingKeys(new Envelope(100, 110, 100, 110)).isEmpty());
+	}
+
+	@Test
+	public void testPutOverwrites() {
+		index.put("left", new Envelope(100, 110, 100, 110));
+		Assert.assertEquals(3, index.size());
+		Assert.assertFalse(index.getOverlappingKeys(new Envelope(0, 1, 0, 1)).contains("left"));
+		Assert.assertTrue(index.getOverlappingKeys(new Envelope(105, 106, 105, 106)).contains("left"));
+	}
+
+	@Test
+	public void testRemove() {
+		index.remove("left");
+		index.remove("unknown");
+		Assert.assertEquals(2, index.size());
+		List<String> keys = index.getOverlappingKeys(new Envelope(5, 15, 5, 15));
+		Assert.assertEquals(1, keys.size());
+		Assert.assertTrue(keys.contains("point"));
+	}
+
+	@Test
+	public void testNoEnvelope() {
+		index.put("unknown", null);
+		index.put("empty", new Envelope());
+		List<String> keys = index.getOverlappingKeys(new Envelope(100, 110, 100, 110));
+		Assert.assertEquals(2, keys.size());
+		Assert.assertTrue(keys.contains("unknown"));
+		Assert.assertTrue(keys.contains("empty"));
+		Assert.assertTrue(CacheIndexService.ALL_KEYS == index.getOverlappingKeys(null));
+		index.remove("unknown");
+		Assert.assertEquals(1, index.getOverlappingKeys(new Envelope(100, 110, 100, 110)).size());
+	}
+
+	@Test
+	public void testClear() {
+		index.put("unknown", null);
+		index.clear();
+		Assert.assertEquals(0, index.size());
+		Assert.assertTrue(index.getOverlappingKeys(new Envelope(-1000, 1000, -1000, 1000)).isEmpty());
+		index.put("left", new Envelope(0, 10, 0, 10));
+		Assert.assertEquals(1, index.getOverlappingKeys(new Envelope(5, 15, 5, 15)).size());
+	}
+
+	@Test
+	public void testMaxEntries() {
+		index = new QuadTreeIndexService(2);
+		index.put("left", new Envelope(0, 10, 0, 10));
+		index.put("right", new Envelope(20, 30, 0, 10));
+		index.put("right", new Envelope(20, 30, 0, 10)); // replacing does not overflow
+		Assert.assertEquals(1, index.getOverlappingKeys(new Envelope(25, 26, 1, 2)).size());
+		index.put("point", new Envelope(5, 5, 5, 5));
+		// the index is full, everything needs to be invalidated
+		Assert.assertTrue(CacheIndexService.ALL_KEYS == index.getOverlappingKeys(new Envelope(100, 110, 100, 110)));
+		index.clear();
+		index.put("point", new Envelope(5, 5, 5, 5));
+		Assert.assertTrue(index.getOverlappingKeys(new Envelope(100, 110, 100, 110)).isEmpty());
+	}
+}
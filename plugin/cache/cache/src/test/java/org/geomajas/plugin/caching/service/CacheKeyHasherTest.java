@@ -0,0 +1,70 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.caching.service;
+
+import junit.framework.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link CacheKeyHasher}.
+ *
+ * @author agent
+ */
+public class CacheKeyHasherTest {
+
+	@Test
+	public void testKnownValues() {
+		CacheKeyHasher hasher = new CacheKeyHasher();
+		hasher.update(1L);
+		hasher.update(2L);
+		hasher.update(3L);
+		hasher.finish();
+		Assert.assertEquals("b50a97f8b297f54157f6887b59f04f45", hasher.asHex());
+
+		hasher.reset();
+		hasher.update(42L);
+		hasher.update(-7L);
+		hasher.finish();
+		Assert.assertEquals("1b0df3093b8df45f559ba6fdd488bf7b", hasher.asHex());
+	}
+
+	@Test
+	public void testReset() {
+		CacheKeyHasher hasher = new CacheKeyHasher();
+		hasher.update("some text");
+		hasher.finish();
+		String first = hasher.asHex();
+		hasher.reset();
+		hasher.update("some text");
+		hasher.finish();
+		Assert.assertEquals(first, hasher.asHex());
+		Assert.assertEquals(32, first.length());
+	}
+
+	@Test
+	public void testStrings() {
+		Assert.assertFalse(hash("ab", "c").equals(hash("a", "bc")));
+		Assert.assertFalse(hash("", "").equals(hash((String) null, "")));
+		Assert.assertFalse(hash("abcd").equals(hash("abce")));
+		Assert.assertFalse(hash("abcdefgh").equals(hash("abcdefgi")));
+	}
+
+	private String hash(String... values) {
+		CacheKeyHasher hasher = new CacheKeyHasher();
+		for (String value : values) {
+			hasher.update(value);
+		}
+		hasher.finish();
+		return hasher.asHex();
+	}
+}
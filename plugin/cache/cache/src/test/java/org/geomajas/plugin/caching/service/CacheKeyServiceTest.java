@@ -11,11 +11,15 @@
 
 package org.geomajas.plugin.caching.service;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryCollection;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import junit.framework.Assert;
 import org.geomajas.internal.service.pipeline.PipelineContextImpl;
+import org.geomajas.service.FilterService;
+import org.geomajas.service.GeoService;
 import org.geomajas.service.pipeline.PipelineContext;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -23,8 +27,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
 /**
  * Test for the {@link CacheKeyService} implementation.
@@ -39,6 +49,12 @@ public class CacheKeyServiceTest {
 	@Autowired
 	private CacheKeyService cacheKeyService;
 
+	@Autowired
+	private FilterService filterService;
+
+	@Autowired
+	private GeoService geoService;
+
 	@Test
 	public void testGetCacheContextAndKey() throws Exception {
 		String key1 = "key1";
@@ -114,6 +130,151 @@ public class CacheKeyServiceTest {
 		Assert.assertFalse(cacheKey3.equals(cacheKey1));
 	}
 
+	@Test
+	public void testEntryOrder() {
+		CacheContext context1 = new CacheContextImpl();
+		CacheContext context2 = new CacheContextImpl();
+		for (int i = 0; i < 20; i++) {
+			context1.put("key" + i, "value" + i);
+			context2.put("key" + (19 - i), "value" + (19 - i));
+		}
+		Assert.assertEquals(cacheKeyService.getCacheKey(context1), cacheKeyService.getCacheKey(context2));
+		Assert.assertEquals(32, cacheKeyService.getCacheKey(context1).length());
+	}
+
+	@Test
+	public void testTypes() {
+		Set<String> keys = new HashSet<String>();
+		keys.add(getKey("1"));
+		keys.add(getKey(1));
+		keys.add(getKey(1.0));
+		keys.add(getKey(true));
+		keys.add(getKey(new Envelope(1, 1, 1, 1)));
+		keys.add(getKey(null));
+		Assert.assertEquals(6, keys.size());
+
+		// values are not confused with keys or other entries
+		CacheContext context1 = new CacheContextImpl();
+		context1.put("a", "bc");
+		CacheContext context2 = new CacheContextImpl();
+		context2.put("ab", "c");
+		CacheContext context3 = new CacheContextImpl();
+		context3.put("a", "c");
+		context3.put("b", "b");
+		CacheContext context4 = new CacheContextImpl();
+		context4.put("a", "b");
+		context4.put("b", "c");
+		keys.clear();
+		keys.add(cacheKeyService.getCacheKey(context1));
+		keys.add(cacheKeyService.getCacheKey(context2));
+		keys.add(cacheKeyService.getCacheKey(context3));
+		keys.add(cacheKeyService.getCacheKey(context4));
+		Assert.assertEquals(4, keys.size());
+	}
+
+	@Test
+	public void testGeometry() {
+		GeometryFactory geometryFactory = new GeometryFactory();
+		Geometry polygon = geometryFactory.toGeometry(new Envelope(0, 10, 0, 10));
+		String key = getKey(polygon);
+		Assert.assertEquals(key, getKey(geometryFactory.toGeometry(new Envelope(0, 10, 0, 10))));
+		Assert.assertFalse(key.equals(getKey(geometryFactory.toGeometry(new Envelope(0, 10, 0, 10.000001)))));
+		Assert.assertFalse(key.equals(getKey(polygon.getBoundary())));
+		Assert.assertFalse(key.equals(getKey(geometryFactory.createGeometryCollection(new Geometry[] {polygon}))));
+		Assert.assertFalse(getKey(geometryFactory.createPoint(new Coordinate(1, 2))).equals(
+				getKey(geometryFactory.createPoint(new Coordinate(2, 1)))));
+	}
+
+	@Test
+	public void testFilter() throws Exception {
+		String key = getKey(filterService.parseFilter("name = 'a' and size > 5"));
+		Assert.assertEquals(key, getKey(filterService.parseFilter("name = 'a' and size > 5")));
+		Assert.assertFalse(key.equals(getKey(filterService.parseFilter("name = 'b' and size > 5"))));
+		Assert.assertFalse(key.equals(getKey(filterService.parseFilter("name = 'a' and size > 6"))));
+		Assert.assertFalse(key.equals(getKey(filterService.parseFilter("name = 'a' or size > 5"))));
+		Assert.assertFalse(key.equals(getKey(filterService.parseFilter("size > 5 and name = 'a'"))));
+		Assert.assertFalse(key.equals(getKey(filterService.parseFilter("name <> 'a' and size > 5"))));
+
+		GeometryFactory geometryFactory = new GeometryFactory();
+		key = getKey(filterService.createIntersectsFilter(
+				geometryFactory.toGeometry(new Envelope(0, 10, 0, 10)), "geometry"));
+		Assert.assertEquals(key, getKey(filterService.createIntersectsFilter(
+				geometryFactory.toGeometry(new Envelope(0, 10, 0, 10)), "geometry")));
+		Assert.assertFalse(key.equals(getKey(filterService.createIntersectsFilter(
+				geometryFactory.toGeometry(new Envelope(0, 10, 0, 11)), "geometry"))));
+		Assert.assertFalse(key.equals(getKey(filterService.createWithinFilter(
+				geometryFactory.toGeometry(new Envelope(0, 10, 0, 10)), "geometry"))));
+		Assert.assertFalse(key.equals(getKey(filterService.createIntersectsFilter(
+				geometryFactory.toGeometry(new Envelope(0, 10, 0, 10)), "other"))));
+
+		Assert.assertEquals(getKey(filterService.createFidFilter(new String[] {"1", "2"})),
+				getKey(filterService.createFidFilter(new String[] {"2", "1"})));
+		Assert.assertFalse(getKey(filterService.createFidFilter(new String[] {"1", "2"})).equals(
+				getKey(filterService.createFidFilter(new String[] {"1", "3"}))));
+		// same sum of the hash codes
+		Assert.assertFalse(getKey(filterService.createFidFilter(new String[] {"1", "4"})).equals(
+				getKey(filterService.createFidFilter(new String[] {"2", "3"}))));
+	}
+
+	@Test
+	public void testCollections() {
+		Set<String> set1 = new HashSet<String>(Arrays.asList("1", "4"));
+		Set<String> set2 = new HashSet<String>(Arrays.asList("2", "3"));
+		Assert.assertFalse(getKey(set1).equals(getKey(set2)));
+		Assert.assertEquals(getKey(set1), getKey(new TreeSet<String>(Arrays.asList("4", "1"))));
+		Assert.assertFalse(getKey(Arrays.asList("1", "4")).equals(getKey(Arrays.asList("4", "1"))));
+		Assert.assertFalse(getKey(new ArrayList<String>(set1)).equals(getKey(set1)));
+		Map<String, String> map1 = new HashMap<String, String>();
+		map1.put("a", "1");
+		map1.put("b", "4");
+		Map<String, String> map2 = new HashMap<String, String>();
+		map2.put("a", "4");
+		map2.put("b", "1");
+		Assert.assertFalse(getKey(map1).equals(getKey(map2)));
+		Assert.assertEquals(getKey(map1), getKey(new TreeMap<String, String>(map1)));
+	}
+
+	@Test
+	public void testCrs() throws Exception {
+		String key = getKey(geoService.getCrs2("EPSG:4326"));
+		Assert.assertEquals(key, getKey(geoService.getCrs2("EPSG:4326")));
+		Assert.assertFalse(key.equals(getKey(geoService.getCrs2("EPSG:900913"))));
+	}
+
+	@Test
+	public void testNoCollisions() throws Exception {
+		Set<String> keys = new HashSet<String>();
+		int count = 0;
+		// tile bounds at several levels, as used when caching tiles and features
+		for (int level = 0; level < 7; level++) {
+			int tiles = 1 << level;
+			double size = 360.0 / tiles;
+			for (int x = 0; x < tiles; x++) {
+				for (int y = 0; y < tiles; y++) {
+					CacheContext context = new CacheContextImpl();
+					context.put("layer", "beans");
+					context.put("bounds", new Envelope(x * size - 180, (x + 1) * size - 180, y * size - 180,
+							(y + 1) * size - 180));
+					keys.add(cacheKeyService.getCacheKey(context));
+					count++;
+				}
+			}
+		}
+		for (int i = 0; i < 10000; i++) {
+			keys.add(getKey(i));
+			keys.add(getKey("feature." + i));
+			keys.add(getKey(filterService.createCompareFilter("id", "=", Integer.toString(i))));
+			count += 3;
+		}
+		Assert.assertEquals(count, keys.size());
+	}
+
+	private String getKey(Object value) {
+		CacheContext context = new CacheContextImpl();
+		context.put("value", value);
+		return cacheKeyService.getCacheKey(context);
+	}
+
 	private static class MyCacheContext implements CacheContext {
 		private Map<String, Object> map = new HashMap<String, Object>();
 
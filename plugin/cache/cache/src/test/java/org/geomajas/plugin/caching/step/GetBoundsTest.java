@@ -20,6 +20,8 @@ import org.geomajas.plugin.caching.service.CacheManagerServiceImpl;
 import org.geomajas.plugin.caching.service.DummyCacheService;
 import org.geomajas.service.GeoService;
 import org.geomajas.service.TestRecorder;
+import org.geomajas.service.metrics.HitCounter;
+import org.geomajas.service.metrics.MetricsService;
 import org.geomajas.spring.ThreadScopeContextHolder;
 import org.junit.After;
 import org.junit.Assert;
@@ -58,6 +60,9 @@ public class GetBoundsTest {
 	@Autowired
 	private GeoService geoService;
 
+	@Autowired
+	private MetricsService metricsService;
+
 	@Autowired
 	@Qualifier(LAYER_BEANS)
 	private VectorLayer layerBeans;
@@ -75,6 +80,7 @@ public class GetBoundsTest {
 	@Test
 	public void testGetBounds() throws Exception {
 		securityManager.createSecurityContext(null); // assure a security context exists for this thread
+		metricsService.reset();
 		Envelope bounds;
 
 		// first run, this should put things in the cache
@@ -115,5 +121,20 @@ public class GetBoundsTest {
 		Assert.assertNotNull(bounds);
 		Assert.assertEquals("", recorder.matches(CacheCategory.BOUNDS,
 				"Put item in cache"));
+
+		// the cache hits and misses are counted per layer
+		HitCounter beansCounter = getHitCounter(LAYER_BEANS);
+		Assert.assertEquals(1, beansCounter.getHits());
+		Assert.assertEquals(1, beansCounter.getMisses());
+		Assert.assertEquals(0.5, beansCounter.getHitRatio(), DELTA);
+		HitCounter countriesCounter = getHitCounter(LAYER_COUNTRIES);
+		Assert.assertEquals(0, countriesCounter.getHits());
+		Assert.assertEquals(1, countriesCounter.getMisses());
+	}
+
+	private HitCounter getHitCounter(String layerId) {
+		return metricsService.getHitCounter(MetricsService.CACHE, MetricsService.TAG_CATEGORY,
+				CacheCategory.BOUNDS.getName(), MetricsService.TAG_LAYER, layerId, MetricsService.TAG_INTERCEPTOR,
+				"GetBoundsCache");
 	}
 }
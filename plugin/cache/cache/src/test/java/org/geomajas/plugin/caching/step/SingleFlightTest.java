@@ -0,0 +1,91 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.caching.step;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link SingleFlight}.
+ *
+ * @author agent
+ */
+public class SingleFlightTest {
+
+	private static final String KEY = "tile/beans/1234";
+	private static final long TIMEOUT = 10000;
+
+	@Test
+	public void testFollowersWaitForLeader() throws Exception {
+		final SingleFlight singleFlight = new SingleFlight();
+		SingleFlight.Flight flight = singleFlight.join(KEY, TIMEOUT);
+		Assert.assertNotNull(flight);
+
+		final int followers = 5;
+		final AtomicInteger leaders = new AtomicInteger();
+		final CountDownLatch started = new CountDownLatch(followers);
+		final CountDownLatch finished = new CountDownLatch(followers);
+		for (int i = 0; i < followers; i++) {
+			new Thread(new Runnable() {
+
+				public void run() {
+					started.countDown();
+					if (null != singleFlight.join(KEY, TIMEOUT)) {
+						leaders.incrementAndGet();
+					}
+					finished.countDown();
+				}
+			}).start();
+		}
+		Assert.assertTrue(started.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		Assert.assertFalse(finished.await(100, TimeUnit.MILLISECONDS)); // still waiting for the leader
+
+		singleFlight.done(flight);
+		Assert.assertTrue(finished.await(TIMEOUT, TimeUnit.MILLISECONDS));
+		Assert.assertEquals(0, leaders.get());
+		Assert.assertEquals(0, singleFlight.size());
+
+		// next miss starts a new flight
+		flight = singleFlight.join(KEY, TIMEOUT);
+		Assert.assertNotNull(flight);
+		Assert.assertNotNull(singleFlight.join("other", TIMEOUT));
+		Assert.assertEquals(2, singleFlight.size());
+	}
+
+	@Test
+	public void testAbandonedFlight() throws Exception {
+		SingleFlight singleFlight = new SingleFlight();
+		SingleFlight.Flight abandoned = singleFlight.join(KEY, 50);
+		Assert.assertNotNull(abandoned);
+
+		// waits until the flight expires
+		long start = System.currentTimeMillis();
+		Assert.assertNull(singleFlight.join(KEY, 50));
+		Assert.assertTrue(System.currentTimeMillis() - start >= 40);
+
+		// the expired flight is taken over
+		SingleFlight.Flight flight = singleFlight.join(KEY, TIMEOUT);
+		Assert.assertNotNull(flight);
+		Assert.assertNotSame(abandoned, flight);
+
+		// finishing the abandoned flight does not affect the new one
+		singleFlight.done(abandoned);
+		Assert.assertEquals(1, singleFlight.size());
+		singleFlight.done(flight);
+		Assert.assertEquals(0, singleFlight.size());
+	}
+}
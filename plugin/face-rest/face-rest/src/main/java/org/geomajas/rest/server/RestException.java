@@ -30,6 +30,8 @@ public class RestException extends GeomajasException {
 	public static final int NO_SUCH_ATTRIBUTE = 2;
 	public static final int UNSUPPORTED_QUERY_OPERATION = 3;
 	public static final int NO_ELEMENTS = 4;
+	public static final int PROBLEM_WRITING_FEATURES = 5;
+	public static final int PROBLEM_READING_FEATURES = 6;
 
 
 	/**
@@ -41,19 +41,27 @@ public class TxtParser {
 		PrintStream printStream = new PrintStream(output);
 
 		while (it.hasNext()) {
-			SimpleFeature ft = it.next();
-			printStream.print(ft.getID() + " [");
-			boolean first = true;
-			for (AttributeDescriptor ad : ft.getType().getAttributeDescriptors()) {
-				if (!first) {
-					printStream.print(", ");
-				}
-				printStream.print(ad.getLocalName() + ": " + ft.getAttribute(ad.getName()));
-				first = false;
-			}
-			printStream.println("]");
+			write(it.next(), printStream);
 		}
+	}
 
+	/**
+	 * Write one feature as a line of text.
+	 *
+	 * @param feature feature
+	 * @param printStream stream to write to
+	 */
+	public void write(SimpleFeature feature, PrintStream printStream) {
+		printStream.print(feature.getID() + " [");
+		boolean first = true;
+		for (AttributeDescriptor ad : feature.getType().getAttributeDescriptors()) {
+			if (!first) {
+				printStream.print(", ");
+			}
+			printStream.print(ad.getLocalName() + ": " + feature.getAttribute(ad.getName()));
+			first = false;
+		}
+		printStream.println("]");
 	}
 
 }
@@ -0,0 +1,153 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.rest.server.mvc;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.text.DateFormat;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+import org.geomajas.configuration.VectorLayerInfo;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.rest.server.GeoToolsConverterService;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.view.AbstractView;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * CSV view. The first line contains the column names, the id followed by the attributes. Geometries are written as
+ * WKT, dates in ISO 8601 format.
+ *
+ * @author agent
+ */
+@Component("rest.server.mvc.CsvView")
+public class CsvView extends AbstractView {
+
+	@Autowired
+	private GeoToolsConverterService convertorService;
+
+	public CsvView() {
+		setContentType("text/csv");
+	}
+
+	@Override
+	protected void renderMergedOutputModel(Map<String, Object> model, HttpServletRequest request,
+			HttpServletResponse response) throws Exception {
+		if (model.get(RestController.VECTOR_LAYER_INFO) == null) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "No elements where found.");
+			return;
+		}
+		Object ff = model.get(RestController.FEATURE_COLLECTION);
+		VectorLayerInfo info = (VectorLayerInfo) model.get(RestController.VECTOR_LAYER_INFO);
+		List<String> attrs = (List<String>) model.get(RestController.ATTRIBUTES);
+		SimpleFeatureType sft = convertorService.toSimpleFeatureType(info, attrs);
+		response.setContentType(getContentType() + ";charset=UTF-8");
+		response.setHeader("Content-Disposition", "attachement;filename=" + model.get(RestController.VECTOR_LAYER_ID)
+				+ ".csv");
+		CsvWriter writer = new CsvWriter(convertorService, sft, response);
+		if (ff instanceof FeatureStream) {
+			writer.write((FeatureStream) ff, response);
+		} else {
+			writer.handle((InternalFeature) ff);
+			writer.writeEnd();
+		}
+	}
+
+	/**
+	 * Writes the features as CSV lines, one feature at a time.
+	 *
+	 * @author agent
+	 */
+	private static final class CsvWriter extends FeatureStreamWriter {
+
+		private static final String SEPARATOR = ",";
+
+		private static final String LINE_SEPARATOR = "\r\n";
+
+		private final SimpleFeatureType featureType;
+
+		private final HttpServletResponse response;
+
+		private final DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSZ");
+
+		private Writer writer;
+
+		private CsvWriter(GeoToolsConverterService converterService, SimpleFeatureType featureType,
+				HttpServletResponse response) {
+			super(converterService, featureType);
+			this.featureType = featureType;
+			this.response = response;
+		}
+
+		@Override
+		protected void writeStart() throws IOException {
+			writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), "UTF-8"));
+			writer.write("id");
+			for (AttributeDescriptor descriptor : featureType.getAttributeDescriptors()) {
+				writer.write(SEPARATOR);
+				writeValue(descriptor.getLocalName());
+			}
+			writer.write(LINE_SEPARATOR);
+		}
+
+		@Override
+		protected void writeFeature(SimpleFeature feature) throws IOException {
+			writeValue(feature.getID());
+			for (Object value : feature.getAttributes()) {
+				writer.write(SEPARATOR);
+				writeValue(value);
+			}
+			writer.write(LINE_SEPARATOR);
+		}
+
+		@Override
+		protected void writeEnd() throws IOException {
+			writer.flush();
+		}
+
+		private void writeValue(Object value) throws IOException {
+			if (null == value) {
+				return;
+			}
+			String text;
+			if (value instanceof Geometry) {
+				text = ((Geometry) value).toText();
+			} else if (value instanceof Date) {
+				text = dateFormat.format((Date) value);
+			} else {
+				text = value.toString();
+			}
+			if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 ||
+					text.indexOf('\r') >= 0) {
+				writer.write('"');
+				writer.write(text.replace("\"", "\"\""));
+				writer.write('"');
+			} else {
+				writer.write(text);
+			}
+		}
+	}
+
+}
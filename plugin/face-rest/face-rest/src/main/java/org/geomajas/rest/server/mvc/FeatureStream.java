@@ -0,0 +1,126 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.rest.server.mvc;
+
+import java.util.List;
+
+import org.geomajas.configuration.SortType;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.VectorLayerService;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
+import org.opengis.filter.Filter;
+import org.opengis.referencing.crs.CoordinateReferenceSystem;
+
+/**
+ * Features which are read by a REST request. The features are only read when they are written by the view, one at a
+ * time, so large results can be written without keeping all features in memory.
+ * <p/>
+ * A stream can also be created for features which are already known, for example the result of a save.
+ *
+ * @author agent
+ */
+public class FeatureStream {
+
+	private final VectorLayerService vectorLayerService;
+
+	private final String layerId;
+
+	private final CoordinateReferenceSystem crs;
+
+	private final Filter filter;
+
+	private final int featureIncludes;
+
+	private final int offset;
+
+	private final int maxResultSize;
+
+	private final String sortAttributeName;
+
+	private final SortType sortType;
+
+	private final List<InternalFeature> features;
+
+	/**
+	 * Create a feature stream.
+	 *
+	 * @param vectorLayerService vector layer service
+	 * @param layerId layer id
+	 * @param crs crs for the geometries
+	 * @param filter filter to apply
+	 * @param featureIncludes data to include in the features
+	 * @param offset number of features to skip
+	 * @param maxResultSize maximum number of features, 0 for no limit
+	 * @param sortAttributeName attribute to sort on, null when not sorted
+	 * @param sortType sort order
+	 */
+	public FeatureStream(VectorLayerService vectorLayerService, String layerId, CoordinateReferenceSystem crs,
+			Filter filter, int featureIncludes, int offset, int maxResultSize, String sortAttributeName,
+			SortType sortType) {
+		this.vectorLayerService = vectorLayerService;
+		this.layerId = layerId;
+		this.crs = crs;
+		this.filter = filter;
+		this.featureIncludes = featureIncludes;
+		this.offset = offset;
+		this.maxResultSize = maxResultSize;
+		this.sortAttributeName = sortAttributeName;
+		this.sortType = sortType;
+		this.features = null;
+	}
+
+	/**
+	 * Create a feature stream for features which are already known.
+	 *
+	 * @param layerId layer id
+	 * @param features features
+	 */
+	public FeatureStream(String layerId, List<InternalFeature> features) {
+		this.vectorLayerService = null;
+		this.layerId = layerId;
+		this.crs = null;
+		this.filter = null;
+		this.featureIncludes = 0;
+		this.offset = 0;
+		this.maxResultSize = 0;
+		this.sortAttributeName = null;
+		this.sortType = null;
+		this.features = features;
+	}
+
+	/**
+	 * Read the features, passing them to the handler one at a time.
+	 *
+	 * @param handler feature handler
+	 * @throws GeomajasException reading or handling the features failed
+	 */
+	public void stream(InternalFeatureHandler handler) throws GeomajasException {
+		if (null != features) {
+			for (InternalFeature feature : features) {
+				handler.handle(feature);
+			}
+		} else {
+			vectorLayerService.getFeatures(layerId, crs, filter, null, featureIncludes, offset, maxResultSize,
+					sortAttributeName, sortType, handler);
+		}
+	}
+
+	/**
+	 * Get the id of the layer which contains the features.
+	 *
+	 * @return layer id
+	 */
+	public String getLayerId() {
+		return layerId;
+	}
+}
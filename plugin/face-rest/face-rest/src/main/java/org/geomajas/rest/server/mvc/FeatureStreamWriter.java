@@ -0,0 +1,120 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.rest.server.mvc;
+
+import java.io.IOException;
+
+import javax.servlet.http.HttpServletResponse;
+
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
+import org.geomajas.rest.server.GeoToolsConverterService;
+import org.geomajas.rest.server.RestException;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * Writes the features of a {@link FeatureStream} to the response while they are read. Nothing is written before the
+ * first feature is available, when there are no features a "not found" error is sent instead.
+ * <p/>
+ * The response has no content length, so the servlet container uses chunked transfer encoding once its buffer is
+ * full.
+ *
+ * @author agent
+ */
+public abstract class FeatureStreamWriter implements InternalFeatureHandler {
+
+	private final GeoToolsConverterService converterService;
+
+	private final SimpleFeatureType featureType;
+
+	private String layerId;
+
+	private int count;
+
+	/**
+	 * Create a writer.
+	 *
+	 * @param converterService service to convert the features
+	 * @param featureType feature type to convert to
+	 */
+	protected FeatureStreamWriter(GeoToolsConverterService converterService, SimpleFeatureType featureType) {
+		this.converterService = converterService;
+		this.featureType = featureType;
+	}
+
+	/**
+	 * Read the features and write them to the response.
+	 *
+	 * @param stream features to write
+	 * @param response response
+	 * @throws GeomajasException reading or writing the features failed
+	 * @throws IOException writing the error failed
+	 */
+	public void write(FeatureStream stream, HttpServletResponse response) throws GeomajasException, IOException {
+		layerId = stream.getLayerId();
+		stream.stream(this);
+		if (0 == count) {
+			response.sendError(HttpServletResponse.SC_NOT_FOUND, "No elements where found.");
+		} else {
+			try {
+				writeEnd();
+			} catch (IOException ioe) {
+				throw new RestException(ioe, RestException.PROBLEM_WRITING_FEATURES, layerId);
+			}
+		}
+	}
+
+	@Override
+	public void handle(InternalFeature feature) throws GeomajasException {
+		try {
+			if (0 == count++) {
+				writeStart();
+			}
+			writeFeature(converterService.toSimpleFeature(feature, featureType));
+		} catch (IOException ioe) {
+			throw new RestException(ioe, RestException.PROBLEM_WRITING_FEATURES, layerId);
+		}
+	}
+
+	/**
+	 * Get the number of features which were written.
+	 *
+	 * @return number of features
+	 */
+	public int getCount() {
+		return count;
+	}
+
+	/**
+	 * Write the start of the document, called before the first feature is written.
+	 *
+	 * @throws IOException oops
+	 */
+	protected abstract void writeStart() throws IOException;
+
+	/**
+	 * Write a feature.
+	 *
+	 * @param feature feature
+	 * @throws IOException oops
+	 */
+	protected abstract void writeFeature(SimpleFeature feature) throws IOException;
+
+	/**
+	 * Write the end of the document and flush, called after the last feature.
+	 *
+	 * @throws IOException oops
+	 */
+	protected abstract void writeEnd() throws IOException;
+}
@@ -0,0 +1,171 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.rest.server.mvc;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.text.DateFormat;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.geomajas.configuration.AbstractAttributeInfo;
+import org.geomajas.configuration.PrimitiveAttributeInfo;
+import org.geomajas.configuration.PrimitiveType;
+import org.geomajas.configuration.VectorLayerInfo;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.feature.Attribute;
+import org.geomajas.layer.feature.Feature;
+import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.rest.server.RestException;
+import org.geomajas.service.DtoConverterService;
+import org.geotools.geojson.geom.GeometryJSON;
+import org.json.simple.JSONValue;
+import org.json.simple.parser.JSONParser;
+
+/**
+ * Reads the features from a GeoJSON document, as sent to create or update features. The document can contain a
+ * feature collection or a single feature. The properties are converted to the attribute types of the layer.
+ * <p/>
+ * Dates are expected in ISO 8601 format, as written by the GeoJSON view. Synthetic attributes are ignored, so a
+ * feature which was read from the layer can be sent back.
+ *
+ * @author agent
+ */
+public class GeoJsonFeatureReader {
+
+	private static final String[] DATE_FORMATS = { "yyyy-MM-dd'T'HH:mm:ss.SSSZ", "yyyy-MM-dd'T'HH:mm:ssZ",
+			"yyyy-MM-dd" };
+
+	private final DtoConverterService converterService;
+
+	private final String layerId;
+
+	private final VectorLayerInfo layerInfo;
+
+	private final GeometryJSON geometryJson = new GeometryJSON();
+
+	/**
+	 * Create a reader for the features of a layer.
+	 *
+	 * @param converterService service to convert the attributes and geometries
+	 * @param layerId layer id
+	 * @param layerInfo layer info, which contains the attribute types
+	 */
+	public GeoJsonFeatureReader(DtoConverterService converterService, String layerId, VectorLayerInfo layerInfo) {
+		this.converterService = converterService;
+		this.layerId = layerId;
+		this.layerInfo = layerInfo;
+	}
+
+	/**
+	 * Read the features.
+	 *
+	 * @param reader GeoJSON document
+	 * @return features, in the same order as in the document
+	 * @throws RestException the document could not be read or contains unknown attributes
+	 */
+	public List<InternalFeature> read(Reader reader) throws RestException {
+		Object json;
+		try {
+			json = new JSONParser().parse(reader);
+		} catch (IOException ioe) {
+			throw new RestException(ioe, RestException.PROBLEM_READING_FEATURES, layerId);
+		} catch (org.json.simple.parser.ParseException pe) {
+			throw new RestException(pe, RestException.PROBLEM_READING_FEATURES, layerId);
+		}
+		if (!(json instanceof Map)) {
+			throw new RestException(RestException.PROBLEM_READING_FEATURES, layerId);
+		}
+		Map<?, ?> object = (Map<?, ?>) json;
+		List<InternalFeature> features = new ArrayList<InternalFeature>();
+		if ("FeatureCollection".equals(object.get("type"))) {
+			Object list = object.get("features");
+			if (!(list instanceof List)) {
+				throw new RestException(RestException.PROBLEM_READING_FEATURES, layerId);
+			}
+			for (Object feature : (List<?>) list) {
+				features.add(toFeature(feature));
+			}
+		} else {
+			features.add(toFeature(object));
+		}
+		return features;
+	}
+
+	private InternalFeature toFeature(Object json) throws RestException {
+		if (!(json instanceof Map) || !"Feature".equals(((Map<?, ?>) json).get("type"))) {
+			throw new RestException(RestException.PROBLEM_READING_FEATURES, layerId);
+		}
+		Map<?, ?> object = (Map<?, ?>) json;
+		try {
+			Feature feature = new Feature();
+			Object id = object.get("id");
+			if (null != id) {
+				feature.setId(id.toString());
+			}
+			feature.setAttributes(toAttributes(object.get("properties")));
+			Object geometry = object.get("geometry");
+			if (null != geometry) {
+				feature.setGeometry(converterService.toDto(geometryJson.read(new StringReader(JSONValue
+						.toJSONString(geometry)))));
+			}
+			return converterService.toInternal(feature);
+		} catch (IOException ioe) {
+			throw new RestException(ioe, RestException.PROBLEM_READING_FEATURES, layerId);
+		} catch (RestException re) {
+			throw re;
+		} catch (GeomajasException ge) {
+			throw new RestException(ge, RestException.PROBLEM_READING_FEATURES, layerId);
+		}
+	}
+
+	private Map<String, Attribute> toAttributes(Object properties) throws GeomajasException {
+		Map<String, Attribute> attributes = new HashMap<String, Attribute>();
+		if (properties instanceof Map) {
+			Map<String, AbstractAttributeInfo> attributeInfos = layerInfo.getFeatureInfo().getAttributesMap();
+			for (Map.Entry<?, ?> entry : ((Map<?, ?>) properties).entrySet()) {
+				String name = entry.getKey().toString();
+				AbstractAttributeInfo attributeInfo = attributeInfos.get(name);
+				if (null == attributeInfo) {
+					throw new RestException(RestException.NO_SUCH_ATTRIBUTE, name, layerId);
+				}
+				if (attributeInfo instanceof PrimitiveAttributeInfo) {
+					Object value = entry.getValue();
+					if (PrimitiveType.DATE == ((PrimitiveAttributeInfo) attributeInfo).getType() &&
+							value instanceof String) {
+						value = parseDate((String) value);
+					}
+					attributes.put(name, converterService.toDto(value, attributeInfo));
+				}
+			}
+		}
+		return attributes;
+	}
+
+	private Object parseDate(String value) throws RestException {
+		for (String format : DATE_FORMATS) {
+			DateFormat dateFormat = new SimpleDateFormat(format);
+			dateFormat.setLenient(false);
+			try {
+				return dateFormat.parse(value);
+			} catch (ParseException pe) {
+				// try next format
+			}
+		}
+		throw new RestException(RestException.PROBLEM_READING_FEATURES, layerId);
+	}
+}
@@ -10,7 +10,10 @@
  */
 package org.geomajas.rest.server.mvc;
 
-import java.util.Collection;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.util.List;
 import java.util.Map;
 
@@ -21,7 +24,8 @@ import org.geomajas.configuration.VectorLayerInfo;
 import org.geomajas.layer.feature.InternalFeature;
 import org.geomajas.rest.server.GeoJsonParser;
 import org.geomajas.rest.server.GeoToolsConverterService;
-import org.geotools.data.memory.MemoryFeatureCollection;
+import org.geotools.geojson.feature.FeatureJSON;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -56,18 +60,53 @@ public class GeoJsonView extends AbstractView {
 		List<String> attrs = (List<String>) model.get(RestController.ATTRIBUTES);
 		SimpleFeatureType sft = convertorService.toSimpleFeatureType(info, attrs);
 		response.setContentType(getContentType());
-		if (Collection.class.isAssignableFrom(ff.getClass())) {
-			Collection<InternalFeature> features = (Collection<InternalFeature>) ff;
-			MemoryFeatureCollection coll = new MemoryFeatureCollection(sft);
-			for (InternalFeature feature : features) {
-				coll.add(convertorService.toSimpleFeature(feature, sft));
-			}
-			parser.write(coll, response.getOutputStream());
+		if (ff instanceof FeatureStream) {
+			new GeoJsonWriter(convertorService, sft, response).write((FeatureStream) ff, response);
 		} else {
 			InternalFeature feature = (InternalFeature) ff;
 			parser.write(convertorService.toSimpleFeature(feature, sft), response.getOutputStream());
+			response.getOutputStream().flush();
+		}
+	}
+
+	/**
+	 * Writes the features as a GeoJSON feature collection, one feature at a time.
+	 *
+	 * @author agent
+	 */
+	private static final class GeoJsonWriter extends FeatureStreamWriter {
+
+		private final FeatureJSON featureJson = new FeatureJSON();
+
+		private final HttpServletResponse response;
+
+		private Writer writer;
+
+		private GeoJsonWriter(GeoToolsConverterService converterService, SimpleFeatureType featureType,
+				HttpServletResponse response) {
+			super(converterService, featureType);
+			this.response = response;
+		}
+
+		@Override
+		protected void writeStart() throws IOException {
+			writer = new BufferedWriter(new OutputStreamWriter(response.getOutputStream(), "UTF-8"));
+			writer.write("{\"type\":\"FeatureCollection\",\"features\":[");
+		}
+
+		@Override
+		protected void writeFeature(SimpleFeature feature) throws IOException {
+			if (getCount() > 1) { // the count includes the current feature
+				writer.write(',');
+			}
+			writer.write(featureJson.toString(feature));
+		}
+
+		@Override
+		protected void writeEnd() throws IOException {
+			writer.write("]}");
+			writer.flush();
 		}
-		response.getOutputStream().flush();
 	}
 
 }
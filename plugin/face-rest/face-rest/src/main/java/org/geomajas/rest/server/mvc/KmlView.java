@@ -14,7 +14,11 @@ import org.geomajas.configuration.VectorLayerInfo;
 import org.geomajas.layer.feature.InternalFeature;
 import org.geomajas.rest.server.GeoToolsConverterService;
 import org.geomajas.rest.server.KmlParser;
-import org.geotools.data.memory.MemoryFeatureCollection;
+import org.apache.commons.io.output.CloseShieldOutputStream;
+import org.geotools.kml.KML;
+import org.geotools.kml.KMLConfiguration;
+import org.geotools.xml.Encoder;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -22,7 +26,9 @@ import org.springframework.web.servlet.view.AbstractView;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Collection;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 
@@ -57,18 +63,58 @@ public class KmlView extends AbstractView {
 		response.setContentType(getContentType());
 		response.setHeader("Content-Disposition", "attachement;filename=" + model.get(RestController.VECTOR_LAYER_ID)
 				+ ".kml");
-		if (Collection.class.isAssignableFrom(ff.getClass())) {
-			Collection<InternalFeature> features = (Collection<InternalFeature>) ff;
-			MemoryFeatureCollection coll = new MemoryFeatureCollection(sft);
-			for (InternalFeature feature : features) {
-				coll.add(convertorService.toSimpleFeature(feature, sft));
-			}
-			parser.write(coll, response.getOutputStream());
+		if (ff instanceof FeatureStream) {
+			new KmlWriter(convertorService, sft, response).write((FeatureStream) ff, response);
 		} else {
 			InternalFeature feature = (InternalFeature) ff;
 			parser.write(convertorService.toSimpleFeature(feature, sft), response.getOutputStream());
+			response.getOutputStream().flush();
+		}
+	}
+
+	/**
+	 * Writes the features as placemarks in a KML document, one feature at a time.
+	 *
+	 * @author agent
+	 */
+	private static final class KmlWriter extends FeatureStreamWriter {
+
+		private static final String ENCODING = "UTF-8";
+
+		private final HttpServletResponse response;
+
+		private OutputStream output;
+
+		private Encoder encoder;
+
+		private KmlWriter(GeoToolsConverterService converterService, SimpleFeatureType featureType,
+				HttpServletResponse response) {
+			super(converterService, featureType);
+			this.response = response;
+		}
+
+		@Override
+		protected void writeStart() throws IOException {
+			output = new BufferedOutputStream(response.getOutputStream());
+			encoder = new Encoder(new KMLConfiguration());
+			encoder.setIndenting(true);
+			encoder.setOmitXMLDeclaration(true);
+			output.write(("<?xml version=\"1.0\" encoding=\"" + ENCODING + "\"?>\n<kml xmlns=\"" + KML.NAMESPACE +
+					"\">\n<Document>\n").getBytes(ENCODING));
+		}
+
+		@Override
+		protected void writeFeature(SimpleFeature feature) throws IOException {
+			// the encoder closes the stream it writes to
+			encoder.encode(feature, KML.Placemark, new CloseShieldOutputStream(output));
+			output.write('\n');
+		}
+
+		@Override
+		protected void writeEnd() throws IOException {
+			output.write("</Document>\n</kml>\n".getBytes(ENCODING));
+			output.flush();
 		}
-		response.getOutputStream().flush();
 	}
 
 }
@@ -12,7 +12,8 @@ package org.geomajas.rest.server.mvc;
 
 import com.vividsolutions.jts.geom.Envelope;
 import org.geomajas.configuration.AttributeInfo;
-import org.geomajas.configuration.VectorLayerInfo;
+import org.geomajas.configuration.FeatureInfo;
+import org.geomajas.configuration.SortType;
 import org.geomajas.geometry.Crs;
 import org.geomajas.geometry.CrsTransform;
 import org.geomajas.global.GeomajasException;
@@ -22,6 +23,7 @@ import org.geomajas.layer.VectorLayerService;
 import org.geomajas.layer.feature.InternalFeature;
 import org.geomajas.rest.server.RestException;
 import org.geomajas.service.ConfigurationService;
+import org.geomajas.service.DtoConverterService;
 import org.geomajas.service.FilterService;
 import org.geomajas.service.GeoService;
 import org.opengis.filter.Filter;
@@ -34,16 +36,20 @@ import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.ModelAndView;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
 /**
  * Spring MVC controller that maps a REST request to vectorlayers.
  * 
@@ -65,6 +71,9 @@ public class RestController {
 	@Autowired
 	private GeoService geoService;
 
+	@Autowired
+	private DtoConverterService dtoConverterService;
+
 	public static final String TEXT_VIEW = "rest.server.mvc.TextView";
 
 	public static final String GEOJSON_VIEW = "rest.server.mvc.GeoJsonView";
@@ -73,6 +82,8 @@ public class RestController {
 
 	public static final String SHAPE_VIEW = "rest.server.mvc.ShpView";
 
+	public static final String CSV_VIEW = "rest.server.mvc.CsvView";
+
 	public static final String FEATURE_COLLECTION = "FeatureCollection";
 
 	public static final String VECTOR_LAYER_INFO = "VectorLayerInfo";
@@ -125,64 +136,23 @@ public class RestController {
 			WebRequest request, Model model)
 			throws GeomajasException {
 
-		//Convert box: x,y,x,y to x,x,y,y
-		if (box != null) {
-			box = new Envelope(box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY());
-		}
-		if (bbox != null) {
-			bbox = new Envelope(bbox.getMinX(), bbox.getMinY(), bbox.getMaxX(), bbox.getMaxY());
-		}
-
-		Crs crs = null;
 		List<String> attributes = null;
 		if (attrs != null) {
 			attributes = Arrays.asList(attrs.split(","));
 		}
-		List<String> queryables = null;
-		if (queryable != null) {
-			queryables = Arrays.asList(queryable.split(","));
-		}
-
-		try {
-			if (epsg != null) {
-				crs = geoService.getCrs2("EPSG:" + epsg);
-			} else {
-				crs = geoService.getCrs2(configurationService.getVectorLayer(layerId).getLayerInfo().getCrs());
-			}
-		} catch (Exception e) {
-			throw new RestException(e, RestException.PROBLEM_READING_LAYERSERVICE, layerId);
-		}
-
-		List<Filter> filters = new ArrayList<Filter>();
-		filters.add(createBBoxFilter(layerId, crs, box, bbox));
-		if (queryable != null) {
-			for (String attributeName : queryables) {
-				String prefix = attributeName + "_";
-				for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
-					if (entry.getKey().startsWith(prefix)) {
-						filters.add(createAttributeFilter(attributeName, entry.getKey().substring(prefix.length()),
-								entry.getValue()[0]));
-					}
-				}
-			}
-		}
-		List<InternalFeature> features;
-		try {
-			features = vectorLayerService.getFeatures(layerId, crs, and(filters), null, getIncludes(noGeom),
-					getOffset(offset), getLimit(maxFeatures, limit));
-		} catch (Exception e) {
-			throw new RestException(e, RestException.PROBLEM_READING_LAYERSERVICE, layerId);
-		}
-		if (features.size() > 0) {
-			VectorLayerInfo info = features.get(0).getLayer().getLayerInfo();
-			model.addAttribute(VECTOR_LAYER_INFO, info);
-			VectorLayer layer = configurationService.getVectorLayer(layerId);
-			if (orderBy != null) {
-				Collections.sort(features, createComparator(layer, orderBy, dir));
-			}
-			model.addAttribute(FEATURE_COLLECTION, features);
-			model.addAttribute(ATTRIBUTES, attributes);
+		Crs crs = getCrs(layerId, epsg);
+		Filter filter = createFilter(layerId, crs, box, bbox, queryable, request);
+		VectorLayer layer = configurationService.getVectorLayer(layerId);
+		String sortAttributeName = null;
+		if (orderBy != null) {
+			sortAttributeName = getAttributeName(layer, orderBy);
 		}
+		// the features are only read while the view writes them
+		model.addAttribute(FEATURE_COLLECTION, new FeatureStream(vectorLayerService, layerId, crs, filter,
+				getIncludes(noGeom), getOffset(offset), getLimit(maxFeatures, limit), sortAttributeName,
+				dir == FeatureOrder.DESC ? SortType.DESC : SortType.ASC));
+		model.addAttribute(VECTOR_LAYER_INFO, layer.getLayerInfo());
+		model.addAttribute(ATTRIBUTES, attributes);
 		model.addAttribute(VECTOR_LAYER_ID, layerId);
 		return getView(format);
 	}
@@ -194,25 +164,104 @@ public class RestController {
 			return SHAPE_VIEW;
 		} else if ("txt".equals(fileType)) {
 			return TEXT_VIEW;
+		} else if ("csv".equals(fileType)) {
+			return CSV_VIEW;
 		} else {
 			return GEOJSON_VIEW;
 		}
 	}
 
-	public ModelAndView createUpdateFeatures() {
-		return new ModelAndView();
+	/**
+	 * Create or update features. The body contains a GeoJSON feature collection (or a single feature). Features
+	 * without id are created, features with an id are updated. All features are saved using one save or update
+	 * pipeline. The saved features are returned in the requested format.
+	 *
+	 * @param layerId layer id
+	 * @param format format for the saved features
+	 * @param epsg crs for the geometries, the layer crs when not specified
+	 * @param request request, the body contains the features
+	 * @param response response
+	 * @param model model
+	 * @return view name
+	 * @throws GeomajasException the features could not be read or saved
+	 */
+	@RequestMapping(value = "/rest/{layerId}", method = RequestMethod.POST)
+	public String createUpdateFeatures(@PathVariable String layerId,
+			@RequestParam(value = "format", required = false, defaultValue = "json") String format,
+			@RequestParam(value = "epsg", required = false) String epsg,
+			HttpServletRequest request, HttpServletResponse response, Model model) throws GeomajasException {
+		Crs crs = getCrs(layerId, epsg);
+		VectorLayer layer = configurationService.getVectorLayer(layerId);
+		List<InternalFeature> features = readFeatures(layer, request);
+		saveOrUpdate(layerId, crs, features);
+		response.setStatus(HttpServletResponse.SC_CREATED);
+		model.addAttribute(FEATURE_COLLECTION, new FeatureStream(layerId, features));
+		model.addAttribute(VECTOR_LAYER_INFO, layer.getLayerInfo());
+		model.addAttribute(VECTOR_LAYER_ID, layerId);
+		return getView(format);
 	}
 
-	public ModelAndView updateFeature() {
-		return new ModelAndView();
+	/**
+	 * Update a feature. The body contains the feature in GeoJSON format, the id from the URL is used. The saved
+	 * feature is returned in the requested format.
+	 *
+	 * @param layerId layer id
+	 * @param featureId id of the feature to update
+	 * @param format format for the saved feature
+	 * @param epsg crs for the geometry, the layer crs when not specified
+	 * @param request request, the body contains the feature
+	 * @param model model
+	 * @return view name
+	 * @throws GeomajasException the feature could not be read or saved
+	 */
+	@RequestMapping(value = "/rest/{layerId}/{featureId}", method = RequestMethod.PUT)
+	public String updateFeature(@PathVariable String layerId, @PathVariable String featureId,
+			@RequestParam(value = "format", required = false, defaultValue = "json") String format,
+			@RequestParam(value = "epsg", required = false) String epsg,
+			HttpServletRequest request, Model model) throws GeomajasException {
+		Crs crs = getCrs(layerId, epsg);
+		VectorLayer layer = configurationService.getVectorLayer(layerId);
+		List<InternalFeature> features = readFeatures(layer, request);
+		if (features.size() != 1) {
+			throw new RestException(RestException.PROBLEM_READING_FEATURES, layerId);
+		}
+		InternalFeature feature = features.get(0);
+		feature.setId(featureId);
+		saveOrUpdate(layerId, crs, features);
+		model.addAttribute(FEATURE_COLLECTION, feature);
+		model.addAttribute(VECTOR_LAYER_INFO, layer.getLayerInfo());
+		model.addAttribute(VECTOR_LAYER_ID, layerId);
+		return getView(format);
 	}
 
 	public ModelAndView deleteFeature() {
 		return new ModelAndView();
 	}
 
-	public ModelAndView countFeatures() {
-		return new ModelAndView();
+	/**
+	 * Count the features which match the query. This accepts the same filter parameters as
+	 * {@link #readFeatures}. The features are counted by the layer when possible, they are not read.
+	 *
+	 * @param layerId layer id
+	 * @param box bounding box (minx,miny,maxx,maxy)
+	 * @param bbox bounding box (minx,miny,maxx,maxy)
+	 * @param queryable attributes which are used in the query
+	 * @param epsg crs for the bounding box, the layer crs when not specified
+	 * @param request request, contains the attribute filters
+	 * @return number of features, as text
+	 * @throws GeomajasException the features could not be counted
+	 */
+	@RequestMapping(value = "/rest/{layerId}/count", method = RequestMethod.GET)
+	@ResponseBody
+	public String countFeatures(@PathVariable String layerId,
+			@RequestParam(value = "box", required = false) Envelope box,
+			@RequestParam(value = "bbox", required = false) Envelope bbox,
+			@RequestParam(value = "queryable", required = false) String queryable,
+			@RequestParam(value = "epsg", required = false) String epsg,
+			WebRequest request) throws GeomajasException {
+		Crs crs = getCrs(layerId, epsg);
+		Filter filter = createFilter(layerId, crs, box, bbox, queryable, request);
+		return Integer.toString(vectorLayerService.getCount(layerId, filter));
 	}
 
 	@InitBinder
@@ -220,6 +269,91 @@ public class RestController {
 		binder.setConversionService(new RestParameterConversionService());
 	}
 
+	private Crs getCrs(String layerId, String epsg) throws RestException {
+		try {
+			if (epsg != null) {
+				return geoService.getCrs2("EPSG:" + epsg);
+			} else {
+				return geoService.getCrs2(configurationService.getVectorLayer(layerId).getLayerInfo().getCrs());
+			}
+		} catch (Exception e) {
+			throw new RestException(e, RestException.PROBLEM_READING_LAYERSERVICE, layerId);
+		}
+	}
+
+	private Filter createFilter(String layerId, Crs crs, Envelope box, Envelope bbox, String queryable,
+			WebRequest request) throws GeomajasException {
+		//Convert box: x,y,x,y to x,x,y,y
+		if (box != null) {
+			box = new Envelope(box.getMinX(), box.getMinY(), box.getMaxX(), box.getMaxY());
+		}
+		if (bbox != null) {
+			bbox = new Envelope(bbox.getMinX(), bbox.getMinY(), bbox.getMaxX(), bbox.getMaxY());
+		}
+
+		List<Filter> filters = new ArrayList<Filter>();
+		filters.add(createBBoxFilter(layerId, crs, box, bbox));
+		if (queryable != null) {
+			for (String attributeName : queryable.split(",")) {
+				checkQueryable(layerId, attributeName);
+				String prefix = attributeName + "_";
+				for (Map.Entry<String, String[]> entry : request.getParameterMap().entrySet()) {
+					if (entry.getKey().startsWith(prefix)) {
+						filters.add(createAttributeFilter(attributeName, entry.getKey().substring(prefix.length()),
+								entry.getValue()[0]));
+					}
+				}
+			}
+		}
+		return and(filters);
+	}
+
+	private List<InternalFeature> readFeatures(VectorLayer layer, HttpServletRequest request) throws RestException {
+		try {
+			return new GeoJsonFeatureReader(dtoConverterService, layer.getId(), layer.getLayerInfo()).read(request
+					.getReader());
+		} catch (IOException ioe) {
+			throw new RestException(ioe, RestException.PROBLEM_READING_FEATURES, layer.getId());
+		}
+	}
+
+	/**
+	 * Save the features using one save or update pipeline. The features which are updated are read using one query.
+	 *
+	 * @param layerId layer id
+	 * @param crs crs for the geometries
+	 * @param newFeatures features to save, the ids of the created features are filled in
+	 * @throws GeomajasException a feature to update does not exist or saving failed
+	 */
+	private void saveOrUpdate(String layerId, Crs crs, List<InternalFeature> newFeatures) throws GeomajasException {
+		List<String> ids = new ArrayList<String>();
+		for (InternalFeature feature : newFeatures) {
+			if (null != feature.getId()) {
+				ids.add(feature.getId());
+			}
+		}
+		Map<String, InternalFeature> existing = new HashMap<String, InternalFeature>();
+		if (!ids.isEmpty()) {
+			Filter filter = filterService.createFidFilter(ids.toArray(new String[ids.size()]));
+			for (InternalFeature feature : vectorLayerService.getFeatures(layerId, crs, filter, null,
+					VectorLayerService.FEATURE_INCLUDE_ATTRIBUTES | VectorLayerService.FEATURE_INCLUDE_GEOMETRY)) {
+				existing.put(feature.getId(), feature);
+			}
+		}
+		List<InternalFeature> oldFeatures = new ArrayList<InternalFeature>();
+		for (InternalFeature feature : newFeatures) {
+			InternalFeature oldFeature = null;
+			if (null != feature.getId()) {
+				oldFeature = existing.get(feature.getId());
+				if (null == oldFeature) {
+					throw new RestException(RestException.FEATURE_NOT_FOUND, feature.getId(), layerId);
+				}
+			}
+			oldFeatures.add(oldFeature);
+		}
+		vectorLayerService.saveOrUpdate(layerId, crs, oldFeatures, newFeatures);
+	}
+
 	private int getIncludes(Boolean noGeom) {
 		int featureIncludes = VectorLayerService.FEATURE_INCLUDE_ALL;
 		if (noGeom) {
@@ -296,60 +430,44 @@ public class RestController {
 		}
 	}
 
-	private Comparator<? super InternalFeature> createComparator(VectorLayer layer, final String attributeName,
-			final FeatureOrder order) throws RestException {
-		List<AttributeInfo> attributes = layer.getLayerInfo().getFeatureInfo().getAttributes();
-		AttributeInfo info = null;
-		for (AttributeInfo attributeInfo : attributes) {
-			// be tolerant on casing
-			if (attributeInfo.getName().equalsIgnoreCase(attributeName)) {
-				info = attributeInfo;
-			}
+	/**
+	 * Check that the layer has an attribute which can be used in a query. Nested attributes are checked on the first
+	 * part of the path only.
+	 *
+	 * @param layerId layer id
+	 * @param attributeName attribute name
+	 * @throws RestException no such attribute
+	 */
+	private void checkQueryable(String layerId, String attributeName) throws RestException {
+		FeatureInfo featureInfo = configurationService.getVectorLayer(layerId).getLayerInfo().getFeatureInfo();
+		String name = attributeName;
+		if (name.indexOf('.') > 0) {
+			name = name.substring(0, name.indexOf('.'));
 		}
-		if (info == null) {
-			throw new RestException(RestException.NO_SUCH_ATTRIBUTE, attributeName, layer.getId());
+		if (!featureInfo.getAttributesMap().containsKey(name) &&
+				!name.equals(featureInfo.getIdentifier().getName()) &&
+				!name.equals(featureInfo.getGeometryType().getName())) {
+			throw new RestException(new RestException(RestException.NO_SUCH_ATTRIBUTE, attributeName, layerId),
+					RestException.PROBLEM_READING_LAYERSERVICE, layerId);
 		}
-		return new InternalFeatureComparator(order, attributeName);
 	}
 
 	/**
-	 * Compares features based on a single attribute.
-	 * 
-	 * @author Jan De Moerloose
+	 * Get the name of an attribute of the layer, the match is not case sensitive.
+	 *
+	 * @param layer layer
+	 * @param attributeName attribute name in any case
+	 * @return attribute name as configured
+	 * @throws RestException no such attribute
 	 */
-	static class InternalFeatureComparator implements Comparator<InternalFeature> {
-
-		private FeatureOrder order;
-
-		private String attributeName;
-
-		public InternalFeatureComparator(FeatureOrder order, String attributeName) {
-			this.order = (order == null ? FeatureOrder.ASC : FeatureOrder.DESC);
-			this.attributeName = attributeName;
-		}
-
-		public int compare(InternalFeature f1, InternalFeature f2) {
-			Object value1 = f1.getAttributes().get(attributeName).getValue();
-			Object value2 = f2.getAttributes().get(attributeName).getValue();
-			if (value1 == null && value2 == null) {
-				return 0;
-			}
-			if (value1 == null) {
-				return 1;
-			} else if (value2 == null) {
-				return -1;
-			} else {
-				if (value1 instanceof Comparable && order == FeatureOrder.ASC) {
-					return ((Comparable) value1).compareTo(value2);
-				} else if (value2 instanceof Comparable && order == FeatureOrder.DESC) {
-					return ((Comparable) value2).compareTo(value1);
-				} else {
-					// can this happen ?
-					return 0;
-				}
+	private String getAttributeName(VectorLayer layer, String attributeName) throws RestException {
+		for (AttributeInfo attributeInfo : layer.getLayerInfo().getFeatureInfo().getAttributes()) {
+			// be tolerant on casing
+			if (attributeInfo.getName().equalsIgnoreCase(attributeName)) {
+				return attributeInfo.getName();
 			}
 		}
+		throw new RestException(RestException.NO_SUCH_ATTRIBUTE, attributeName, layer.getId());
 	}
 
-
 }
@@ -11,7 +11,9 @@
 package org.geomajas.rest.server.mvc;
 
 import org.geomajas.configuration.VectorLayerInfo;
+import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
 import org.geomajas.rest.server.GeoToolsConverterService;
 import org.geomajas.rest.server.ShpParser;
 import org.geotools.data.memory.MemoryFeatureCollection;
@@ -22,7 +24,6 @@ import org.springframework.web.servlet.view.AbstractView;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 
@@ -53,15 +54,22 @@ public class ShpView extends AbstractView {
 		Object ff = model.get(RestController.FEATURE_COLLECTION);
 		VectorLayerInfo info = (VectorLayerInfo) model.get(RestController.VECTOR_LAYER_INFO);
 		List<String> attrs = (List<String>) model.get(RestController.ATTRIBUTES);
-		SimpleFeatureType sft = convertorService.toSimpleFeatureType(info, attrs);
+		final SimpleFeatureType sft = convertorService.toSimpleFeatureType(info, attrs);
 		response.setHeader("Content-Disposition", "attachement;filename=" + model.get(RestController.VECTOR_LAYER_ID)
 				+ ".zip");
 		response.setContentType(getContentType());
-		if (Collection.class.isAssignableFrom(ff.getClass())) {
-			Collection<InternalFeature> features = (Collection<InternalFeature>) ff;
-			MemoryFeatureCollection coll = new MemoryFeatureCollection(sft);
-			for (InternalFeature feature : features) {
-				coll.add(convertorService.toSimpleFeature(feature, sft));
+		if (ff instanceof FeatureStream) {
+			// the shape file is written to disk before it can be zipped, it is created in memory first
+			final MemoryFeatureCollection coll = new MemoryFeatureCollection(sft);
+			((FeatureStream) ff).stream(new InternalFeatureHandler() {
+
+				public void handle(InternalFeature feature) throws GeomajasException {
+					coll.add(convertorService.toSimpleFeature(feature, sft));
+				}
+			});
+			if (coll.isEmpty()) {
+				response.sendError(HttpServletResponse.SC_NOT_FOUND, "No elements where found.");
+				return;
 			}
 			parser.write(coll, response.getOutputStream(), sft, (String) model.get(RestController.VECTOR_LAYER_ID));
 		} else {
@@ -15,6 +15,7 @@ import org.geomajas.layer.feature.InternalFeature;
 import org.geomajas.rest.server.GeoToolsConverterService;
 import org.geomajas.rest.server.TxtParser;
 import org.geotools.data.memory.MemoryFeatureCollection;
+import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
@@ -22,7 +23,9 @@ import org.springframework.web.servlet.view.AbstractView;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.util.Collection;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
 import java.util.List;
 import java.util.Map;
 
@@ -56,20 +59,51 @@ public class TxtView extends AbstractView {
 		List<String> attrs = (List<String>) model.get(RestController.ATTRIBUTES);
 		SimpleFeatureType sft = convertorService.toSimpleFeatureType(info, attrs);
 		response.setContentType(getContentType());
-		if (Collection.class.isAssignableFrom(ff.getClass())) {
-			Collection<InternalFeature> features = (Collection<InternalFeature>) ff;
-			MemoryFeatureCollection coll = new MemoryFeatureCollection(sft);
-			for (InternalFeature feature : features) {
-				coll.add(convertorService.toSimpleFeature(feature, sft));
-			}
-			parser.write(coll, response.getOutputStream());
+		if (ff instanceof FeatureStream) {
+			new TxtWriter(convertorService, sft, response, parser).write((FeatureStream) ff, response);
 		} else {
 			InternalFeature feature = (InternalFeature) ff;
 			MemoryFeatureCollection coll = new MemoryFeatureCollection(sft);
 			coll.add(convertorService.toSimpleFeature(feature, sft));
 			parser.write(coll, response.getOutputStream());
+			response.getOutputStream().flush();
+		}
+	}
+
+	/**
+	 * Writes the features as lines of text, one feature at a time.
+	 *
+	 * @author agent
+	 */
+	private static final class TxtWriter extends FeatureStreamWriter {
+
+		private final HttpServletResponse response;
+
+		private final TxtParser parser;
+
+		private PrintStream printStream;
+
+		private TxtWriter(GeoToolsConverterService converterService, SimpleFeatureType featureType,
+				HttpServletResponse response, TxtParser parser) {
+			super(converterService, featureType);
+			this.response = response;
+			this.parser = parser;
+		}
+
+		@Override
+		protected void writeStart() throws IOException {
+			printStream = new PrintStream(new BufferedOutputStream(response.getOutputStream()));
+		}
+
+		@Override
+		protected void writeFeature(SimpleFeature feature) throws IOException {
+			parser.write(feature, printStream);
+		}
+
+		@Override
+		protected void writeEnd() throws IOException {
+			printStream.flush();
 		}
-		response.getOutputStream().flush();
 	}
 
 }
@@ -13,7 +13,9 @@ package org.geomajas.rest.server.mvc;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
+import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
 import org.geomajas.rest.server.RestException;
 import org.geomajas.security.SecurityManager;
 import org.geomajas.service.GeoService;
@@ -32,6 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.mock.web.MockHttpServletRequest;
 import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 import org.springframework.web.servlet.HandlerAdapter;
@@ -44,12 +47,16 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Map;
+import java.util.TimeZone;
 
 @RunWith(SpringJUnit4ClassRunner.class)
 @ContextConfiguration(locations = {"/org/geomajas/spring/geomajasContext.xml",
 		"/org/geomajas/testdata/beanContext.xml", "/org/geomajas/testdata/layerBeans.xml"})
 public class RestControllerTest {
 
+	private static final String SQUARE = "{\"type\":\"MultiPolygon\","
+			+ "\"coordinates\":[[[[0,0],[1,0],[1,1],[0,1],[0,0]]]]}";
+
 	@Autowired
 	@Qualifier("/rest/**")
 	RestController restController;
@@ -64,6 +71,10 @@ public class RestControllerTest {
 	@Qualifier("rest.server.mvc.GeoJsonView")
 	private View view;
 
+	@Autowired
+	@Qualifier("rest.server.mvc.CsvView")
+	private View csvView;
+
 	private HandlerAdapter adapter;
 
 	@Before
@@ -133,12 +144,8 @@ public class RestControllerTest {
 
 		MockHttpServletResponse response = new MockHttpServletResponse();
 		ModelAndView mav = adapter.handle(request, response, restController);
-		Object o = mav.getModel().get(RestController.FEATURE_COLLECTION);
-		Assert.assertTrue(o instanceof List<?>);
-		for (Object f : (List<?>) o) {
-			Assert.assertTrue(f instanceof InternalFeature);
-			Assert.assertTrue(new Envelope(4, 6, 0, 3).intersects(((InternalFeature) f).getGeometry()
-					.getEnvelopeInternal()));
+		for (InternalFeature f : getFeaturesFromModel(mav.getModel())) {
+			Assert.assertTrue(new Envelope(4, 6, 0, 3).intersects(f.getGeometry().getEnvelopeInternal()));
 		}
 
 	}
@@ -178,6 +185,143 @@ public class RestControllerTest {
 		request.setParameter("dir", "DESC");
 		ModelAndView mav = adapter.handle(request, response, restController);
 		Assert.assertEquals(Arrays.asList("3", "2", "1"), getIdsFromModel(mav.getModel()));
+		// ascending, with paging applied after sorting
+		request.setParameter("dir", "ASC");
+		request.setParameter("offset", "1");
+		request.setParameter("limit", "1");
+		mav = adapter.handle(request, response, restController);
+		Assert.assertEquals(Arrays.asList("2"), getIdsFromModel(mav.getModel()));
+	}
+
+	@Test
+	public void testStreamGeoJson() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans");
+		request.setMethod("GET");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		ModelAndView mav = adapter.handle(request, response, restController);
+		view.render(mav.getModel(), request, response);
+		response.flushBuffer();
+		JSONObject json = (JSONObject) new JSONParser().parse(response.getContentAsString());
+		Assert.assertEquals("FeatureCollection", json.get("type"));
+		JSONArray features = (JSONArray) json.get("features");
+		Assert.assertEquals(3, features.size());
+		Assert.assertEquals("1", ((JSONObject) features.get(0)).get("id"));
+		Assert.assertEquals("bean3", ((JSONObject) ((JSONObject) features.get(2)).get("properties")).get("stringAttr"));
+	}
+
+	@Test
+	public void testStreamCsv() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans");
+		request.setMethod("GET");
+		request.setParameter("format", "csv");
+		request.setParameter("attrs", "stringAttr,integerAttr");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		ModelAndView mav = adapter.handle(request, response, restController);
+		Assert.assertEquals(RestController.CSV_VIEW, mav.getViewName());
+		csvView.render(mav.getModel(), request, response);
+		response.flushBuffer();
+		String[] lines = response.getContentAsString().split("\r\n");
+		Assert.assertEquals(4, lines.length);
+		Assert.assertEquals("id,stringAttr,integerAttr,geometry", lines[0]);
+		Assert.assertTrue(lines[1].startsWith("1,bean1,789,\"MULTIPOLYGON ("));
+	}
+
+	@Test
+	public void testNoElements() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans");
+		request.setMethod("GET");
+		request.setParameter("queryable", "stringAttr");
+		request.setParameter("stringAttr_eq", "noSuchBean");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		ModelAndView mav = adapter.handle(request, response, restController);
+		view.render(mav.getModel(), request, response);
+		Assert.assertEquals(404, response.getStatus());
+	}
+
+	@Test
+	public void testCountFeatures() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans/count");
+		request.setMethod("GET");
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		adapter.handle(request, response, restController);
+		Assert.assertEquals("3", response.getContentAsString());
+
+		request.setParameter("queryable", "stringAttr");
+		request.setParameter("stringAttr_eq", "bean2");
+		response = new MockHttpServletResponse();
+		adapter.handle(request, response, restController);
+		Assert.assertEquals("1", response.getContentAsString());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testCreateUpdateFeatures() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans");
+		request.setMethod("POST");
+		request.setCharacterEncoding("UTF-8");
+		request.setContent(("{\"type\":\"FeatureCollection\",\"features\":["
+				+ "{\"type\":\"Feature\",\"geometry\":" + SQUARE + ","
+				+ "\"properties\":{\"stringAttr\":\"bean4\",\"integerAttr\":4}},"
+				+ "{\"type\":\"Feature\",\"id\":\"2\",\"geometry\":" + SQUARE + ","
+				+ "\"properties\":{\"stringAttr\":\"bean2 updated\"}}]}").getBytes("UTF-8"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		ModelAndView mav = adapter.handle(request, response, restController);
+		Assert.assertEquals(201, response.getStatus());
+		List<InternalFeature> features = getFeaturesFromModel(mav.getModel());
+		Assert.assertEquals(2, features.size());
+		Assert.assertNotNull(features.get(0).getId());
+		Assert.assertEquals("2", features.get(1).getId());
+
+		Assert.assertEquals(4, getIdsFromModel(readFeatures()).size());
+		InternalFeature created = readFeature(features.get(0).getId());
+		Assert.assertEquals("bean4", created.getAttributes().get("stringAttr").getValue());
+		Assert.assertEquals(4, created.getAttributes().get("integerAttr").getValue());
+		Assert.assertEquals("bean2 updated", readFeature("2").getAttributes().get("stringAttr").getValue());
+	}
+
+	@Test
+	@DirtiesContext
+	public void testUpdateFeature() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans/3");
+		request.setMethod("PUT");
+		request.setCharacterEncoding("UTF-8");
+		request.setContent(("{\"type\":\"Feature\",\"properties\":{\"stringAttr\":\"bean3 updated\","
+				+ "\"dateAttr\":\"2010-02-23T00:00:00.000+0000\"}}").getBytes("UTF-8"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		ModelAndView mav = adapter.handle(request, response, restController);
+		Assert.assertEquals("3", ((InternalFeature) mav.getModel().get(RestController.FEATURE_COLLECTION)).getId());
+
+		InternalFeature feature = readFeature("3");
+		Assert.assertEquals("bean3 updated", feature.getAttributes().get("stringAttr").getValue());
+		Calendar c = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+		c.set(2010, 1, 23, 0, 0, 0);
+		c.set(Calendar.MILLISECOND, 0);
+		Assert.assertEquals(c.getTime(), feature.getAttributes().get("dateAttr").getValue());
+		Assert.assertNotNull(feature.getGeometry()); // geometry was not updated
+	}
+
+	@Test
+	public void testUpdateMissingFeature() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans");
+		request.setMethod("POST");
+		request.setCharacterEncoding("UTF-8");
+		request.setContent(("{\"type\":\"Feature\",\"id\":\"200\",\"geometry\":" + SQUARE + ","
+				+ "\"properties\":{\"stringAttr\":\"bean200\"}}").getBytes("UTF-8"));
+		MockHttpServletResponse response = new MockHttpServletResponse();
+		try {
+			adapter.handle(request, response, restController);
+			Assert.fail("feature 200 should not exist");
+		} catch (RestException e) {
+			Assert.assertEquals(RestException.FEATURE_NOT_FOUND, e.getExceptionCode());
+		}
+		Assert.assertEquals(3, getIdsFromModel(readFeatures()).size());
 	}
 
 	@Test
@@ -275,18 +419,42 @@ public class RestControllerTest {
 		Assert.assertTrue(m2.buffer(0.01).contains(m));
 	}
 
-	private List<String> getIdsFromModel(Map<String, Object> model) {
-		Object o = model.get(RestController.FEATURE_COLLECTION);
-		Assert.assertTrue(o instanceof List<?>);
-		List<?> ff = (List<?>) o;
+	private Map<String, Object> readFeatures() throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans");
+		request.setMethod("GET");
+		return adapter.handle(request, new MockHttpServletResponse(), restController).getModel();
+	}
+
+	private InternalFeature readFeature(String featureId) throws Exception {
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		request.setRequestURI("/rest/beans/" + featureId + ".json");
+		request.setMethod("GET");
+		ModelAndView mav = adapter.handle(request, new MockHttpServletResponse(), restController);
+		return (InternalFeature) mav.getModel().get(RestController.FEATURE_COLLECTION);
+	}
+
+	private List<String> getIdsFromModel(Map<String, Object> model) throws GeomajasException {
 		ArrayList<String> ids = new ArrayList<String>();
-		for (Object f : ff) {
-			Assert.assertTrue(f instanceof InternalFeature);
-			ids.add(((InternalFeature) f).getId());
+		for (InternalFeature f : getFeaturesFromModel(model)) {
+			ids.add(f.getId());
 		}
 		return ids;
 	}
 
+	private List<InternalFeature> getFeaturesFromModel(Map<String, Object> model) throws GeomajasException {
+		Object o = model.get(RestController.FEATURE_COLLECTION);
+		Assert.assertTrue(o instanceof FeatureStream);
+		final List<InternalFeature> features = new ArrayList<InternalFeature>();
+		((FeatureStream) o).stream(new InternalFeatureHandler() {
+
+			public void handle(InternalFeature feature) {
+				features.add(feature);
+			}
+		});
+		return features;
+	}
+
 	/**
 	 * JSON allow a forward slash to be escaped but does not mandate it. This method removes the escape chars.
 	 *
@@ -0,0 +1,140 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.layer.common.proxy;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Input stream which keeps a copy of all content which is read. When the end of the stream is reached,
+ * {@link #complete(byte[])} is called with the full content. Once the content exceeds the maximum size, the copy is
+ * dropped and the stream is only passed through. When the stream is closed before the end is reached or reading
+ * fails, {@link #complete(byte[])} is called with null.
+ *
+ * @author agent
+ */
+abstract class CacheThroughInputStream extends FilterInputStream {
+
+	private static final int INITIAL_SIZE = 8192;
+
+	private final int maxSize;
+
+	private ByteArrayOutputStream copy;
+
+	private boolean completed;
+
+	/**
+	 * Create a stream which copies the content of the given stream.
+	 *
+	 * @param in stream to read from
+	 * @param maxSize maximum size of the content to copy in bytes
+	 */
+	CacheThroughInputStream(InputStream in, int maxSize) {
+		super(in);
+		this.maxSize = maxSize;
+		copy = new ByteArrayOutputStream(Math.min(INITIAL_SIZE, Math.max(maxSize, 0)));
+	}
+
+	/**
+	 * Called once when the stream is finished.
+	 *
+	 * @param content full content of the stream, null when the stream was not read completely or is too large
+	 */
+	protected abstract void complete(byte[] content);
+
+	@Override
+	public int read() throws IOException {
+		int b;
+		try {
+			b = super.read();
+		} catch (IOException ioe) {
+			finish(false);
+			throw ioe;
+		}
+		if (b < 0) {
+			finish(true);
+		} else if (isCopying(1)) {
+			copy.write(b);
+		}
+		return b;
+	}
+
+	@Override
+	public int read(byte[] buffer, int offset, int length) throws IOException {
+		int count;
+		try {
+			count = super.read(buffer, offset, length);
+		} catch (IOException ioe) {
+			finish(false);
+			throw ioe;
+		}
+		if (count < 0) {
+			finish(true);
+		} else if (isCopying(count)) {
+			copy.write(buffer, offset, count);
+		}
+		return count;
+	}
+
+	@Override
+	public long skip(long count) throws IOException {
+		// skipped content is not copied, so the content can no longer be completed
+		copy = null;
+		return super.skip(count);
+	}
+
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+
+	@Override
+	public void mark(int readLimit) {
+		// not supported
+	}
+
+	@Override
+	public void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+
+	@Override
+	public void close() throws IOException {
+		try {
+			super.close();
+		} finally {
+			finish(false);
+		}
+	}
+
+	private boolean isCopying(int count) {
+		if (null != copy && copy.size() + count > maxSize) {
+			copy = null; // too large, just pass through
+		}
+		return null != copy;
+	}
+
+	private void finish(boolean endReached) {
+		if (!completed) {
+			completed = true;
+			byte[] content = null;
+			if (endReached && null != copy) {
+				content = copy.toByteArray();
+			}
+			copy = null;
+			complete(content);
+		}
+	}
+}
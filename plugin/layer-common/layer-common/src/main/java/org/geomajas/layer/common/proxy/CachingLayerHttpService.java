@@ -12,9 +12,12 @@
 package org.geomajas.layer.common.proxy;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import org.geomajas.geometry.Bbox;
 import org.geomajas.layer.RasterLayer;
@@ -30,6 +33,12 @@ import com.vividsolutions.jts.geom.Envelope;
 /**
  * {@link LayerHttpService} with caching support. Be aware that caching bypasses security requirements. To avoid this,
  * set {@link ProxyLayerSupport#isUseCache()} to false.
+ * <p/>
+ * The content is passed on to the caller while it is read from the server and only put in the cache when it was read
+ * completely and is not larger than {@link #setMaxCachedSize(int) maxCachedSize}. Concurrent requests for the same URL
+ * of a cached layer are coalesced, only one request is sent to the server and the others wait for the cached result.
+ * When that result is not available within the socket timeout (for example because the stream was never read to the
+ * end or closed), the waiting request takes over.
  * 
  * @author Jan De Moerloose
  * 
@@ -46,6 +55,11 @@ public class CachingLayerHttpService extends LayerHttpServiceImpl {
 	/** {@link TestRecorder} message when getting image from cache. */
 	public static final String TEST_RECORDER_GET_FROM_CACHE = "Get from cache.";
 
+	private static final int MAX_CACHED_SIZE = 2 * 1024 * 1024;
+
+	/** Maximum time to wait for a concurrent request when no socket timeout is set. */
+	private static final int MAX_FILL_WAIT = 60000;
+
 	@Autowired
 	private ConfigurationService configurationService;
 
@@ -58,6 +72,10 @@ public class CachingLayerHttpService extends LayerHttpServiceImpl {
 	@Autowired(required = false)
 	private LayerHttpServiceInterceptors interceptors;
 
+	private final ConcurrentMap<String, CacheFill> inFlight = new ConcurrentHashMap<String, CacheFill>();
+
+	private int maxCachedSize = MAX_CACHED_SIZE;
+
 	/**
 	 * Get the contents from the request URL.
 	 *
@@ -75,22 +93,79 @@ public class CachingLayerHttpService extends LayerHttpServiceImpl {
 					testRecorder.record(TEST_RECORDER_GROUP, TEST_RECORDER_GET_FROM_CACHE);
 					return new ByteArrayInputStream((byte[]) cachedObject);
 				} else {
-					testRecorder.record(TEST_RECORDER_GROUP, TEST_RECORDER_PUT_IN_CACHE);
-					InputStream stream = super.getStream(url, proxyLayer);
-					ByteArrayOutputStream os = new ByteArrayOutputStream();
-					int b;
-					while ((b = stream.read()) >= 0) {
-						os.write(b);
-					}
-					cacheManagerService.put(proxyLayer, CacheCategory.RASTER, url, os.toByteArray(),
-							getLayerEnvelope(proxyLayer));
-					return new ByteArrayInputStream((byte[]) os.toByteArray());
+					return getCacheThrough(url, proxyLayer);
 				}
 			}
 		}
 		return super.getStream(url, layer);
 	}
 
+	/**
+	 * Get the maximum size of a response which is put in the cache.
+	 *
+	 * @return maximum size in bytes
+	 */
+	public int getMaxCachedSize() {
+		return maxCachedSize;
+	}
+
+	/**
+	 * Set the maximum size of a response which is put in the cache. Larger responses are streamed to the client but
+	 * not cached. Default is 2MB.
+	 *
+	 * @param maxCachedSize maximum size in bytes
+	 */
+	public void setMaxCachedSize(int maxCachedSize) {
+		this.maxCachedSize = maxCachedSize;
+	}
+
+	/**
+	 * Get the content from the server. The content is passed on while it is read and put in the cache when it was read
+	 * completely. When the same URL is already being fetched for the layer, wait for that request instead.
+	 *
+	 * @param url URL to get the response from
+	 * @param layer the raster layer
+	 * @return content
+	 * @throws IOException cannot get content
+	 */
+	private InputStream getCacheThrough(final String url, final ProxyLayerSupport layer) throws IOException {
+		final CacheFill fill = new CacheFill(layer.getId() + "/" + url);
+		CacheFill running = inFlight.putIfAbsent(fill.key, fill);
+		if (null != running) {
+			byte[] content = running.await(url);
+			if (null != content) {
+				return new ByteArrayInputStream(content);
+			}
+			if (running.isDone() || !inFlight.replace(fill.key, running, fill)) {
+				// the other request failed or the content is too large to cache, get it without caching
+				return super.getStream(url, layer);
+			}
+			// the other request is stale, replaced by this one
+		}
+		InputStream stream = null;
+		try {
+			testRecorder.record(TEST_RECORDER_GROUP, TEST_RECORDER_PUT_IN_CACHE);
+			stream = super.getStream(url, layer);
+		} finally {
+			if (null == stream) {
+				fill.done(null);
+			}
+		}
+		return new CacheThroughInputStream(stream, maxCachedSize) {
+
+			@Override
+			protected void complete(byte[] content) {
+				try {
+					if (null != content) {
+						cacheManagerService.put(layer, CacheCategory.RASTER, url, content, getLayerEnvelope(layer));
+					}
+				} finally {
+					fill.done(content);
+				}
+			}
+		};
+	}
+
 	/**
 	 * Return the max bounds of the layer as envelope.
 	 * 
@@ -101,4 +176,48 @@ public class CachingLayerHttpService extends LayerHttpServiceImpl {
 		Bbox bounds = layer.getLayerInfo().getMaxExtent();
 		return new Envelope(bounds.getX(), bounds.getMaxX(), bounds.getY(), bounds.getMaxY());
 	}
+
+	/**
+	 * Content of a URL which is being fetched and put in the cache, allows other requests to wait for the result.
+	 *
+	 * @author agent
+	 */
+	private final class CacheFill {
+
+		private final String key;
+
+		private final CountDownLatch latch = new CountDownLatch(1);
+
+		private volatile byte[] content;
+
+		private CacheFill(String key) {
+			this.key = key;
+		}
+
+		private boolean isDone() {
+			return latch.getCount() == 0;
+		}
+
+		private void done(byte[] content) {
+			this.content = content;
+			inFlight.remove(key, this);
+			latch.countDown();
+		}
+
+		private byte[] await(String url) throws IOException {
+			try {
+				int timeout = getSocketTimeout();
+				if (timeout <= 0) {
+					timeout = MAX_FILL_WAIT;
+				}
+				if (!latch.await(timeout, TimeUnit.MILLISECONDS)) {
+					return null;
+				}
+				return content;
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new IOException("Interrupted while waiting for " + url);
+			}
+		}
+	}
 }
@@ -13,6 +13,7 @@ package org.geomajas.layer.common.proxy;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 
 import org.apache.http.impl.client.AbstractHttpClient;
 import org.geomajas.annotation.Api;
@@ -36,7 +37,19 @@ public interface LayerHttpService {
 	 * @throws IOException cannot get content
 	 */
 	InputStream getStream(String url, RasterLayer layer) throws IOException;
-	
+
+	/**
+	 * Copy the contents from the request URL to an output stream, for example the servlet output stream. The content
+	 * is streamed using a buffer, the output stream is not closed.
+	 *
+	 * @param url URL to get the response from
+	 * @param layer the raster layer
+	 * @param out output stream to write the content to
+	 * @throws IOException cannot get or write content
+	 * @since 1.18.6
+	 */
+	void copyStream(String url, RasterLayer layer, OutputStream out) throws IOException;
+
 	/**
 	 * Sets the HTTP client for this service.
 	 * @param client the common HTTP client
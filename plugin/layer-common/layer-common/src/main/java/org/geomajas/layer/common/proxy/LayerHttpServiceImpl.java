@@ -13,9 +13,13 @@ package org.geomajas.layer.common.proxy;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
 import java.net.URL;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.http.HttpException;
 import org.apache.http.HttpRequest;
@@ -25,14 +29,20 @@ import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.auth.UsernamePasswordCredentials;
 import org.apache.http.client.methods.HttpGet;
+import org.apache.http.client.params.ClientPNames;
+import org.apache.http.conn.ClientConnectionManager;
 import org.apache.http.impl.client.AbstractHttpClient;
 import org.apache.http.impl.client.SystemDefaultHttpClient;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.apache.http.params.BasicHttpParams;
 import org.apache.http.params.HttpConnectionParams;
 import org.apache.http.params.HttpParams;
 import org.apache.http.protocol.BasicHttpContext;
 import org.apache.http.protocol.HttpContext;
 import org.geomajas.layer.RasterLayer;
+import org.geomajas.service.metrics.HitCounter;
+import org.geomajas.service.metrics.LatencyTimer;
+import org.geomajas.service.metrics.MetricsService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -40,6 +50,10 @@ import org.springframework.beans.factory.annotation.Autowired;
 /**
  * Implementation of {@link LayerHttpService}. Non-caching implementation, see {@link CachingLayerHttpService} for the
  * component bean.
+ * <p/>
+ * All requests share one HTTP client with a pool of persistent (keep-alive) connections. The number of connections
+ * is limited, both in total and per host, so a slow upstream server cannot use all connections. Waiting for a
+ * connection, connecting and reading are limited by timeouts.
  * 
  * @author Joachim Van der Auwera
  * @author Kristof Heirwegh
@@ -57,18 +71,117 @@ public class LayerHttpServiceImpl implements LayerHttpService {
 
 	private static final int TIMEOUT = 5000;
 
+	private static final int SOCKET_TIMEOUT = 30000;
+
+	private static final int MAX_CONNECTIONS = 100;
+
+	private static final int MAX_CONNECTIONS_PER_HOST = 20;
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private static final int HTTP_ERROR = 400;
+
 	@Autowired(required = false)
 	private LayerHttpServiceInterceptors interceptors;
 
+	@Autowired(required = false)
+	private MetricsService metricsService;
+
 	private AbstractHttpClient client;
 
+	private int connectionTimeout = TIMEOUT;
+
+	private int socketTimeout = SOCKET_TIMEOUT;
+
+	private int maxConnections = MAX_CONNECTIONS;
+
+	private int maxConnectionsPerHost = MAX_CONNECTIONS_PER_HOST;
+
+	/** Metrics per host (and port), to avoid looking them up for each request. */
+	private final ConcurrentMap<String, HostMetrics> hostMetrics = new ConcurrentHashMap<String, HostMetrics>();
+
 	public LayerHttpServiceImpl() {
 		// Create a HTTP client object, which will initiate the connection:
 		final HttpParams httpParams = new BasicHttpParams();
-		HttpConnectionParams.setConnectionTimeout(httpParams, TIMEOUT);
 		setClient(new SystemDefaultHttpClient(httpParams));
 	}
 
+	/**
+	 * Get the timeout for connecting to the server and for waiting for a free connection in the pool.
+	 *
+	 * @return timeout in milliseconds
+	 */
+	public int getConnectionTimeout() {
+		return connectionTimeout;
+	}
+
+	/**
+	 * Set the timeout for connecting to the server and for waiting for a free connection in the pool. Default is 5s.
+	 *
+	 * @param connectionTimeout timeout in milliseconds
+	 */
+	public void setConnectionTimeout(int connectionTimeout) {
+		this.connectionTimeout = connectionTimeout;
+		configureClient();
+	}
+
+	/**
+	 * Get the timeout for waiting for data from the server.
+	 *
+	 * @return timeout in milliseconds
+	 */
+	public int getSocketTimeout() {
+		return socketTimeout;
+	}
+
+	/**
+	 * Set the timeout for waiting for data from the server. Default is 30s, 0 means no timeout.
+	 *
+	 * @param socketTimeout timeout in milliseconds
+	 */
+	public void setSocketTimeout(int socketTimeout) {
+		this.socketTimeout = socketTimeout;
+		configureClient();
+	}
+
+	/**
+	 * Get the maximum number of connections in the pool.
+	 *
+	 * @return maximum number of connections
+	 */
+	public int getMaxConnections() {
+		return maxConnections;
+	}
+
+	/**
+	 * Set the maximum number of connections in the pool. Default is 100.
+	 *
+	 * @param maxConnections maximum number of connections
+	 */
+	public void setMaxConnections(int maxConnections) {
+		this.maxConnections = maxConnections;
+		configureClient();
+	}
+
+	/**
+	 * Get the maximum number of connections in the pool to the same host.
+	 *
+	 * @return maximum number of connections per host
+	 */
+	public int getMaxConnectionsPerHost() {
+		return maxConnectionsPerHost;
+	}
+
+	/**
+	 * Set the maximum number of connections in the pool to the same host. Default is 20.
+	 *
+	 * @param maxConnectionsPerHost maximum number of connections per host
+	 */
+	public void setMaxConnectionsPerHost(int maxConnectionsPerHost) {
+		this.maxConnectionsPerHost = maxConnectionsPerHost;
+		configureClient();
+	}
+
 	public String addCredentialsToUrl(final String url, final ProxyAuthentication authentication) {
 		if (null != authentication && ProxyAuthenticationMethod.URL.equals(authentication.getMethod())) {
 			StringBuilder res = new StringBuilder(url);
@@ -120,11 +233,50 @@ public class LayerHttpServiceImpl implements LayerHttpService {
 		HttpGet get = new HttpGet(url);
 
 		// Execute the GET:
-		HttpResponse response = client.execute(get, context);
-		log.debug("Response: {} - {}", response.getStatusLine().getStatusCode(), response.getStatusLine()
-				.getReasonPhrase());
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			HttpResponse response = client.execute(get, context);
+			log.debug("Response: {} - {}", response.getStatusLine().getStatusCode(), response.getStatusLine()
+					.getReasonPhrase());
+			success = response.getStatusLine().getStatusCode() < HTTP_ERROR;
+			return response.getEntity().getContent();
+		} finally {
+			if (null != metricsService && metricsService.isEnabled()) {
+				HostMetrics metrics = getHostMetrics(get.getURI());
+				metrics.latency.record(System.nanoTime() - start);
+				metrics.success.record(success);
+			}
+		}
+	}
 
-		return response.getEntity().getContent();
+	@Override
+	public void copyStream(String url, RasterLayer layer, OutputStream out) throws IOException {
+		InputStream stream = getStream(url, layer);
+		try {
+			copy(stream, out);
+		} finally {
+			stream.close();
+		}
+	}
+
+	/**
+	 * Copy all content of the input stream to the output stream using a buffer. The streams are not closed.
+	 *
+	 * @param in input stream
+	 * @param out output stream
+	 * @return number of bytes copied
+	 * @throws IOException read or write failed
+	 */
+	protected long copy(InputStream in, OutputStream out) throws IOException {
+		byte[] buffer = new byte[BUFFER_SIZE];
+		long count = 0;
+		int read;
+		while ((read = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, read);
+			count += read;
+		}
+		return count;
 	}
 
 	@Override
@@ -133,6 +285,24 @@ public class LayerHttpServiceImpl implements LayerHttpService {
 		// add an interceptor that picks up the autowired interceptors, remove first to avoid doubles
 		client.removeRequestInterceptorByClass(CompositeInterceptor.class);
 		client.addRequestInterceptor(new CompositeInterceptor());
+		configureClient();
+	}
+
+	/**
+	 * Apply the timeouts and connection limits to the client.
+	 */
+	private void configureClient() {
+		HttpParams params = client.getParams();
+		HttpConnectionParams.setConnectionTimeout(params, connectionTimeout);
+		HttpConnectionParams.setSoTimeout(params, socketTimeout);
+		params.setLongParameter(ClientPNames.CONN_MANAGER_TIMEOUT, connectionTimeout);
+		ClientConnectionManager connectionManager = client.getConnectionManager();
+		if (connectionManager instanceof PoolingClientConnectionManager) {
+			// not pooling when keep-alive is disabled using the "http.keepAlive" system property
+			PoolingClientConnectionManager pool = (PoolingClientConnectionManager) connectionManager;
+			pool.setMaxTotal(maxConnections);
+			pool.setDefaultMaxPerRoute(maxConnectionsPerHost);
+		}
 	}
 
 	@Override
@@ -140,6 +310,47 @@ public class LayerHttpServiceImpl implements LayerHttpService {
 		return client;
 	}
 
+	/**
+	 * Get the metrics for the host of a request.
+	 *
+	 * @param uri request URI
+	 * @return metrics for the host
+	 */
+	private HostMetrics getHostMetrics(URI uri) {
+		String host = null == uri.getHost() ? "" : uri.getHost();
+		if (uri.getPort() >= 0) {
+			host = host + ":" + uri.getPort();
+		}
+		HostMetrics metrics = hostMetrics.get(host);
+		if (null == metrics) {
+			metrics = new HostMetrics(
+					metricsService.getLatencyTimer(MetricsService.HTTP, MetricsService.TAG_HOST, host),
+					metricsService.getHitCounter(MetricsService.HTTP_SUCCESS, MetricsService.TAG_HOST, host));
+			HostMetrics previous = hostMetrics.putIfAbsent(host, metrics);
+			if (null != previous) {
+				metrics = previous;
+			}
+		}
+		return metrics;
+	}
+
+	/**
+	 * Metrics of the requests to one host.
+	 *
+	 * @author agent
+	 */
+	private static final class HostMetrics {
+
+		private final LatencyTimer latency;
+
+		private final HitCounter success;
+
+		private HostMetrics(LatencyTimer latency, HitCounter success) {
+			this.latency = latency;
+			this.success = success;
+		}
+	}
+
 	/**
 	 * This interceptor will call the autowired interceptor(s) that apply to the current layer.
 	 * 
@@ -0,0 +1,124 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.layer.common.proxy;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Test for {@link CacheThroughInputStream}.
+ *
+ * @author agent
+ */
+public class CacheThroughInputStreamTest {
+
+	private static final int SIZE = 100000;
+
+	@Test
+	public void testComplete() throws IOException {
+		byte[] content = getContent();
+		MockStream stream = new MockStream(content, SIZE);
+		Assert.assertTrue(Arrays.equals(content, readAll(stream)));
+		Assert.assertEquals(1, stream.completeCount);
+		Assert.assertTrue(Arrays.equals(content, stream.completed));
+		stream.close();
+		Assert.assertEquals(1, stream.completeCount);
+	}
+
+	@Test
+	public void testSingleBytes() throws IOException {
+		byte[] content = getContent();
+		MockStream stream = new MockStream(content, SIZE);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		int b;
+		while ((b = stream.read()) >= 0) {
+			out.write(b);
+		}
+		Assert.assertTrue(Arrays.equals(content, out.toByteArray()));
+		Assert.assertTrue(Arrays.equals(content, stream.completed));
+	}
+
+	@Test
+	public void testTooLarge() throws IOException {
+		byte[] content = getContent();
+		MockStream stream = new MockStream(content, SIZE - 1);
+		Assert.assertTrue(Arrays.equals(content, readAll(stream)));
+		Assert.assertEquals(1, stream.completeCount);
+		Assert.assertNull(stream.completed);
+	}
+
+	@Test
+	public void testClosedEarly() throws IOException {
+		MockStream stream = new MockStream(getContent(), SIZE);
+		Assert.assertEquals(10, stream.read(new byte[10]));
+		Assert.assertEquals(0, stream.completeCount);
+		stream.close();
+		Assert.assertEquals(1, stream.completeCount);
+		Assert.assertNull(stream.completed);
+	}
+
+	@Test
+	public void testSkip() throws IOException {
+		MockStream stream = new MockStream(getContent(), SIZE);
+		stream.skip(10);
+		readAll(stream);
+		Assert.assertEquals(1, stream.completeCount);
+		Assert.assertNull(stream.completed);
+	}
+
+	private byte[] getContent() {
+		byte[] content = new byte[SIZE];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		return content;
+	}
+
+	private byte[] readAll(InputStream in) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buffer = new byte[1000];
+		int count;
+		while ((count = in.read(buffer)) >= 0) {
+			out.write(buffer, 0, count);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Stream which remembers the completed content.
+	 *
+	 * @author agent
+	 */
+	private static class MockStream extends CacheThroughInputStream {
+
+		private byte[] completed;
+
+		private int completeCount;
+
+		public MockStream(byte[] content, int maxSize) {
+			super(new ByteArrayInputStream(content), maxSize);
+		}
+
+		@Override
+		protected void complete(byte[] content) {
+			completed = content;
+			completeCount++;
+		}
+	}
+}
@@ -11,7 +11,11 @@
 
 package org.geomajas.layer.common.proxy;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
 import java.util.UUID;
 
 import junit.framework.Assert;
@@ -19,6 +23,9 @@ import junit.framework.Assert;
 import org.apache.http.auth.AuthScope;
 import org.apache.http.auth.Credentials;
 import org.apache.http.client.CredentialsProvider;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
+import org.apache.http.params.HttpConnectionParams;
+import org.geomajas.layer.RasterLayer;
 import org.geomajas.plugin.caching.service.CacheCategory;
 import org.geomajas.plugin.caching.service.CacheManagerService;
 import org.infinispan.Cache;
@@ -104,4 +111,37 @@ public class LayerHttpServiceTest {
 		Assert.assertEquals(2, interceptors.getMap().size());
 	}
 
+	@Test
+	public void testClientConfiguration() {
+		LayerHttpServiceImpl service = new LayerHttpServiceImpl();
+		service.setConnectionTimeout(1000);
+		service.setSocketTimeout(2000);
+		service.setMaxConnections(30);
+		service.setMaxConnectionsPerHost(3);
+		Assert.assertEquals(1000, HttpConnectionParams.getConnectionTimeout(service.getClient().getParams()));
+		Assert.assertEquals(2000, HttpConnectionParams.getSoTimeout(service.getClient().getParams()));
+		PoolingClientConnectionManager pool = (PoolingClientConnectionManager) service.getClient()
+				.getConnectionManager();
+		Assert.assertEquals(30, pool.getMaxTotal());
+		Assert.assertEquals(3, pool.getDefaultMaxPerRoute());
+	}
+
+	@Test
+	public void testCopyStream() throws IOException {
+		final byte[] content = new byte[100000];
+		for (int i = 0; i < content.length; i++) {
+			content[i] = (byte) i;
+		}
+		LayerHttpServiceImpl service = new LayerHttpServiceImpl() {
+
+			@Override
+			public InputStream getStream(String url, RasterLayer layer) throws IOException {
+				return new ByteArrayInputStream(content);
+			}
+		};
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		service.copyStream("http://somehost/", new MockProxyLayer("layer1"), out);
+		Assert.assertTrue(Arrays.equals(content, out.toByteArray()));
+	}
+
 }
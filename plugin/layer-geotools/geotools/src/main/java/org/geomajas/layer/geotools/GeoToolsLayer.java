@@ -26,6 +26,7 @@ import org.geomajas.configuration.VectorLayerInfo;
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.layer.LayerException;
 import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerCountingSupport;
 import org.geomajas.layer.feature.Attribute;
 import org.geomajas.layer.feature.FeatureModel;
 import org.geomajas.layer.shapeinmem.FeatureSourceRetriever;
@@ -66,7 +67,7 @@ import com.vividsolutions.jts.geom.Envelope;
  * @since 1.7.1
  */
 @Api
-public class GeoToolsLayer extends FeatureSourceRetriever implements VectorLayer {
+public class GeoToolsLayer extends FeatureSourceRetriever implements VectorLayer, VectorLayerCountingSupport {
 
 	private final Logger log = LoggerFactory.getLogger(GeoToolsLayer.class);
 
@@ -476,6 +477,34 @@ public class GeoToolsLayer extends FeatureSourceRetriever implements VectorLayer
 		}
 	}
 
+	/**
+	 * Count the features which match the filter. The data store is asked for the count (for a database this is a
+	 * "SELECT COUNT(*)" query). When the data store cannot count cheaply, the features are counted by the feature
+	 * collection.
+	 *
+	 * @since 1.18.6
+	 */
+	@Api
+	@Transactional(readOnly = true)
+	public int getCount(Filter filter) throws LayerException {
+		FeatureSource<SimpleFeatureType, SimpleFeature> source = getFeatureSource();
+		try {
+			if (source instanceof FeatureStore<?, ?>) {
+				SimpleFeatureStore store = (SimpleFeatureStore) source;
+				transactionSynchronization.synchTransaction(store);
+			}
+			Query query = new Query();
+			query.setFilter(null == filter ? Filter.INCLUDE : filter);
+			int count = source.getCount(query);
+			if (count < 0) {
+				count = source.getFeatures(query).size();
+			}
+			return count;
+		} catch (Throwable t) { // NOSONAR avoid errors (like NPE) as well
+			throw new LayerException(t, ExceptionCode.UNEXPECTED_PROBLEM);
+		}
+	}
+
 	@Override
 	public FeatureModel getFeatureModel() {
 		if (!featureModelUsable) {
@@ -14,11 +14,14 @@ package org.geomajas.layer.shapeinmem;
 import java.io.IOException;
 import java.net.MalformedURLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import javax.annotation.PostConstruct;
 
@@ -28,6 +31,7 @@ import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.LayerException;
 import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerCountingSupport;
 import org.geomajas.layer.feature.FeatureModel;
 import org.geomajas.layer.geotools.DataStoreFactory;
 import org.geomajas.service.DtoConverterService;
@@ -35,26 +39,47 @@ import org.geomajas.service.GeoService;
 import org.geotools.data.DataStore;
 import org.geotools.feature.FeatureCollection;
 import org.geotools.feature.FeatureIterator;
+import org.geotools.filter.visitor.ExtractBoundsFilterVisitor;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.And;
 import org.opengis.filter.Filter;
+import org.opengis.filter.spatial.BBOX;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 import org.springframework.beans.factory.annotation.Autowired;
 
 import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.index.quadtree.Quadtree;
 
 /**
  * Layer model for handling shape files in memory.
+ * <p/>
+ * The features are indexed in a {@link Quadtree}. When a filter limits the features to an area (as for a tile or a
+ * bounding box search), only the features in the index which overlap that area are evaluated. The index is updated
+ * when features are created, updated or deleted.
  * 
  * @author Jan De Moerloose
  * @author Pieter De Graef
  * @since 1.7.1
  */
 @Api
-public class ShapeInMemLayer extends FeatureSourceRetriever implements VectorLayer {
+public class ShapeInMemLayer extends FeatureSourceRetriever implements VectorLayer, VectorLayerCountingSupport {
 
 	private final Map<String, SimpleFeature> features = new ConcurrentHashMap<String, SimpleFeature>();
 
+	/** Lock for the index, write lock for modifying the features. */
+	private final ReadWriteLock indexLock = new ReentrantReadWriteLock();
+
+	/** Spatial index, guarded by {@link #indexLock}. */
+	private Quadtree index = new Quadtree();
+
+	/** Envelope for which each feature was inserted in the index, guarded by {@link #indexLock}. */
+	private final Map<String, Envelope> indexed = new HashMap<String, Envelope>();
+
+	/** Bounds of the indexed features, null when they need to be recalculated. */
+	private volatile Envelope bounds;
+
 	private FeatureModel featureModel;
 
 	private VectorLayerInfo layerInfo;
@@ -149,16 +174,68 @@ public class ShapeInMemLayer extends FeatureSourceRetriever implements VectorLay
 	 * This implementation does not support the 'offset' and 'maxResultSize' parameters.
 	 */
 	public Iterator<?> getElements(Filter filter, int offset, int maxResultSize) throws LayerException {
+		return getFeatures(filter, maxResultSize).iterator();
+	}
+
+	/**
+	 * Get the features which match the filter, using the spatial index when the filter limits the area.
+	 *
+	 * @param filter filter
+	 * @param maxResultSize maximum number of features
+	 * @return features
+	 */
+	private List<SimpleFeature> getFeatures(Filter filter, int maxResultSize) {
 		List<SimpleFeature> filteredList = new ArrayList<SimpleFeature>();
-		for (SimpleFeature feature : features.values()) {
-			if (filter.evaluate(feature)) {
-				filteredList.add(feature);
-				if (filteredList.size() == maxResultSize) {
-					break;
+		SpatialQuery query = new SpatialQuery(filter);
+		if (null == query.envelope) {
+			// no area, check all features
+			for (SimpleFeature feature : features.values()) {
+				if (filter.evaluate(feature)) {
+					filteredList.add(feature);
+					if (filteredList.size() == maxResultSize) {
+						break;
+					}
+				}
+			}
+		} else if (!query.envelope.isNull()) {
+			List<?> candidates;
+			indexLock.readLock().lock();
+			try {
+				candidates = index.query(query.envelope);
+			} finally {
+				indexLock.readLock().unlock();
+			}
+			for (Object candidate : candidates) {
+				SimpleFeature feature = (SimpleFeature) candidate;
+				// the quadtree also returns features close to the area
+				Geometry geometry = (Geometry) feature.getDefaultGeometry();
+				if (null != geometry && query.envelope.intersects(geometry.getEnvelopeInternal())
+						&& query.evaluate(feature)) {
+					filteredList.add(feature);
+					if (filteredList.size() == maxResultSize) {
+						break;
+					}
 				}
 			}
 		}
-		return filteredList.iterator();
+		return filteredList;
+	}
+
+	/**
+	 * Count the features which match the filter. When the filter limits the area, only the features in the spatial
+	 * index which overlap that area are evaluated.
+	 *
+	 * @param filter filter
+	 * @return number of features which match the filter
+	 * @throws LayerException cannot read features
+	 * @since 1.18.6
+	 */
+	@Api
+	public int getCount(Filter filter) throws LayerException {
+		if (null == filter || Filter.INCLUDE.equals(filter)) {
+			return features.size();
+		}
+		return getFeatures(filter, 0).size();
 	}
 
 	@Override
@@ -167,19 +244,24 @@ public class ShapeInMemLayer extends FeatureSourceRetriever implements VectorLay
 	}
 
 	/**
-	 * Retrieve the bounds of the specified features.
+	 * Retrieve the bounds of the specified features. The bounds are calculated from the features in memory.
 	 *
 	 * @param filter filter
 	 * @return the bounds of the specified features
 	 * @throws LayerException cannot read features
 	 */
 	public Envelope getBounds(Filter filter) throws LayerException {
-		try {
-			FeatureCollection<SimpleFeatureType, SimpleFeature> fc = getFeatureSource().getFeatures(filter);
-			return fc.getBounds();
-		} catch (IOException ioe) {
-			throw new LayerException(ioe, ExceptionCode.FEATURE_MODEL_PROBLEM);
+		if (Filter.INCLUDE.equals(filter)) {
+			return getIndexBounds();
+		}
+		Envelope bounds = new Envelope();
+		for (SimpleFeature feature : getFeatures(filter, 0)) {
+			Geometry geometry = (Geometry) feature.getDefaultGeometry();
+			if (null != geometry) {
+				bounds.expandToInclude(geometry.getEnvelopeInternal());
+			}
 		}
+		return bounds;
 	}
 
 	@Override
@@ -192,7 +274,13 @@ public class ShapeInMemLayer extends FeatureSourceRetriever implements VectorLay
 		String id = featureModel.getId(feature);
 		if (id != null && !features.containsKey(id)) {
 			SimpleFeature realFeature = asFeature(feature);
-			features.put(id, realFeature);
+			indexLock.writeLock().lock();
+			try {
+				features.put(id, realFeature);
+				indexFeature(id, realFeature);
+			} finally {
+				indexLock.writeLock().unlock();
+			}
 			return realFeature;
 		}
 		return null;
@@ -209,17 +297,35 @@ public class ShapeInMemLayer extends FeatureSourceRetriever implements VectorLay
 
 	@Override
 	public Object saveOrUpdate(Object feature) throws LayerException {
-		if (!features.containsKey(getFeatureModel().getId(feature))) {
+		String id = getFeatureModel().getId(feature);
+		if (!features.containsKey(id)) {
 			return create(feature);
 		} else {
-			// Nothing to do
+			// the feature was updated in place, the geometry may have changed
+			indexLock.writeLock().lock();
+			try {
+				SimpleFeature realFeature = features.get(id);
+				if (null != realFeature) {
+					indexFeature(id, realFeature);
+				}
+			} finally {
+				indexLock.writeLock().unlock();
+			}
 			return feature;
 		}
 	}
 
 	@Override
 	public void delete(String featureId) throws LayerException {
-		features.remove(featureId);
+		indexLock.writeLock().lock();
+		try {
+			SimpleFeature feature = features.remove(featureId);
+			if (null != feature) {
+				removeFromIndex(featureId, feature);
+			}
+		} finally {
+			indexLock.writeLock().unlock();
+		}
 	}
 
 	// -------------------------------------------------------------------------
@@ -252,6 +358,7 @@ public class ShapeInMemLayer extends FeatureSourceRetriever implements VectorLay
 				}
 			}
 			iterator.close();
+			buildIndex();
 			((ShapeInMemFeatureModel) featureModel).setNextId(++lastIndex);
 		} catch (NumberFormatException nfe) {
 			throw new LayerException(nfe, ExceptionCode.FEATURE_MODEL_PROBLEM, url);
@@ -263,5 +370,136 @@ public class ShapeInMemLayer extends FeatureSourceRetriever implements VectorLay
 			throw new LayerException(ge, ExceptionCode.CANNOT_CREATE_LAYER_MODEL, url);
 		}
 	}
-	
+
+	/**
+	 * Build the spatial index for all features.
+	 */
+	private void buildIndex() {
+		indexLock.writeLock().lock();
+		try {
+			index = new Quadtree();
+			indexed.clear();
+			bounds = new Envelope();
+			for (Map.Entry<String, SimpleFeature> entry : features.entrySet()) {
+				indexFeature(entry.getKey(), entry.getValue());
+			}
+		} finally {
+			indexLock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * (Re)insert a feature in the spatial index using the envelope of its current geometry. Requires the write lock.
+	 *
+	 * @param id feature id
+	 * @param feature feature
+	 */
+	private void indexFeature(String id, SimpleFeature feature) {
+		removeFromIndex(id, feature);
+		Geometry geometry = (Geometry) feature.getDefaultGeometry();
+		if (null != geometry && !geometry.isEmpty()) {
+			Envelope envelope = new Envelope(geometry.getEnvelopeInternal());
+			index.insert(envelope, feature);
+			indexed.put(id, envelope);
+			Envelope current = bounds;
+			if (null != current) {
+				current.expandToInclude(envelope);
+			}
+		}
+	}
+
+	/**
+	 * Remove a feature from the spatial index. Requires the write lock.
+	 *
+	 * @param id feature id
+	 * @param feature feature
+	 */
+	private void removeFromIndex(String id, SimpleFeature feature) {
+		Envelope envelope = indexed.remove(id);
+		if (null != envelope) {
+			index.remove(envelope, feature);
+			Envelope current = bounds;
+			if (null != current && (envelope.getMinX() <= current.getMinX() || envelope.getMaxX() >= current.getMaxX()
+					|| envelope.getMinY() <= current.getMinY() || envelope.getMaxY() >= current.getMaxY())) {
+				// the bounds may shrink
+				bounds = null;
+			}
+		}
+	}
+
+	/**
+	 * Get the bounds of the indexed features, recalculating them when needed.
+	 *
+	 * @return bounds of the indexed features
+	 */
+	private Envelope getIndexBounds() {
+		indexLock.readLock().lock();
+		try {
+			Envelope result = bounds;
+			if (null == result) {
+				result = new Envelope();
+				for (Envelope envelope : indexed.values()) {
+					result.expandToInclude(envelope);
+				}
+				bounds = result;
+			}
+			return new Envelope(result);
+		} finally {
+			indexLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Filter split in the area to query in the index and the parts which need to be evaluated for each candidate.
+	 * <p/>
+	 * The parts of a top level "and" are evaluated separately. A bounding box part does not need to be evaluated when
+	 * the envelope of the feature is inside the box, which is the case for most features in a tile.
+	 *
+	 * @author agent
+	 */
+	private static final class SpatialQuery {
+
+		/** Area to query, null when the filter does not limit the area. */
+		private final Envelope envelope;
+
+		private final Filter[] parts;
+
+		/** Envelope for the bounding box parts, null for the other parts. */
+		private final Envelope[] boxes;
+
+		private SpatialQuery(Filter filter) {
+			Envelope area = (Envelope) filter.accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+			if (null != area && (Double.isInfinite(area.getWidth()) || Double.isInfinite(area.getHeight()))) {
+				area = null;
+			}
+			envelope = area;
+			List<Filter> children = filter instanceof And ? ((And) filter).getChildren()
+					: Collections.singletonList(filter);
+			parts = children.toArray(new Filter[children.size()]);
+			boxes = new Envelope[parts.length];
+			for (int i = 0; i < parts.length; i++) {
+				if (parts[i] instanceof BBOX) {
+					boxes[i] = (Envelope) parts[i].accept(ExtractBoundsFilterVisitor.BOUNDS_VISITOR, null);
+				}
+			}
+		}
+
+		private boolean evaluate(SimpleFeature feature) {
+			Envelope featureEnvelope = null;
+			for (int i = 0; i < parts.length; i++) {
+				if (null != boxes[i]) {
+					if (null == featureEnvelope) {
+						featureEnvelope = ((Geometry) feature.getDefaultGeometry()).getEnvelopeInternal();
+					}
+					if (boxes[i].contains(featureEnvelope)) {
+						continue;
+					}
+				}
+				if (!parts[i].evaluate(feature)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
 }
\ No newline at end of file
@@ -150,4 +150,17 @@ public class GeoToolsLayerTest extends AbstractGeoToolsTest {
 		}
 		Assert.assertEquals(198, counter);
 	}
+
+	@Test
+	public void testGetCount() throws Exception {
+		Assert.assertEquals(198, layer.getCount(filter));
+		Iterator<?> it = layer.getElements(Filter.INCLUDE, 0, 0);
+		int counter = 0;
+		while (it.hasNext()) {
+			it.next();
+			counter++;
+		}
+		Assert.assertEquals(counter, layer.getCount(null));
+		Assert.assertEquals(counter, layer.getCount(Filter.INCLUDE));
+	}
 }
\ No newline at end of file
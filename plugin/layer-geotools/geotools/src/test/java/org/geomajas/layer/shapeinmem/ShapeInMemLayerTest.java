@@ -32,6 +32,7 @@ import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 
 import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKTReader;
@@ -130,6 +131,73 @@ public class ShapeInMemLayerTest {
 		Assert.assertEquals(198, counter);
 	}
 
+	@Test
+	public void getCount() throws Exception {
+		Envelope europe = new Envelope(-10, 30, 35, 60);
+		Filter bbox = filterService.createBboxFilter("EPSG:4326", europe, "the_geom");
+		Assert.assertEquals(198, layer.getCount(filter));
+		Assert.assertEquals(count(layer.getElements(Filter.INCLUDE, 0, 0)), layer.getCount(Filter.INCLUDE));
+		Assert.assertEquals(count(layer.getElements(bbox, 0, 0)), layer.getCount(bbox));
+	}
+
+	@Test
+	public void getElementsBbox() throws Exception {
+		Envelope europe = new Envelope(-10, 30, 35, 60);
+		Filter bbox = filterService.createBboxFilter("EPSG:4326", europe, "the_geom");
+		Filter bigInEurope = filterService.createAndFilter(bbox, filter);
+
+		// compare with a full scan
+		int inEurope = 0;
+		int bigCount = 0;
+		Iterator<?> all = layer.getElements(Filter.INCLUDE, 0, 0);
+		while (all.hasNext()) {
+			SimpleFeature feature = (SimpleFeature) all.next();
+			if (europe.contains(((Geometry) feature.getDefaultGeometry()).getEnvelopeInternal())) {
+				inEurope++;
+				if (filter.evaluate(feature)) {
+					bigCount++;
+				}
+			}
+		}
+		Assert.assertTrue(bigCount > 0);
+		Assert.assertEquals(inEurope, count(layer.getElements(bbox, 0, 0)));
+		Assert.assertEquals(bigCount, count(layer.getElements(bigInEurope, 0, 0)));
+		Assert.assertEquals(0, count(layer.getElements(filterService.createAndFilter(bbox,
+				filterService.createBboxFilter("EPSG:4326", new Envelope(100, 110, 0, 10), "the_geom")), 0, 0)));
+		Envelope bounds = layer.getBounds(bbox);
+		Assert.assertTrue(europe.contains(bounds));
+
+		// the index is updated when creating and deleting features
+		Object feature = layer.getFeatureModel().newInstance("501");
+		Map<String, Attribute> map = new HashMap<String, Attribute>();
+		map.put("NAME", new StringAttribute("Brussels"));
+		map.put("POP_OTHER", new IntegerAttribute(1800000));
+		layer.getFeatureModel().setAttributes(feature, map);
+		layer.getFeatureModel().setGeometry(feature, new WKTReader().read("POINT (4.35 50.85)"));
+		Object created = layer.create(feature);
+		Assert.assertNotNull(created);
+		Assert.assertEquals(bigCount + 1, count(layer.getElements(bigInEurope, 0, 0)));
+		// and when the geometry of a feature is updated
+		layer.getFeatureModel().setGeometry(created, new WKTReader().read("POINT (105 5)"));
+		layer.saveOrUpdate(created);
+		Assert.assertEquals(bigCount, count(layer.getElements(bigInEurope, 0, 0)));
+		Assert.assertTrue(layer.getBounds().contains(105, 5));
+		layer.getFeatureModel().setGeometry(created, new WKTReader().read("POINT (4.35 50.85)"));
+		layer.saveOrUpdate(created);
+		Assert.assertEquals(bigCount + 1, count(layer.getElements(bigInEurope, 0, 0)));
+		layer.delete(layer.getFeatureModel().getId(feature));
+		Assert.assertEquals(bigCount, count(layer.getElements(bigInEurope, 0, 0)));
+	}
+
+	private int count(Iterator<?> iterator) {
+		int count = 0;
+		while (iterator.hasNext()) {
+			iterator.next();
+			count++;
+		}
+		return count;
+	}
+
 	@After
 	public void refreshContext() throws LayerException {
 		layer.initFeatures();
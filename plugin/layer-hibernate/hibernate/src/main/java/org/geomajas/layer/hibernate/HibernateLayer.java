@@ -31,7 +31,9 @@ import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.LayerException;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.VectorLayerAssociationSupport;
+import org.geomajas.layer.VectorLayerCountingSupport;
 import org.geomajas.layer.VectorLayerLazyFeatureConversionSupport;
+import org.geomajas.layer.VectorLayerSortingSupport;
 import org.geomajas.layer.feature.Attribute;
 import org.geomajas.layer.feature.FeatureModel;
 import org.geomajas.service.DtoConverterService;
@@ -44,11 +46,23 @@ import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.criterion.Criterion;
 import org.hibernate.criterion.Order;
+import org.hibernate.criterion.Projections;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.SessionFactoryImplementor;
+import org.hibernate.metadata.ClassMetadata;
+import org.hibernate.persister.entity.AbstractEntityPersister;
+import org.hibernatespatial.SpatialAggregate;
+import org.hibernatespatial.SpatialDialect;
+import org.hibernatespatial.criterion.SpatialProjections;
 import org.opengis.filter.Filter;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
@@ -64,7 +78,7 @@ import com.vividsolutions.jts.geom.Geometry;
 @Api
 @Transactional(rollbackFor = { Exception.class })
 public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, VectorLayerAssociationSupport,
-		VectorLayerLazyFeatureConversionSupport {
+		VectorLayerLazyFeatureConversionSupport, VectorLayerSortingSupport, VectorLayerCountingSupport {
 
 	private FeatureModel featureModel;
 
@@ -99,6 +113,21 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 
 	private boolean useLazyFeatureConversion = true;
 
+	private final Logger log = LoggerFactory.getLogger(HibernateLayer.class);
+
+	private boolean cacheBounds;
+
+	/** Bounds of the complete layer, null when not known. */
+	private volatile Envelope layerBounds;
+
+	private final Object boundsLock = new Object();
+
+	/** Incremented when the layer is modified, used to avoid caching bounds calculated before the modification. */
+	private long modificationCount;
+
+	/** Can the bounds be calculated in the database, null when not determined yet. */
+	private volatile Boolean boundsInDb;
+
 	@Override
 	public String getId() {
 		return id;
@@ -234,6 +263,20 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 	 * you expect large results to be returned enable scrollableResultSet to retrieve only as many records as needed.
 	 */
 	public Iterator<?> getElements(Filter filter, int offset, int maxResultSize) throws LayerException {
+		// the configured sort order is descending unless explicitly ascending
+		SortType sortType = SortType.ASC.equals(getFeatureInfo().getSortType()) ? SortType.ASC : SortType.DESC;
+		return getElements(filter, getFeatureInfo().getSortAttributeName(), sortType, offset, maxResultSize);
+	}
+
+	/**
+	 * Get the features sorted on an attribute, the sorting is done by the database. As for
+	 * {@link #getElements(Filter, int, int)}, the 'offset' and 'maxResultSize' parameters are not used.
+	 *
+	 * @since 1.18.6
+	 */
+	@Api
+	public Iterator<?> getElements(Filter filter, String sortAttributeName, SortType sortType, int offset,
+			int maxResultSize) throws LayerException {
 		try {
 			Session session = getSessionFactory().getCurrentSession();
 			Criteria criteria = session.createCriteria(getFeatureInfo().getDataSourceName());
@@ -248,11 +291,11 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 			}
 
 			// Sorting of elements.
-			if (getFeatureInfo().getSortAttributeName() != null) {
-				if (SortType.ASC.equals(getFeatureInfo().getSortType())) {
-					criteria.addOrder(Order.asc(getFeatureInfo().getSortAttributeName()));
+			if (sortAttributeName != null) {
+				if (SortType.DESC.equals(sortType)) {
+					criteria.addOrder(Order.desc(sortAttributeName));
 				} else {
-					criteria.addOrder(Order.desc(getFeatureInfo().getSortAttributeName()));
+					criteria.addOrder(Order.asc(sortAttributeName));
 				}
 			}
 
@@ -270,12 +313,40 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 		}
 	}
 
+	/**
+	 * Count the features which match the filter. The features are counted in the database, distinct identifiers are
+	 * counted as the criteria for association attributes may join several rows for one feature.
+	 *
+	 * @since 1.18.6
+	 */
+	@Api
+	public int getCount(Filter filter) throws LayerException {
+		try {
+			Session session = getSessionFactory().getCurrentSession();
+			Criteria criteria = session.createCriteria(getFeatureInfo().getDataSourceName());
+			if (null != filter && filter != Filter.INCLUDE) {
+				CriteriaVisitor visitor = new CriteriaVisitor((HibernateFeatureModel) featureModel, dateFormat);
+				Criterion c = (Criterion) filter.accept(visitor, criteria);
+				if (c != null) {
+					criteria.add(c);
+				}
+			}
+			criteria.setProjection(Projections.countDistinct(getEntityMetadata().getIdentifierPropertyName()));
+			Number count = (Number) criteria.uniqueResult();
+			return null == count ? 0 : count.intValue();
+		} catch (HibernateException he) {
+			throw new HibernateLayerException(he, ExceptionCode.HIBERNATE_LOAD_FILTER_FAIL, getFeatureInfo()
+					.getDataSourceName(), String.valueOf(filter));
+		}
+	}
+
 	@Override
 	public Object create(Object feature) throws LayerException {
 		// force the srid value
 		enforceSrid(feature);
 		Session session = getSessionFactory().getCurrentSession();
 		session.save(feature);
+		invalidateBounds();
 		return feature;
 	}
 
@@ -285,7 +356,9 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 		enforceSrid(feature);
 		Session session = getSessionFactory().getCurrentSession();
 		// using merge to allow detached objects, although Geomajas avoids them
-		return session.merge(feature);
+		Object merged = session.merge(feature);
+		invalidateBounds();
+		return merged;
 	}
 
 	@Override
@@ -293,6 +366,7 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 		Session session = getSessionFactory().getCurrentSession();
 		session.delete(getFeature(featureId));
 		session.flush();
+		invalidateBounds();
 	}
 
 	@Override
@@ -313,6 +387,7 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 	public void update(Object feature) throws LayerException {
 		Session session = getSessionFactory().getCurrentSession();
 		session.update(feature);
+		invalidateBounds();
 	}
 
 	@Override
@@ -322,19 +397,42 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 
 	/**
 	 * Retrieve the bounds of the specified features.
+	 * <p/>
+	 * The bounds are calculated in the database using the extent aggregate of the spatial dialect. When the dialect
+	 * does not support this or the geometry is a formula, the features are read and the bounds are calculated locally.
+	 * When enabled using {@link #setCacheBounds(boolean)}, the bounds of the complete layer are cached until a feature
+	 * is modified through this layer.
 	 * 
 	 * @param filter
 	 *            filter which needs to be applied
 	 * @return the bounds of the specified features
 	 */
 	public Envelope getBounds(Filter filter) throws LayerException {
-		// Envelope bounds = getBoundsDb(filter);
-		// if (bounds == null)
-		// bounds = getBoundsLocal(filter);
-		// return bounds;
-
-		// @TODO getBoundsDb cannot handle hibernate Formula fields
-		return getBoundsLocal(filter);
+		boolean all = null == filter || Filter.INCLUDE.equals(filter);
+		if (all && cacheBounds) {
+			Envelope bounds = layerBounds;
+			if (null != bounds) {
+				return new Envelope(bounds);
+			}
+		}
+		long count;
+		synchronized (boundsLock) {
+			count = modificationCount;
+		}
+		Envelope bounds;
+		if (isBoundsInDb()) {
+			bounds = getBoundsDb(filter);
+		} else {
+			bounds = getBoundsLocal(filter);
+		}
+		if (all && cacheBounds) {
+			synchronized (boundsLock) {
+				if (count == modificationCount) {
+					layerBounds = new Envelope(bounds);
+				}
+			}
+		}
+		return bounds;
 	}
 
 	@Override
@@ -386,6 +484,31 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 		this.dateFormat = dateFormat;
 	}
 
+	/**
+	 * Are the bounds of the complete layer cached?
+	 *
+	 * @return true when the layer bounds are cached
+	 * @since 1.18.6
+	 */
+	@Api
+	public boolean isCacheBounds() {
+		return cacheBounds;
+	}
+
+	/**
+	 * Should the bounds of the complete layer be cached? The cached bounds are only cleared when a feature is created,
+	 * updated or deleted using this layer, so only enable this when the table is not modified by other applications
+	 * or other layers. Defaults to false.
+	 *
+	 * @param cacheBounds true when the layer bounds should be cached
+	 * @since 1.18.6
+	 */
+	@Api
+	public void setCacheBounds(boolean cacheBounds) {
+		this.cacheBounds = cacheBounds;
+		layerBounds = null;
+	}
+
 	/**
 	 * Is the result set scrollable?
 	 *
@@ -472,6 +595,111 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 		}
 	}
 
+	/**
+	 * Clear the cached layer bounds. The bounds are cleared again when the current transaction completes, as bounds
+	 * which were calculated in the meantime may include changes which were rolled back.
+	 */
+	private void invalidateBounds() {
+		synchronized (boundsLock) {
+			modificationCount++;
+			layerBounds = null;
+		}
+		if (cacheBounds && TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+
+				@Override
+				public void afterCompletion(int status) {
+					synchronized (boundsLock) {
+						modificationCount++;
+						layerBounds = null;
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * Check whether the bounds can be calculated in the database. This requires a spatial dialect which supports the
+	 * extent aggregate, and a geometry which is mapped on a column (not a formula).
+	 *
+	 * @return true when the bounds can be calculated in the database
+	 */
+	private boolean isBoundsInDb() {
+		Boolean result = boundsInDb;
+		if (null == result) {
+			result = false;
+			try {
+				Dialect dialect = ((SessionFactoryImplementor) getSessionFactory()).getDialect();
+				String geometryName = getFeatureInfo().getGeometryType().getName();
+				if (!(dialect instanceof SpatialDialect)) {
+					log.debug("Bounds for layer {} calculated locally, no spatial dialect", getId());
+				} else if (isFormula(geometryName)) {
+					log.debug("Bounds for layer {} calculated locally, geometry is a formula", getId());
+				} else {
+					// throws an exception when not supported
+					((SpatialDialect) dialect).getSpatialAggregateSQL(geometryName, SpatialAggregate.EXTENT);
+					result = true;
+				}
+			} catch (RuntimeException re) { // NOSONAR
+				log.debug("Bounds for layer {} calculated locally, extent not supported by dialect: {}", getId(),
+						re.getMessage());
+			}
+			boundsInDb = result;
+		}
+		return result;
+	}
+
+	/**
+	 * Check whether a property is mapped as a formula instead of a column.
+	 *
+	 * @param propertyName property name
+	 * @return true when the property is a formula
+	 */
+	private boolean isFormula(String propertyName) {
+		try {
+			ClassMetadata metadata = getEntityMetadata();
+			if (metadata instanceof AbstractEntityPersister) {
+				for (String column : ((AbstractEntityPersister) metadata).getPropertyColumnNames(propertyName)) {
+					if (null == column) {
+						return true; // formula parts have no column name
+					}
+				}
+			}
+			return false;
+		} catch (Exception e) { // NOSONAR
+			return true; // be safe, unknown mapping
+		}
+	}
+
+	/**
+	 * Bounds are calculated in the database using the extent aggregate of the spatial dialect.
+	 *
+	 * @param filter
+	 *            filter which needs to be applied
+	 * @return the bounds of the specified features
+	 * @throws LayerException
+	 *             oops
+	 */
+	private Envelope getBoundsDb(Filter filter) throws LayerException {
+		try {
+			Session session = getSessionFactory().getCurrentSession();
+			Criteria criteria = session.createCriteria(getFeatureInfo().getDataSourceName());
+			if (null != filter) {
+				CriteriaVisitor visitor = new CriteriaVisitor((HibernateFeatureModel) getFeatureModel(), dateFormat);
+				Criterion c = (Criterion) filter.accept(visitor, criteria);
+				if (c != null) {
+					criteria.add(c);
+				}
+			}
+			criteria.setProjection(SpatialProjections.extent(getFeatureInfo().getGeometryType().getName()));
+			Geometry extent = (Geometry) criteria.uniqueResult();
+			return null == extent ? new Envelope() : extent.getEnvelopeInternal();
+		} catch (HibernateException he) {
+			throw new HibernateLayerException(he, ExceptionCode.HIBERNATE_LOAD_FILTER_FAIL, getFeatureInfo()
+					.getDataSourceName(), String.valueOf(filter));
+		}
+	}
+
 	/**
 	 * Bounds are calculated locally, can use any filter, but slower than native.
 	 * 
@@ -485,24 +713,26 @@ public class HibernateLayer extends HibernateLayerUtil implements VectorLayer, V
 		try {
 			Session session = getSessionFactory().getCurrentSession();
 			Criteria criteria = session.createCriteria(getFeatureInfo().getDataSourceName());
-			CriteriaVisitor visitor = new CriteriaVisitor((HibernateFeatureModel) getFeatureModel(), dateFormat);
-			Criterion c = (Criterion) filter.accept(visitor, criteria);
-			if (c != null) {
-				criteria.add(c);
+			if (null != filter) {
+				CriteriaVisitor visitor = new CriteriaVisitor((HibernateFeatureModel) getFeatureModel(), dateFormat);
+				Criterion c = (Criterion) filter.accept(visitor, criteria);
+				if (c != null) {
+					criteria.add(c);
+				}
 			}
 			criteria.setResultTransformer(Criteria.DISTINCT_ROOT_ENTITY);
 			List<?> features = criteria.list();
 			Envelope bounds = new Envelope();
 			for (Object f : features) {
-				Envelope geomBounds = getFeatureModel().getGeometry(f).getEnvelopeInternal();
-				if (!geomBounds.isNull()) {
-					bounds.expandToInclude(geomBounds);
+				Geometry geometry = getFeatureModel().getGeometry(f);
+				if (null != geometry) {
+					bounds.expandToInclude(geometry.getEnvelopeInternal());
 				}
 			}
 			return bounds;
 		} catch (HibernateException he) {
 			throw new HibernateLayerException(he, ExceptionCode.HIBERNATE_LOAD_FILTER_FAIL, getFeatureInfo()
-					.getDataSourceName(), filter.toString());
+					.getDataSourceName(), String.valueOf(filter));
 		}
 	}
 
@@ -30,6 +30,10 @@ import org.junit.Assert;
 import org.junit.Test;
 import org.opengis.filter.Filter;
 
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.GeometryFactory;
+
 /**
  * Unit test that tests all the functions of the HibernateLayer.
  * 
@@ -37,6 +41,10 @@ import org.opengis.filter.Filter;
  */
 public class HibernateLayerTest extends AbstractHibernateLayerModelTest {
 
+	private static final double DELTA = 1e-10;
+
+	private static final GeometryFactory GEOMETRY_FACTORY = new GeometryFactory();
+
 	@Test
 	public void testCreate() throws Exception {
 		HibernateTestFeature feature = HibernateTestFeature.getDefaultInstance1(null);
@@ -100,13 +108,69 @@ public class HibernateLayerTest extends AbstractHibernateLayerModelTest {
 	}
 
 	@Test
-	public void testGetBounds() {
-		// TODO implement me
+	public void testGetBounds() throws Exception {
+		HibernateLayer hibernateLayer = (HibernateLayer) layer;
+		Assert.assertFalse(hibernateLayer.isCacheBounds());
+		hibernateLayer.setCacheBounds(true);
+		try {
+			Envelope initial = layer.getBounds();
+			HibernateTestFeature f1 = HibernateTestFeature.getDefaultInstance1(null);
+			f1.setGeometry(GEOMETRY_FACTORY.createPoint(new Coordinate(1000, 2000)));
+			f1 = (HibernateTestFeature) layer.create(f1);
+			Envelope bounds = layer.getBounds();
+			Assert.assertEquals(1000, bounds.getMaxX(), DELTA);
+			Assert.assertEquals(2000, bounds.getMaxY(), DELTA);
+
+			// cached bounds are cleared when updating
+			f1.setGeometry(GEOMETRY_FACTORY.createPoint(new Coordinate(3000, 4000)));
+			layer.saveOrUpdate(f1);
+			bounds = layer.getBounds();
+			Assert.assertEquals(3000, bounds.getMaxX(), DELTA);
+			Assert.assertEquals(4000, bounds.getMaxY(), DELTA);
+
+			// and when deleting
+			layer.delete(f1.getId().toString());
+			Assert.assertEquals(initial, layer.getBounds());
+		} finally {
+			hibernateLayer.setCacheBounds(false);
+		}
+	}
+
+	@Test
+	public void testGetBoundsFilter() throws Exception {
+		HibernateTestFeature f1 = HibernateTestFeature.getDefaultInstance1(null);
+		f1.setGeometry(GEOMETRY_FACTORY.createPoint(new Coordinate(10, 20)));
+		layer.create(f1);
+		HibernateTestFeature f2 = HibernateTestFeature.getDefaultInstance2(null);
+		f2.setGeometry(GEOMETRY_FACTORY.createPoint(new Coordinate(30, 40)));
+		layer.create(f2);
+		layer.create(HibernateTestFeature.getDefaultInstance3(null)); // no geometry
+
+		Envelope bounds = layer.getBounds(filterCreator.createCompareFilter(PARAM_INT_ATTR, "<", "25"));
+		Assert.assertEquals(10, bounds.getMinX(), DELTA);
+		Assert.assertEquals(20, bounds.getMinY(), DELTA);
+		Assert.assertEquals(30, bounds.getMaxX(), DELTA);
+		Assert.assertEquals(40, bounds.getMaxY(), DELTA);
+
+		bounds = layer.getBounds(filterCreator.createCompareFilter(PARAM_INT_ATTR, "=", "20"));
+		Assert.assertEquals(new Envelope(30, 30, 40, 40), bounds);
+
+		bounds = layer.getBounds(filterCreator.createCompareFilter(PARAM_INT_ATTR, "=", "30"));
+		Assert.assertTrue(bounds.isNull());
 	}
 
 	@Test
-	public void testGetBoundsFilter() {
-		// TODO implement me
+	public void testGetCount() throws Exception {
+		Filter filter = filterCreator.createCompareFilter(PARAM_INT_ATTR, "=", "20");
+		int all = layer.getCount(null);
+		int filtered = layer.getCount(filter);
+		layer.create(HibernateTestFeature.getDefaultInstance1(null));
+		layer.create(HibernateTestFeature.getDefaultInstance2(null));
+		layer.create(HibernateTestFeature.getDefaultInstance3(null));
+
+		Assert.assertEquals(all + 3, layer.getCount(null));
+		Assert.assertEquals(all + 3, layer.getCount(Filter.INCLUDE));
+		Assert.assertEquals(filtered + 1, layer.getCount(filter));
 	}
 
 	@Test
@@ -87,7 +87,16 @@ public class TmsConfigurationService {
 			}
 
 			// Normal case, find the URL and unmarshal:
-			return (TileMap) um.unmarshal(httpService.getStream(layer.getBaseTmsUrl(), layer));
+			InputStream stream = httpService.getStream(layer.getBaseTmsUrl(), layer);
+			try {
+				return (TileMap) um.unmarshal(stream);
+			} finally {
+				try {
+					stream.close();
+				} catch (IOException ioe) {
+					// ignore, just closing the stream
+				}
+			}
 		} catch (JAXBException e) {
 			throw new TmsLayerException(e, TmsLayerException.COULD_NOT_READ_FILE, layer.getBaseTmsUrl());
 		} catch (IOException e) {
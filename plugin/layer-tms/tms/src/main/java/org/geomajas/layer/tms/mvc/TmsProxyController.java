@@ -15,7 +15,6 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -88,30 +87,17 @@ public class TmsProxyController {
 			return;
 		}
 
-		InputStream stream = null;
 		try {
 			String url = getResolvedUrl(layer, parseRelativeUrl(request.getRequestURI(), layerId));
 			response.setContentType("image/" + layer.getExtension());
 			ServletOutputStream out = response.getOutputStream();
-			stream = httpService.getStream(url, layer);
-			int b;
-			while ((b = stream.read()) >= 0 ) {
-				out.write(b);
-			}			
+			httpService.copyStream(url, layer, out);
 		} catch (Exception e) { // NOSONAR
 			log.error("Cannot get original TMS image", e);
 			// Create an error image to make the reason for the error visible:
 			byte[] b = createErrorImage(layerInfo.getTileWidth(), layerInfo.getTileHeight(), e);
 			response.setContentType("image/png");
 			response.getOutputStream().write(b);
-		} finally {
-			if (null != stream) {
-				try {
-					stream.close();
-				} catch (IOException ioe) {
-					// ignore, closing anyway
-				}
-			}
 		}
 	}
 
@@ -15,7 +15,6 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
@@ -86,8 +85,6 @@ public class WmsProxyController {
 		String url = layer.getBaseWmsUrl() + "?" + request.getQueryString();
 		// Filter out the user token
 		url = url.replaceFirst("&userToken=[^&]*", "");
-		InputStream stream = null;
-
 		try {
 			if (url.toLowerCase().contains("text/html")) {
 				response.setContentType("text/html");
@@ -95,25 +92,13 @@ public class WmsProxyController {
 				response.setContentType(layer.getFormat());
 			}
 			ServletOutputStream out = response.getOutputStream();
-			stream = httpService.getStream(url, layer);
-			int b;
-			while ((b = stream.read()) >= 0 ) {
-				out.write(b);
-			}						
+			httpService.copyStream(url, layer, out);
 		} catch (Exception e) { // NOSONAR
 			log.error("Cannot get original WMS image", e);
 			// Create an error image to make the reason for the error visible:
 			byte[] b = createErrorImage(layerInfo.getTileWidth(), layerInfo.getTileHeight(), e);
 			response.setContentType("image/png");
 			response.getOutputStream().write(b);
-		} finally {
-			if (null != stream) {
-				try {
-					stream.close();
-				} catch (IOException ioe) {
-					// ignore, closing anyway
-				}
-			}
 		}
 	}
 	
@@ -34,6 +34,12 @@ public class PrintingException extends GeomajasException {
 
 	public static final int DTO_IMPLEMENTATION_NOT_FOUND = 5;
 
+	public static final int PRINT_QUEUE_FULL = 6;
+
+	public static final int PRINT_JOB_TIMEOUT = 7;
+
+	public static final int PRINT_JOB_REMOVED = 8;
+
 	/**
 	 * Create new PrintingException.
 	 * 
@@ -25,6 +25,8 @@ import org.geomajas.plugin.printing.component.impl.LegendItemComponentImpl;
 import org.geomajas.plugin.printing.component.service.PrintDtoConverterService;
 import org.geomajas.plugin.printing.configuration.PrintTemplate;
 import org.geomajas.plugin.printing.document.SinglePageDocument;
+import org.geomajas.plugin.printing.service.PrintJob;
+import org.geomajas.plugin.printing.service.PrintJobService;
 import org.geomajas.plugin.printing.service.PrintService;
 
 import com.lowagie.text.PageSize;
@@ -61,20 +63,55 @@ public class LayoutAsSinglePageDoc {
 	 */
 	public static void execute(PrintGetTemplateExtRequest request, PrintGetTemplateExtResponse response,
 					PrintDtoConverterService converterService, PrintService printService) throws GeomajasException {
+		SinglePageDocument pdfDoc = createDocument(request, converterService);
+		pdfDoc.layout();
+		// Add document to container
+		String documentId = printService.putDocument(pdfDoc);
+		response.setDocumentId(documentId);
+	}
+
+	/**
+	 * Perform the first step in generating a template-based printout, the document is rendered in the background by
+	 * the print job service. The document id in the response is the job id.
+	 *
+	 * @param request
+	 * 				(Input) It specifies the template and the output format of the document
+	 * @param response
+	 * 				(Output) On return, it contains the id of the document (the rendering step is probably not yet
+	 * 				completed)
+	 * @param converterService print DTO converter service
+	 * @param printJobService print job service
+	 * @param priority job priority, jobs with a higher priority are rendered first
+	 * @throws GeomajasException document could not be created or the print queue is full
+	 */
+	public static void execute(PrintGetTemplateExtRequest request, PrintGetTemplateExtResponse response,
+			PrintDtoConverterService converterService, PrintJobService printJobService, int priority)
+			throws GeomajasException {
+		SinglePageDocument pdfDoc = createDocument(request, converterService);
+		PrintJob job = printJobService.submit(pdfDoc, priority);
+		response.setDocumentId(job.getId());
+	}
+
+	/**
+	 * Create the document for a request, the document is not laid out yet.
+	 *
+	 * @param request request which specifies the template
+	 * @param converterService print DTO converter service
+	 * @return document
+	 * @throws GeomajasException template could not be converted
+	 */
+	public static SinglePageDocument createDocument(PrintGetTemplateExtRequest request,
+			PrintDtoConverterService converterService) throws GeomajasException {
 		PrintTemplateInfo template = request.getTemplate();
 		PageComponent page = (PageComponent) converterService.toInternal(template.getPage());
-		
+
 		// Adjust the title text of the legend component if present
 		updateLegendChildren(request, page);
 
 		if (request.getPageSize() != null) {
 			page.setSize(request.getPageSize(), true);
 		}
-		SinglePageDocument pdfDoc = new SinglePageDocument(page, null);
-		pdfDoc.layout();
-		// Add document to container
-		String documentId = printService.putDocument(pdfDoc);
-		response.setDocumentId(documentId);
+		return new SinglePageDocument(page, null);
 	}
 
 	private static void updateLegendChildren(PrintGetTemplateExtRequest request, PrintComponent<?> parent) {
@@ -16,7 +16,7 @@ import org.geomajas.plugin.printing.command.dto.PrintGetTemplateExtResponse;
 import org.geomajas.plugin.printing.command.dto.PrintGetTemplateRequest;
 import org.geomajas.plugin.printing.command.dto.PrintGetTemplateResponse;
 import org.geomajas.plugin.printing.component.service.PrintDtoConverterService;
-import org.geomajas.plugin.printing.service.PrintService;
+import org.geomajas.plugin.printing.service.PrintJobService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -35,7 +35,7 @@ public class PrintGetTemplateCommand implements CommandHasRequest<PrintGetTempla
 	private PrintDtoConverterService converterService;
 
 	@Autowired
-	private PrintService printService;
+	private PrintJobService printJobService;
 
 	@Override
 	public PrintGetTemplateRequest getEmptyCommandRequest() {
@@ -52,7 +52,7 @@ public class PrintGetTemplateCommand implements CommandHasRequest<PrintGetTempla
 		PrintGetTemplateExtRequest extRequest = new PrintGetTemplateExtRequest(request); 
 		PrintGetTemplateExtResponse extResponse = new PrintGetTemplateExtResponse(); 
 		
-		LayoutAsSinglePageDoc.execute(extRequest, extResponse, converterService, printService);
+		LayoutAsSinglePageDoc.execute(extRequest, extResponse, converterService, printJobService, 0);
 		
 		response.setDocumentId(extResponse.getDocumentId());
 	}
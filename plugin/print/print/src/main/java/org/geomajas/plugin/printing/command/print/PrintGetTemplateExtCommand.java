@@ -14,7 +14,7 @@ import org.geomajas.command.CommandHasRequest;
 import org.geomajas.plugin.printing.command.dto.PrintGetTemplateExtRequest;
 import org.geomajas.plugin.printing.command.dto.PrintGetTemplateExtResponse;
 import org.geomajas.plugin.printing.component.service.PrintDtoConverterService;
-import org.geomajas.plugin.printing.service.PrintService;
+import org.geomajas.plugin.printing.service.PrintJobService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
@@ -37,7 +37,7 @@ public class PrintGetTemplateExtCommand
 	private PrintDtoConverterService converterService;
 
 	@Autowired
-	private PrintService printService;
+	private PrintJobService printJobService;
 
 	@Override
 	public PrintGetTemplateExtRequest getEmptyCommandRequest() {
@@ -52,7 +52,7 @@ public class PrintGetTemplateExtCommand
 	@Override
 	public void execute(PrintGetTemplateExtRequest request, PrintGetTemplateExtResponse response) throws Exception {
 
-		LayoutAsSinglePageDoc.execute(request, response, converterService, printService);
+		LayoutAsSinglePageDoc.execute(request, response, converterService, printJobService, 0);
 		
 	}
 }
\ No newline at end of file
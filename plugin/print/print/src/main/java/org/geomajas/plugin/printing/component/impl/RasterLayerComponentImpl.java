@@ -29,6 +29,7 @@ import org.geomajas.plugin.printing.component.PdfContext;
 import org.geomajas.plugin.printing.component.PrintComponentVisitor;
 import org.geomajas.plugin.printing.component.dto.RasterLayerComponentInfo;
 import org.geomajas.plugin.printing.component.service.PrintConfigurationService;
+import org.geomajas.plugin.printing.component.service.RasterDownloadService;
 import org.geomajas.service.ConfigurationService;
 import org.geomajas.service.DispatcherUrlService;
 import org.geomajas.service.GeoService;
@@ -65,8 +66,6 @@ import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 
@@ -81,6 +80,12 @@ public class RasterLayerComponentImpl extends BaseLayerComponentImpl<RasterLayer
 
 	protected static final int DOWNLOAD_MAX_ATTEMPTS = 2;
 
+	/**
+	 * Maximum number of download threads per layer.
+	 *
+	 * @deprecated the download threads are shared by all prints, see {@link RasterDownloadService}
+	 */
+	@Deprecated
 	protected static final int DOWNLOAD_MAX_THREADS = 5;
 
 	protected static final long DOWNLOAD_TIMEOUT = 120000; // millis
@@ -133,6 +138,10 @@ public class RasterLayerComponentImpl extends BaseLayerComponentImpl<RasterLayer
 	@Autowired
 	private LayerHttpService layerHttpService;
 
+	@Autowired
+	@XStreamOmitField
+	private RasterDownloadService rasterDownloadService;
+
 
 	private float opacity = 1.0f;
 
@@ -174,8 +183,7 @@ public class RasterLayerComponentImpl extends BaseLayerComponentImpl<RasterLayer
 					// Loop until all images are downloaded or timeout is reached
 					long totalTimeout = DOWNLOAD_TIMEOUT + DOWNLOAD_TIMEOUT_ONE_TILE * tiles.size();
 					log.debug("=== total timeout (millis): {}", totalTimeout);
-					ExecutorService service = Executors.newFixedThreadPool(DOWNLOAD_MAX_THREADS);
-					List<Future<ImageResult>> futures = service.invokeAll(callables, totalTimeout,
+					List<Future<ImageResult>> futures = rasterDownloadService.invokeAll(callables, totalTimeout,
 							TimeUnit.MILLISECONDS);
 					// determine the pixel bounds of the mosaic
 					Bbox pixelBounds = getPixelBounds(tiles);
@@ -0,0 +1,40 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.plugin.printing.component.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Downloads the raster images for printing. All prints share the same (bounded) pool of download threads.
+ *
+ * @author agent
+ */
+public interface RasterDownloadService {
+
+	/**
+	 * Execute the download tasks and wait until they are done or the timeout expires. Tasks which are not done when
+	 * the timeout expires are cancelled.
+	 *
+	 * @param tasks download tasks
+	 * @param timeout maximum time to wait
+	 * @param unit unit of the timeout
+	 * @param <T> result type
+	 * @return futures in the same order as the tasks
+	 * @throws InterruptedException interrupted while waiting
+	 */
+	<T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+			throws InterruptedException;
+
+}
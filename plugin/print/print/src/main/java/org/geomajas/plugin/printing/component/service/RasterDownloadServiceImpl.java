@@ -0,0 +1,87 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.plugin.printing.component.service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.springframework.stereotype.Component;
+
+/**
+ * Default implementation of {@link RasterDownloadService}, uses a fixed size thread pool.
+ *
+ * @author agent
+ */
+@Component
+public class RasterDownloadServiceImpl implements RasterDownloadService {
+
+	private static final long THREAD_KEEP_ALIVE = 60; // seconds
+
+	private int threads = 10;
+
+	private ExecutorService executorService;
+
+	/**
+	 * Get the number of download threads.
+	 *
+	 * @return number of download threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Set the number of download threads, shared by all prints. Default is 10.
+	 *
+	 * @param threads number of download threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	@PostConstruct
+	public void postConstruct() {
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, THREAD_KEEP_ALIVE, TimeUnit.SECONDS,
+				new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+
+					private final AtomicInteger count = new AtomicInteger();
+
+					public Thread newThread(Runnable runnable) {
+						Thread thread = new Thread(runnable, "print-download-" + count.incrementAndGet());
+						thread.setDaemon(true);
+						return thread;
+					}
+				});
+		executor.allowCoreThreadTimeOut(true);
+		executorService = executor;
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		executorService.shutdownNow();
+	}
+
+	public <T> List<Future<T>> invokeAll(Collection<? extends Callable<T>> tasks, long timeout, TimeUnit unit)
+			throws InterruptedException {
+		return executorService.invokeAll(tasks, timeout, unit);
+	}
+}
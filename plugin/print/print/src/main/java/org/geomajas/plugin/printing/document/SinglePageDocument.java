@@ -14,6 +14,7 @@ import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Iterator;
@@ -193,38 +194,51 @@ public class SinglePageDocument extends AbstractDocument {
 		if (format == Format.PDF) {
 			baos.writeTo(outputStream);
 		} else {
-			PDDocument pdf = PDDocument.load(new ByteArrayInputStream(baos.toByteArray()), true);
-			PDFRenderer renderer = new PDFRenderer(pdf);
-			BufferedImage bufferedImage = renderer.renderImageWithDPI(0, dpi);
-			pdf.close();
-			if (format == Format.PNG) {
-				final String formatName = format.getExtension();
-				for (Iterator<ImageWriter> iw = ImageIO.getImageWritersByFormatName(formatName); iw.hasNext();) {
-					ImageWriter writer1 = iw.next();
-					ImageWriteParam writeParam = writer1.getDefaultWriteParam();
-					ImageTypeSpecifier typeSpecifier = ImageTypeSpecifier
-							.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB);
-					IIOMetadata metadata = writer1.getDefaultImageMetadata(typeSpecifier, writeParam);
-					if (metadata.isReadOnly() || !metadata.isStandardMetadataFormatSupported()) {
-						continue;
-					}
-
-					setDPI(metadata);
-					// Write bufferedImage to outputStream
-					final ImageOutputStream stream = ImageIO.createImageOutputStream(outputStream);
-					try {
-						writer1.setOutput(stream);
-						writer1.write(metadata, new IIOImage(bufferedImage, null, metadata), writeParam);
-					} finally {
-						stream.flush();
-						stream.close();
-					}
-					break;
+			writeImage(new ByteArrayInputStream(baos.toByteArray()), outputStream, format, dpi);
+		}
+	}
+
+	/**
+	 * Convert a (single page) PDF document to an image.
+	 *
+	 * @param pdfStream PDF document
+	 * @param outputStream stream to write the image to
+	 * @param format image format
+	 * @param dpi resolution
+	 * @throws IOException oops
+	 */
+	static void writeImage(InputStream pdfStream, OutputStream outputStream, Format format, int dpi)
+			throws IOException {
+		PDDocument pdf = PDDocument.load(pdfStream, true);
+		PDFRenderer renderer = new PDFRenderer(pdf);
+		BufferedImage bufferedImage = renderer.renderImageWithDPI(0, dpi);
+		pdf.close();
+		if (format == Format.PNG) {
+			final String formatName = format.getExtension();
+			for (Iterator<ImageWriter> iw = ImageIO.getImageWritersByFormatName(formatName); iw.hasNext();) {
+				ImageWriter writer1 = iw.next();
+				ImageWriteParam writeParam = writer1.getDefaultWriteParam();
+				ImageTypeSpecifier typeSpecifier = ImageTypeSpecifier
+						.createFromBufferedImageType(BufferedImage.TYPE_INT_ARGB);
+				IIOMetadata metadata = writer1.getDefaultImageMetadata(typeSpecifier, writeParam);
+				if (metadata.isReadOnly() || !metadata.isStandardMetadataFormatSupported()) {
+					continue;
 				}
-			} else {
-				ImageIO.write(bufferedImage, format.getExtension(), outputStream);
-			}
 
+				setDPI(metadata);
+				// Write bufferedImage to outputStream
+				final ImageOutputStream stream = ImageIO.createImageOutputStream(outputStream);
+				try {
+					writer1.setOutput(stream);
+					writer1.write(metadata, new IIOImage(bufferedImage, null, metadata), writeParam);
+				} finally {
+					stream.flush();
+					stream.close();
+				}
+				break;
+			}
+		} else {
+			ImageIO.write(bufferedImage, format.getExtension(), outputStream);
 		}
 	}
 
@@ -236,7 +250,7 @@ public class SinglePageDocument extends AbstractDocument {
 		return baos == null ? 0 : baos.size();
 	}
 
-	private void setDPI(IIOMetadata metadata) throws IIOInvalidTreeException {
+	private static void setDPI(IIOMetadata metadata) throws IIOInvalidTreeException {
 
 		// for PNG, it's dots per millimeter
 		double dotsPerMilli = DPI_FOR_PNG_OUTPUT / (10.0 * ONE_INCH_IN_CM);
@@ -0,0 +1,89 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.plugin.printing.document;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import org.geomajas.plugin.printing.PrintingException;
+
+/**
+ * Document which was rendered before and spooled to disk as PDF. The document is read from the file each time it is
+ * rendered, images are created from the PDF.
+ *
+ * @author agent
+ */
+public class SpooledDocument implements Document {
+
+	private static final int BUFFER_SIZE = 8192;
+
+	private final File file;
+
+	/**
+	 * Create a document for a spooled PDF file.
+	 *
+	 * @param file PDF file
+	 */
+	public SpooledDocument(File file) {
+		this.file = file;
+	}
+
+	/**
+	 * Renders the document to the specified output stream.
+	 */
+	public void render(OutputStream outputStream, Format format, int dpi) throws PrintingException {
+		InputStream in = null;
+		try {
+			in = new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE);
+			if (format == Format.PDF) {
+				byte[] buffer = new byte[BUFFER_SIZE];
+				int count;
+				while ((count = in.read(buffer)) > 0) {
+					outputStream.write(buffer, 0, count);
+				}
+			} else {
+				SinglePageDocument.writeImage(in, outputStream, format, dpi);
+			}
+		} catch (IOException ioe) {
+			throw new PrintingException(ioe, PrintingException.DOCUMENT_RENDER_PROBLEM);
+		} finally {
+			if (null != in) {
+				try {
+					in.close();
+				} catch (IOException ioe) {
+					// ignore, nothing we can do
+				}
+			}
+		}
+	}
+
+	/**
+	 * Get the content length of the spooled PDF document.
+	 *
+	 * @return length in bytes
+	 */
+	public int getContentLength() {
+		return (int) file.length();
+	}
+
+	/**
+	 * Get the spool file.
+	 *
+	 * @return file
+	 */
+	public File getFile() {
+		return file;
+	}
+}
@@ -13,6 +13,8 @@ package org.geomajas.plugin.printing.mvc;
 import java.io.IOException;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
 import java.util.Set;
 
 import javax.annotation.PostConstruct;
@@ -28,13 +30,16 @@ import org.geomajas.configuration.validation.ConstraintInfo;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.plugin.printing.PrintingException;
 import org.geomajas.plugin.printing.command.dto.PrintGetTemplateExtRequest;
-import org.geomajas.plugin.printing.command.dto.PrintGetTemplateExtResponse;
 import org.geomajas.plugin.printing.command.dto.PrintTemplateInfo;
 import org.geomajas.plugin.printing.command.print.LayoutAsSinglePageDoc;
 import org.geomajas.plugin.printing.component.dto.PrintComponentInfo;
 import org.geomajas.plugin.printing.component.service.PrintConfigurationService;
 import org.geomajas.plugin.printing.component.service.PrintDtoConverterService;
+import org.geomajas.plugin.printing.document.Document;
 import org.geomajas.plugin.printing.document.Document.Format;
+import org.geomajas.plugin.printing.document.SinglePageDocument;
+import org.geomajas.plugin.printing.service.PrintJob;
+import org.geomajas.plugin.printing.service.PrintJobService;
 import org.geomajas.plugin.printing.service.PrintService;
 import org.geomajas.security.SecurityContext;
 import org.geomajas.sld.SymbolizerTypeInfo;
@@ -64,8 +69,11 @@ import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
 /**
- * Spring MVC controller that maps the pdf request to a document. The document should be available in the print service.
- * The view is referenced by name.
+ * Spring MVC controller that maps the pdf request to a document. The document should be available in the print service
+ * or print job service. The view is referenced by name.
+ * <p/>
+ * Documents are rendered by the {@link PrintJobService}, which limits the number of concurrent prints. Print jobs can
+ * also be submitted and followed without waiting for the document, using the "/printing/job" requests.
  * 
  * @author Jan De Moerloose
  * 
@@ -91,9 +99,14 @@ public class PrintingController {
 
 	public static final String DOWNLOAD_METHOD_SAVE = "1";
 
+	private static final String JSON_CONTENT_TYPE = "application/json";
+
 	@Autowired
 	protected PrintService printService;
 
+	@Autowired
+	protected PrintJobService printJobService;
+
 	@Autowired
 	protected PrintConfigurationService configurationService;
 
@@ -115,7 +128,14 @@ public class PrintingController {
 			@RequestParam(value = "dpi", defaultValue = "72", required = false) int dpi) throws PrintingException {
 		ModelAndView mav = new ModelAndView();
 		mav.setViewName(DOCUMENT_VIEW_NAME);
-		mav.addObject(DOCUMENT_KEY, printService.removeDocument(documentId));
+		Document document;
+		if (null != printJobService.getJob(documentId)) {
+			// rendered in the background, wait for it
+			document = printJobService.getDocument(documentId);
+		} else {
+			document = printService.removeDocument(documentId);
+		}
+		mav.addObject(DOCUMENT_KEY, document);
 		mav.addObject(DOWNLOAD_KEY, download);
 		mav.addObject(FILENAME_KEY, fileName);
 		mav.addObject(FORMAT_KEY, Format.decode(fileName));
@@ -131,6 +151,99 @@ public class PrintingController {
 			@RequestParam(value = "pageSize", required = false) String pageSize,
 			@RequestParam(value = "dpi", defaultValue = "72", required = false) int dpi) throws GeomajasException,
 			JsonProcessingException, IOException {
+		// render using the job queue to limit the number of concurrent prints
+		PrintJob job = printJobService.submit(createDocument(templateJson, fileName, pageSize), 0);
+		ModelAndView mav = new ModelAndView();
+		mav.setViewName(DOCUMENT_VIEW_NAME);
+		mav.addObject(DOCUMENT_KEY, printJobService.getDocument(job.getId()));
+		mav.addObject(DOWNLOAD_KEY, download);
+		mav.addObject(FILENAME_KEY, fileName);
+		mav.addObject(FORMAT_KEY, Format.decode(fileName));
+		mav.addObject(DPI_KEY, dpi);
+		return mav;
+	}
+
+	/**
+	 * Submit a print job. The document is rendered in the background, the response contains the job status (JSON).
+	 * When the job is finished, the document can be downloaded using a GET request with the job id as document id.
+	 *
+	 * @param fileName file name, determines the output format
+	 * @param templateJson template (JSON)
+	 * @param pageSize page size
+	 * @param priority job priority, jobs with a higher priority are rendered first
+	 * @param response response
+	 * @throws GeomajasException invalid template or the print queue is full
+	 * @throws IOException cannot parse template or write response
+	 */
+	@RequestMapping(value = "/printing/job", method = RequestMethod.POST)
+	public void submitJob(
+			@RequestParam(value = "name", defaultValue = "geomajas.pdf", required = false) String fileName,
+			@RequestParam(value = "template") String templateJson,
+			@RequestParam(value = "pageSize", required = false) String pageSize,
+			@RequestParam(value = "priority", defaultValue = "0", required = false) int priority,
+			HttpServletResponse response) throws GeomajasException, IOException {
+		PrintJob job = printJobService.submit(createDocument(templateJson, fileName, pageSize), priority);
+		response.setStatus(HttpServletResponse.SC_ACCEPTED);
+		writeStatus(job, response);
+	}
+
+	/**
+	 * Get the status of a print job (JSON).
+	 *
+	 * @param jobId job id
+	 * @param response response
+	 * @throws PrintingException job not found
+	 * @throws IOException cannot write response
+	 */
+	@RequestMapping(value = "/printing/job", method = RequestMethod.GET)
+	public void getJob(@RequestParam("jobId") String jobId, HttpServletResponse response) throws PrintingException,
+			IOException {
+		writeStatus(getExistingJob(jobId), response);
+	}
+
+	/**
+	 * Remove a print job. A queued job is not rendered, a rendered document can no longer be downloaded.
+	 *
+	 * @param jobId job id
+	 * @param response response
+	 * @throws PrintingException job not found
+	 * @throws IOException cannot write response
+	 */
+	@RequestMapping(value = "/printing/job", method = RequestMethod.DELETE)
+	public void removeJob(@RequestParam("jobId") String jobId, HttpServletResponse response)
+			throws PrintingException, IOException {
+		PrintJob job = getExistingJob(jobId);
+		printJobService.remove(jobId);
+		writeStatus(job, response);
+	}
+
+	private PrintJob getExistingJob(String jobId) throws PrintingException {
+		PrintJob job = printJobService.getJob(jobId);
+		if (null == job) {
+			throw new PrintingException(PrintingException.DOCUMENT_NOT_FOUND, jobId);
+		}
+		return job;
+	}
+
+	private void writeStatus(PrintJob job, HttpServletResponse response) throws IOException {
+		Map<String, Object> status = new LinkedHashMap<String, Object>();
+		status.put("id", job.getId());
+		status.put("state", job.getState());
+		status.put("priority", job.getPriority());
+		status.put("queuePosition", printJobService.getQueuePosition(job.getId()));
+		status.put("submitTime", job.getSubmitTime());
+		status.put("startTime", job.getStartTime());
+		status.put("endTime", job.getEndTime());
+		status.put("contentLength", job.getContentLength());
+		if (null != job.getErrorMessage()) {
+			status.put("errorMessage", job.getErrorMessage());
+		}
+		response.setContentType(JSON_CONTENT_TYPE);
+		objectMapper.writeValue(response.getOutputStream(), status);
+	}
+
+	private SinglePageDocument createDocument(String templateJson, String fileName, String pageSize)
+			throws GeomajasException, IOException {
 		// parse as a generic tree, sufficient to remove the nulls first
 		JsonNode tree = objectMapper.readTree(templateJson);
 		// remove the nulls first, some SLD classes fail when setting null
@@ -149,16 +262,7 @@ public class PrintingController {
 		request.setOutputFormat(Format.decode(fileName).getExtension());
 		request.setPageSize(pageSize);
 		request.setTemplate(template);
-		PrintGetTemplateExtResponse response = new PrintGetTemplateExtResponse();
-		LayoutAsSinglePageDoc.execute(request, response, converterService, printService);
-		ModelAndView mav = new ModelAndView();
-		mav.setViewName(DOCUMENT_VIEW_NAME);
-		mav.addObject(DOCUMENT_KEY, printService.removeDocument(response.getDocumentId()));
-		mav.addObject(DOWNLOAD_KEY, download);
-		mav.addObject(FILENAME_KEY, fileName);
-		mav.addObject(FORMAT_KEY, Format.decode(fileName));
-		mav.addObject(DPI_KEY, dpi);
-		return mav;
+		return LayoutAsSinglePageDoc.createDocument(request, converterService);
 	}
 
 	private static void removeNulls(JsonNode tree) {
@@ -191,8 +295,12 @@ public class PrintingController {
 		response.setContentType("text/html");
 		switch (exception.getExceptionCode()) {
 			case PrintingException.DOCUMENT_NOT_FOUND:
+			case PrintingException.PRINT_JOB_REMOVED:
 				response.setStatus(HttpServletResponse.SC_NOT_FOUND);
 				break;
+			case PrintingException.PRINT_QUEUE_FULL:
+				response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+				break;
 			default:
 				response.setStatus(HttpServletResponse.SC_INTERNAL_SERVER_ERROR);
 		}
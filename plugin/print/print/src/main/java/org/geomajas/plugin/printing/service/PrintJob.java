@@ -0,0 +1,98 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.plugin.printing.service;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Status of a print job, see {@link PrintJobService}.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface PrintJob {
+
+	/**
+	 * State of a print job.
+	 *
+	 * @author agent
+	 * @since 1.18.6
+	 */
+	@Api(allMethods = true)
+	enum State {
+		/** Waiting for a free worker. */
+		QUEUED,
+		/** The document is being rendered. */
+		RUNNING,
+		/** The document is rendered and can be downloaded. */
+		FINISHED,
+		/** The document could not be rendered. */
+		FAILED
+	}
+
+	/**
+	 * Get the job id. This is also the document id which can be used to download the document.
+	 *
+	 * @return job id
+	 */
+	String getId();
+
+	/**
+	 * Get the current state of the job.
+	 *
+	 * @return state
+	 */
+	State getState();
+
+	/**
+	 * Get the priority of the job. Jobs with a higher priority are rendered first.
+	 *
+	 * @return priority
+	 */
+	int getPriority();
+
+	/**
+	 * Get the time when the job was submitted.
+	 *
+	 * @return submit time in milliseconds since the epoch
+	 */
+	long getSubmitTime();
+
+	/**
+	 * Get the time when rendering started.
+	 *
+	 * @return start time in milliseconds since the epoch, 0 when still queued
+	 */
+	long getStartTime();
+
+	/**
+	 * Get the time when the job finished or failed.
+	 *
+	 * @return end time in milliseconds since the epoch, 0 when not ended yet
+	 */
+	long getEndTime();
+
+	/**
+	 * Get the size of the rendered (PDF) document.
+	 *
+	 * @return content length in bytes, 0 when not finished
+	 */
+	long getContentLength();
+
+	/**
+	 * Get the reason why the job failed.
+	 *
+	 * @return error message, null when the job did not fail
+	 */
+	String getErrorMessage();
+
+}
@@ -0,0 +1,223 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.plugin.printing.service;
+
+import java.io.File;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.plugin.printing.document.Document;
+import org.geomajas.security.SavedAuthorization;
+import org.springframework.web.context.request.RequestAttributes;
+
+/**
+ * Implementation of {@link PrintJob}, also contains the information needed to render the document.
+ *
+ * @author agent
+ */
+public class PrintJobImpl implements PrintJob {
+
+	private final String id;
+
+	private final int priority;
+
+	private final long sequence;
+
+	private final long submitTime;
+
+	private final SavedAuthorization savedAuthorization;
+
+	private final RequestAttributes requestAttributes;
+
+	private final CountDownLatch done = new CountDownLatch(1);
+
+	private Document document;
+
+	private volatile State state = State.QUEUED;
+
+	private volatile long startTime;
+
+	private volatile long endTime;
+
+	private volatile File file;
+
+	private volatile String errorMessage;
+
+	private volatile boolean removed;
+
+	public PrintJobImpl(String id, Document document, int priority, long sequence,
+			SavedAuthorization savedAuthorization, RequestAttributes requestAttributes) {
+		this.id = id;
+		this.document = document;
+		this.priority = priority;
+		this.sequence = sequence;
+		this.savedAuthorization = savedAuthorization;
+		this.requestAttributes = requestAttributes;
+		submitTime = System.currentTimeMillis();
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public int getPriority() {
+		return priority;
+	}
+
+	/**
+	 * Get the submit order, used to render jobs with the same priority in submit order.
+	 *
+	 * @return sequence number
+	 */
+	public long getSequence() {
+		return sequence;
+	}
+
+	public long getSubmitTime() {
+		return submitTime;
+	}
+
+	public long getStartTime() {
+		return startTime;
+	}
+
+	public long getEndTime() {
+		return endTime;
+	}
+
+	public long getContentLength() {
+		File spooled = file;
+		return null == spooled ? 0 : spooled.length();
+	}
+
+	public String getErrorMessage() {
+		return errorMessage;
+	}
+
+	/**
+	 * Get the authorizations of the caller which submitted the job.
+	 *
+	 * @return saved authorization
+	 */
+	public SavedAuthorization getSavedAuthorization() {
+		return savedAuthorization;
+	}
+
+	/**
+	 * Get the (detached) request attributes of the request which submitted the job.
+	 *
+	 * @return request attributes, null when the job was not submitted from a servlet request
+	 */
+	public RequestAttributes getRequestAttributes() {
+		return requestAttributes;
+	}
+
+	/**
+	 * Get the document to render, null once the job has ended.
+	 *
+	 * @return document
+	 */
+	public synchronized Document getDocument() {
+		return document;
+	}
+
+	/**
+	 * Get the spooled (PDF) document.
+	 *
+	 * @return spool file, null when the job has not finished
+	 */
+	public File getFile() {
+		return file;
+	}
+
+	/**
+	 * Has the job been removed?
+	 *
+	 * @return true when removed
+	 */
+	public boolean isRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Mark the job as removed. A job which is still queued ends immediately (as failed) so nobody keeps waiting for
+	 * it, a running job ends when the rendering stops.
+	 */
+	public synchronized void setRemoved() {
+		removed = true;
+		if (State.QUEUED == state) {
+			errorMessage = "Removed";
+			end(State.FAILED);
+		}
+	}
+
+	/**
+	 * Mark the job as running.
+	 *
+	 * @return false when the job was not queued (anymore)
+	 */
+	public synchronized boolean start() {
+		if (State.QUEUED != state || removed) {
+			return false;
+		}
+		startTime = System.currentTimeMillis();
+		state = State.RUNNING;
+		return true;
+	}
+
+	/**
+	 * Mark the job as finished. The document is released, it can now be read from the spool file.
+	 *
+	 * @param file spool file
+	 */
+	public synchronized void finished(File file) {
+		this.file = file;
+		end(State.FINISHED);
+	}
+
+	/**
+	 * Mark the job as failed.
+	 *
+	 * @param errorMessage reason
+	 */
+	public synchronized void failed(String errorMessage) {
+		this.errorMessage = errorMessage;
+		end(State.FAILED);
+	}
+
+	/**
+	 * Wait until the job has ended (finished or failed).
+	 *
+	 * @param timeout maximum time to wait
+	 * @param unit unit of the timeout
+	 * @return true when the job has ended
+	 * @throws InterruptedException interrupted while waiting
+	 */
+	public boolean await(long timeout, TimeUnit unit) throws InterruptedException {
+		return done.await(timeout, unit);
+	}
+
+	private void end(State endState) {
+		document = null;
+		endTime = System.currentTimeMillis();
+		state = endState;
+		done.countDown();
+	}
+
+	@Override
+	public String toString() {
+		return "PrintJob{id=" + id + ", priority=" + priority + ", state=" + state + "}";
+	}
+}
@@ -0,0 +1,73 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.plugin.printing.service;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.plugin.printing.PrintingException;
+import org.geomajas.plugin.printing.document.Document;
+
+/**
+ * Service which renders documents in the background.
+ * <p/>
+ * Jobs are rendered by a fixed pool of worker threads, jobs with a higher priority first. The number of waiting jobs
+ * is limited. Documents are rendered using the security context of the caller which submitted the job. The rendered
+ * documents are spooled to disk and removed when they have not been downloaded within the time to live.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface PrintJobService {
+
+	/**
+	 * Submit a document for rendering. The document should not be laid out yet, this is done when rendering.
+	 *
+	 * @param document document to render
+	 * @param priority priority, jobs with a higher priority are rendered first
+	 * @return print job
+	 * @throws PrintingException the queue is full
+	 */
+	PrintJob submit(Document document, int priority) throws PrintingException;
+
+	/**
+	 * Get a print job.
+	 *
+	 * @param jobId job id
+	 * @return job or null when not found (or expired)
+	 */
+	PrintJob getJob(String jobId);
+
+	/**
+	 * Get the number of queued jobs which will be rendered before the given job.
+	 *
+	 * @param jobId job id
+	 * @return queue position, -1 when the job is not queued
+	 */
+	int getQueuePosition(String jobId);
+
+	/**
+	 * Get the rendered document, waiting for the job to finish when needed.
+	 *
+	 * @param jobId job id
+	 * @return rendered document, can be rendered (downloaded) in all formats
+	 * @throws PrintingException job not found, failed or not finished within the wait timeout
+	 */
+	Document getDocument(String jobId) throws PrintingException;
+
+	/**
+	 * Remove a print job. A queued job is not rendered, the spooled document of a finished job is deleted.
+	 *
+	 * @param jobId job id
+	 * @return true when the job was found
+	 */
+	boolean remove(String jobId);
+
+}
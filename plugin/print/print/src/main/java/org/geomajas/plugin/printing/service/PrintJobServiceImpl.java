@@ -0,0 +1,443 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.plugin.printing.service;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.geomajas.plugin.printing.PrintingException;
+import org.geomajas.plugin.printing.document.Document;
+import org.geomajas.plugin.printing.document.Document.Format;
+import org.geomajas.plugin.printing.document.SpooledDocument;
+import org.geomajas.security.SecurityContext;
+import org.geomajas.security.SecurityManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * Default implementation of {@link PrintJobService}.
+ * <p/>
+ * The jobs are executed by a fixed size thread pool which takes its work from a priority queue. Once rendered, the
+ * documents are written to the spool directory and only kept in memory while waiting or rendering. A cleanup task
+ * removes the jobs and spool files which are older than the time to live.
+ *
+ * @author agent
+ */
+@Component
+public class PrintJobServiceImpl implements PrintJobService {
+
+	private static final String SPOOL_PREFIX = "print-";
+
+	private static final String SPOOL_SUFFIX = ".pdf";
+
+	private static final int DEFAULT_DPI = 72;
+
+	private static final long MAX_CLEANUP_INTERVAL = 60; // seconds
+
+	private final Logger log = LoggerFactory.getLogger(PrintJobServiceImpl.class);
+
+	@Autowired
+	private SecurityContext securityContext;
+
+	@Autowired
+	private SecurityManager securityManager;
+
+	private int threads = 2;
+
+	private int maxQueueSize = 50;
+
+	private int timeToLive = 900;
+
+	private int waitTimeout = 300;
+
+	private File spoolDirectory = new File(System.getProperty("java.io.tmpdir"), "geomajas-print");
+
+	private final Map<String, PrintJobImpl> jobs = new HashMap<String, PrintJobImpl>();
+
+	private final AtomicLong sequence = new AtomicLong();
+
+	private ThreadPoolExecutor workers;
+
+	private ScheduledExecutorService cleaner;
+
+	/**
+	 * Get the number of worker threads which render documents.
+	 *
+	 * @return number of worker threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Set the number of worker threads which render documents. This is the maximum number of documents which are
+	 * rendered concurrently. Default is 2.
+	 *
+	 * @param threads number of worker threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Get the maximum number of jobs which can wait for a worker thread.
+	 *
+	 * @return maximum queue size
+	 */
+	public int getMaxQueueSize() {
+		return maxQueueSize;
+	}
+
+	/**
+	 * Set the maximum number of jobs which can wait for a worker thread. When the queue is full, new jobs are refused.
+	 * Default is 50.
+	 *
+	 * @param maxQueueSize maximum queue size
+	 */
+	public void setMaxQueueSize(int maxQueueSize) {
+		this.maxQueueSize = maxQueueSize;
+	}
+
+	/**
+	 * Get the time (in seconds) a finished job and its document are kept.
+	 *
+	 * @return time to live in seconds
+	 */
+	public int getTimeToLive() {
+		return timeToLive;
+	}
+
+	/**
+	 * Set the time (in seconds) a finished job and its document are kept. Default is 900 (15 minutes).
+	 *
+	 * @param timeToLive time to live in seconds
+	 */
+	public void setTimeToLive(int timeToLive) {
+		this.timeToLive = timeToLive;
+	}
+
+	/**
+	 * Get the maximum time (in seconds) {@link #getDocument(String)} waits for a job to finish.
+	 *
+	 * @return wait timeout in seconds
+	 */
+	public int getWaitTimeout() {
+		return waitTimeout;
+	}
+
+	/**
+	 * Set the maximum time (in seconds) {@link #getDocument(String)} waits for a job to finish. Default is 300.
+	 *
+	 * @param waitTimeout wait timeout in seconds
+	 */
+	public void setWaitTimeout(int waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+
+	/**
+	 * Get the directory in which the rendered documents are stored.
+	 *
+	 * @return spool directory
+	 */
+	public File getSpoolDirectory() {
+		return spoolDirectory;
+	}
+
+	/**
+	 * Set the directory in which the rendered documents are stored. Default is "geomajas-print" in the temporary
+	 * directory.
+	 *
+	 * @param spoolDirectory spool directory
+	 */
+	public void setSpoolDirectory(File spoolDirectory) {
+		this.spoolDirectory = spoolDirectory;
+	}
+
+	@PostConstruct
+	public void postConstruct() {
+		if (!spoolDirectory.isDirectory() && !spoolDirectory.mkdirs()) {
+			log.error("Cannot create print spool directory " + spoolDirectory.getAbsolutePath());
+		}
+		workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new PriorityBlockingQueue<Runnable>(), new PrintThreadFactory("print-worker"));
+		cleaner = Executors.newSingleThreadScheduledExecutor(new PrintThreadFactory("print-cleanup"));
+		long interval = Math.max(1, Math.min(MAX_CLEANUP_INTERVAL, timeToLive));
+		cleaner.scheduleWithFixedDelay(new Runnable() {
+
+			public void run() {
+				cleanup();
+			}
+		}, interval, interval, TimeUnit.SECONDS);
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		cleaner.shutdownNow();
+		workers.shutdownNow();
+		List<PrintJobImpl> all;
+		synchronized (jobs) {
+			all = new ArrayList<PrintJobImpl>(jobs.values());
+			jobs.clear();
+		}
+		for (PrintJobImpl job : all) {
+			job.setRemoved();
+			deleteFile(job);
+		}
+	}
+
+	public PrintJob submit(Document document, int priority) throws PrintingException {
+		PrintJobImpl job = new PrintJobImpl(UUID.randomUUID().toString(), document, priority,
+				sequence.incrementAndGet(), securityContext.getSavedAuthorization(), RequestSnapshot.capture());
+		synchronized (jobs) {
+			int queued = workers.getQueue().size();
+			if (queued >= maxQueueSize) {
+				throw new PrintingException(PrintingException.PRINT_QUEUE_FULL, queued);
+			}
+			jobs.put(job.getId(), job);
+			workers.execute(new PrintTask(job));
+		}
+		log.debug("Submitted {}", job);
+		return job;
+	}
+
+	public PrintJob getJob(String jobId) {
+		synchronized (jobs) {
+			return jobs.get(jobId);
+		}
+	}
+
+	public int getQueuePosition(String jobId) {
+		PrintJobImpl job;
+		synchronized (jobs) {
+			job = jobs.get(jobId);
+		}
+		if (null == job || PrintJob.State.QUEUED != job.getState()) {
+			return -1;
+		}
+		PrintTask task = new PrintTask(job);
+		int position = 0;
+		for (Runnable queued : workers.getQueue().toArray(new Runnable[0])) {
+			if (((PrintTask) queued).compareTo(task) < 0) {
+				position++;
+			}
+		}
+		return position;
+	}
+
+	public Document getDocument(String jobId) throws PrintingException {
+		PrintJobImpl job;
+		synchronized (jobs) {
+			job = jobs.get(jobId);
+		}
+		if (null == job) {
+			throw new PrintingException(PrintingException.DOCUMENT_NOT_FOUND, jobId);
+		}
+		try {
+			if (!job.await(waitTimeout, TimeUnit.SECONDS)) {
+				throw new PrintingException(PrintingException.PRINT_JOB_TIMEOUT, jobId, waitTimeout);
+			}
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new PrintingException(ie, PrintingException.PRINT_JOB_TIMEOUT, jobId, waitTimeout);
+		}
+		if (job.isRemoved()) {
+			throw new PrintingException(PrintingException.PRINT_JOB_REMOVED, jobId);
+		}
+		if (PrintJob.State.FINISHED != job.getState()) {
+			throw new PrintingException(PrintingException.DOCUMENT_RENDER_PROBLEM, jobId);
+		}
+		return new SpooledDocument(job.getFile());
+	}
+
+	public boolean remove(String jobId) {
+		PrintJobImpl job;
+		synchronized (jobs) {
+			job = jobs.remove(jobId);
+		}
+		if (null == job) {
+			return false;
+		}
+		job.setRemoved();
+		workers.remove(new PrintTask(job));
+		deleteFile(job);
+		return true;
+	}
+
+	/**
+	 * Remove the jobs which ended before the time to live and delete spool files which are no longer referenced (for
+	 * example left behind by a previous run).
+	 */
+	void cleanup() {
+		long expired = System.currentTimeMillis() - timeToLive * 1000L;
+		List<PrintJobImpl> removed = new ArrayList<PrintJobImpl>();
+		synchronized (jobs) {
+			for (PrintJobImpl job : jobs.values()) {
+				if (job.getEndTime() > 0 && job.getEndTime() < expired) {
+					removed.add(job);
+				}
+			}
+			for (PrintJobImpl job : removed) {
+				jobs.remove(job.getId());
+			}
+		}
+		for (PrintJobImpl job : removed) {
+			log.debug("Expired {}", job);
+			job.setRemoved();
+			deleteFile(job);
+		}
+		File[] files = spoolDirectory.listFiles();
+		if (null != files) {
+			for (File file : files) {
+				String name = file.getName();
+				if (name.startsWith(SPOOL_PREFIX) && name.endsWith(SPOOL_SUFFIX) && file.lastModified() < expired
+						&& !file.delete()) {
+					log.warn("Could not delete expired print document " + file.getAbsolutePath());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Render the document of a job to the spool directory, called on a worker thread. The security context and (a copy
+	 * of) the request of the submitter are bound to the thread while rendering.
+	 *
+	 * @param job job to render
+	 */
+	void render(PrintJobImpl job) {
+		if (!job.start()) {
+			return; // removed while queued
+		}
+		Document document = job.getDocument();
+		File file = new File(spoolDirectory, SPOOL_PREFIX + job.getId() + SPOOL_SUFFIX);
+		try {
+			if (null != job.getSavedAuthorization()) {
+				securityManager.restoreSecurityContext(job.getSavedAuthorization());
+			}
+			RequestContextHolder.setRequestAttributes(job.getRequestAttributes());
+			OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+			try {
+				document.render(out, Format.PDF, DEFAULT_DPI);
+			} finally {
+				out.close();
+			}
+			job.finished(file);
+			log.debug("Finished {}", job);
+		} catch (Throwable t) { // NOSONAR need to log all problems
+			if (file.exists() && !file.delete()) {
+				log.warn("Could not delete print document " + file.getAbsolutePath());
+			}
+			job.failed(getMessage(t));
+			log.warn("Could not render " + job, t);
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+			securityManager.clearSecurityContext();
+		}
+		if (job.isRemoved()) {
+			deleteFile(job); // removed while rendering
+		}
+	}
+
+	private String getMessage(Throwable throwable) {
+		try {
+			return throwable.getLocalizedMessage();
+		} catch (RuntimeException re) { // NOSONAR the message should never prevent the job from ending
+			return throwable.getClass().getName();
+		}
+	}
+
+	private void deleteFile(PrintJobImpl job) {
+		File file = job.getFile();
+		if (null != file && file.exists() && !file.delete()) {
+			log.warn("Could not delete print document " + file.getAbsolutePath());
+		}
+	}
+
+	/**
+	 * Renders one job on a worker thread. Tasks are ordered by descending priority, in submit order for the same
+	 * priority.
+	 *
+	 * @author agent
+	 */
+	private class PrintTask implements Runnable, Comparable<PrintTask> {
+
+		private final PrintJobImpl job;
+
+		public PrintTask(PrintJobImpl job) {
+			this.job = job;
+		}
+
+		public void run() {
+			render(job);
+		}
+
+		public int compareTo(PrintTask other) {
+			if (job.getPriority() != other.job.getPriority()) {
+				return job.getPriority() > other.job.getPriority() ? -1 : 1;
+			}
+			long diff = job.getSequence() - other.job.getSequence();
+			return diff < 0 ? -1 : (diff > 0 ? 1 : 0);
+		}
+
+		@Override
+		public boolean equals(Object other) {
+			return other instanceof PrintTask && job == ((PrintTask) other).job;
+		}
+
+		@Override
+		public int hashCode() {
+			return job.hashCode();
+		}
+	}
+
+	/**
+	 * Creates named daemon threads for printing.
+	 *
+	 * @author agent
+	 */
+	private static class PrintThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		public PrintThreadFactory(String name) {
+			this.name = name;
+		}
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -17,7 +17,8 @@ import java.io.StringWriter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
@@ -88,7 +89,9 @@ public class PrintServiceImpl implements PrintService {
 
 	private int jaiTileCacheInMb = 64;
 
-	private Map<String, Document> documentMap = Collections.synchronizedMap(new HashMap<String, Document>());
+	private int documentTimeToLive = 900;
+
+	private final Map<String, DocumentEntry> documentMap = new LinkedHashMap<String, DocumentEntry>();
 
 	public List<PrintTemplate> getAllTemplates() throws PrintingException {
 		List<PrintTemplate> allTemplates = new ArrayList<PrintTemplate>();
@@ -148,14 +151,19 @@ public class PrintServiceImpl implements PrintService {
 	}
 
 	/**
-	 * Puts a new document in the service. The generate key is globally unique.
+	 * Puts a new document in the service. The generate key is globally unique. Documents which are not removed within
+	 * the document time to live are discarded.
 	 * 
 	 * @param document document
 	 * @return key unique key to reference the document
 	 */
 	public String putDocument(Document document) {
 		String key = UUID.randomUUID().toString();
-		documentMap.put(key, document);
+		long now = System.currentTimeMillis();
+		synchronized (documentMap) {
+			removeExpiredDocuments(now);
+			documentMap.put(key, new DocumentEntry(document, now));
+		}
 		return key;
 	}
 
@@ -167,13 +175,33 @@ public class PrintServiceImpl implements PrintService {
 	 * @return the document or null if no such document
 	 */
 	public Document removeDocument(String key) throws PrintingException {
-		if (documentMap.containsKey(key)) {
-			return documentMap.remove(key);
+		DocumentEntry entry;
+		synchronized (documentMap) {
+			removeExpiredDocuments(System.currentTimeMillis());
+			entry = documentMap.remove(key);
+		}
+		if (null != entry) {
+			return entry.getDocument();
 		} else {
 			throw new PrintingException(PrintingException.DOCUMENT_NOT_FOUND, key);
 		}
 	}
 
+	/**
+	 * Discard the documents which are older than the time to live. Should be called while synchronized on
+	 * documentMap.
+	 *
+	 * @param now current time
+	 */
+	private void removeExpiredDocuments(long now) {
+		long expired = now - documentTimeToLive * 1000L;
+		// entries are in insertion order, oldest first
+		Iterator<DocumentEntry> it = documentMap.values().iterator();
+		while (it.hasNext() && it.next().getCreated() < expired) {
+			it.remove();
+		}
+	}
+
 	private List<PrintTemplate> getDefaults() throws PrintingException {
 		List<PrintTemplate> allTemplates = new ArrayList<PrintTemplate>();
 		allTemplates.add(createDefaultTemplate("A4", true));
@@ -245,6 +273,26 @@ public class PrintServiceImpl implements PrintService {
 		this.jaiTileCacheInMb = jaiTileCacheInMb;
 	}
 
+	/**
+	 * Get the time (in seconds) a document is kept when it is not removed (downloaded).
+	 *
+	 * @return document time to live in seconds
+	 */
+	public int getDocumentTimeToLive() {
+		return documentTimeToLive;
+	}
+
+	/**
+	 * Set the time (in seconds) a document is kept when it is not removed (downloaded). Default is 900 (15 minutes).
+	 *
+	 * @param documentTimeToLive document time to live in seconds
+	 * @since 1.18.6
+	 */
+	@Api
+	public void setDocumentTimeToLive(int documentTimeToLive) {
+		this.documentTimeToLive = documentTimeToLive;
+	}
+
 	@PostConstruct
 	protected void initJai() {
 		TileCache cache = JAI.getDefaultInstance().getTileCache();
@@ -309,4 +357,28 @@ public class PrintServiceImpl implements PrintService {
 		return name;
 	}
 
+	/**
+	 * Document with the time it was added.
+	 *
+	 * @author agent
+	 */
+	private static class DocumentEntry {
+
+		private final Document document;
+
+		private final long created;
+
+		public DocumentEntry(Document document, long created) {
+			this.document = document;
+			this.created = created;
+		}
+
+		public Document getDocument() {
+			return document;
+		}
+
+		public long getCreated() {
+			return created;
+		}
+	}
 }
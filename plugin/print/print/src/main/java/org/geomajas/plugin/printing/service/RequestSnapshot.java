@@ -0,0 +1,160 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+package org.geomajas.plugin.printing.service;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import javax.servlet.http.HttpServletRequest;
+
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Detached copy of the servlet request which submits a print job.
+ * <p/>
+ * The document is rendered on a worker thread, possibly after the request has ended, while some components (for
+ * example the raster and legend components, through {@link org.geomajas.service.DispatcherUrlService}) need the
+ * request to determine URLs. As the container may recycle the original request, the address, path, header and
+ * attribute information is copied when the job is submitted. Methods which are not copied (like the session or the
+ * request body) return null, false or 0.
+ *
+ * @author agent
+ */
+final class RequestSnapshot implements InvocationHandler {
+
+	private static final String[] PROPERTIES = { "getScheme", "getServerName", "getServerPort", "getLocalName",
+			"getLocalAddr", "getLocalPort", "getRemoteAddr", "getRemoteHost", "getRemotePort", "getProtocol",
+			"isSecure", "getMethod", "getContextPath", "getServletPath", "getPathInfo", "getRequestURI",
+			"getQueryString", "getCharacterEncoding", "getContentType", "getLocale", "getAuthType", "getRemoteUser" };
+
+	private final Map<String, Object> properties = new HashMap<String, Object>();
+
+	private final Map<String, List<String>> headers = new HashMap<String, List<String>>();
+
+	private final List<String> headerNames = new ArrayList<String>();
+
+	private final Map<String, Object> attributes = Collections.synchronizedMap(new HashMap<String, Object>());
+
+	private final String requestUrl;
+
+	private RequestSnapshot(HttpServletRequest request) {
+		for (String property : PROPERTIES) {
+			try {
+				properties.put(property, HttpServletRequest.class.getMethod(property).invoke(request));
+			} catch (Exception e) { // NOSONAR not available in this servlet version, use the default value
+				continue;
+			}
+		}
+		requestUrl = String.valueOf(request.getRequestURL());
+		Enumeration<?> names = request.getHeaderNames();
+		while (null != names && names.hasMoreElements()) {
+			String name = (String) names.nextElement();
+			List<String> values = new ArrayList<String>();
+			Enumeration<?> headerValues = request.getHeaders(name);
+			while (null != headerValues && headerValues.hasMoreElements()) {
+				values.add((String) headerValues.nextElement());
+			}
+			headerNames.add(name);
+			headers.put(name.toLowerCase(Locale.ENGLISH), values);
+		}
+		Enumeration<?> attributeNames = request.getAttributeNames();
+		while (null != attributeNames && attributeNames.hasMoreElements()) {
+			String name = (String) attributeNames.nextElement();
+			attributes.put(name, request.getAttribute(name));
+		}
+	}
+
+	/**
+	 * Create a detached copy of the request attributes which are bound to the current thread.
+	 *
+	 * @return detached request attributes, null when not running inside a servlet request
+	 */
+	static RequestAttributes capture() {
+		RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+		if (!(requestAttributes instanceof ServletRequestAttributes)) {
+			return null;
+		}
+		HttpServletRequest request = ((ServletRequestAttributes) requestAttributes).getRequest();
+		HttpServletRequest snapshot = (HttpServletRequest) Proxy.newProxyInstance(
+				RequestSnapshot.class.getClassLoader(), new Class[] { HttpServletRequest.class },
+				new RequestSnapshot(request));
+		return new ServletRequestAttributes(snapshot);
+	}
+
+	public Object invoke(Object proxy, Method method, Object[] args) {
+		String name = method.getName();
+		if (properties.containsKey(name)) {
+			return properties.get(name);
+		}
+		if ("getRequestURL".equals(name)) {
+			return new StringBuffer(requestUrl);
+		} else if ("getHeader".equals(name)) {
+			List<String> values = headers.get(lowerCase(args[0]));
+			return null == values || values.isEmpty() ? null : values.get(0);
+		} else if ("getHeaders".equals(name)) {
+			List<String> values = headers.get(lowerCase(args[0]));
+			return Collections.enumeration(null == values ? Collections.<String>emptyList() : values);
+		} else if ("getHeaderNames".equals(name)) {
+			return Collections.enumeration(headerNames);
+		} else if ("getIntHeader".equals(name)) {
+			List<String> values = headers.get(lowerCase(args[0]));
+			return null == values || values.isEmpty() ? -1 : Integer.parseInt(values.get(0));
+		} else if ("getAttribute".equals(name)) {
+			return attributes.get(args[0]);
+		} else if ("getAttributeNames".equals(name)) {
+			synchronized (attributes) {
+				return Collections.enumeration(new ArrayList<String>(attributes.keySet()));
+			}
+		} else if ("setAttribute".equals(name)) {
+			if (null == args[1]) {
+				attributes.remove(args[0]);
+			} else {
+				attributes.put((String) args[0], args[1]);
+			}
+			return null;
+		} else if ("removeAttribute".equals(name)) {
+			attributes.remove(args[0]);
+			return null;
+		} else if ("equals".equals(name)) {
+			return proxy == args[0];
+		} else if ("hashCode".equals(name)) {
+			return System.identityHashCode(proxy);
+		} else if ("toString".equals(name)) {
+			return "RequestSnapshot{" + requestUrl + "}";
+		}
+		return defaultValue(method.getReturnType());
+	}
+
+	private String lowerCase(Object name) {
+		return null == name ? null : ((String) name).toLowerCase(Locale.ENGLISH);
+	}
+
+	private Object defaultValue(Class<?> type) {
+		if (boolean.class == type) {
+			return Boolean.FALSE;
+		} else if (int.class == type) {
+			return 0;
+		} else if (long.class == type) {
+			return 0L;
+		}
+		return null;
+	}
+}
@@ -0,0 +1,107 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.printing.mvc;
+
+import org.geomajas.configuration.client.ClientApplicationInfo;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.plugin.printing.command.dto.PrintTemplateInfo;
+import org.geomajas.plugin.printing.component.dto.MapComponentInfo;
+import org.geomajas.plugin.printing.component.dto.RasterLayerComponentInfo;
+import org.geomajas.plugin.printing.document.Document;
+import org.geomajas.security.SecurityManager;
+import org.geomajas.testdata.LoggingContextLoader;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.servlet.ModelAndView;
+
+import com.lowagie.text.PageSize;
+
+/**
+ * Print a map with a raster layer when the dispatcher URL is determined from the request. The document is rendered by
+ * a print worker thread, which needs the request of the caller to determine the tile URLs.
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "/org/geomajas/spring/geomajasContext.xml",
+		"/org/geomajas/testdata/layerBluemarble.xml", "/org/geomajas/testdata/layerCountries.xml",
+		"/org/geomajas/testdata/simplemixedContext.xml", "/org/geomajas/plugin/printing/printing.xml",
+		"/org/geomajas/plugin/printing/automaticDispatcher.xml" }, loader = LoggingContextLoader.class)
+public class PrintingControllerRasterTest {
+
+	@Autowired
+	private PrintingController printingController;
+
+	@Autowired
+	private SecurityManager securityManager;
+
+	@Autowired
+	@Qualifier("application")
+	private ClientApplicationInfo app;
+
+	@Before
+	public void login() {
+		// assure security context is set
+		securityManager.createSecurityContext(null);
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/d/printing");
+		request.setLocalName("localhost");
+		request.setLocalPort(8080);
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+	}
+
+	@After
+	public void logout() {
+		RequestContextHolder.resetRequestAttributes();
+		securityManager.clearSecurityContext();
+	}
+
+	@Test
+	public void testPostRasterLayer() throws Exception {
+		TestTemplateBuilder builder = new TestTemplateBuilder() {
+
+			@Override
+			protected MapComponentInfo buildMap() {
+				MapComponentInfo map = super.buildMap();
+				RasterLayerComponentInfo raster = new RasterLayerComponentInfo();
+				raster.setLayerId("bluemarble");
+				raster.setVisible(true);
+				map.getChildren().add(0, raster);
+				return map;
+			}
+		};
+		builder.setApplicationId(app.getId());
+		builder.setBounds(new Bbox(-31.44, -37.43, 80.83f, 80.83f));
+		builder.setMapInfo(app.getMaps().get(0));
+		builder.setMarginX(10);
+		builder.setMarginY(10);
+		builder.setPageHeight(PageSize.A4.getWidth());
+		builder.setPageWidth(PageSize.A4.getHeight());
+		builder.setRasterDpi(96);
+		builder.setTitleText("My map");
+		PrintTemplateInfo templateInfo = builder.buildTemplate();
+		String json = printingController.getObjectMapper().writer().writeValueAsString(templateInfo);
+		// fails when the raster layer cannot determine the dispatcher URL on the print worker thread
+		ModelAndView mv = printingController.printPost(PrintingController.DOWNLOAD_METHOD_SAVE, "raster.pdf", json,
+				"A4", 200);
+		Document document = (Document) mv.getModel().get(PrintingController.DOCUMENT_KEY);
+		Assert.assertNotNull(document);
+		Assert.assertTrue(document.getContentLength() > 0);
+	}
+}
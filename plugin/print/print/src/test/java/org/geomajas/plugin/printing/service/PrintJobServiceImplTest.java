@@ -0,0 +1,299 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.printing.service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.geomajas.plugin.printing.PrintingException;
+import org.geomajas.plugin.printing.document.Document;
+import org.geomajas.plugin.printing.document.SpooledDocument;
+import org.geomajas.security.SecurityManager;
+import org.geomajas.servlet.AutomaticDispatcherUrlService;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "/org/geomajas/spring/geomajasContext.xml",
+		"/org/geomajas/plugin/printing/printing.xml" })
+public class PrintJobServiceImplTest {
+
+	private static final String CONTENT = "%PDF-test";
+
+	@Autowired
+	private PrintJobServiceImpl printJobService;
+
+	@Autowired
+	private SecurityManager securityManager;
+
+	private final List<String> rendered = Collections.synchronizedList(new ArrayList<String>());
+
+	@Before
+	public void login() {
+		// assure security context is set
+		securityManager.createSecurityContext(null);
+	}
+
+	@After
+	public void logout() {
+		securityManager.clearSecurityContext();
+	}
+
+	@Test
+	public void testRender() throws Exception {
+		PrintJob job = printJobService.submit(new TestDocument("test", null), 0);
+		Assert.assertSame(job, printJobService.getJob(job.getId()));
+		Document document = printJobService.getDocument(job.getId());
+		Assert.assertTrue(document instanceof SpooledDocument);
+		Assert.assertEquals(PrintJob.State.FINISHED, job.getState());
+		Assert.assertEquals(CONTENT.length(), job.getContentLength());
+		Assert.assertTrue(job.getEndTime() >= job.getStartTime());
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		document.render(baos, Document.Format.PDF, 72);
+		Assert.assertEquals(CONTENT, baos.toString("ISO-8859-1"));
+
+		// document can be downloaded more than once
+		Assert.assertEquals(CONTENT.length(), printJobService.getDocument(job.getId()).getContentLength());
+
+		File file = ((SpooledDocument) document).getFile();
+		Assert.assertTrue(file.exists());
+		Assert.assertTrue(printJobService.remove(job.getId()));
+		Assert.assertFalse(file.exists());
+		Assert.assertNull(printJobService.getJob(job.getId()));
+		Assert.assertFalse(printJobService.remove(job.getId()));
+	}
+
+	@Test
+	public void testFailure() throws Exception {
+		PrintJob job = printJobService.submit(new Document() {
+
+			public void render(OutputStream os, Format format, int dpi) throws PrintingException {
+				throw new PrintingException(PrintingException.DOCUMENT_LAYOUT_PROBLEM);
+			}
+
+			public int getContentLength() {
+				return 0;
+			}
+		}, 0);
+		try {
+			printJobService.getDocument(job.getId());
+			Assert.fail("rendering should fail");
+		} catch (PrintingException pe) {
+			Assert.assertEquals(PrintingException.DOCUMENT_RENDER_PROBLEM, pe.getExceptionCode());
+		}
+		Assert.assertEquals(PrintJob.State.FAILED, job.getState());
+		Assert.assertNotNull(job.getErrorMessage());
+		Assert.assertEquals(0, job.getContentLength());
+	}
+
+	@Test
+	public void testUnknownJob() throws Exception {
+		Assert.assertNull(printJobService.getJob("unknown"));
+		Assert.assertEquals(-1, printJobService.getQueuePosition("unknown"));
+		try {
+			printJobService.getDocument("unknown");
+			Assert.fail("job should not exist");
+		} catch (PrintingException pe) {
+			Assert.assertEquals(PrintingException.DOCUMENT_NOT_FOUND, pe.getExceptionCode());
+		}
+	}
+
+	@Test
+	public void testPriorityAndQueue() throws Exception {
+		CountDownLatch latch = new CountDownLatch(1);
+		List<PrintJob> blockers = new ArrayList<PrintJob>();
+		int maxQueueSize = printJobService.getMaxQueueSize();
+		try {
+			// occupy all workers
+			for (int i = 0; i < printJobService.getThreads(); i++) {
+				blockers.add(printJobService.submit(new TestDocument("block", latch), 0));
+			}
+			for (PrintJob blocker : blockers) {
+				waitForState(blocker, PrintJob.State.RUNNING);
+			}
+			PrintJob low = printJobService.submit(new TestDocument("low", null), 0);
+			PrintJob removed = printJobService.submit(new TestDocument("removed", null), 0);
+			PrintJob high = printJobService.submit(new TestDocument("high", null), 5);
+			Assert.assertEquals(PrintJob.State.QUEUED, low.getState());
+			Assert.assertEquals(0, printJobService.getQueuePosition(high.getId()));
+			Assert.assertEquals(1, printJobService.getQueuePosition(low.getId()));
+			Assert.assertEquals(2, printJobService.getQueuePosition(removed.getId()));
+			Assert.assertEquals(-1, printJobService.getQueuePosition(blockers.get(0).getId()));
+
+			// queue is full
+			printJobService.setMaxQueueSize(3);
+			try {
+				printJobService.submit(new TestDocument("full", null), 0);
+				Assert.fail("queue should be full");
+			} catch (PrintingException pe) {
+				Assert.assertEquals(PrintingException.PRINT_QUEUE_FULL, pe.getExceptionCode());
+			}
+
+			WaitingThread waiting = new WaitingThread(removed.getId());
+			waiting.start();
+			waitForState(waiting, Thread.State.TIMED_WAITING);
+			Assert.assertTrue(printJobService.remove(removed.getId()));
+			// waiting for a removed job stops immediately
+			waiting.join(TimeUnit.SECONDS.toMillis(10));
+			Assert.assertFalse(waiting.isAlive());
+			Assert.assertEquals(PrintingException.PRINT_JOB_REMOVED, waiting.exceptionCode);
+			latch.countDown();
+			printJobService.getDocument(low.getId());
+			printJobService.getDocument(high.getId());
+			Assert.assertFalse(rendered.contains("removed"));
+			Assert.assertTrue(rendered.indexOf("high") < rendered.indexOf("low"));
+			Assert.assertEquals(PrintJob.State.FAILED, removed.getState());
+		} finally {
+			printJobService.setMaxQueueSize(maxQueueSize);
+			latch.countDown();
+		}
+	}
+
+	@Test
+	public void testRequestContext() throws Exception {
+		// the raster and legend components need the request to determine the (local) dispatcher URL
+		final AutomaticDispatcherUrlService dispatcherUrlService = new AutomaticDispatcherUrlService();
+		MockHttpServletRequest request = new MockHttpServletRequest("POST", "/app/d/printing");
+		request.setServerName("public.example.com");
+		request.setServerPort(8080);
+		request.setLocalName("localhost");
+		request.setLocalPort(8081);
+		request.setContextPath("/app");
+		final List<String> urls = new ArrayList<String>();
+		RequestContextHolder.setRequestAttributes(new ServletRequestAttributes(request));
+		PrintJob job;
+		try {
+			job = printJobService.submit(new TestDocument("url", null) {
+
+				public void render(OutputStream os, Format format, int dpi) throws PrintingException {
+					urls.add(dispatcherUrlService.localize("http://public.example.com:8080/app/d/rasterizing/tile"));
+					urls.add(dispatcherUrlService.getLocalDispatcherUrl());
+					super.render(os, format, dpi);
+				}
+			}, 0);
+		} finally {
+			RequestContextHolder.resetRequestAttributes();
+		}
+		// the request may be recycled once it has ended
+		request.setServerName("recycled");
+		request.setLocalName("recycled");
+		printJobService.getDocument(job.getId());
+		Assert.assertEquals("http://localhost:8081/app/d/rasterizing/tile", urls.get(0));
+		Assert.assertEquals("http://localhost:8081/app/d/", urls.get(1));
+	}
+
+	@Test
+	public void testCleanup() throws Exception {
+		PrintJob job = printJobService.submit(new TestDocument("test", null), 0);
+		File file = ((SpooledDocument) printJobService.getDocument(job.getId())).getFile();
+		int timeToLive = printJobService.getTimeToLive();
+		try {
+			printJobService.cleanup();
+			Assert.assertNotNull(printJobService.getJob(job.getId()));
+			printJobService.setTimeToLive(0);
+			Thread.sleep(10);
+			printJobService.cleanup();
+			Assert.assertNull(printJobService.getJob(job.getId()));
+			Assert.assertFalse(file.exists());
+		} finally {
+			printJobService.setTimeToLive(timeToLive);
+		}
+	}
+
+	private void waitForState(PrintJob job, PrintJob.State state) throws InterruptedException {
+		long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		while (job.getState() != state && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(state, job.getState());
+	}
+
+	private void waitForState(Thread thread, Thread.State state) throws InterruptedException {
+		long end = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+		while (thread.getState() != state && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+		Assert.assertEquals(state, thread.getState());
+	}
+
+	/**
+	 * Thread which waits for the document of a job.
+	 */
+	private class WaitingThread extends Thread {
+
+		private final String jobId;
+
+		private volatile int exceptionCode = -1;
+
+		public WaitingThread(String jobId) {
+			this.jobId = jobId;
+		}
+
+		@Override
+		public void run() {
+			try {
+				printJobService.getDocument(jobId);
+			} catch (PrintingException pe) {
+				exceptionCode = pe.getExceptionCode();
+			}
+		}
+	}
+
+	/**
+	 * Document which writes a fixed content, optionally waiting for a latch.
+	 */
+	private class TestDocument implements Document {
+
+		private final String name;
+
+		private final CountDownLatch latch;
+
+		public TestDocument(String name, CountDownLatch latch) {
+			this.name = name;
+			this.latch = latch;
+		}
+
+		public void render(OutputStream os, Format format, int dpi) throws PrintingException {
+			try {
+				if (null != latch) {
+					latch.await();
+				}
+				rendered.add(name);
+				os.write(CONTENT.getBytes("ISO-8859-1"));
+			} catch (InterruptedException ie) {
+				throw new PrintingException(ie, PrintingException.DOCUMENT_RENDER_PROBLEM);
+			} catch (IOException ioe) {
+				throw new PrintingException(ioe, PrintingException.DOCUMENT_RENDER_PROBLEM);
+			}
+		}
+
+		public int getContentLength() {
+			return CONTENT.length();
+		}
+	}
+}
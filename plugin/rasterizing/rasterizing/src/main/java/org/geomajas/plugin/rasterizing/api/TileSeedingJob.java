@@ -0,0 +1,129 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.api;
+
+import org.geomajas.annotation.Api;
+
+/**
+ * Progress of a tile seeding job, see {@link TileSeedingService}.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface TileSeedingJob {
+
+	/**
+	 * State of a seeding job.
+	 *
+	 * @author agent
+	 * @since 1.18.6
+	 */
+	@Api(allMethods = true)
+	enum State {
+		/** Waiting for another job to finish. */
+		QUEUED,
+		/** Tiles are being rendered. */
+		RUNNING,
+		/** All tiles were processed. */
+		FINISHED,
+		/** Cancelled, can be resumed. */
+		CANCELLED,
+		/** Stopped because of an unexpected problem, can be resumed. */
+		FAILED
+	}
+
+	/**
+	 * Get the job id.
+	 *
+	 * @return job id
+	 */
+	String getId();
+
+	/**
+	 * Get the id of the layer which is seeded.
+	 *
+	 * @return layer id
+	 */
+	String getLayerId();
+
+	/**
+	 * Get the style key.
+	 *
+	 * @return style key
+	 */
+	String getStyleKey();
+
+	/**
+	 * Get the tile crs.
+	 *
+	 * @return crs
+	 */
+	String getCrs();
+
+	/**
+	 * Get the lowest tile level which is seeded.
+	 *
+	 * @return min level
+	 */
+	int getMinLevel();
+
+	/**
+	 * Get the highest tile level which is seeded.
+	 *
+	 * @return max level
+	 */
+	int getMaxLevel();
+
+	/**
+	 * Get the current state of the job.
+	 *
+	 * @return state
+	 */
+	State getState();
+
+	/**
+	 * Get the total number of tiles in the job.
+	 *
+	 * @return tile count
+	 */
+	long getTileCount();
+
+	/**
+	 * Get the number of tiles which were processed (rendered, skipped or failed).
+	 *
+	 * @return processed tile count
+	 */
+	long getProcessedCount();
+
+	/**
+	 * Get the number of tiles which were rendered and put in the cache.
+	 *
+	 * @return rendered tile count
+	 */
+	long getRenderedCount();
+
+	/**
+	 * Get the number of tiles which were skipped because they were already cached.
+	 *
+	 * @return skipped tile count
+	 */
+	long getSkippedCount();
+
+	/**
+	 * Get the number of tiles which could not be rendered.
+	 *
+	 * @return failed tile count
+	 */
+	long getFailedCount();
+
+}
@@ -0,0 +1,83 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.api;
+
+import java.util.List;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.geometry.Bbox;
+import org.geomajas.global.GeomajasException;
+
+/**
+ * Service which pre-renders (seeds) the TMS tiles of a vector layer into the raster cache.
+ * <p/>
+ * Jobs are executed one at a time, the tiles of a job are rendered on a bounded pool of worker threads. The tiles are
+ * rendered using the security context of the caller which started the job, tiles which are already cached are
+ * skipped. A cancelled job can be resumed, it continues with the first tile which was not rendered yet.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public interface TileSeedingService {
+
+	/**
+	 * Start seeding the tiles of a layer. The job is queued and executed in the background.
+	 *
+	 * @param layerId layer id
+	 * @param styleKey style key
+	 * @param crs tile crs, e.g. "EPSG:3857", determines the TMS profile
+	 * @param bounds bounds (in tile crs) which need to be seeded, null for the maximum extent of the layer
+	 * @param minLevel lowest tile level to seed
+	 * @param maxLevel highest tile level to seed
+	 * @param showGeometries should the tiles contain the geometries?
+	 * @param showLabels should the tiles contain the labels?
+	 * @param filter optional CQL filter on the features shown
+	 * @return seeding job
+	 * @throws GeomajasException invalid parameters or layer, style or crs not found
+	 */
+	TileSeedingJob seed(String layerId, String styleKey, String crs, Bbox bounds, int minLevel, int maxLevel,
+			boolean showGeometries, boolean showLabels, String filter) throws GeomajasException;
+
+	/**
+	 * Get a seeding job.
+	 *
+	 * @param jobId job id
+	 * @return job or null when not found
+	 */
+	TileSeedingJob getJob(String jobId);
+
+	/**
+	 * Get all known seeding jobs, oldest first.
+	 *
+	 * @return list of jobs
+	 */
+	List<TileSeedingJob> getJobs();
+
+	/**
+	 * Cancel a seeding job. Tiles which are being rendered are finished first.
+	 *
+	 * @param jobId job id
+	 * @return true when the job was queued or running
+	 */
+	boolean cancel(String jobId);
+
+	/**
+	 * Resume a cancelled or failed seeding job.
+	 *
+	 * @param jobId job id
+	 * @return seeding job
+	 * @throws GeomajasException job not found or not resumable
+	 */
+	TileSeedingJob resume(String jobId) throws GeomajasException;
+
+}
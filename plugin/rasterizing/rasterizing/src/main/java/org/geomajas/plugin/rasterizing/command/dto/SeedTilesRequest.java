@@ -0,0 +1,214 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.command.dto;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.command.CommandRequest;
+import org.geomajas.geometry.Bbox;
+
+/**
+ * Request object for the {@link org.geomajas.plugin.rasterizing.command.rasterizing.SeedTilesCommand}.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public class SeedTilesRequest implements CommandRequest {
+
+	private static final long serialVersionUID = 1186L;
+
+	/**
+	 * Command name to handle the request.
+	 */
+	public static final String COMMAND = "command.rasterizing.SeedTiles";
+
+	private String layerId;
+
+	private String styleKey;
+
+	private String crs;
+
+	private Bbox bounds;
+
+	private int minLevel;
+
+	private int maxLevel;
+
+	private boolean showGeometries = true;
+
+	private boolean showLabels;
+
+	private String filter;
+
+	/**
+	 * Get the id of the layer to seed.
+	 *
+	 * @return layer id
+	 */
+	public String getLayerId() {
+		return layerId;
+	}
+
+	/**
+	 * Set the id of the layer to seed.
+	 *
+	 * @param layerId layer id
+	 */
+	public void setLayerId(String layerId) {
+		this.layerId = layerId;
+	}
+
+	/**
+	 * Get the style key.
+	 *
+	 * @return style key
+	 */
+	public String getStyleKey() {
+		return styleKey;
+	}
+
+	/**
+	 * Set the style key.
+	 *
+	 * @param styleKey style key
+	 */
+	public void setStyleKey(String styleKey) {
+		this.styleKey = styleKey;
+	}
+
+	/**
+	 * Get the tile crs, this determines the TMS profile.
+	 *
+	 * @return crs
+	 */
+	public String getCrs() {
+		return crs;
+	}
+
+	/**
+	 * Set the tile crs, this determines the TMS profile, e.g. "EPSG:3857".
+	 *
+	 * @param crs crs
+	 */
+	public void setCrs(String crs) {
+		this.crs = crs;
+	}
+
+	/**
+	 * Get the bounds (in tile crs) which need to be seeded.
+	 *
+	 * @return bounds, null for the maximum extent of the layer
+	 */
+	public Bbox getBounds() {
+		return bounds;
+	}
+
+	/**
+	 * Set the bounds (in tile crs) which need to be seeded.
+	 *
+	 * @param bounds bounds, null for the maximum extent of the layer
+	 */
+	public void setBounds(Bbox bounds) {
+		this.bounds = bounds;
+	}
+
+	/**
+	 * Get the lowest tile level to seed.
+	 *
+	 * @return min level
+	 */
+	public int getMinLevel() {
+		return minLevel;
+	}
+
+	/**
+	 * Set the lowest tile level to seed.
+	 *
+	 * @param minLevel min level
+	 */
+	public void setMinLevel(int minLevel) {
+		this.minLevel = minLevel;
+	}
+
+	/**
+	 * Get the highest tile level to seed.
+	 *
+	 * @return max level
+	 */
+	public int getMaxLevel() {
+		return maxLevel;
+	}
+
+	/**
+	 * Set the highest tile level to seed.
+	 *
+	 * @param maxLevel max level
+	 */
+	public void setMaxLevel(int maxLevel) {
+		this.maxLevel = maxLevel;
+	}
+
+	/**
+	 * Should the tiles contain the geometries? Default is true.
+	 *
+	 * @return true when geometries are painted
+	 */
+	public boolean isShowGeometries() {
+		return showGeometries;
+	}
+
+	/**
+	 * Should the tiles contain the geometries? Default is true.
+	 *
+	 * @param showGeometries true when geometries are painted
+	 */
+	public void setShowGeometries(boolean showGeometries) {
+		this.showGeometries = showGeometries;
+	}
+
+	/**
+	 * Should the tiles contain the labels? Default is false.
+	 *
+	 * @return true when labels are painted
+	 */
+	public boolean isShowLabels() {
+		return showLabels;
+	}
+
+	/**
+	 * Should the tiles contain the labels? Default is false.
+	 *
+	 * @param showLabels true when labels are painted
+	 */
+	public void setShowLabels(boolean showLabels) {
+		this.showLabels = showLabels;
+	}
+
+	/**
+	 * Get the CQL filter on the features shown.
+	 *
+	 * @return filter, null for all features
+	 */
+	public String getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Set the CQL filter on the features shown.
+	 *
+	 * @param filter filter, null for all features
+	 */
+	public void setFilter(String filter) {
+		this.filter = filter;
+	}
+
+}
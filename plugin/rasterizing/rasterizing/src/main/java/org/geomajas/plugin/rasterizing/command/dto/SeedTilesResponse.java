@@ -0,0 +1,68 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.command.dto;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.command.CommandResponse;
+
+/**
+ * Response object for the {@link org.geomajas.plugin.rasterizing.command.rasterizing.SeedTilesCommand} command.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public class SeedTilesResponse extends CommandResponse {
+
+	private static final long serialVersionUID = 1186L;
+
+	private String jobId;
+
+	private long tileCount;
+
+	/**
+	 * Get the id of the seeding job, this can be used to follow up or cancel the job.
+	 *
+	 * @return job id
+	 */
+	public String getJobId() {
+		return jobId;
+	}
+
+	/**
+	 * Set the id of the seeding job.
+	 *
+	 * @param jobId job id
+	 */
+	public void setJobId(String jobId) {
+		this.jobId = jobId;
+	}
+
+	/**
+	 * Get the number of tiles which will be seeded.
+	 *
+	 * @return tile count
+	 */
+	public long getTileCount() {
+		return tileCount;
+	}
+
+	/**
+	 * Set the number of tiles which will be seeded.
+	 *
+	 * @param tileCount tile count
+	 */
+	public void setTileCount(long tileCount) {
+		this.tileCount = tileCount;
+	}
+
+}
@@ -0,0 +1,63 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.command.rasterizing;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.command.CommandHasRequest;
+import org.geomajas.global.ExceptionCode;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.plugin.rasterizing.api.TileSeedingJob;
+import org.geomajas.plugin.rasterizing.api.TileSeedingService;
+import org.geomajas.plugin.rasterizing.command.dto.SeedTilesRequest;
+import org.geomajas.plugin.rasterizing.command.dto.SeedTilesResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Command that starts seeding the TMS tiles of a layer in the background. The tiles are rendered using the security
+ * context of the caller.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api
+@Component
+public class SeedTilesCommand implements CommandHasRequest<SeedTilesRequest, SeedTilesResponse> {
+
+	@Autowired
+	private TileSeedingService tileSeedingService;
+
+	@Override
+	public SeedTilesRequest getEmptyCommandRequest() {
+		return new SeedTilesRequest();
+	}
+
+	@Override
+	public SeedTilesResponse getEmptyCommandResponse() {
+		return new SeedTilesResponse();
+	}
+
+	@Override
+	public void execute(SeedTilesRequest request, SeedTilesResponse response) throws Exception {
+		if (null == request.getLayerId()) {
+			throw new GeomajasException(ExceptionCode.PARAMETER_MISSING, "layerId");
+		}
+		if (null == request.getCrs()) {
+			throw new GeomajasException(ExceptionCode.PARAMETER_MISSING, "crs");
+		}
+		TileSeedingJob job = tileSeedingService.seed(request.getLayerId(), request.getStyleKey(), request.getCrs(),
+				request.getBounds(), request.getMinLevel(), request.getMaxLevel(), request.isShowGeometries(),
+				request.isShowLabels(), request.getFilter());
+		response.setJobId(job.getId());
+		response.setTileCount(job.getTileCount());
+	}
+}
@@ -0,0 +1,104 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.rasterizing.configuration;
+
+import org.geomajas.annotation.Api;
+import org.geomajas.configuration.LayerExtraInfo;
+import org.geomajas.configuration.ServerSideOnlyInfo;
+
+/**
+ * Configuration of metatile rendering for a rasterized layer.
+ * <p/>
+ * When this is added to the extra info of a vector layer (using {@link #KEY}), tiles which are requested from the
+ * {@link org.geomajas.plugin.rasterizing.mvc.TmsController} are not rendered one by one. Instead, the block of
+ * size x size tiles which contains the tile is rendered at once and all tiles of the block are put in the
+ * {@link org.geomajas.plugin.caching.service.CacheCategory#RASTER} cache. This avoids repeating the feature query and
+ * label placement for neighbouring tiles and prevents labels from being cut at the tile borders.
+ *
+ * @author agent
+ * @since 1.18.6
+ */
+@Api(allMethods = true)
+public class MetaTileInfo implements LayerExtraInfo, ServerSideOnlyInfo {
+
+	private static final long serialVersionUID = 1186L;
+
+	/**
+	 * Key which can be used to store this information in
+	 * {@link org.geomajas.configuration.LayerInfo#setExtraInfo(java.util.Map)}.
+	 */
+	public static final String KEY = MetaTileInfo.class.getName();
+
+	private int size = 4;
+
+	private int buffer;
+
+	private long waitTimeout = 30000;
+
+	/**
+	 * Get the number of tiles in each direction of the metatile.
+	 *
+	 * @return metatile size, the metatile contains size x size tiles
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Set the number of tiles in each direction of the metatile. Default 4, a value of 1 disables metatiling.
+	 *
+	 * @param size metatile size, the metatile contains size x size tiles
+	 */
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	/**
+	 * Get the number of pixels which are rendered around the metatile.
+	 *
+	 * @return buffer in pixels
+	 */
+	public int getBuffer() {
+		return buffer;
+	}
+
+	/**
+	 * Set the number of pixels which are rendered around the metatile. The buffer is discarded after rendering, it
+	 * assures symbols and labels which cross the metatile border are also painted on the tiles inside the metatile.
+	 * Default 0.
+	 *
+	 * @param buffer buffer in pixels
+	 */
+	public void setBuffer(int buffer) {
+		this.buffer = buffer;
+	}
+
+	/**
+	 * Get the maximum time to wait for the rendering of a metatile by another request.
+	 *
+	 * @return wait timeout in milliseconds
+	 */
+	public long getWaitTimeout() {
+		return waitTimeout;
+	}
+
+	/**
+	 * Set the maximum time to wait for the rendering of a metatile by another request. When the metatile is not ready
+	 * in time, the requested tile is rendered on its own. Default 30000 (30 seconds).
+	 *
+	 * @param waitTimeout wait timeout in milliseconds
+	 */
+	public void setWaitTimeout(long waitTimeout) {
+		this.waitTimeout = waitTimeout;
+	}
+}
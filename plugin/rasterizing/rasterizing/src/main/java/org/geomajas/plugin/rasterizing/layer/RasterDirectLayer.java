@@ -83,6 +83,9 @@ public class RasterDirectLayer extends DirectLayer {
 
 	private static final int DEFAULT_IMAGE_BUFFER_SIZE = 1024;
 
+	/** Size of the static thread pool, the default number of connections per host of the layer HTTP service. */
+	private static final int STATIC_POOL_THREADS = 20;
+
 	private static ExecutorService staticPool;
 
 	private final List<RasterTile> tiles;
@@ -513,8 +516,7 @@ public class RasterDirectLayer extends DirectLayer {
 
 	private static ExecutorService getStaticPool() {
 		if (staticPool == null) {
-			int cpus = Runtime.getRuntime().availableProcessors();
-			staticPool = Executors.newFixedThreadPool(cpus * 30);
+			staticPool = Executors.newFixedThreadPool(STATIC_POOL_THREADS);
 		}
 		return staticPool;
 	}
@@ -21,6 +21,8 @@ import java.util.concurrent.Executors;
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
+import org.apache.http.conn.ClientConnectionManager;
+import org.apache.http.impl.conn.PoolingClientConnectionManager;
 import org.geomajas.configuration.client.ClientLayerInfo;
 import org.geomajas.configuration.client.ClientRasterLayerInfo;
 import org.geomajas.global.GeomajasException;
@@ -60,10 +62,22 @@ public class RasterLayerFactory implements LayerFactory {
 
 	private int threadsPerCore = 30;
 
+	/**
+	 * Get the number of image download threads per processor.
+	 *
+	 * @return threads per processor
+	 */
 	public int getThreadsPerCore() {
 		return threadsPerCore;
 	}
-	
+
+	/**
+	 * Set the number of image download threads per processor. Default is 30. The number of threads is never more
+	 * than the number of connections per host of the HTTP connection pool, additional threads would only wait for
+	 * a free connection.
+	 *
+	 * @param threadsPerCore threads per processor
+	 */
 	public void setThreadsPerCore(int threadsPerCore) {
 		this.threadsPerCore = threadsPerCore;
 	}
@@ -110,7 +124,13 @@ public class RasterLayerFactory implements LayerFactory {
 	@PostConstruct
 	public void postConstruct() {
 		int cpus = Runtime.getRuntime().availableProcessors();
-		imageThreadPool = Executors.newFixedThreadPool(cpus * threadsPerCore);
+		int threads = cpus * threadsPerCore;
+		ClientConnectionManager connectionManager = httpService.getClient().getConnectionManager();
+		if (connectionManager instanceof PoolingClientConnectionManager) {
+			// the tiles of a layer come from the same host, don't wait for connections (and time out)
+			threads = Math.min(threads, ((PoolingClientConnectionManager) connectionManager).getDefaultMaxPerRoute());
+		}
+		imageThreadPool = Executors.newFixedThreadPool(threads);
 	}
 
 	@PreDestroy
@@ -0,0 +1,177 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.rasterizing.layer.tile;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.layer.tile.TileCode;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Block of size x size TMS tiles which is rendered in one go. The tile indexes increase to the right and upwards from
+ * the tile origin, the metatile contains the tiles for which the indexes divided by the size (rounded down) match.
+ *
+ * @author agent
+ */
+public class MetaTile {
+
+	private final int size;
+
+	private final int tileLevel;
+
+	private final int x;
+
+	private final int y;
+
+	/**
+	 * Create the metatile which contains a tile.
+	 *
+	 * @param code tile code
+	 * @param size number of tiles in each direction
+	 */
+	public MetaTile(TileCode code, int size) {
+		this.size = size;
+		this.tileLevel = code.getTileLevel();
+		this.x = floorDiv(code.getX(), size);
+		this.y = floorDiv(code.getY(), size);
+	}
+
+	/**
+	 * Get the code of the metatile, in the grid of metatiles at the same level.
+	 *
+	 * @return metatile code
+	 */
+	public TileCode getCode() {
+		return new TileCode(tileLevel, x, y);
+	}
+
+	/**
+	 * Get the number of tiles in each direction.
+	 *
+	 * @return size
+	 */
+	public int getSize() {
+		return size;
+	}
+
+	/**
+	 * Get the codes of the tiles in this metatile which exist at its level. The tile grid at level n has 2^n tiles in
+	 * each direction, so a metatile at a low level or at the edge of the grid may contain less than size x size tiles.
+	 *
+	 * @return tile codes
+	 */
+	public List<TileCode> getTileCodes() {
+		int last = tileLevel < Integer.SIZE - 1 ? (1 << tileLevel) - 1 : Integer.MAX_VALUE;
+		int minX = Math.max(0, x * size);
+		int maxX = Math.min(last, x * size + size - 1);
+		int minY = Math.max(0, y * size);
+		int maxY = Math.min(last, y * size + size - 1);
+		List<TileCode> codes = new ArrayList<TileCode>();
+		for (int i = minX; i <= maxX; i++) {
+			for (int j = minY; j <= maxY; j++) {
+				codes.add(new TileCode(tileLevel, i, j));
+			}
+		}
+		return codes;
+	}
+
+	/**
+	 * Check whether a tile is part of this metatile.
+	 *
+	 * @param code tile code
+	 * @return true when the tile is inside this metatile
+	 */
+	public boolean contains(TileCode code) {
+		return code.getTileLevel() == tileLevel && floorDiv(code.getX(), size) == x
+				&& floorDiv(code.getY(), size) == y;
+	}
+
+	/**
+	 * Get the bounds of the area to render, this includes the buffer.
+	 *
+	 * @param tileOrigin origin of the tile grid
+	 * @param resolution resolution (map units per pixel)
+	 * @param tileWidth tile width in pixels
+	 * @param tileHeight tile height in pixels
+	 * @param buffer buffer around the metatile in pixels
+	 * @return bounds in map coordinates
+	 */
+	public Envelope getBounds(Coordinate tileOrigin, double resolution, int tileWidth, int tileHeight, int buffer) {
+		double minX = tileOrigin.getX() + (x * size * tileWidth - buffer) * resolution;
+		double minY = tileOrigin.getY() + (y * size * tileHeight - buffer) * resolution;
+		return new Envelope(minX, minX + getImageWidth(tileWidth, buffer) * resolution, minY,
+				minY + getImageHeight(tileHeight, buffer) * resolution);
+	}
+
+	/**
+	 * Get the width of the rendered image.
+	 *
+	 * @param tileWidth tile width in pixels
+	 * @param buffer buffer around the metatile in pixels
+	 * @return image width in pixels
+	 */
+	public int getImageWidth(int tileWidth, int buffer) {
+		return size * tileWidth + 2 * buffer;
+	}
+
+	/**
+	 * Get the height of the rendered image.
+	 *
+	 * @param tileHeight tile height in pixels
+	 * @param buffer buffer around the metatile in pixels
+	 * @return image height in pixels
+	 */
+	public int getImageHeight(int tileHeight, int buffer) {
+		return size * tileHeight + 2 * buffer;
+	}
+
+	/**
+	 * Get the horizontal position of a tile in the rendered image.
+	 *
+	 * @param code tile code
+	 * @param tileWidth tile width in pixels
+	 * @param buffer buffer around the metatile in pixels
+	 * @return x-coordinate of the left side of the tile in pixels
+	 */
+	public int getPixelX(TileCode code, int tileWidth, int buffer) {
+		return (code.getX() - x * size) * tileWidth + buffer;
+	}
+
+	/**
+	 * Get the vertical position of a tile in the rendered image. The image rows go down while the tile indexes go up.
+	 *
+	 * @param code tile code
+	 * @param tileHeight tile height in pixels
+	 * @param buffer buffer around the metatile in pixels
+	 * @return y-coordinate of the top side of the tile in pixels
+	 */
+	public int getPixelY(TileCode code, int tileHeight, int buffer) {
+		return (size - 1 - (code.getY() - y * size)) * tileHeight + buffer;
+	}
+
+	@Override
+	public String toString() {
+		return "MetaTile{" + tileLevel + "-" + x + "-" + y + ", size=" + size + "}";
+	}
+
+	private static int floorDiv(int value, int divisor) {
+		int res = value / divisor;
+		if (value % divisor != 0 && value < 0) {
+			res--; // round down for negative indexes, only a positive divisor is used
+		}
+		return res;
+	}
+}
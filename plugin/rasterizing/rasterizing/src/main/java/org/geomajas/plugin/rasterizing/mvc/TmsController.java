@@ -16,13 +16,10 @@ import java.awt.Graphics2D;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.PrintWriter;
 import java.io.StringWriter;
 import java.io.Writer;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import javax.imageio.ImageIO;
 import javax.servlet.ServletOutputStream;
@@ -30,7 +27,6 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
 import org.geomajas.configuration.RasterLayerInfo;
-import org.geomajas.geometry.Bbox;
 import org.geomajas.geometry.Coordinate;
 import org.geomajas.geometry.Crs;
 import org.geomajas.geometry.CrsTransform;
@@ -53,15 +49,10 @@ import org.geomajas.plugin.rasterizing.api.RasterizingContainer;
 import org.geomajas.plugin.rasterizing.api.RasterizingPipelineCode;
 import org.geomajas.plugin.rasterizing.layer.tile.TmsTileMetadata;
 import org.geomajas.plugin.rasterizing.step.RebuildCacheContainer;
-import org.geomajas.plugin.rasterizing.tms.GlobalGeodeticProfile;
-import org.geomajas.plugin.rasterizing.tms.GlobalMercatorProfile;
-import org.geomajas.plugin.rasterizing.tms.LocalProfile;
-import org.geomajas.plugin.rasterizing.tms.TmsProfile;
-import org.geomajas.plugin.rasterizing.tms.TmsServiceImpl;
+import org.geomajas.plugin.rasterizing.tms.TmsService;
 import org.geomajas.service.ConfigurationService;
 import org.geomajas.service.DtoConverterService;
 import org.geomajas.service.GeoService;
-import org.geomajas.service.StyleService;
 import org.geomajas.service.TestRecorder;
 import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
@@ -115,9 +106,6 @@ public class TmsController {
 	@Autowired
 	private CachingSupportServiceSecurityContextAdder securityContextAdder;
 
-	@Autowired
-	private StyleService styleService;
-
 	@Autowired
 	private VectorLayerService layerService;
 
@@ -128,7 +116,7 @@ public class TmsController {
 	private LayerHttpService httpService;
 
 	@Autowired
-	private TmsServiceImpl tmsService;
+	private TmsService tmsService;
 
 	@Autowired
 	private CachingSupportService cachingSupportService;
@@ -141,14 +129,6 @@ public class TmsController {
 
 	private static final String[] KEYS = { PipelineCode.LAYER_ID_KEY, PipelineCode.TILE_METADATA_KEY };
 
-	private Map<String, TmsProfile> profiles = new HashMap<String, TmsProfile>();
-
-	public TmsController() {
-		profiles.put("EPSG:900913", new GlobalMercatorProfile());
-		profiles.put("EPSG:3857", new GlobalMercatorProfile());
-		profiles.put("EPSG:4326", new GlobalGeodeticProfile());
-	}
-
 	public boolean isRedirectRasterLayers() {
 		return redirectRasterLayers;
 	}
@@ -179,7 +159,8 @@ public class TmsController {
 	@RequestMapping(value = MAPPING_1_0_0 + "/{layerId}@{crs}/{styleKey}", method = RequestMethod.GET)
 	public void getTileMap(@PathVariable String layerId, @PathVariable String styleKey, @PathVariable String crs,
 			HttpServletResponse response) throws GeomajasException, IOException {
-		tmsService.writeTileMap(layerId, styleKey, getProfileForLayer(layerId, crs).getProfile(), response.getWriter());
+		tmsService.writeTileMap(layerId, styleKey, tmsService.getProfile(layerId, crs).getProfile(),
+				response.getWriter());
 	}
 
 	/**
@@ -233,28 +214,10 @@ public class TmsController {
 			@RequestParam(required = false, defaultValue = "false") boolean showLabels,
 			@RequestParam(required = false) String filter, HttpServletResponse response) throws Exception {
 		try {
-			Crs tileCrs = geoService.getCrs2(crs);
-			TmsTileMetadata tileMetadata = new TmsTileMetadata();
-			tileMetadata.setCode(new TileCode(tileLevel, xIndex, yIndex));
-			tileMetadata.setCrs(geoService.getCodeFromCrs(tileCrs));
-			tileMetadata.setLayerId(layerId);
-			tileMetadata.setPaintGeometries(showGeometries);
-			tileMetadata.setPaintLabels(showLabels);
-			tileMetadata.setRenderer(TMS_TILE_RENDERER);
-			tileMetadata.setTileWidth(tileWidth);
-			tileMetadata.setTileHeight(tileHeight);
-			// TmsTileMetadata specific
-			tileMetadata.setStyleInfo(styleService.retrieveStyle(layerId, styleKey));
-			tileMetadata.setFilter(filter);
-			// if no origin or resolution, try one of the preconfigured profiles or fall back to
-			// the layer bounds
-			if (resolution == null || tileOrigin == null) {
-				getProfileForLayer(layerId, crs).prepareMetadata(tileMetadata);
-			} else {
-				tileMetadata.setResolution(resolution);
-				tileMetadata.setTileOrigin(parseOrigin(tileOrigin));
-			}
-
+			TmsTileMetadata tileMetadata = tmsService.createTileMetadata(layerId, styleKey, crs,
+					new TileCode(tileLevel, xIndex, yIndex), resolution,
+					tileOrigin == null ? null : parseOrigin(tileOrigin), tileWidth, tileHeight, showGeometries,
+					showLabels, filter);
 			RebuildCacheContainer rcc = new RebuildCacheContainer();
 			rcc.setMetadata(tileMetadata);
 			PipelineContext context = pipelineService.createContext();
@@ -320,21 +283,6 @@ public class TmsController {
 		}
 	}
 
-	private TmsProfile getProfileForLayer(String layerId, String crs) throws GeomajasException {
-		if (profiles.containsKey(crs)) {
-			return profiles.get(crs);
-		} else {
-			VectorLayer layer = configurationService.getVectorLayer(layerId);
-			Crs layerCrs = layerService.getCrs(layer);
-			Crs tileCrs = geoService.getCrs2(crs);
-			Bbox layerBounds = layer.getLayerInfo().getMaxExtent();
-			if (layerCrs != tileCrs) {
-				layerBounds = geoService.transform(layerBounds, layerCrs, tileCrs);
-			}
-			return new LocalProfile(dtoConverterService.toInternal(layerBounds), PROFILE_TILE_SIZE);
-		}
-	}
-
 	/**
 	 * Renders the image by fetching it from the cache or, if that fails, using the rebuild container.
 	 *
@@ -436,15 +384,10 @@ public class TmsController {
 	private void writeToResponse(RasterLayer layer, String url, HttpServletRequest request, 
 			HttpServletResponse response)
 			throws Exception {
-		InputStream stream = null;
 		try {
 			response.setContentType("image/png");
 			ServletOutputStream out = response.getOutputStream();
-			stream = httpService.getStream(url, layer);
-			int b;
-			while ((b = stream.read()) >= 0) {
-				out.write(b);
-			}
+			httpService.copyStream(url, layer, out);
 		} catch (Exception e) { // NOSONAR
 			log.error("Cannot get original TMS image", e);
 			// Create an error image to make the reason for the error visible:
@@ -452,14 +395,6 @@ public class TmsController {
 			byte[] b = createErrorImage(layerInfo.getTileWidth(), layerInfo.getTileHeight(), e);
 			response.setContentType("image/png");
 			response.getOutputStream().write(b);
-		} finally {
-			if (null != stream) {
-				try {
-					stream.close();
-				} catch (IOException ioe) {
-					// ignore, closing anyway
-				}
-			}
 		}
 	}
 
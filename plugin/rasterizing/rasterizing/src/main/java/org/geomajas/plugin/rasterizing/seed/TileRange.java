@@ -0,0 +1,104 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.seed;
+
+import org.geomajas.layer.tile.TileCode;
+import org.geomajas.plugin.rasterizing.tms.TmsProfile;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * The range of TMS tile indexes on one level which cover an area. Tiles are numbered from the origin of the profile,
+ * the y-index increases upwards. Tiles are enumerated row by row, starting in the lower left corner.
+ *
+ * @author agent
+ */
+public class TileRange {
+
+	// fraction of a tile which is ignored, prevents rounding errors from adding an extra row or column of tiles
+	private static final double EPSILON = 1E-6;
+
+	private final int level;
+
+	private final long minX;
+
+	private final long minY;
+
+	private final long width;
+
+	private final long height;
+
+	/**
+	 * Create the range of tiles of a profile which cover the bounds at a level.
+	 *
+	 * @param profile TMS profile
+	 * @param level tile level
+	 * @param bounds bounds in the crs of the profile
+	 */
+	public TileRange(TmsProfile profile, int level, Envelope bounds) {
+		this.level = level;
+		Envelope area = bounds.intersection(profile.getBounds());
+		double resolution = profile.getResolutions()[level];
+		double tileWidth = resolution * profile.getTileWidth();
+		double tileHeight = resolution * profile.getTileHeight();
+		Coordinate origin = profile.getOrigin();
+		if (area.isNull() || area.getWidth() == 0 || area.getHeight() == 0) {
+			minX = 0;
+			minY = 0;
+			width = 0;
+			height = 0;
+		} else {
+			minX = Math.max(0, (long) Math.floor((area.getMinX() - origin.x) / tileWidth + EPSILON));
+			minY = Math.max(0, (long) Math.floor((area.getMinY() - origin.y) / tileHeight + EPSILON));
+			width = Math.max(0, (long) Math.ceil((area.getMaxX() - origin.x) / tileWidth - EPSILON) - minX);
+			height = Math.max(0, (long) Math.ceil((area.getMaxY() - origin.y) / tileHeight - EPSILON) - minY);
+		}
+	}
+
+	/**
+	 * Get the tile level.
+	 *
+	 * @return tile level
+	 */
+	public int getLevel() {
+		return level;
+	}
+
+	/**
+	 * Get the number of tiles in the range.
+	 *
+	 * @return tile count
+	 */
+	public long getTileCount() {
+		return width * height;
+	}
+
+	/**
+	 * Get the code of a tile in the range.
+	 *
+	 * @param index index of the tile, between 0 (inclusive) and the tile count (exclusive)
+	 * @return tile code
+	 */
+	public TileCode getTileCode(long index) {
+		if (index < 0 || index >= getTileCount()) {
+			throw new IndexOutOfBoundsException("Tile index " + index + " not in range " + this);
+		}
+		return new TileCode(level, (int) (minX + index % width), (int) (minY + index / width));
+	}
+
+	@Override
+	public String toString() {
+		return "TileRange{level=" + level + ", x=" + minX + ".." + (minX + width - 1) + ", y=" + minY + ".."
+				+ (minY + height - 1) + "}";
+	}
+}
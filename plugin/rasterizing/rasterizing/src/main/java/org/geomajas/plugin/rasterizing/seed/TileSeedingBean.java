@@ -0,0 +1,57 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.seed;
+
+/**
+ * Management interface which exposes the {@link org.geomajas.plugin.rasterizing.api.TileSeedingService} using JMX.
+ * Seeding jobs which are started using JMX use the security context of the configured authentication token.
+ *
+ * @author agent
+ */
+public interface TileSeedingBean {
+
+	/**
+	 * Start seeding the tiles of a layer for its maximum extent.
+	 *
+	 * @param layerId layer id
+	 * @param styleKey style key
+	 * @param crs tile crs, e.g. "EPSG:3857"
+	 * @param minLevel lowest tile level to seed
+	 * @param maxLevel highest tile level to seed
+	 * @return job id
+	 * @throws Exception invalid parameters
+	 */
+	String seed(String layerId, String styleKey, String crs, int minLevel, int maxLevel) throws Exception;
+
+	/**
+	 * Cancel a seeding job.
+	 *
+	 * @param jobId job id
+	 * @return true when the job was queued or running
+	 */
+	boolean cancel(String jobId);
+
+	/**
+	 * Resume a cancelled or failed seeding job.
+	 *
+	 * @param jobId job id
+	 * @throws Exception job not found or not resumable
+	 */
+	void resume(String jobId) throws Exception;
+
+	/**
+	 * Overview of the seeding jobs, one line per job, oldest first.
+	 *
+	 * @return report
+	 */
+	String getReport();
+}
@@ -0,0 +1,102 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.seed;
+
+import javax.management.MalformedObjectNameException;
+import javax.management.ObjectName;
+
+import org.geomajas.plugin.rasterizing.api.TileSeedingJob;
+import org.geomajas.plugin.rasterizing.api.TileSeedingService;
+import org.geomajas.security.SecurityManager;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationContext;
+import org.springframework.jmx.export.naming.SelfNaming;
+import org.springframework.stereotype.Component;
+
+/**
+ * {@link TileSeedingBean} implementation, a view on the {@link TileSeedingService}.
+ * <p/>
+ * The bean is registered as <code>org.geomajas:type=TileSeeding,application=...</code> using the id of the
+ * application context, so several applications in the same JVM can each be seeded.
+ *
+ * @author agent
+ */
+@Component
+public class TileSeedingBeanImpl implements TileSeedingBean, SelfNaming {
+
+	private static final String OBJECT_NAME = "org.geomajas:type=TileSeeding,application=";
+
+	@Autowired
+	private TileSeedingService tileSeedingService;
+
+	@Autowired
+	private SecurityManager securityManager;
+
+	@Autowired
+	private ApplicationContext applicationContext;
+
+	private String authenticationToken;
+
+	@Override
+	public ObjectName getObjectName() throws MalformedObjectNameException {
+		return new ObjectName(OBJECT_NAME + ObjectName.quote(applicationContext.getId()));
+	}
+
+	/**
+	 * Get the authentication token which is used for the seeding jobs which are started using JMX.
+	 *
+	 * @return authentication token
+	 */
+	public String getAuthenticationToken() {
+		return authenticationToken;
+	}
+
+	/**
+	 * Set the authentication token which is used for the seeding jobs which are started using JMX. This should give
+	 * access to the layers which need to be seeded.
+	 *
+	 * @param authenticationToken authentication token
+	 */
+	public void setAuthenticationToken(String authenticationToken) {
+		this.authenticationToken = authenticationToken;
+	}
+
+	@Override
+	public String seed(String layerId, String styleKey, String crs, int minLevel, int maxLevel) throws Exception {
+		securityManager.createSecurityContext(authenticationToken);
+		try {
+			return tileSeedingService.seed(layerId, styleKey, crs, null, minLevel, maxLevel, true, false, null)
+					.getId();
+		} finally {
+			securityManager.clearSecurityContext();
+		}
+	}
+
+	@Override
+	public boolean cancel(String jobId) {
+		return tileSeedingService.cancel(jobId);
+	}
+
+	@Override
+	public void resume(String jobId) throws Exception {
+		tileSeedingService.resume(jobId);
+	}
+
+	@Override
+	public String getReport() {
+		StringBuilder report = new StringBuilder();
+		for (TileSeedingJob job : tileSeedingService.getJobs()) {
+			report.append(job).append('\n');
+		}
+		return report.toString();
+	}
+}
@@ -0,0 +1,210 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.seed;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.geomajas.layer.tile.TileCode;
+import org.geomajas.plugin.rasterizing.api.TileSeedingJob;
+import org.geomajas.security.SavedAuthorization;
+
+/**
+ * Implementation of {@link TileSeedingJob}, also contains the information needed to (re)start the job.
+ *
+ * @author agent
+ */
+public class TileSeedingJobImpl implements TileSeedingJob {
+
+	private final String id;
+
+	private final String layerId;
+
+	private final String styleKey;
+
+	private final String crs;
+
+	private final int minLevel;
+
+	private final int maxLevel;
+
+	private final boolean showGeometries;
+
+	private final boolean showLabels;
+
+	private final String filter;
+
+	private final List<TileRange> ranges;
+
+	private final long tileCount;
+
+	private final SavedAuthorization savedAuthorization;
+
+	private volatile State state = State.QUEUED;
+
+	private volatile boolean cancelled;
+
+	private volatile long nextIndex;
+
+	private final AtomicLong renderedCount = new AtomicLong();
+
+	private final AtomicLong skippedCount = new AtomicLong();
+
+	private final AtomicLong failedCount = new AtomicLong();
+
+	public TileSeedingJobImpl(String id, String layerId, String styleKey, String crs, int minLevel, int maxLevel,
+			boolean showGeometries, boolean showLabels, String filter, List<TileRange> ranges,
+			SavedAuthorization savedAuthorization) {
+		this.id = id;
+		this.layerId = layerId;
+		this.styleKey = styleKey;
+		this.crs = crs;
+		this.minLevel = minLevel;
+		this.maxLevel = maxLevel;
+		this.showGeometries = showGeometries;
+		this.showLabels = showLabels;
+		this.filter = filter;
+		this.ranges = ranges;
+		this.savedAuthorization = savedAuthorization;
+		long count = 0;
+		for (TileRange range : ranges) {
+			count += range.getTileCount();
+		}
+		tileCount = count;
+	}
+
+	/**
+	 * Get the code of a tile in the job.
+	 *
+	 * @param index index of the tile, between 0 (inclusive) and the tile count (exclusive)
+	 * @return tile code
+	 */
+	public TileCode getTileCode(long index) {
+		long remaining = index;
+		for (TileRange range : ranges) {
+			if (remaining < range.getTileCount()) {
+				return range.getTileCode(remaining);
+			}
+			remaining -= range.getTileCount();
+		}
+		throw new IndexOutOfBoundsException("Tile index " + index + " not in job " + id);
+	}
+
+	public String getId() {
+		return id;
+	}
+
+	public String getLayerId() {
+		return layerId;
+	}
+
+	public String getStyleKey() {
+		return styleKey;
+	}
+
+	public String getCrs() {
+		return crs;
+	}
+
+	public int getMinLevel() {
+		return minLevel;
+	}
+
+	public int getMaxLevel() {
+		return maxLevel;
+	}
+
+	public boolean isShowGeometries() {
+		return showGeometries;
+	}
+
+	public boolean isShowLabels() {
+		return showLabels;
+	}
+
+	public String getFilter() {
+		return filter;
+	}
+
+	public SavedAuthorization getSavedAuthorization() {
+		return savedAuthorization;
+	}
+
+	public State getState() {
+		return state;
+	}
+
+	public void setState(State state) {
+		this.state = state;
+	}
+
+	public boolean isCancelled() {
+		return cancelled;
+	}
+
+	public void setCancelled(boolean cancelled) {
+		this.cancelled = cancelled;
+	}
+
+	/**
+	 * Index of the first tile which was not submitted for rendering yet. Resuming the job starts from here.
+	 *
+	 * @return index of next tile
+	 */
+	public long getNextIndex() {
+		return nextIndex;
+	}
+
+	public void setNextIndex(long nextIndex) {
+		this.nextIndex = nextIndex;
+	}
+
+	public long getTileCount() {
+		return tileCount;
+	}
+
+	public long getProcessedCount() {
+		return renderedCount.get() + skippedCount.get() + failedCount.get();
+	}
+
+	public long getRenderedCount() {
+		return renderedCount.get();
+	}
+
+	public long getSkippedCount() {
+		return skippedCount.get();
+	}
+
+	public long getFailedCount() {
+		return failedCount.get();
+	}
+
+	void tileRendered() {
+		renderedCount.incrementAndGet();
+	}
+
+	void tileSkipped() {
+		skippedCount.incrementAndGet();
+	}
+
+	void tileFailed() {
+		failedCount.incrementAndGet();
+	}
+
+	@Override
+	public String toString() {
+		return "TileSeedingJob{id=" + id + ", layer=" + layerId + ", style=" + styleKey + ", crs=" + crs + ", levels="
+				+ minLevel + ".." + maxLevel + ", state=" + state + ", tiles=" + getProcessedCount() + "/" + tileCount
+				+ ", rendered=" + getRenderedCount() + ", skipped=" + getSkippedCount() + ", failed="
+				+ getFailedCount() + "}";
+	}
+}
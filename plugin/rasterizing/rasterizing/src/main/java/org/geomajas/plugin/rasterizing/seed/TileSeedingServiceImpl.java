@@ -0,0 +1,507 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.seed;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+
+import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Crs;
+import org.geomajas.global.ExceptionCode;
+import org.geomajas.global.GeomajasException;
+import org.geomajas.internal.layer.tile.InternalTileImpl;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.layer.VectorLayerService;
+import org.geomajas.layer.pipeline.GetTileContainer;
+import org.geomajas.layer.tile.TileCode;
+import org.geomajas.plugin.caching.service.CacheCategory;
+import org.geomajas.plugin.caching.service.CacheManagerService;
+import org.geomajas.plugin.caching.service.CachingSupportService;
+import org.geomajas.plugin.caching.service.CachingSupportServiceSecurityContextAdder;
+import org.geomajas.plugin.rasterizing.api.RasterizingContainer;
+import org.geomajas.plugin.rasterizing.api.RasterizingPipelineCode;
+import org.geomajas.plugin.rasterizing.api.TileSeedingJob;
+import org.geomajas.plugin.rasterizing.api.TileSeedingService;
+import org.geomajas.plugin.rasterizing.layer.tile.TmsTileMetadata;
+import org.geomajas.plugin.rasterizing.step.RebuildCacheContainer;
+import org.geomajas.plugin.rasterizing.tms.TmsProfile;
+import org.geomajas.plugin.rasterizing.tms.TmsService;
+import org.geomajas.security.SecurityContext;
+import org.geomajas.security.SecurityManager;
+import org.geomajas.service.ConfigurationService;
+import org.geomajas.service.DtoConverterService;
+import org.geomajas.service.GeoService;
+import org.geomajas.service.pipeline.PipelineCode;
+import org.geomajas.service.pipeline.PipelineContext;
+import org.geomajas.service.pipeline.PipelineService;
+import org.geomajas.spring.ThreadScopeContextHolder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Default implementation of {@link TileSeedingService}.
+ * <p/>
+ * Jobs are executed by a single job thread which enumerates the tiles and hands them to the worker pool. The number of
+ * tiles which are queued or being rendered is limited, so the job thread blocks when the workers can't keep up. The
+ * tiles are built in the same way as in {@link org.geomajas.plugin.rasterizing.mvc.TmsController}, so they end up
+ * under the same cache key.
+ *
+ * @author agent
+ */
+@Component
+public class TileSeedingServiceImpl implements TileSeedingService {
+
+	private static final String[] KEYS = { PipelineCode.LAYER_ID_KEY, PipelineCode.TILE_METADATA_KEY };
+
+	private static final int MAX_JOBS = 100;
+
+	private static final long NANOS_PER_SECOND = 1000000000L;
+
+	private final Logger log = LoggerFactory.getLogger(TileSeedingServiceImpl.class);
+
+	@Autowired
+	private TmsService tmsService;
+
+	@Autowired
+	private PipelineService<GetTileContainer> pipelineService;
+
+	@Autowired
+	private ConfigurationService configurationService;
+
+	@Autowired
+	private VectorLayerService vectorLayerService;
+
+	@Autowired
+	private GeoService geoService;
+
+	@Autowired
+	private DtoConverterService dtoConverterService;
+
+	@Autowired
+	private CacheManagerService cacheManagerService;
+
+	@Autowired
+	private CachingSupportService cachingSupportService;
+
+	@Autowired
+	private CachingSupportServiceSecurityContextAdder securityContextAdder;
+
+	@Autowired
+	private SecurityContext securityContext;
+
+	@Autowired
+	private SecurityManager securityManager;
+
+	private int threads = 2;
+
+	private int queueSize = 100;
+
+	private int maxTilesPerSecond;
+
+	private final Map<String, TileSeedingJobImpl> jobs = new LinkedHashMap<String, TileSeedingJobImpl>();
+
+	private ExecutorService jobExecutor;
+
+	private ExecutorService workers;
+
+	private Semaphore inFlight;
+
+	/**
+	 * Get the number of worker threads which render tiles.
+	 *
+	 * @return number of worker threads
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Set the number of worker threads which render tiles. Default is 2.
+	 *
+	 * @param threads number of worker threads
+	 */
+	public void setThreads(int threads) {
+		this.threads = threads;
+	}
+
+	/**
+	 * Get the maximum number of tiles which can wait for a worker thread.
+	 *
+	 * @return queue size
+	 */
+	public int getQueueSize() {
+		return queueSize;
+	}
+
+	/**
+	 * Set the maximum number of tiles which can wait for a worker thread. Default is 100.
+	 *
+	 * @param queueSize queue size
+	 */
+	public void setQueueSize(int queueSize) {
+		this.queueSize = queueSize;
+	}
+
+	/**
+	 * Get the maximum number of tiles which are started per second, 0 when not throttled.
+	 *
+	 * @return maximum number of tiles per second
+	 */
+	public int getMaxTilesPerSecond() {
+		return maxTilesPerSecond;
+	}
+
+	/**
+	 * Set the maximum number of tiles which are started per second. Use this to limit the load caused by seeding on
+	 * the server and the data sources. Default is 0, not throttled.
+	 *
+	 * @param maxTilesPerSecond maximum number of tiles per second
+	 */
+	public void setMaxTilesPerSecond(int maxTilesPerSecond) {
+		this.maxTilesPerSecond = maxTilesPerSecond;
+	}
+
+	@PostConstruct
+	public void postConstruct() {
+		jobExecutor = Executors.newSingleThreadExecutor(new SeedingThreadFactory("tile-seeding-job"));
+		// the semaphore limits the number of submitted tiles, so the queue never overflows
+		inFlight = new Semaphore(threads + queueSize);
+		workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<Runnable>(queueSize), new SeedingThreadFactory("tile-seeding-worker"));
+	}
+
+	@PreDestroy
+	public void preDestroy() {
+		synchronized (jobs) {
+			for (TileSeedingJobImpl job : jobs.values()) {
+				job.setCancelled(true);
+			}
+		}
+		jobExecutor.shutdownNow();
+		workers.shutdownNow();
+	}
+
+	@Override
+	public TileSeedingJob seed(String layerId, String styleKey, String crs, Bbox bounds, int minLevel, int maxLevel,
+			boolean showGeometries, boolean showLabels, String filter) throws GeomajasException {
+		VectorLayer layer = configurationService.getVectorLayer(layerId);
+		if (null == layer) {
+			throw new GeomajasException(ExceptionCode.VECTOR_LAYER_NOT_FOUND, layerId);
+		}
+		TmsProfile profile = tmsService.getProfile(layerId, crs);
+		if (minLevel < 0) {
+			throw new GeomajasException(ExceptionCode.PARAMETER_INVALID_VALUE, "minLevel");
+		}
+		if (maxLevel < minLevel || maxLevel >= profile.getResolutions().length) {
+			throw new GeomajasException(ExceptionCode.PARAMETER_INVALID_VALUE, "maxLevel");
+		}
+		// fail early when the style or crs is not known
+		tmsService.createTileMetadata(layerId, styleKey, crs, new TileCode(minLevel, 0, 0), null, null, 0, 0,
+				showGeometries, showLabels, filter);
+		Envelope area;
+		if (null != bounds) {
+			area = dtoConverterService.toInternal(bounds);
+		} else {
+			Crs layerCrs = vectorLayerService.getCrs(layer);
+			Crs tileCrs = geoService.getCrs2(crs);
+			area = dtoConverterService.toInternal(layer.getLayerInfo().getMaxExtent());
+			if (layerCrs != tileCrs) {
+				area = geoService.transform(area, layerCrs, tileCrs);
+			}
+		}
+		List<TileRange> ranges = new ArrayList<TileRange>();
+		for (int level = minLevel; level <= maxLevel; level++) {
+			ranges.add(new TileRange(profile, level, area));
+		}
+		TileSeedingJobImpl job = new TileSeedingJobImpl(UUID.randomUUID().toString(), layerId, styleKey, crs,
+				minLevel, maxLevel, showGeometries, showLabels, filter, ranges,
+				securityContext.getSavedAuthorization());
+		synchronized (jobs) {
+			removeOldJobs();
+			jobs.put(job.getId(), job);
+		}
+		log.info("Start seeding {}", job);
+		submit(job);
+		return job;
+	}
+
+	@Override
+	public TileSeedingJob getJob(String jobId) {
+		synchronized (jobs) {
+			return jobs.get(jobId);
+		}
+	}
+
+	@Override
+	public List<TileSeedingJob> getJobs() {
+		synchronized (jobs) {
+			return new ArrayList<TileSeedingJob>(jobs.values());
+		}
+	}
+
+	@Override
+	public boolean cancel(String jobId) {
+		TileSeedingJobImpl job;
+		synchronized (jobs) {
+			job = jobs.get(jobId);
+		}
+		if (null == job) {
+			return false;
+		}
+		synchronized (job) {
+			TileSeedingJob.State state = job.getState();
+			if (TileSeedingJob.State.QUEUED != state && TileSeedingJob.State.RUNNING != state) {
+				return false;
+			}
+			job.setCancelled(true);
+			if (TileSeedingJob.State.QUEUED == state) {
+				job.setState(TileSeedingJob.State.CANCELLED);
+			}
+		}
+		log.info("Cancel seeding {}", job);
+		return true;
+	}
+
+	@Override
+	public TileSeedingJob resume(String jobId) throws GeomajasException {
+		TileSeedingJobImpl job;
+		synchronized (jobs) {
+			job = jobs.get(jobId);
+		}
+		if (null == job) {
+			throw new GeomajasException(ExceptionCode.PARAMETER_INVALID_VALUE, "jobId");
+		}
+		synchronized (job) {
+			TileSeedingJob.State state = job.getState();
+			if (TileSeedingJob.State.CANCELLED != state && TileSeedingJob.State.FAILED != state) {
+				throw new GeomajasException(ExceptionCode.PARAMETER_INVALID_VALUE, "jobId");
+			}
+			job.setCancelled(false);
+			job.setState(TileSeedingJob.State.QUEUED);
+		}
+		log.info("Resume seeding {}", job);
+		submit(job);
+		return job;
+	}
+
+	private void submit(final TileSeedingJobImpl job) {
+		jobExecutor.execute(new Runnable() {
+
+			public void run() {
+				execute(job);
+			}
+		});
+	}
+
+	/**
+	 * Forget the oldest jobs which are no longer active. Should be called while synchronized on jobs.
+	 */
+	private void removeOldJobs() {
+		Iterator<TileSeedingJobImpl> it = jobs.values().iterator();
+		while (jobs.size() >= MAX_JOBS && it.hasNext()) {
+			TileSeedingJob.State state = it.next().getState();
+			if (TileSeedingJob.State.QUEUED != state && TileSeedingJob.State.RUNNING != state) {
+				it.remove();
+			}
+		}
+	}
+
+	/**
+	 * Execute a job, called on the job thread.
+	 *
+	 * @param job job to execute
+	 */
+	void execute(TileSeedingJobImpl job) {
+		synchronized (job) {
+			if (TileSeedingJob.State.QUEUED != job.getState()) {
+				return; // cancelled while queued, or already executed when resumed while queued
+			}
+			job.setState(TileSeedingJob.State.RUNNING);
+		}
+		TileSeedingJob.State endState = TileSeedingJob.State.FAILED;
+		try {
+			long interval = maxTilesPerSecond > 0 ? NANOS_PER_SECOND / maxTilesPerSecond : 0;
+			long next = System.nanoTime();
+			long index = job.getNextIndex();
+			while (index < job.getTileCount() && !job.isCancelled()) {
+				if (interval > 0) {
+					long wait = next - System.nanoTime();
+					if (wait > 0) {
+						TimeUnit.NANOSECONDS.sleep(wait);
+					}
+					next = Math.max(next, System.nanoTime() - interval) + interval;
+				}
+				inFlight.acquire();
+				try {
+					workers.execute(new SeedTileTask(job, job.getTileCode(index)));
+				} catch (RuntimeException re) {
+					inFlight.release();
+					throw re;
+				}
+				index++;
+				job.setNextIndex(index);
+			}
+			endState = job.isCancelled() ? TileSeedingJob.State.CANCELLED : TileSeedingJob.State.FINISHED;
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			endState = TileSeedingJob.State.CANCELLED;
+		} catch (Throwable t) { // NOSONAR need to log all problems
+			log.error("Seeding failed " + job, t);
+		} finally {
+			// wait for the tiles which are still being rendered, the job can be resumed from the next index
+			waitForWorkers();
+			job.setState(endState);
+			log.info("End seeding {}", job);
+		}
+	}
+
+	/**
+	 * Wait until all submitted tiles are processed. Stops waiting when the service is shut down.
+	 */
+	private void waitForWorkers() {
+		int permits = threads + queueSize;
+		try {
+			while (!inFlight.tryAcquire(permits, 1, TimeUnit.SECONDS)) {
+				if (workers.isShutdown()) {
+					return;
+				}
+			}
+			inFlight.release(permits);
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Render a tile and put it in the raster cache, unless it is already cached.
+	 *
+	 * @param job seeding job
+	 * @param code code of the tile to render
+	 * @return true when the tile was rendered, false when it was already cached
+	 * @throws GeomajasException problem rendering the tile
+	 */
+	boolean renderTile(TileSeedingJobImpl job, TileCode code) throws GeomajasException {
+		String layerId = job.getLayerId();
+		VectorLayer layer = configurationService.getVectorLayer(layerId);
+		TmsTileMetadata tileMetadata = tmsService.createTileMetadata(layerId, job.getStyleKey(), job.getCrs(), code,
+				null, null, 0, 0, job.isShowGeometries(), job.isShowLabels(), job.getFilter());
+		RebuildCacheContainer rcc = new RebuildCacheContainer();
+		rcc.setMetadata(tileMetadata);
+		PipelineContext context = pipelineService.createContext();
+		context.put(PipelineCode.TILE_METADATA_KEY, tileMetadata);
+		context.put(PipelineCode.LAYER_ID_KEY, layerId);
+		// store container to recover the key, same as the TMS controller
+		cachingSupportService.putContainer(context, securityContextAdder, CacheCategory.REBUILD, KEYS,
+				RasterizingPipelineCode.IMAGE_ID_KEY, RasterizingPipelineCode.IMAGE_ID_CONTEXT, rcc, null);
+		String key = context.get(RasterizingPipelineCode.IMAGE_ID_KEY, String.class);
+		if (null != cacheManagerService.get(layer, CacheCategory.RASTER, key, RasterizingContainer.class)) {
+			return false;
+		}
+		context.put(PipelineCode.LAYER_KEY, layer);
+		Crs crs = geoService.getCrs2(tileMetadata.getCrs());
+		context.put(PipelineCode.CRS_KEY, crs);
+		context.put(PipelineCode.CRS_TRANSFORM_KEY, geoService.getCrsTransform(layer.getCrs(), crs));
+		InternalTileImpl tile = new InternalTileImpl(code, tileMetadata.getTileOrigin(), tileMetadata.getScale(),
+				tileMetadata.getTileWidth(), tileMetadata.getTileHeight());
+		GetTileContainer tileContainer = new GetTileContainer();
+		tileContainer.setTile(tile);
+		pipelineService.execute(RasterizingPipelineCode.PIPELINE_GET_VECTOR_TILE_RASTERIZING, layerId, context,
+				tileContainer);
+		RasterizingContainer rasterizingContainer = context.get(RasterizingPipelineCode.CONTAINER_KEY,
+				RasterizingContainer.class);
+		// the rasterizing pipeline does not necessarily cache the result
+		if (null == cacheManagerService.get(layer, CacheCategory.RASTER, key, RasterizingContainer.class)) {
+			cachingSupportService.putContainer(context, securityContextAdder, CacheCategory.RASTER, KEYS,
+					RasterizingPipelineCode.IMAGE_ID_KEY, RasterizingPipelineCode.IMAGE_ID_CONTEXT,
+					rasterizingContainer, tile.getBounds());
+		}
+		return true;
+	}
+
+	/**
+	 * Renders one tile on a worker thread, using the security context of the job.
+	 *
+	 * @author agent
+	 */
+	private class SeedTileTask implements Runnable {
+
+		private final TileSeedingJobImpl job;
+
+		private final TileCode code;
+
+		public SeedTileTask(TileSeedingJobImpl job, TileCode code) {
+			this.job = job;
+			this.code = code;
+		}
+
+		public void run() {
+			try {
+				if (null != job.getSavedAuthorization()) {
+					securityManager.restoreSecurityContext(job.getSavedAuthorization());
+				}
+				if (renderTile(job, code)) {
+					job.tileRendered();
+				} else {
+					job.tileSkipped();
+				}
+			} catch (Throwable t) { // NOSONAR need to log all problems
+				log.warn("Could not seed tile " + job.getLayerId() + "/" + code, t);
+				job.tileFailed();
+			} finally {
+				securityManager.clearSecurityContext();
+				ThreadScopeContextHolder.clear();
+				inFlight.release();
+			}
+		}
+	}
+
+	/**
+	 * Creates named daemon threads for seeding.
+	 *
+	 * @author agent
+	 */
+	private static class SeedingThreadFactory implements ThreadFactory {
+
+		private final String name;
+
+		private final AtomicInteger count = new AtomicInteger();
+
+		public SeedingThreadFactory(String name) {
+			this.name = name;
+		}
+
+		public Thread newThread(Runnable runnable) {
+			Thread thread = new Thread(runnable, name + "-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
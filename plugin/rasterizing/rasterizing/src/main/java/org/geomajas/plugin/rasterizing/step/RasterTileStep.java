@@ -9,41 +9,79 @@
  * details, see LICENSE.txt in the project root.
  */
 
+
 package org.geomajas.plugin.rasterizing.step;
 
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.awt.image.RenderedImage;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import javax.imageio.ImageIO;
 
 import org.geomajas.configuration.NamedStyleInfo;
 import org.geomajas.configuration.client.ClientMapInfo;
 import org.geomajas.configuration.client.ClientVectorLayerInfo;
+import org.geomajas.geometry.Bbox;
 import org.geomajas.global.ExceptionCode;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.pipeline.GetTileContainer;
+import org.geomajas.layer.tile.TileCode;
 import org.geomajas.layer.tile.TileMetadata;
 import org.geomajas.plugin.caching.service.CacheCategory;
+import org.geomajas.plugin.caching.service.CacheContext;
+import org.geomajas.plugin.caching.service.CacheKeyService;
+import org.geomajas.plugin.caching.service.CachingSupportService;
+import org.geomajas.plugin.caching.service.CachingSupportServiceSecurityContextAdder;
 import org.geomajas.plugin.rasterizing.api.ImageService;
+import org.geomajas.plugin.rasterizing.api.RasterException;
 import org.geomajas.plugin.rasterizing.api.RasterizingContainer;
 import org.geomajas.plugin.rasterizing.api.RasterizingPipelineCode;
 import org.geomajas.plugin.rasterizing.command.dto.MapRasterizingInfo;
 import org.geomajas.plugin.rasterizing.command.dto.VectorLayerRasterizingInfo;
+import org.geomajas.plugin.rasterizing.configuration.MetaTileInfo;
+import org.geomajas.plugin.rasterizing.layer.tile.MetaTile;
+import org.geomajas.plugin.rasterizing.layer.tile.TmsTileMetadata;
+import org.geomajas.service.ConfigurationService;
 import org.geomajas.service.DtoConverterService;
 import org.geomajas.service.TestRecorder;
 import org.geomajas.service.pipeline.PipelineCode;
 import org.geomajas.service.pipeline.PipelineContext;
+import org.geomajas.service.pipeline.PipelineService;
 import org.geomajas.service.pipeline.PipelineStep;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import com.vividsolutions.jts.geom.Envelope;
+
 /**
  * Pipeline step which rasterizes vector tiles.
+ * <p/>
+ * When the layer has a {@link MetaTileInfo} and the tile is a TMS tile, the metatile which contains the tile is
+ * rendered instead. The metatile is sliced into tiles, the other tiles are put in the
+ * {@link CacheCategory#RASTER} cache immediately. Concurrent requests for tiles of the same metatile wait for a single
+ * rendering, when that takes longer than {@link MetaTileInfo#getWaitTimeout()} the tile is rendered on its own.
  * 
  * @author Joachim Van der Auwera
  * @author Jan De Moerloose
  */
 public class RasterTileStep implements PipelineStep<GetTileContainer> {
 
+	private static final String[] KEYS = { PipelineCode.LAYER_ID_KEY, PipelineCode.TILE_METADATA_KEY };
+
 	private final Logger log = LoggerFactory.getLogger(RasterTileStep.class);
 
 	@Autowired
@@ -55,6 +93,24 @@ public class RasterTileStep implements PipelineStep<GetTileContainer> {
 	@Autowired
 	private DtoConverterService converterService;
 
+	@Autowired
+	private ConfigurationService configurationService;
+
+	@Autowired
+	private PipelineService<GetTileContainer> pipelineService;
+
+	@Autowired
+	private CacheKeyService cacheKeyService;
+
+	@Autowired
+	private CachingSupportService cachingSupportService;
+
+	@Autowired
+	private CachingSupportServiceSecurityContextAdder securityContextAdder;
+
+	private final ConcurrentMap<String, FutureTask<Map<String, byte[]>>> metaTilesInProgress =
+			new ConcurrentHashMap<String, FutureTask<Map<String, byte[]>>>();
+
 	private String id;
 
 	public String getId() {
@@ -72,9 +128,17 @@ public class RasterTileStep implements PipelineStep<GetTileContainer> {
 		RasterizingContainer rasterizingContainer = new RasterizingContainer();
 		// determine the style
 		NamedStyleInfo style = findStyle(layer, tileMetadata);
-		// prepare the map configuration
-		ClientMapInfo mapInfo = prepareMap(tileContainer, tileMetadata, style);
-		byte[] image = renderMap(mapInfo);
+		MetaTileInfo metaTileInfo = configurationService.getLayerExtraInfo(layer.getLayerInfo(), MetaTileInfo.class);
+		byte[] image = null;
+		if (null != metaTileInfo && metaTileInfo.getSize() > 1 && tileMetadata instanceof TmsTileMetadata) {
+			image = getFromMetaTile(context, (TmsTileMetadata) tileMetadata, style, metaTileInfo);
+		}
+		if (null == image) {
+			// prepare the map configuration
+			ClientMapInfo mapInfo = prepareMap(converterService.toDto(tileContainer.getTile().getBounds()),
+					tileMetadata, style);
+			image = renderMap(mapInfo);
+		}
 		rasterizingContainer.setImage(image);
 		context.put(RasterizingPipelineCode.CONTAINER_KEY, rasterizingContainer);
 	}
@@ -93,10 +157,169 @@ public class RasterTileStep implements PipelineStep<GetTileContainer> {
 		return imageStream.toByteArray();
 	}
 
-	private ClientMapInfo prepareMap(GetTileContainer tileContainer, TileMetadata tileMetadata, NamedStyleInfo style) {
+	/**
+	 * Get the image for a tile by rendering the metatile which contains it. When the metatile is already being
+	 * rendered for another request, the result of that rendering is used if it is available within the wait timeout.
+	 *
+	 * @param context pipeline context
+	 * @param tileMetadata tile metadata
+	 * @param style style
+	 * @param metaTileInfo metatile configuration
+	 * @return tile image, null when the rendering by another request took too long
+	 * @throws GeomajasException rendering failed
+	 */
+	private byte[] getFromMetaTile(final PipelineContext context, final TmsTileMetadata tileMetadata,
+			final NamedStyleInfo style, final MetaTileInfo metaTileInfo) throws GeomajasException {
+		final MetaTile metaTile = new MetaTile(tileMetadata.getCode(), metaTileInfo.getSize());
+		String key = getMetaTileKey(tileMetadata, metaTile);
+		FutureTask<Map<String, byte[]>> task = new FutureTask<Map<String, byte[]>>(
+				new Callable<Map<String, byte[]>>() {
+
+					public Map<String, byte[]> call() throws Exception {
+						return renderMetaTile(context, tileMetadata, style, metaTileInfo, metaTile);
+					}
+				});
+		FutureTask<Map<String, byte[]>> running = metaTilesInProgress.putIfAbsent(key, task);
+		try {
+			if (null == running) {
+				// render in the calling thread, the security context is needed to get the features
+				try {
+					task.run();
+				} finally {
+					metaTilesInProgress.remove(key, task);
+				}
+				return task.get().get(tileMetadata.getCode().toString());
+			} else {
+				log.debug("Waiting for rendering of {}", metaTile);
+				return running.get(metaTileInfo.getWaitTimeout(), TimeUnit.MILLISECONDS)
+						.get(tileMetadata.getCode().toString());
+			}
+		} catch (TimeoutException te) {
+			log.warn("Rendering of {} takes too long, rendering tile {} on its own", metaTile, tileMetadata.getCode());
+			return null;
+		} catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new GeomajasException(ie, ExceptionCode.LAYER_MODEL_IO_EXCEPTION);
+		} catch (ExecutionException ee) {
+			if (ee.getCause() instanceof GeomajasException) {
+				throw (GeomajasException) ee.getCause();
+			}
+			throw new GeomajasException(ee.getCause(), ExceptionCode.LAYER_MODEL_IO_EXCEPTION);
+		}
+	}
+
+	/**
+	 * Render the metatile in one go, slice it and put the tiles (except the requested one, this is handled by the
+	 * pipeline) in the raster cache.
+	 *
+	 * @return tile images, indexed by tile code string
+	 */
+	private Map<String, byte[]> renderMetaTile(PipelineContext context, TmsTileMetadata tileMetadata,
+			NamedStyleInfo style, MetaTileInfo metaTileInfo, MetaTile metaTile) throws GeomajasException {
+		int tileWidth = tileMetadata.getTileWidth();
+		int tileHeight = tileMetadata.getTileHeight();
+		int buffer = metaTileInfo.getBuffer();
+		double resolution = tileMetadata.getResolution();
+		Envelope bounds = metaTile.getBounds(tileMetadata.getTileOrigin(), resolution, tileWidth, tileHeight,
+				buffer);
+		ClientMapInfo mapInfo = prepareMap(converterService.toDto(bounds), tileMetadata, style);
+		MapRasterizingInfo mapRasterizingInfo = (MapRasterizingInfo) mapInfo
+				.getWidgetInfo(MapRasterizingInfo.WIDGET_KEY);
+		BufferedImage image = RenderMapStep.createImage(metaTile.getImageWidth(tileWidth, buffer),
+				metaTile.getImageHeight(tileHeight, buffer), mapRasterizingInfo.isTransparent());
+		RenderingHints renderingHints = new RenderingHints(RenderingHints.KEY_ANTIALIASING,
+				RenderingHints.VALUE_ANTIALIAS_ON);
+		Graphics2D graphics = RenderMapStep.getGraphics(image, mapRasterizingInfo.isTransparent(), renderingHints);
+		try {
+			imageService.writeMap(graphics, mapInfo);
+			recorder.record(CacheCategory.RASTER, "Metatile rasterization success");
+		} catch (Exception ex) { // NOSONAR
+			recorder.record(CacheCategory.RASTER, "Rasterization failed");
+			log.error("Problem while rasterizing " + metaTile + ", no image will be returned.", ex);
+			throw new GeomajasException(ExceptionCode.LAYER_MODEL_IO_EXCEPTION, ex);
+		} finally {
+			graphics.dispose();
+		}
+
+		Map<String, byte[]> tiles = new HashMap<String, byte[]>();
+		String requested = tileMetadata.getCode().toString();
+		for (TileCode code : metaTile.getTileCodes()) {
+			int x = metaTile.getPixelX(code, tileWidth, buffer);
+			int y = metaTile.getPixelY(code, tileHeight, buffer);
+			byte[] tile = writeImage(image.getSubimage(x, y, tileWidth, tileHeight));
+			tiles.put(code.toString(), tile);
+			if (!requested.equals(code.toString())) {
+				double minX = bounds.getMinX() + x * resolution;
+				double maxY = bounds.getMaxY() - y * resolution;
+				putInCache(context, tileMetadata, code, tile,
+						new Envelope(minX, minX + tileWidth * resolution, maxY - tileHeight * resolution, maxY));
+			}
+		}
+		recorder.record(CacheCategory.RASTER, "Put metatile in cache");
+		return tiles;
+	}
+
+	private byte[] writeImage(RenderedImage image) throws GeomajasException {
+		ByteArrayOutputStream imageStream = new ByteArrayOutputStream(10 * 1024);
+		try {
+			ImageIO.write(image, "PNG", imageStream);
+		} catch (IOException e) {
+			throw new RasterException(RasterException.IMAGE_WRITING_FAILED, e);
+		}
+		return imageStream.toByteArray();
+	}
+
+	/**
+	 * Put a tile of the metatile in the raster cache, using the same key as a request for that tile would use.
+	 */
+	private void putInCache(PipelineContext context, TmsTileMetadata tileMetadata, TileCode code, byte[] image,
+			Envelope tileBounds) {
+		PipelineContext tileContext = pipelineService.createContext();
+		tileContext.put(PipelineCode.LAYER_ID_KEY, tileMetadata.getLayerId());
+		tileContext.put(PipelineCode.LAYER_KEY, context.getOptional(PipelineCode.LAYER_KEY));
+		tileContext.put(PipelineCode.CRS_KEY, context.getOptional(PipelineCode.CRS_KEY));
+		tileContext.put(PipelineCode.TILE_METADATA_KEY, copy(tileMetadata, code));
+		RasterizingContainer rasterizingContainer = new RasterizingContainer();
+		rasterizingContainer.setImage(image);
+		cachingSupportService.putContainer(tileContext, securityContextAdder, CacheCategory.RASTER, KEYS,
+				RasterizingPipelineCode.IMAGE_ID_KEY, RasterizingPipelineCode.IMAGE_ID_CONTEXT, rasterizingContainer,
+				tileBounds);
+	}
+
+	/**
+	 * Key which identifies the metatile, this includes the security context as the rendering depends on it.
+	 */
+	private String getMetaTileKey(TmsTileMetadata tileMetadata, MetaTile metaTile) {
+		PipelineContext keyContext = pipelineService.createContext();
+		keyContext.put(PipelineCode.LAYER_ID_KEY, tileMetadata.getLayerId());
+		keyContext.put(PipelineCode.TILE_METADATA_KEY, copy(tileMetadata, metaTile.getCode()));
+		CacheContext cacheContext = cacheKeyService.getCacheContext(keyContext, KEYS);
+		securityContextAdder.addMoreContext(cacheContext);
+		return cacheKeyService.getCacheKey(cacheContext) + "/" + metaTile.getSize();
+	}
+
+	private TmsTileMetadata copy(TmsTileMetadata source, TileCode code) {
+		TmsTileMetadata copy = new TmsTileMetadata();
+		copy.setCode(code);
+		copy.setCrs(source.getCrs());
+		copy.setLayerId(source.getLayerId());
+		copy.setPaintGeometries(source.isPaintGeometries());
+		copy.setPaintLabels(source.isPaintLabels());
+		copy.setPanOrigin(source.getPanOrigin());
+		copy.setRenderer(source.getRenderer());
+		copy.setScale(source.getScale());
+		copy.setStyleInfo(source.getStyleInfo());
+		copy.setFilter(source.getFilter());
+		copy.setTileOrigin(source.getTileOrigin());
+		copy.setTileWidth(source.getTileWidth());
+		copy.setTileHeight(source.getTileHeight());
+		return copy;
+	}
+
+	private ClientMapInfo prepareMap(Bbox bounds, TileMetadata tileMetadata, NamedStyleInfo style) {
 		ClientMapInfo mapInfo = new ClientMapInfo();
 		MapRasterizingInfo mapRasterizingInfo = new MapRasterizingInfo();
-		mapRasterizingInfo.setBounds(converterService.toDto(tileContainer.getTile().getBounds()));
+		mapRasterizingInfo.setBounds(bounds);
 		mapInfo.setCrs(tileMetadata.getCrs());
 		mapRasterizingInfo.setScale(tileMetadata.getScale());
 		mapInfo.getWidgetInfo().put(MapRasterizingInfo.WIDGET_KEY, mapRasterizingInfo);
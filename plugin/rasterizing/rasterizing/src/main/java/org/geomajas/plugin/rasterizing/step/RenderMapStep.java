@@ -57,7 +57,7 @@ public class RenderMapStep extends AbstractRasterizingStep {
 		}
 	}
 
-	private BufferedImage createImage(int width, int height, boolean transparent) {
+	static BufferedImage createImage(int width, int height, boolean transparent) {
 		if (transparent) {
 			return new BufferedImage(width, height, BufferedImage.TYPE_4BYTE_ABGR);
 		} else {
@@ -66,7 +66,7 @@ public class RenderMapStep extends AbstractRasterizingStep {
 		}
 	}
 
-	private Graphics2D getGraphics(BufferedImage image, boolean transparent, RenderingHints renderingHints) {
+	static Graphics2D getGraphics(BufferedImage image, boolean transparent, RenderingHints renderingHints) {
 		Graphics2D graphics = image.createGraphics();
 		Color bgColor = Color.WHITE;
 		if (transparent) {
@@ -12,7 +12,10 @@ package org.geomajas.plugin.rasterizing.tms;
 
 import java.io.Writer;
 
+import org.geomajas.geometry.Coordinate;
 import org.geomajas.global.GeomajasException;
+import org.geomajas.layer.tile.TileCode;
+import org.geomajas.plugin.rasterizing.layer.tile.TmsTileMetadata;
 
 /**
  * The TMS service is responsible for publishing the TMS metadata (vector layers only!). See
@@ -42,4 +45,37 @@ public interface TmsService {
 	 */
 	void writeTileMap(String layerId, String styleRef, ProfileType profile, Writer writer) throws GeomajasException;
 
+	/**
+	 * Get the profile which is used to publish a layer in a CRS. This is one of the global profiles when the CRS
+	 * matches, a local profile based on the maximum extent of the layer otherwise.
+	 *
+	 * @param layerId the layer id
+	 * @param crs the tile crs, e.g. "EPSG:4326"
+	 * @return profile
+	 * @throws GeomajasException layer or crs not found
+	 */
+	TmsProfile getProfile(String layerId, String crs) throws GeomajasException;
+
+	/**
+	 * Create the metadata for a TMS tile. The metadata determines the cache key of the tile, so all tiles should be
+	 * built using this method. When resolution or tile origin are null, they are taken from the profile.
+	 *
+	 * @param layerId the layer id
+	 * @param styleKey the style id
+	 * @param crs the tile crs, e.g. "EPSG:4326"
+	 * @param code tile code
+	 * @param resolution resolution (map units per pixel), may be null
+	 * @param tileOrigin tile origin, may be null
+	 * @param tileWidth tile width in pixels, only used when resolution and tile origin are set
+	 * @param tileHeight tile height in pixels, only used when resolution and tile origin are set
+	 * @param showGeometries should the tile contain the geometries?
+	 * @param showLabels should the tile contain the labels?
+	 * @param filter optional CQL filter on the features shown
+	 * @return tile metadata
+	 * @throws GeomajasException layer, style or crs not found
+	 */
+	TmsTileMetadata createTileMetadata(String layerId, String styleKey, String crs, TileCode code,
+			Double resolution, Coordinate tileOrigin, int tileWidth, int tileHeight, boolean showGeometries,
+			boolean showLabels, String filter) throws GeomajasException;
+
 }
@@ -12,22 +12,28 @@ package org.geomajas.plugin.rasterizing.tms;
 
 import java.io.Writer;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
 import javax.xml.bind.Marshaller;
 
 import org.geomajas.geometry.Bbox;
+import org.geomajas.geometry.Coordinate;
 import org.geomajas.geometry.Crs;
 import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.VectorLayer;
 import org.geomajas.layer.VectorLayerService;
+import org.geomajas.layer.tile.TileCode;
+import org.geomajas.plugin.rasterizing.layer.tile.TmsTileMetadata;
 import org.geomajas.plugin.rasterizing.mvc.TmsController;
 import org.geomajas.service.ConfigurationService;
 import org.geomajas.service.DispatcherUrlService;
 import org.geomajas.service.DtoConverterService;
 import org.geomajas.service.GeoService;
+import org.geomajas.service.StyleService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -46,6 +52,8 @@ public class TmsServiceImpl implements TmsService {
 
 	public static final String MAPPING_1_0_0 = "tms/1.0.0/";
 
+	private static final String TMS_TILE_RENDERER = "TmsTileRenderer";
+
 	@Autowired
 	private ConfigurationService configurationService;
 
@@ -61,9 +69,20 @@ public class TmsServiceImpl implements TmsService {
 	@Autowired
 	private GeoService geoService;
 
+	@Autowired
+	private StyleService styleService;
+
 	@Autowired(required = false)
 	private List<VectorLayer> layers = new ArrayList<VectorLayer>();
 
+	private Map<String, TmsProfile> profiles = new HashMap<String, TmsProfile>();
+
+	public TmsServiceImpl() {
+		profiles.put("EPSG:900913", new GlobalMercatorProfile());
+		profiles.put("EPSG:3857", new GlobalMercatorProfile());
+		profiles.put("EPSG:4326", new GlobalGeodeticProfile());
+	}
+
 	@Override
 	public void writeService(Writer writer) throws GeomajasException {
 		TileMapService tileMapService = new TileMapService();
@@ -159,4 +178,48 @@ public class TmsServiceImpl implements TmsService {
 
 	}
 
+	@Override
+	public TmsProfile getProfile(String layerId, String crs) throws GeomajasException {
+		if (profiles.containsKey(crs)) {
+			return profiles.get(crs);
+		} else {
+			VectorLayer layer = configurationService.getVectorLayer(layerId);
+			Crs layerCrs = vectorLayerService.getCrs(layer);
+			Crs tileCrs = geoService.getCrs2(crs);
+			Bbox layerBounds = layer.getLayerInfo().getMaxExtent();
+			if (layerCrs != tileCrs) {
+				layerBounds = geoService.transform(layerBounds, layerCrs, tileCrs);
+			}
+			return new LocalProfile(dtoConverterService.toInternal(layerBounds), TmsController.PROFILE_TILE_SIZE);
+		}
+	}
+
+	@Override
+	public TmsTileMetadata createTileMetadata(String layerId, String styleKey, String crs, TileCode code,
+			Double resolution, Coordinate tileOrigin, int tileWidth, int tileHeight, boolean showGeometries,
+			boolean showLabels, String filter) throws GeomajasException {
+		Crs tileCrs = geoService.getCrs2(crs);
+		TmsTileMetadata tileMetadata = new TmsTileMetadata();
+		tileMetadata.setCode(code);
+		tileMetadata.setCrs(geoService.getCodeFromCrs(tileCrs));
+		tileMetadata.setLayerId(layerId);
+		tileMetadata.setPaintGeometries(showGeometries);
+		tileMetadata.setPaintLabels(showLabels);
+		tileMetadata.setRenderer(TMS_TILE_RENDERER);
+		tileMetadata.setTileWidth(tileWidth);
+		tileMetadata.setTileHeight(tileHeight);
+		// TmsTileMetadata specific
+		tileMetadata.setStyleInfo(styleService.retrieveStyle(layerId, styleKey));
+		tileMetadata.setFilter(filter);
+		// if no origin or resolution, try one of the preconfigured profiles or fall back to
+		// the layer bounds
+		if (resolution == null || tileOrigin == null) {
+			getProfile(layerId, crs).prepareMetadata(tileMetadata);
+		} else {
+			tileMetadata.setResolution(resolution);
+			tileMetadata.setTileOrigin(tileOrigin);
+		}
+		return tileMetadata;
+	}
+
 }
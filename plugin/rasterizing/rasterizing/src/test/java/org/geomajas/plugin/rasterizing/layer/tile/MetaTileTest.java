@@ -0,0 +1,87 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+
+package org.geomajas.plugin.rasterizing.layer.tile;
+
+import java.util.List;
+
+import org.geomajas.geometry.Coordinate;
+import org.geomajas.layer.tile.TileCode;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Test for {@link MetaTile}.
+ *
+ * @author agent
+ */
+public class MetaTileTest {
+
+	private static final double DELTA = 1E-9;
+
+	@Test
+	public void testCode() {
+		Assert.assertEquals("3-1-0", new MetaTile(new TileCode(3, 5, 3), 4).getCode().toString());
+		Assert.assertEquals("3-0-0", new MetaTile(new TileCode(3, 0, 0), 4).getCode().toString());
+		Assert.assertEquals("3--1--2", new MetaTile(new TileCode(3, -1, -5), 4).getCode().toString());
+	}
+
+	@Test
+	public void testTileCodes() {
+		MetaTile metaTile = new MetaTile(new TileCode(2, 3, 2), 2);
+		List<TileCode> codes = metaTile.getTileCodes();
+		Assert.assertEquals(4, codes.size());
+		for (TileCode code : codes) {
+			Assert.assertTrue(metaTile.contains(code));
+			Assert.assertTrue(code.getX() == 2 || code.getX() == 3);
+			Assert.assertTrue(code.getY() == 2 || code.getY() == 3);
+		}
+		Assert.assertFalse(metaTile.contains(new TileCode(2, 1, 2)));
+		Assert.assertFalse(metaTile.contains(new TileCode(3, 2, 2)));
+	}
+
+	@Test
+	public void testTileCodesClippedToGrid() {
+		// level 0 only has one tile
+		List<TileCode> codes = new MetaTile(new TileCode(0, 0, 0), 4).getTileCodes();
+		Assert.assertEquals(1, codes.size());
+		Assert.assertEquals("0-0-0", codes.get(0).toString());
+		// level 3 has 8 x 8 tiles, the metatile at the edge only partly overlaps
+		codes = new MetaTile(new TileCode(3, 7, 1), 3).getTileCodes();
+		Assert.assertEquals(6, codes.size());
+		for (TileCode code : codes) {
+			Assert.assertTrue(code.getX() == 6 || code.getX() == 7);
+			Assert.assertTrue(code.getY() >= 0 && code.getY() <= 2);
+		}
+		// no tiles with negative indexes
+		Assert.assertTrue(new MetaTile(new TileCode(3, -1, -5), 4).getTileCodes().isEmpty());
+	}
+
+	@Test
+	public void testBoundsAndPixels() {
+		MetaTile metaTile = new MetaTile(new TileCode(1, 2, 3), 2);
+		Envelope bounds = metaTile.getBounds(new Coordinate(-100, -50), 0.5, 256, 128, 10);
+		Assert.assertEquals(532, metaTile.getImageWidth(256, 10));
+		Assert.assertEquals(276, metaTile.getImageHeight(128, 10));
+		Assert.assertEquals(-100 + 2 * 128 - 5, bounds.getMinX(), DELTA);
+		Assert.assertEquals(-100 + 4 * 128 + 5, bounds.getMaxX(), DELTA);
+		Assert.assertEquals(-50 + 2 * 64 - 5, bounds.getMinY(), DELTA);
+		Assert.assertEquals(-50 + 4 * 64 + 5, bounds.getMaxY(), DELTA);
+		// tile indexes go up, pixels go down
+		Assert.assertEquals(10, metaTile.getPixelX(new TileCode(1, 2, 3), 256, 10));
+		Assert.assertEquals(10, metaTile.getPixelY(new TileCode(1, 2, 3), 128, 10));
+		Assert.assertEquals(266, metaTile.getPixelX(new TileCode(1, 3, 2), 256, 10));
+		Assert.assertEquals(138, metaTile.getPixelY(new TileCode(1, 3, 2), 128, 10));
+	}
+}
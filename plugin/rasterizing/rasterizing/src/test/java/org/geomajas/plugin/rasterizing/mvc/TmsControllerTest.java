@@ -3,10 +3,17 @@ package org.geomajas.plugin.rasterizing.mvc;
 import java.io.OutputStream;
 
 import org.geomajas.geometry.Coordinate;
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.plugin.caching.service.CacheCategory;
+import org.geomajas.plugin.caching.service.CacheManagerService;
+import org.geomajas.plugin.rasterizing.configuration.MetaTileInfo;
 import org.geomajas.security.SecurityManager;
+import org.geomajas.service.ConfigurationService;
+import org.geomajas.service.TestRecorder;
 import org.geomajas.spring.ThreadScopeContextHolder;
 import org.geomajas.testdata.TestPathBinaryStreamAssert;
 import org.junit.After;
+import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.runner.RunWith;
@@ -22,7 +29,7 @@ import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
 		"/org/geomajas/testdata/layerBeans.xml", "/org/geomajas/testdata/layerBeansMultiLine.xml",
 		"/org/geomajas/testdata/layerBeansMultiPolygon.xml", "/org/geomajas/testdata/layerBeansPoint.xml",
 		"/org/geomajas/testdata/layerBluemarble.xml", "/org/geomajas/plugin/rasterizing/DefaultRasterizedPipelines.xml",
-		"/META-INF/geomajasWebContextRasterizing.xml" })
+		"/META-INF/geomajasWebContextRasterizing.xml", "/org/geomajas/spring/testRecorder.xml" })
 public class TmsControllerTest {
 
 	@Autowired
@@ -35,6 +42,15 @@ public class TmsControllerTest {
 	@Autowired
 	private SecurityManager securityManager;
 
+	@Autowired
+	private ConfigurationService configurationService;
+
+	@Autowired
+	private CacheManagerService cacheManager;
+
+	@Autowired
+	private TestRecorder recorder;
+
 	private static final double DELTA = 0.07;
 	
 	// changing this to true and running the test from the base directory will generate the images !
@@ -60,6 +76,42 @@ public class TmsControllerTest {
 		new ResponseAssert(response).assertEqualImage("layerBeansMultiPolygon-0-0-0.png", writeImages, DELTA);
 	}
 
+	@Test
+	public void getVectorTileMetaTile() throws Exception {
+		VectorLayer layer = configurationService.getVectorLayer("layerBeansMultiPolygon");
+		MetaTileInfo metaTileInfo = new MetaTileInfo();
+		metaTileInfo.setSize(2);
+		layer.getLayerInfo().getExtraInfo().put(MetaTileInfo.KEY, metaTileInfo);
+		try {
+			cacheManager.drop(layer);
+			recorder.clear();
+			MockHttpServletResponse response = new MockHttpServletResponse();
+			tmsController.getVectorTile("layerBeansMultiPolygon", "layerBeansMultiPolygonStyleInfo", "EPSG:4326", 0, 0,
+					0, 100.0 / 256.0, "-50,-50", 256, 256, true, false, null, response);
+			response.flushBuffer();
+			Assert.assertEquals("", recorder.matches(CacheCategory.RASTER, "Metatile rasterization success",
+					"Put metatile in cache"));
+			new ResponseAssert(response).assertEqualImage("layerBeansMultiPolygon-0-0-0.png", writeImages, DELTA);
+
+			// level 0 only has one tile, at level 1 the other tiles of the metatile are already rendered
+			recorder.clear();
+			response = new MockHttpServletResponse();
+			tmsController.getVectorTile("layerBeansMultiPolygon", "layerBeansMultiPolygonStyleInfo", "EPSG:4326", 1, 0,
+					0, 50.0 / 256.0, "-50,-50", 256, 256, true, false, null, response);
+			Assert.assertEquals("", recorder.matches(CacheCategory.RASTER, "Metatile rasterization success",
+					"Put metatile in cache"));
+			recorder.clear();
+			response = new MockHttpServletResponse();
+			tmsController.getVectorTile("layerBeansMultiPolygon", "layerBeansMultiPolygonStyleInfo", "EPSG:4326", 1, 1,
+					1, 50.0 / 256.0, "-50,-50", 256, 256, true, false, null, response);
+			Assert.assertEquals("", recorder.matches(CacheCategory.RASTER, "Got item from cache"));
+			Assert.assertTrue(response.getContentAsByteArray().length > 0);
+		} finally {
+			layer.getLayerInfo().getExtraInfo().remove(MetaTileInfo.KEY);
+			cacheManager.drop(layer);
+		}
+	}
+
 	private class ResponseAssert extends TestPathBinaryStreamAssert {
 
 		private MockHttpServletResponse response;
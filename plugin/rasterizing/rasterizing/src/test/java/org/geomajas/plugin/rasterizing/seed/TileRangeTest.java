@@ -0,0 +1,72 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.seed;
+
+import org.geomajas.plugin.rasterizing.tms.GlobalGeodeticProfile;
+import org.geomajas.plugin.rasterizing.tms.GlobalMercatorProfile;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Envelope;
+
+/**
+ * Test for {@link TileRange}.
+ *
+ * @author agent
+ */
+public class TileRangeTest {
+
+	@Test
+	public void testGeodetic() {
+		GlobalGeodeticProfile profile = new GlobalGeodeticProfile();
+		Envelope bounds = new Envelope(-50, 50, -50, 50);
+		// level 0 has two tiles of 180 degrees
+		TileRange range = new TileRange(profile, 0, bounds);
+		Assert.assertEquals(2, range.getTileCount());
+		Assert.assertEquals("0-0-0", range.getTileCode(0).toString());
+		Assert.assertEquals("0-1-0", range.getTileCode(1).toString());
+		// level 1 has tiles of 90 degrees, starting at -180,-90
+		range = new TileRange(profile, 1, bounds);
+		Assert.assertEquals(4, range.getTileCount());
+		Assert.assertEquals("1-1-0", range.getTileCode(0).toString());
+		Assert.assertEquals("1-2-0", range.getTileCode(1).toString());
+		Assert.assertEquals("1-1-1", range.getTileCode(2).toString());
+		Assert.assertEquals("1-2-1", range.getTileCode(3).toString());
+	}
+
+	@Test
+	public void testTileBorders() {
+		GlobalGeodeticProfile profile = new GlobalGeodeticProfile();
+		// bounds which exactly match a tile only contain that tile
+		TileRange range = new TileRange(profile, 1, new Envelope(-90, 0, 0, 90));
+		Assert.assertEquals(1, range.getTileCount());
+		Assert.assertEquals("1-1-1", range.getTileCode(0).toString());
+	}
+
+	@Test
+	public void testOutsideProfile() {
+		GlobalMercatorProfile profile = new GlobalMercatorProfile();
+		// clipped to the profile bounds
+		TileRange range = new TileRange(profile, 0, new Envelope(-1E9, 1E9, -1E9, 1E9));
+		Assert.assertEquals(1, range.getTileCount());
+		range = new TileRange(profile, 2, new Envelope(-1E9, 1E9, -1E9, 1E9));
+		Assert.assertEquals(16, range.getTileCount());
+		// nothing to seed
+		range = new TileRange(profile, 2, new Envelope(3E7, 4E7, 0, 1E6));
+		Assert.assertEquals(0, range.getTileCount());
+	}
+
+	@Test(expected = IndexOutOfBoundsException.class)
+	public void testIndexOutOfRange() {
+		new TileRange(new GlobalGeodeticProfile(), 0, new Envelope(-50, 50, -50, 50)).getTileCode(2);
+	}
+}
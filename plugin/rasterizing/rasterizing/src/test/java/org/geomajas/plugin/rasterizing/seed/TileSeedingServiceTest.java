@@ -0,0 +1,128 @@
+/*
+ * This is part of Geomajas, a GIS framework, http://www.geomajas.org/.
+ *
+ * Copyright 2008-2016 Geosparc nv, http://www.geosparc.com/, Belgium.
+ *
+ * The program is available in open source according to the GNU Affero
+ * General Public License. All contributions in this program are covered
+ * by the Geomajas Contributors License Agreement. For full licensing
+ * details, see LICENSE.txt in the project root.
+ */
+
+package org.geomajas.plugin.rasterizing.seed;
+
+import org.geomajas.layer.VectorLayer;
+import org.geomajas.plugin.caching.service.CacheManagerService;
+import org.geomajas.plugin.rasterizing.api.TileSeedingJob;
+import org.geomajas.plugin.rasterizing.api.TileSeedingService;
+import org.geomajas.security.SecurityManager;
+import org.geomajas.service.ConfigurationService;
+import org.geomajas.spring.ThreadScopeContextHolder;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.ContextConfiguration;
+import org.springframework.test.context.junit4.SpringJUnit4ClassRunner;
+
+/**
+ * Test for {@link TileSeedingServiceImpl}.
+ *
+ * @author agent
+ */
+@RunWith(SpringJUnit4ClassRunner.class)
+@ContextConfiguration(locations = { "/org/geomajas/spring/geomajasContext.xml",
+		"/org/geomajas/plugin/rasterizing/rasterizing-service.xml", "/org/geomajas/testdata/beanContext.xml",
+		"/org/geomajas/testdata/layerBeansMultiPolygon.xml",
+		"/org/geomajas/plugin/rasterizing/DefaultRasterizedPipelines.xml" })
+public class TileSeedingServiceTest {
+
+	private static final String LAYER_ID = "layerBeansMultiPolygon";
+
+	private static final String STYLE_KEY = "layerBeansMultiPolygonStyleInfo";
+
+	private static final long TIMEOUT = 60000;
+
+	@Autowired
+	private TileSeedingService tileSeedingService;
+
+	@Autowired
+	private SecurityManager securityManager;
+
+	@Autowired
+	private ConfigurationService configurationService;
+
+	@Autowired
+	private CacheManagerService cacheManager;
+
+	@Before
+	public void login() {
+		// assure security context is set
+		securityManager.createSecurityContext(null);
+		cacheManager.drop(getLayer());
+	}
+
+	@After
+	public void clearSecurityContext() {
+		cacheManager.drop(getLayer());
+		ThreadScopeContextHolder.clear();
+	}
+
+	@Test
+	public void testSeed() throws Exception {
+		TileSeedingJob job = tileSeedingService.seed(LAYER_ID, STYLE_KEY, "EPSG:4326", null, 0, 1, true, false,
+				null);
+		// layer extent is -50,-50 to 50,50, 2 tiles on level 0 and 4 tiles on level 1
+		Assert.assertEquals(6, job.getTileCount());
+		waitFor(job);
+		Assert.assertEquals(TileSeedingJob.State.FINISHED, job.getState());
+		Assert.assertEquals(6, job.getRenderedCount());
+		Assert.assertEquals(0, job.getFailedCount());
+		Assert.assertSame(job, tileSeedingService.getJob(job.getId()));
+
+		// all tiles are cached now
+		job = tileSeedingService.seed(LAYER_ID, STYLE_KEY, "EPSG:4326", null, 0, 1, true, false, null);
+		waitFor(job);
+		Assert.assertEquals(TileSeedingJob.State.FINISHED, job.getState());
+		Assert.assertEquals(0, job.getRenderedCount());
+		Assert.assertEquals(6, job.getSkippedCount());
+	}
+
+	@Test
+	public void testCancelResume() throws Exception {
+		TileSeedingJob job = tileSeedingService.seed(LAYER_ID, STYLE_KEY, "EPSG:4326", null, 0, 2, true, false,
+				null);
+		tileSeedingService.cancel(job.getId());
+		waitFor(job);
+		if (TileSeedingJob.State.CANCELLED == job.getState()) {
+			Assert.assertTrue(job.getProcessedCount() < job.getTileCount());
+			tileSeedingService.resume(job.getId());
+			waitFor(job);
+		}
+		Assert.assertEquals(TileSeedingJob.State.FINISHED, job.getState());
+		Assert.assertEquals(job.getTileCount(), job.getProcessedCount());
+		Assert.assertEquals(0, job.getFailedCount());
+	}
+
+	@Test(expected = Exception.class)
+	public void testInvalidLevels() throws Exception {
+		tileSeedingService.seed(LAYER_ID, STYLE_KEY, "EPSG:4326", null, 2, 1, true, false, null);
+	}
+
+	private void waitFor(TileSeedingJob job) throws InterruptedException {
+		long end = System.currentTimeMillis() + TIMEOUT;
+		while (isActive(job) && System.currentTimeMillis() < end) {
+			Thread.sleep(10);
+		}
+	}
+
+	private boolean isActive(TileSeedingJob job) {
+		return TileSeedingJob.State.QUEUED == job.getState() || TileSeedingJob.State.RUNNING == job.getState();
+	}
+
+	private VectorLayer getLayer() {
+		return configurationService.getVectorLayer(LAYER_ID);
+	}
+}
@@ -13,17 +13,21 @@ package org.geomajas.plugin.staticsecurity.security;
 
 import org.geomajas.plugin.staticsecurity.configuration.SecurityServiceInfo;
 import org.geomajas.security.Authentication;
+import org.geomajas.security.SecurityManager;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Create and manage/cache authentication tokens.
+ * Create and manage/cache authentication tokens. The {@link SecurityManager} is notified when a token is no longer
+ * valid, to assure it does not keep using cached authentications for the token. The validity of the authentication is
+ * limited to the token lifetime, so the security manager does not cache it beyond the expiry of the token.
  *
  * @author Joachim Van der Auwera
  */
@@ -38,6 +42,9 @@ public class AuthenticationTokenService {
 	@Autowired
 	private SecurityServiceInfo securityServiceInfo;
 
+	@Autowired
+	private SecurityManager securityManager;
+
 	private final Map<String, TokenContainer> tokens = new ConcurrentHashMap<String, TokenContainer>();
 
 	/**
@@ -67,6 +74,7 @@ public class AuthenticationTokenService {
 	 */
 	public void logout(String token) {
 		tokens.remove(token);
+		securityManager.invalidateAuthentication(token);
 	}
 
 	/**
@@ -92,6 +100,7 @@ public class AuthenticationTokenService {
 			return login(authentication);
 		}
 		tokens.put(token, new TokenContainer(authentication));
+		securityManager.invalidateAuthentication(token); // token may have been in use for a different authentication
 		return token;
 	}
 
@@ -133,6 +142,10 @@ public class AuthenticationTokenService {
 		public TokenContainer(Authentication authentication) {
 			validUntil = System.currentTimeMillis() + MS_IN_S * securityServiceInfo.getTokenLifetime();
 			this.authentication = authentication;
+			Date authenticationValidUntil = authentication.getValidUntil();
+			if (null == authenticationValidUntil || authenticationValidUntil.getTime() > validUntil) {
+				authentication.setValidUntil(new Date(validUntil));
+			}
 		}
 
 		/**
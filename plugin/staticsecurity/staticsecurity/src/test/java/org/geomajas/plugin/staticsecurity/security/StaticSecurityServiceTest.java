@@ -11,6 +11,7 @@
 
 package org.geomajas.plugin.staticsecurity.security;
 
+import org.geomajas.plugin.staticsecurity.configuration.SecurityServiceInfo;
 import org.geomajas.security.Authentication;
 import org.junit.Assert;
 import org.junit.Test;
@@ -35,12 +36,19 @@ public class StaticSecurityServiceTest {
 	@Autowired
 	private StaticSecurityService staticSecurityService;
 
+	@Autowired
+	private SecurityServiceInfo securityServiceInfo;
+
 	@Test
 	public void testService() throws Exception {
 		Authentication auth = new Authentication();
 		String token = tokenService.login(auth);
 		Authentication res = staticSecurityService.getAuthentication(token);
 		Assert.assertEquals(auth, res);
+		// the authentication can not be cached beyond the token lifetime
+		Assert.assertNotNull(res.getValidUntil());
+		Assert.assertTrue(res.getValidUntil().getTime() <= System.currentTimeMillis() +
+				1000L * securityServiceInfo.getTokenLifetime());
 		tokenService.logout(token);
 		res = staticSecurityService.getAuthentication(token);
 		Assert.assertNull(res);
@@ -14,6 +14,7 @@ import java.util.ListIterator;
 
 import org.geomajas.global.GeomajasException;
 import org.geomajas.layer.feature.InternalFeature;
+import org.geomajas.layer.feature.InternalFeatureHandler;
 import org.geomajas.layer.pipeline.GetFeaturesContainer;
 import org.geomajas.service.TestRecorder;
 import org.geomajas.service.pipeline.PipelineCode;
@@ -46,6 +47,15 @@ public class DelaySecurityFilterPostStep implements DelaySecurityFilterStep {
 				}
 			}
 			recorder.record("layer", "applied security filter after layer");
+			InternalFeatureHandler handler = context.getOptional(SAVED_FEATURE_HANDLER_KEY,
+					InternalFeatureHandler.class);
+			if (null != handler) {
+				response.setFeatureHandler(handler);
+				for (InternalFeature feature : response.getFeatures()) {
+					handler.handle(feature);
+				}
+				response.getFeatures().clear();
+			}
 		}
 	}
 
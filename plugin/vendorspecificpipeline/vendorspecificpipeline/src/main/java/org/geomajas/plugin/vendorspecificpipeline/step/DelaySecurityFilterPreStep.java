@@ -47,6 +47,9 @@ public class DelaySecurityFilterPreStep implements DelaySecurityFilterStep {
 				recorder.record("layer", "removed security filter before layer");
 				context.put(PipelineCode.FILTER_KEY, and.getChildren().get(0));
 				context.put(SECURITY_FILTER_KEY, and.getChildren().get(1));
+				// the features can only be passed to the handler after the security filter is applied
+				context.put(SAVED_FEATURE_HANDLER_KEY, response.getFeatureHandler());
+				response.setFeatureHandler(null);
 			}
 		}
 	}
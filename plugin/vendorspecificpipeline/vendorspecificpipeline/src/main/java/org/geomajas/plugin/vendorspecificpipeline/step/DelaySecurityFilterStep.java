@@ -27,4 +27,6 @@ public interface DelaySecurityFilterStep extends PipelineStep<GetFeaturesContain
 
 	String SECURITY_FILTER_KEY = "securityFilter";
 
+	String SAVED_FEATURE_HANDLER_KEY = "savedFeatureHandler";
+
 }